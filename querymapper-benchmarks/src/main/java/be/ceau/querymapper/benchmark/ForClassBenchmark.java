@@ -0,0 +1,59 @@
+package be.ceau.querymapper.benchmark;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import be.ceau.querymapper.QueryMapper;
+import be.ceau.querymapper.benchmark.model.FewFieldsBean;
+import be.ceau.querymapper.benchmark.model.ManyFieldsBean;
+import be.ceau.querymapper.benchmark.model.NestedLimitBean;
+
+/**
+ * Cost of {@link QueryMapper#forClass(Class)}, both for a cached QueryMapper and for building a new one.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ForClassBenchmark {
+
+	@Benchmark
+	public QueryMapper<FewFieldsBean> cachedFewFields() {
+		return QueryMapper.forClass(FewFieldsBean.class);
+	}
+
+	@Benchmark
+	public QueryMapper<ManyFieldsBean> cachedManyFields() {
+		return QueryMapper.forClass(ManyFieldsBean.class);
+	}
+
+	@Benchmark
+	public QueryMapper<FewFieldsBean> buildFewFields() {
+		QueryMapper.evict(FewFieldsBean.class);
+		return QueryMapper.forClass(FewFieldsBean.class);
+	}
+
+	@Benchmark
+	public QueryMapper<ManyFieldsBean> buildManyFields() {
+		QueryMapper.evict(ManyFieldsBean.class);
+		return QueryMapper.forClass(ManyFieldsBean.class);
+	}
+
+	@Benchmark
+	public QueryMapper<NestedLimitBean> buildNestedLimit() {
+		QueryMapper.evict(NestedLimitBean.class);
+		return QueryMapper.forClass(NestedLimitBean.class);
+	}
+
+}
@@ -0,0 +1,67 @@
+package be.ceau.querymapper.benchmark;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import be.ceau.querymapper.QueryMapper;
+import be.ceau.querymapper.benchmark.model.InBean;
+
+/**
+ * Cost of rendering a collection compared with <code>IN</code>, for collections of different sizes.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class InCollectionBenchmark {
+
+	@Param({ "1", "10", "100", "1000" })
+	private int size;
+
+	private QueryMapper<InBean> mapper;
+	private InBean bean;
+
+	@Setup
+	public void setUp() {
+		mapper = QueryMapper.forClass(InBean.class);
+		List<Long> ids = new ArrayList<Long>(size);
+		for (long i = 0; i < size; i++) {
+			ids.add(i);
+		}
+		bean = new InBean();
+		bean.setIds(ids);
+		bean.setMinimumAge(18);
+	}
+
+	@Benchmark
+	public String whereClause() {
+		return mapper.toWhereClause(bean);
+	}
+
+	@Benchmark
+	public Map<String, Object> parameterMap() {
+		return mapper.toParameterMap(bean);
+	}
+
+	@Benchmark
+	public String positionalWhereClause() {
+		return mapper.toPositionalWhereClause(bean);
+	}
+
+}
@@ -0,0 +1,121 @@
+package be.ceau.querymapper.benchmark;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import be.ceau.querymapper.QueryMapper;
+import be.ceau.querymapper.benchmark.model.FewFieldsBean;
+import be.ceau.querymapper.benchmark.model.ManyFieldsBean;
+import be.ceau.querymapper.benchmark.model.NestedLimitBean;
+import be.ceau.querymapper.enums.SortOrder;
+
+/**
+ * Cost of the render methods of a cached QueryMapper, for beans with few fields, many fields, and a nested <code>@Limit</code> field.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class RenderBenchmark {
+
+	private QueryMapper<FewFieldsBean> fewMapper;
+	private QueryMapper<ManyFieldsBean> manyMapper;
+	private QueryMapper<NestedLimitBean> nestedMapper;
+	private FewFieldsBean few;
+	private ManyFieldsBean many;
+	private NestedLimitBean nested;
+
+	@Setup
+	public void setUp() {
+		fewMapper = QueryMapper.forClass(FewFieldsBean.class);
+		manyMapper = QueryMapper.forClass(ManyFieldsBean.class);
+		nestedMapper = QueryMapper.forClass(NestedLimitBean.class);
+
+		few = new FewFieldsBean();
+		few.setName("name");
+		few.setMinimumAge(18);
+		few.setOffset(40L);
+		few.setRows(20);
+
+		many = new ManyFieldsBean();
+		many.setA(1);
+		many.setC(3);
+		many.setE(5);
+		many.setG(7);
+		many.setI(9);
+		many.setK(11);
+		many.setName("name");
+		many.setCode("c");
+		many.setSortOrder(SortOrder.ASCENDING);
+		many.setIds(Arrays.asList(1L, 2L, 3L, 4L, 5L));
+		many.setPage(3);
+		many.setRows(20);
+
+		nested = new NestedLimitBean();
+		nested.setName("name");
+		NestedLimitBean.Paging paging = new NestedLimitBean.Paging();
+		paging.setPage(3);
+		paging.setRows(20);
+		nested.setPaging(paging);
+	}
+
+	@Benchmark
+	public String whereClauseFewFields() {
+		return fewMapper.toWhereClause(few);
+	}
+
+	@Benchmark
+	public String whereClauseManyFields() {
+		return manyMapper.toWhereClause(many);
+	}
+
+	@Benchmark
+	public Map<String, Object> parameterMapFewFields() {
+		return fewMapper.toParameterMap(few);
+	}
+
+	@Benchmark
+	public Map<String, Object> parameterMapManyFields() {
+		return manyMapper.toParameterMap(many);
+	}
+
+	@Benchmark
+	public String orderClauseFewFields() {
+		return fewMapper.toOrderClause();
+	}
+
+	@Benchmark
+	public String orderClauseManyFields() {
+		return manyMapper.toOrderClause();
+	}
+
+	@Benchmark
+	public String limitClauseFewFields() {
+		return fewMapper.toLimitClause(few);
+	}
+
+	@Benchmark
+	public String limitClauseManyFields() {
+		return manyMapper.toLimitClause(many);
+	}
+
+	@Benchmark
+	public String limitClauseNestedLimit() {
+		return nestedMapper.toLimitClause(nested);
+	}
+
+}
@@ -0,0 +1,40 @@
+package be.ceau.querymapper.benchmark.model;
+
+import be.ceau.querymapper.annotations.Limit;
+import be.ceau.querymapper.annotations.Order;
+import be.ceau.querymapper.annotations.Where;
+import be.ceau.querymapper.enums.Comparison;
+import be.ceau.querymapper.enums.LimitType;
+
+public class FewFieldsBean {
+
+	@Where
+	@Order
+	private String name;
+
+	@Where(column = "age", comparison = Comparison.GREATER_OR_EQUAL)
+	private Integer minimumAge;
+
+	@Limit(LimitType.OFFSET)
+	private Long offset;
+
+	@Limit
+	private Integer rows;
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public void setMinimumAge(Integer minimumAge) {
+		this.minimumAge = minimumAge;
+	}
+
+	public void setOffset(Long offset) {
+		this.offset = offset;
+	}
+
+	public void setRows(Integer rows) {
+		this.rows = rows;
+	}
+
+}
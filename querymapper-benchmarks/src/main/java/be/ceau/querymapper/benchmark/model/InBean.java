@@ -0,0 +1,24 @@
+package be.ceau.querymapper.benchmark.model;
+
+import java.util.List;
+
+import be.ceau.querymapper.annotations.Where;
+import be.ceau.querymapper.enums.Comparison;
+
+public class InBean {
+
+	@Where(column = "id", comparison = Comparison.IN)
+	private List<Long> ids;
+
+	@Where(column = "age", comparison = Comparison.GREATER_OR_EQUAL)
+	private Integer minimumAge;
+
+	public void setIds(List<Long> ids) {
+		this.ids = ids;
+	}
+
+	public void setMinimumAge(Integer minimumAge) {
+		this.minimumAge = minimumAge;
+	}
+
+}
@@ -0,0 +1,143 @@
+package be.ceau.querymapper.benchmark.model;
+
+import java.util.List;
+
+import be.ceau.querymapper.annotations.Limit;
+import be.ceau.querymapper.annotations.Order;
+import be.ceau.querymapper.annotations.Where;
+import be.ceau.querymapper.enums.Comparison;
+import be.ceau.querymapper.enums.LimitType;
+import be.ceau.querymapper.enums.SortOrder;
+
+public class ManyFieldsBean {
+
+	@Where(comparison = Comparison.EQUALS)
+	private Integer a;
+
+	@Where(comparison = Comparison.GREATER)
+	private Integer b;
+
+	@Where(comparison = Comparison.LESS_OR_EQUAL)
+	private Integer c;
+
+	@Where(comparison = Comparison.EQUALS)
+	private Integer d;
+
+	@Where(comparison = Comparison.GREATER)
+	private Integer e;
+
+	@Where(comparison = Comparison.LESS_OR_EQUAL)
+	private Integer f;
+
+	@Where(comparison = Comparison.EQUALS)
+	private Integer g;
+
+	@Where(comparison = Comparison.GREATER)
+	private Integer h;
+
+	@Where(comparison = Comparison.LESS_OR_EQUAL)
+	private Integer i;
+
+	@Where(comparison = Comparison.EQUALS)
+	private Integer j;
+
+	@Where(comparison = Comparison.GREATER)
+	private Integer k;
+
+	@Where(comparison = Comparison.LESS_OR_EQUAL)
+	private Integer l;
+
+	@Where(comparison = Comparison.LIKE)
+	@Order(index = 1)
+	private String name;
+
+	@Where(comparison = Comparison.STARTS_WITH)
+	private String code;
+
+	@Where(table = "p")
+	@Order(table = "p", order = SortOrder.DESCENDING)
+	private SortOrder sortOrder;
+
+	@Where(column = "id", comparison = Comparison.IN)
+	@Order(index = 2)
+	private List<Long> ids;
+
+	@Limit(LimitType.PART)
+	private Integer page;
+
+	@Limit
+	private Integer rows;
+
+	public void setA(Integer a) {
+		this.a = a;
+	}
+
+	public void setB(Integer b) {
+		this.b = b;
+	}
+
+	public void setC(Integer c) {
+		this.c = c;
+	}
+
+	public void setD(Integer d) {
+		this.d = d;
+	}
+
+	public void setE(Integer e) {
+		this.e = e;
+	}
+
+	public void setF(Integer f) {
+		this.f = f;
+	}
+
+	public void setG(Integer g) {
+		this.g = g;
+	}
+
+	public void setH(Integer h) {
+		this.h = h;
+	}
+
+	public void setI(Integer i) {
+		this.i = i;
+	}
+
+	public void setJ(Integer j) {
+		this.j = j;
+	}
+
+	public void setK(Integer k) {
+		this.k = k;
+	}
+
+	public void setL(Integer l) {
+		this.l = l;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public void setCode(String code) {
+		this.code = code;
+	}
+
+	public void setSortOrder(SortOrder sortOrder) {
+		this.sortOrder = sortOrder;
+	}
+
+	public void setIds(List<Long> ids) {
+		this.ids = ids;
+	}
+
+	public void setPage(Integer page) {
+		this.page = page;
+	}
+
+	public void setRows(Integer rows) {
+		this.rows = rows;
+	}
+
+}
@@ -0,0 +1,43 @@
+package be.ceau.querymapper.benchmark.model;
+
+import be.ceau.querymapper.annotations.Limit;
+import be.ceau.querymapper.annotations.Order;
+import be.ceau.querymapper.annotations.Where;
+import be.ceau.querymapper.enums.LimitType;
+
+public class NestedLimitBean {
+
+	@Where
+	@Order
+	private String name;
+
+	@Limit
+	private Paging paging;
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public void setPaging(Paging paging) {
+		this.paging = paging;
+	}
+
+	public static class Paging {
+
+		@Limit(LimitType.PART)
+		private Integer page;
+
+		@Limit
+		private Integer rows;
+
+		public void setPage(Integer page) {
+			this.page = page;
+		}
+
+		public void setRows(Integer rows) {
+			this.rows = rows;
+		}
+
+	}
+
+}
@@ -0,0 +1,471 @@
+/*
+	Copyright 2015 Marceau Dewilde <m@ceau.be>
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.querymapper.processor;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.annotation.Annotation;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.PackageElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.element.VariableElement;
+import javax.lang.model.type.ArrayType;
+import javax.lang.model.type.DeclaredType;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.lang.model.util.ElementFilter;
+import javax.lang.model.util.Types;
+import javax.tools.Diagnostic.Kind;
+import javax.tools.JavaFileObject;
+
+import be.ceau.querymapper.QueryMapping;
+import be.ceau.querymapper.annotations.Limit;
+import be.ceau.querymapper.annotations.Order;
+import be.ceau.querymapper.annotations.Seek;
+import be.ceau.querymapper.annotations.Where;
+import be.ceau.querymapper.enums.Comparison;
+import be.ceau.querymapper.enums.LimitType;
+import be.ceau.querymapper.enums.SortOrder;
+
+/**
+ * Annotation processor generating a {@link QueryMapping} subclass for each class with <code>@Where</code>, <code>@Order</code> or <code>@Limit</code> annotated fields.<br/>
+ * Invalid combinations of annotations, which {@link be.ceau.querymapper.QueryMapper#forClass(Class)} would reject at runtime, are reported as compilation errors.<br/>
+ * The generated code reads each field directly, never through a getter, as QueryMapper does without a generated QueryMapping, 
+ * so a class renders the same clauses and parameters whether or not this processor ran.<br/>
+ * If any annotated field can not be read directly from the package of its class, for example because it is private, 
+ * no QueryMapping is generated for its class, and QueryMapper falls back to reflection at runtime.
+ * @author Marceau Dewilde
+ */
+@SupportedAnnotationTypes({ "be.ceau.querymapper.annotations.Where", "be.ceau.querymapper.annotations.Order", "be.ceau.querymapper.annotations.Limit", "be.ceau.querymapper.annotations.Seek" })
+public class QueryMapperProcessor extends AbstractProcessor {
+
+	private static final Set<String> BOXED_INTEGRAL_TYPES = new HashSet<String>(Arrays.asList(
+			Byte.class.getName(), Short.class.getName(), Integer.class.getName(), Long.class.getName()));
+
+	@Override
+	public SourceVersion getSupportedSourceVersion() {
+		return SourceVersion.latestSupported();
+	}
+
+	@Override
+	public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+		Set<TypeElement> beans = new LinkedHashSet<TypeElement>();
+		for (Class<? extends Annotation> annotation : Arrays.asList(Where.class, Order.class, Limit.class, Seek.class)) {
+			for (Element element : roundEnv.getElementsAnnotatedWith(annotation)) {
+				if (element.getKind() == ElementKind.FIELD) {
+					beans.add((TypeElement) element.getEnclosingElement());
+				}
+			}
+		}
+		// classes holding the nested fields of an @Limit annotated field, at any depth, are not mapped on their own, 
+		// unless they hold themselves, so that the cycle is reported
+		Set<TypeElement> nestedLimitTypes = new HashSet<TypeElement>();
+		for (TypeElement bean : beans) {
+			Set<TypeElement> types = new HashSet<TypeElement>();
+			addNestedLimitTypes(bean, types);
+			types.remove(bean);
+			nestedLimitTypes.addAll(types);
+		}
+		for (TypeElement bean : beans) {
+			if (!nestedLimitTypes.contains(bean) || hasWhereOrOrder(bean)) {
+				process(bean);
+			}
+		}
+		return false;
+	}
+
+	private void process(TypeElement bean) {
+		PackageElement pkg = processingEnv.getElementUtils().getPackageOf(bean);
+		String beanType = processingEnv.getTypeUtils().erasure(bean.asType()).toString();
+		List<String> statements = new ArrayList<String>();
+		List<LimitType> limitTypes = new ArrayList<LimitType>();
+		VariableElement unreadable = null;
+		VariableElement seek = null;
+		boolean ordered = false;
+		boolean valid = true;
+		for (VariableElement field : ElementFilter.fieldsIn(bean.getEnclosedElements())) {
+			Where where = field.getAnnotation(Where.class);
+			Order order = field.getAnnotation(Order.class);
+			Limit limit = field.getAnnotation(Limit.class);
+			// QueryMapper ignores static @Seek fields
+			boolean seeks = field.getAnnotation(Seek.class) != null && !field.getModifiers().contains(Modifier.STATIC);
+			String read = read("bean", field, pkg);
+			if ((where != null || limit != null || seeks) && read == null && unreadable == null) {
+				unreadable = field;
+			}
+			if (seeks) {
+				if (seek != null) {
+					processingEnv.getMessager().printMessage(Kind.ERROR, "Having more than 1 @Seek annotation in one class is not valid.", field);
+					valid = false;
+				}
+				if (!isSeekType(field.asType())) {
+					processingEnv.getMessager().printMessage(Kind.ERROR, "@Seek is only valid on fields of type java.util.List or Object[]", field);
+					valid = false;
+				}
+				seek = field;
+				statements.add("seek(" + erasure(field.asType()) + ".class, bean -> " + read + ");");
+			}
+			if (where != null) {
+				List<VariableElement> unreadableNested = new ArrayList<VariableElement>();
+				Deque<TypeElement> types = new ArrayDeque<TypeElement>();
+				types.push(bean);
+				if (!where(statements, new ArrayList<VariableElement>(Collections.singletonList(field)), types, pkg, unreadableNested)) {
+					valid = false;
+				}
+				if (!unreadableNested.isEmpty() && unreadable == null) {
+					unreadable = unreadableNested.get(0);
+				}
+			}
+			if (order != null) {
+				ordered = true;
+				if (order.index() < 0) {
+					processingEnv.getMessager().printMessage(Kind.ERROR, "index must be equal to or greater than zero", field);
+					valid = false;
+				}
+				statements.add("order(" + literal(column(order.column(), field)) + ", " + literal(order.table()) + ", " 
+						+ SortOrder.class.getName() + "." + order.order().name() + ", " + order.index() + ");");
+			}
+			if (limit != null) {
+				if (isIntegral(field.asType())) {
+					limitTypes.add(limit.value());
+					String method = field.asType().getKind().isPrimitive() ? "primitiveLimit" : "limit";
+					statements.add(method + "(" + LimitType.class.getName() + "." + limit.value().name() + ", bean -> " + read + ");");
+				} else {
+					List<VariableElement> unreadableNested = new ArrayList<VariableElement>();
+					List<VariableElement> cycles = new ArrayList<VariableElement>();
+					Deque<TypeElement> types = new ArrayDeque<TypeElement>();
+					types.push(bean);
+					boolean nested = limit(statements, new ArrayList<VariableElement>(Collections.singletonList(field)), types, pkg, limitTypes, unreadableNested, cycles);
+					if (!unreadableNested.isEmpty() && unreadable == null) {
+						unreadable = unreadableNested.get(0);
+					}
+					if (!cycles.isEmpty()) {
+						valid = false;
+					} else if (!nested) {
+						processingEnv.getMessager().printMessage(Kind.ERROR, "The @Limit annotation may only be applied to fields that are either a primitive or boxed Byte, Short, Integer or Long, or on a field of a type that contains such fields", field);
+						valid = false;
+					}
+				}
+			}
+		}
+		String error = validate(limitTypes);
+		if (error != null) {
+			processingEnv.getMessager().printMessage(Kind.ERROR, error, bean);
+			valid = false;
+		}
+		if (seek != null && !ordered) {
+			processingEnv.getMessager().printMessage(Kind.ERROR, "@Seek requires at least one @Order field", seek);
+			valid = false;
+		}
+		if (!valid) {
+			return;
+		}
+		if (unreadable != null || !isAccessible(bean, pkg)) {
+			processingEnv.getMessager().printMessage(Kind.NOTE, "No " + QueryMapping.class.getSimpleName() + " generated for " + beanType 
+					+ ": " + (unreadable != null ? "field " + unreadable.getSimpleName() + " is not accessible" : "class is not accessible") 
+					+ ". QueryMapper will use reflection for this class.", unreadable != null ? unreadable : bean);
+			return;
+		}
+		write(bean, pkg, beanType, statements);
+	}
+
+	/**
+	 * Adds the <code>where</code> statements for the last field of the given path. 
+	 * If the type of that field declares <code>@Where</code> fields itself, those are added recursively instead, 
+	 * each reading its value through a single null-safe path from the bean, as QueryMapper does at runtime.
+	 * @param path the fields leading from the bean to the field, including the field
+	 * @param types the classes declaring the fields of the path
+	 * @param unreadable collects fields along the path that can not be read from the given package
+	 * @return <code>false</code> if nested <code>@Where</code> fields form a cycle
+	 */
+	private boolean where(List<String> statements, List<VariableElement> path, Deque<TypeElement> types, PackageElement pkg, List<VariableElement> unreadable) {
+		VariableElement field = path.get(path.size() - 1);
+		Where where = field.getAnnotation(Where.class);
+		List<VariableElement> nested = nestedWhereFields(field.asType());
+		if (nested.isEmpty()) {
+			statements.add("where(" + literal(column(where.column(), field)) + ", " + literal(where.table()) + ", " 
+					+ Comparison.class.getName() + "." + where.comparison().name() + ", " + (where.bucketed() ? "true, " : "") 
+					+ erasure(field.asType()) + ".class, bean -> " + readPath(path, pkg, unreadable) + ");");
+			return true;
+		}
+		TypeElement type = asTypeElement(field.asType());
+		if (types.contains(type)) {
+			processingEnv.getMessager().printMessage(Kind.ERROR, "The nested @Where fields of " + field.getSimpleName() 
+					+ " form a cycle through " + type.getQualifiedName(), field);
+			return false;
+		}
+		types.push(type);
+		boolean valid = true;
+		for (VariableElement nestedField : nested) {
+			path.add(nestedField);
+			valid &= where(statements, path, types, pkg, unreadable);
+			path.remove(path.size() - 1);
+		}
+		types.pop();
+		return valid;
+	}
+
+	/**
+	 * Adds the <code>limit</code> statements for the <code>@Limit</code> fields nested, at any depth, in the type of the last field of the given path, 
+	 * each reading its value through a single null-safe path from the bean, as QueryMapper does at runtime.
+	 * @param path the fields leading from the bean to the field, including the field
+	 * @param types the classes declaring the fields of the path
+	 * @param unreadable collects fields along the path that can not be read from the given package
+	 * @param cycles collects fields through which nested <code>@Limit</code> fields form a cycle, which are reported as errors
+	 * @return <code>true</code> if any statement was added
+	 */
+	private boolean limit(List<String> statements, List<VariableElement> path, Deque<TypeElement> types, PackageElement pkg, 
+			List<LimitType> limitTypes, List<VariableElement> unreadable, List<VariableElement> cycles) {
+		VariableElement field = path.get(path.size() - 1);
+		TypeElement type = asTypeElement(field.asType());
+		if (type == null) {
+			return false;
+		}
+		if (types.contains(type)) {
+			processingEnv.getMessager().printMessage(Kind.ERROR, "The nested @Limit fields of " + field.getSimpleName() 
+					+ " form a cycle through " + type.getQualifiedName(), field);
+			cycles.add(field);
+			return false;
+		}
+		types.push(type);
+		boolean nested = false;
+		for (VariableElement subfield : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+			Limit sublimit = subfield.getAnnotation(Limit.class);
+			if (sublimit == null || subfield.getModifiers().contains(Modifier.STATIC)) {
+				continue;
+			}
+			path.add(subfield);
+			if (isIntegral(subfield.asType())) {
+				nested = true;
+				limitTypes.add(sublimit.value());
+				statements.add("limit(" + LimitType.class.getName() + "." + sublimit.value().name() + ", bean -> " + readPath(path, pkg, unreadable) + ");");
+			} else {
+				nested |= limit(statements, path, types, pkg, limitTypes, unreadable, cycles);
+			}
+			path.remove(path.size() - 1);
+		}
+		types.pop();
+		return nested;
+	}
+
+	/**
+	 * @return a lambda body reading the last field of the given path from <code>bean</code>, returning <code>null</code> if any intermediate value is <code>null</code>
+	 */
+	private String readPath(List<VariableElement> path, PackageElement pkg, List<VariableElement> unreadable) {
+		List<String> reads = new ArrayList<String>();
+		String variable = "bean";
+		for (int i = 0; i < path.size(); i++) {
+			String read = read(variable, path.get(i), pkg);
+			if (read == null) {
+				unreadable.add(path.get(i));
+				return null;
+			}
+			reads.add(read);
+			variable = "value" + i;
+		}
+		if (reads.size() == 1) {
+			return reads.get(0);
+		}
+		StringBuilder sb = new StringBuilder("{ ");
+		for (int i = 0; i < reads.size() - 1; i++) {
+			sb.append(erasure(path.get(i).asType())).append(" value").append(i).append(" = ").append(reads.get(i)).append("; ");
+			sb.append("if (value").append(i).append(" == null) return null; ");
+		}
+		return sb.append("return ").append(reads.get(reads.size() - 1)).append("; }").toString();
+	}
+
+	/**
+	 * @return the <code>@Where</code> annotated fields declared by the given type, empty if the type is read as a single value
+	 */
+	private static List<VariableElement> nestedWhereFields(TypeMirror type) {
+		TypeElement element = asTypeElement(type);
+		if (element == null || element.getKind() == ElementKind.ENUM) {
+			return Collections.emptyList();
+		}
+		List<VariableElement> fields = new ArrayList<VariableElement>();
+		for (VariableElement field : ElementFilter.fieldsIn(element.getEnclosedElements())) {
+			if (field.getAnnotation(Where.class) != null) {
+				fields.add(field);
+			}
+		}
+		return fields;
+	}
+
+	/**
+	 * Mirrors the validation of LimitType combinations applied by QueryMapper at runtime.
+	 * @return an error message, or <code>null</code> if the combination is valid
+	 */
+	static String validate(List<LimitType> limitTypes) {
+		if (limitTypes.size() > 2) {
+			return "Having more than 2 @Limit annotations in one class is not valid.";
+		}
+		if (limitTypes.size() == 2) {
+			if (limitTypes.get(0) == limitTypes.get(1)) {
+				return "Having 2 @Limit annotations with the same LimitType in one class is not valid.";
+			} else if (limitTypes.get(0) != LimitType.ROWS && limitTypes.get(1) != LimitType.ROWS) {
+				return "Having both LimitType.OFFSET and LimitType.PART annotations is not valid.";
+			}
+		} else if (limitTypes.size() == 1) {
+			if (limitTypes.get(0) != LimitType.ROWS) {
+				return "If only 1 @Limit annotation is specified in a given class, its LimitType value must be LimitType.ROWS.";
+			}
+		}
+		return null;
+	}
+
+	private void write(TypeElement bean, PackageElement pkg, String beanType, List<String> statements) {
+		String binaryName = processingEnv.getElementUtils().getBinaryName(bean).toString();
+		String packageName = pkg.isUnnamed() ? "" : pkg.getQualifiedName().toString();
+		String simpleName = binaryName.substring(packageName.isEmpty() ? 0 : packageName.length() + 1).replace('$', '_') + QueryMapping.SUFFIX;
+		String qualifiedName = packageName.isEmpty() ? simpleName : packageName + "." + simpleName;
+		boolean generic = !bean.getTypeParameters().isEmpty();
+		try {
+			JavaFileObject file = processingEnv.getFiler().createSourceFile(qualifiedName, bean);
+			Writer writer = file.openWriter();
+			try {
+				if (!packageName.isEmpty()) {
+					writer.write("package " + packageName + ";\n\n");
+				}
+				writer.write("/**\n * Generated by {@code " + getClass().getName() + "} from the annotations on {@link " + beanType + "}. Do not edit.\n */\n");
+				if (generic) {
+					writer.write("@SuppressWarnings({ \"rawtypes\", \"unchecked\" })\n");
+				}
+				writer.write("public final class " + simpleName + " extends " + QueryMapping.class.getName() + "<" + beanType + "> {\n\n");
+				writer.write("\tpublic " + simpleName + "() {\n");
+				writer.write("\t\tsuper(" + beanType + ".class);\n");
+				for (String statement : statements) {
+					writer.write("\t\t" + statement + "\n");
+				}
+				writer.write("\t}\n\n}\n");
+			} finally {
+				writer.close();
+			}
+		} catch (IOException e) {
+			processingEnv.getMessager().printMessage(Kind.ERROR, "Could not write " + qualifiedName + ": " + e.getMessage(), bean);
+		}
+	}
+
+	/**
+	 * @return a Java expression reading the given field from the given variable, or <code>null</code> if the field can not be read from the given package
+	 */
+	private String read(String variable, VariableElement field, PackageElement from) {
+		TypeElement owner = (TypeElement) field.getEnclosingElement();
+		if (field.getModifiers().contains(Modifier.STATIC)) {
+			return isAccessible(field, from) ? erasure(owner.asType()) + "." + field.getSimpleName() : null;
+		}
+		return isAccessible(field, from) ? variable + "." + field.getSimpleName() : null;
+	}
+
+	/**
+	 * @return <code>true</code> if the given element and all of its enclosing classes can be accessed from the given package
+	 */
+	private boolean isAccessible(Element element, PackageElement from) {
+		for (Element e = element; e != null && e.getKind() != ElementKind.PACKAGE; e = e.getEnclosingElement()) {
+			Set<Modifier> modifiers = e.getModifiers();
+			if (modifiers.contains(Modifier.PRIVATE)) {
+				return false;
+			}
+			if (!modifiers.contains(Modifier.PUBLIC) && !processingEnv.getElementUtils().getPackageOf(e).equals(from)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Adds the types of the non-integral <code>@Limit</code> fields of the given type to the given Set, recursively
+	 */
+	private static void addNestedLimitTypes(TypeElement type, Set<TypeElement> nestedLimitTypes) {
+		for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+			TypeElement nestedType = asTypeElement(field.asType());
+			if (field.getAnnotation(Limit.class) != null && !isIntegral(field.asType()) && nestedType != null && nestedLimitTypes.add(nestedType)) {
+				addNestedLimitTypes(nestedType, nestedLimitTypes);
+			}
+		}
+	}
+
+	private boolean hasWhereOrOrder(TypeElement type) {
+		for (VariableElement field : ElementFilter.fieldsIn(type.getEnclosedElements())) {
+			if (field.getAnnotation(Where.class) != null || field.getAnnotation(Order.class) != null) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return <code>true</code> for primitive or boxed byte, short, int and long types
+	 */
+	private static boolean isIntegral(TypeMirror type) {
+		switch (type.getKind()) {
+			case BYTE:
+			case SHORT:
+			case INT:
+			case LONG:
+				return true;
+			case DECLARED:
+				return BOXED_INTEGRAL_TYPES.contains(((TypeElement) ((DeclaredType) type).asElement()).getQualifiedName().toString());
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * @return <code>true</code> for <code>java.util.List</code> and its subtypes, and for <code>Object[]</code>
+	 */
+	private boolean isSeekType(TypeMirror type) {
+		Types types = processingEnv.getTypeUtils();
+		if (type.getKind() == TypeKind.ARRAY) {
+			TypeMirror object = processingEnv.getElementUtils().getTypeElement(Object.class.getName()).asType();
+			return types.isSameType(((ArrayType) type).getComponentType(), object);
+		}
+		TypeMirror list = types.erasure(processingEnv.getElementUtils().getTypeElement(List.class.getName()).asType());
+		return types.isAssignable(types.erasure(type), list);
+	}
+
+	private static TypeElement asTypeElement(TypeMirror type) {
+		return type.getKind() == TypeKind.DECLARED ? (TypeElement) ((DeclaredType) type).asElement() : null;
+	}
+
+	private String erasure(TypeMirror type) {
+		return processingEnv.getTypeUtils().erasure(type).toString();
+	}
+
+	private static String column(String column, VariableElement field) {
+		return column != null && !column.isEmpty() ? column : field.getSimpleName().toString();
+	}
+
+	private static String literal(String value) {
+		return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+	}
+
+}
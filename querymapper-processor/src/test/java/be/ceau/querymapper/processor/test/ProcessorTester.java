@@ -0,0 +1,440 @@
+package be.ceau.querymapper.processor.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.net.URL;
+import java.net.URLClassLoader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+import javax.tools.Diagnostic;
+import javax.tools.DiagnosticCollector;
+import javax.tools.JavaCompiler;
+import javax.tools.JavaFileObject;
+import javax.tools.StandardJavaFileManager;
+import javax.tools.ToolProvider;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import be.ceau.querymapper.QueryMapper;
+import be.ceau.querymapper.QueryMapping;
+import be.ceau.querymapper.processor.QueryMapperProcessor;
+
+public class ProcessorTester {
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private File sources;
+	private File classes;
+	private File generated;
+	private DiagnosticCollector<JavaFileObject> diagnostics;
+	private URLClassLoader loader;
+
+	@Before
+	public void testPreparation() throws IOException {
+		sources = folder.newFolder("sources");
+		classes = folder.newFolder("classes");
+		generated = folder.newFolder("generated");
+		diagnostics = new DiagnosticCollector<JavaFileObject>();
+	}
+
+	@Test
+	public void generatesMappingForReadableClass() throws Exception {
+		boolean success = compile("sample.Filter", 
+				"package sample;\n" +
+				"import be.ceau.querymapper.annotations.*;\n" +
+				"import be.ceau.querymapper.enums.*;\n" +
+				"public class Filter {\n" +
+				"	@Where(column = \"name_col\", comparison = Comparison.LIKE) @Order(table = \"t\", order = SortOrder.DESCENDING) String name;\n" +
+				"	@Where(comparison = Comparison.GREATER) Integer minimum;\n" +
+				"	@Limit(LimitType.OFFSET) protected Long offset;\n" +
+				"	@Limit int rows;\n" +
+				"}\n");
+		Assert.assertTrue(diagnostics.getDiagnostics().toString(), success);
+		Assert.assertTrue(new File(generated, "sample/Filter" + QueryMapping.SUFFIX + ".java").isFile());
+
+		Object filter = newInstance("sample.Filter");
+		set(filter, "name", "x");
+		set(filter, "minimum", 3);
+		set(filter, "offset", 10L);
+		set(filter, "rows", 5);
+		QueryMapper<Object> mapper = mapper(filter);
+		Assert.assertEquals(" WHERE `name_col` LIKE :name_col AND `minimum` > :minimum ", mapper.toWhereClause(filter));
+		Assert.assertEquals("%x%", mapper.toParameterMap(filter).get("name_col"));
+		Assert.assertEquals(3, mapper.toParameterMap(filter).get("minimum"));
+		Assert.assertEquals(" ORDER BY `t`.`name` DESC ", mapper.toOrderClause());
+		Assert.assertEquals(" LIMIT 10, 5 ", mapper.toLimitClause(filter));
+	}
+
+	@Test
+	public void generatesMappingForNestedLimitFields() throws Exception {
+		boolean success = compile("sample.Paged", 
+				"package sample;\n" +
+				"import be.ceau.querymapper.annotations.*;\n" +
+				"import be.ceau.querymapper.enums.*;\n" +
+				"public class Paged {\n" +
+				"	@Limit Page page;\n" +
+				"	public static class Page {\n" +
+				"		@Limit(LimitType.PART) Integer part;\n" +
+				"		@Limit(LimitType.ROWS) int rows;\n" +
+				"	}\n" +
+				"}\n");
+		Assert.assertTrue(diagnostics.getDiagnostics().toString(), success);
+		Assert.assertTrue(new File(generated, "sample/Paged" + QueryMapping.SUFFIX + ".java").isFile());
+		Assert.assertFalse(new File(generated, "sample/Paged_Page" + QueryMapping.SUFFIX + ".java").isFile());
+
+		Object paged = newInstance("sample.Paged");
+		QueryMapper<Object> mapper = mapper(paged);
+		Assert.assertEquals("", mapper.toLimitClause(paged));
+		Object page = newInstance("sample.Paged$Page");
+		set(page, "part", 2);
+		set(page, "rows", 25);
+		set(paged, "page", page);
+		Assert.assertEquals(" LIMIT 50, 25 ", mapper.toLimitClause(paged));
+	}
+
+	@Test
+	public void generatesMappingForDeepNestedLimitFields() throws Exception {
+		boolean success = compile("sample.Deep", 
+				"package sample;\n" +
+				"import be.ceau.querymapper.annotations.*;\n" +
+				"import be.ceau.querymapper.enums.*;\n" +
+				"public class Deep {\n" +
+				"	@Limit Paging paging;\n" +
+				"	public static class Paging {\n" +
+				"		@Limit Window window;\n" +
+				"	}\n" +
+				"	public static class Window {\n" +
+				"		@Limit(LimitType.OFFSET) Long offset;\n" +
+				"		@Limit int rows;\n" +
+				"		public int getRows() { return rows; }\n" +
+				"	}\n" +
+				"}\n");
+		Assert.assertTrue(diagnostics.getDiagnostics().toString(), success);
+		Assert.assertTrue(new File(generated, "sample/Deep" + QueryMapping.SUFFIX + ".java").isFile());
+		Assert.assertFalse(new File(generated, "sample/Deep_Window" + QueryMapping.SUFFIX + ".java").isFile());
+
+		Object deep = newInstance("sample.Deep");
+		QueryMapper<Object> mapper = mapper(deep);
+		Object paging = newInstance("sample.Deep$Paging");
+		set(deep, "paging", paging);
+		Assert.assertEquals("", mapper.toLimitClause(deep));
+		Object window = newInstance("sample.Deep$Window");
+		set(window, "offset", 40L);
+		set(window, "rows", 20);
+		set(paging, "window", window);
+		Assert.assertEquals(" LIMIT 40, 20 ", mapper.toLimitClause(deep));
+	}
+
+	@Test
+	public void cyclicNestedLimitIsCompilationError() throws Exception {
+		boolean success = compile("sample.Cyclic", 
+				"package sample;\n" +
+				"import be.ceau.querymapper.annotations.*;\n" +
+				"public class Cyclic {\n" +
+				"	@Limit Integer rows;\n" +
+				"	@Limit Cyclic next;\n" +
+				"}\n");
+		Assert.assertFalse(success);
+		Assert.assertTrue(hasDiagnostic(Diagnostic.Kind.ERROR, "form a cycle through sample.Cyclic"));
+	}
+
+	@Test
+	public void generatesMappingForNestedWhereFields() throws Exception {
+		boolean success = compile("sample.Located", 
+				"package sample;\n" +
+				"import be.ceau.querymapper.annotations.*;\n" +
+				"import be.ceau.querymapper.enums.*;\n" +
+				"public class Located {\n" +
+				"	@Where String name;\n" +
+				"	@Where Address address;\n" +
+				"	public static class Address {\n" +
+				"		@Where(comparison = Comparison.STARTS_WITH) String city;\n" +
+				"		@Where Geo geo;\n" +
+				"	}\n" +
+				"	public static class Geo {\n" +
+				"		@Where(column = \"zip\", table = \"a\") String postalCode;\n" +
+				"	}\n" +
+				"}\n");
+		Assert.assertTrue(diagnostics.getDiagnostics().toString(), success);
+		Assert.assertTrue(new File(generated, "sample/Located" + QueryMapping.SUFFIX + ".java").isFile());
+
+		Object located = newInstance("sample.Located");
+		set(located, "name", "x");
+		QueryMapper<Object> mapper = mapper(located);
+		Assert.assertEquals(" WHERE `name` = :name ", mapper.toWhereClause(located));
+		Object address = newInstance("sample.Located$Address");
+		Object geo = newInstance("sample.Located$Geo");
+		set(address, "city", "Ghe");
+		set(address, "geo", geo);
+		set(geo, "postalCode", "9000");
+		set(located, "address", address);
+		Assert.assertEquals(" WHERE `name` = :name AND `city` LIKE :city AND `a`.`zip` = :zip ", mapper.toWhereClause(located));
+		Assert.assertEquals("9000", mapper.toParameterMap(located).get("zip"));
+	}
+
+	@Test
+	public void cyclicNestedWhereIsCompilationError() throws Exception {
+		boolean success = compile("sample.Cyclic", 
+				"package sample;\n" +
+				"import be.ceau.querymapper.annotations.*;\n" +
+				"public class Cyclic {\n" +
+				"	@Where String name;\n" +
+				"	@Where Cyclic parent;\n" +
+				"}\n");
+		Assert.assertFalse(success);
+		Assert.assertTrue(hasDiagnostic(Diagnostic.Kind.ERROR, "form a cycle through sample.Cyclic"));
+	}
+
+	@Test
+	public void generatesMappingForSeekField() throws Exception {
+		boolean success = compile("sample.Seeking", 
+				"package sample;\n" +
+				"import be.ceau.querymapper.annotations.*;\n" +
+				"public class Seeking {\n" +
+				"	@Order String name;\n" +
+				"	@Order(index = 1) Long id;\n" +
+				"	@Seek java.util.List<Object> after;\n" +
+				"	@Limit int rows;\n" +
+				"}\n");
+		Assert.assertTrue(diagnostics.getDiagnostics().toString(), success);
+		Assert.assertTrue(new File(generated, "sample/Seeking" + QueryMapping.SUFFIX + ".java").isFile());
+
+		Object seeking = newInstance("sample.Seeking");
+		set(seeking, "after", java.util.Arrays.asList("x", 3L));
+		set(seeking, "rows", 5);
+		QueryMapper<Object> mapper = mapper(seeking);
+		Assert.assertEquals(" WHERE (`name`, `id`) > (:qm_seek0, :qm_seek1) ", mapper.toWhereClause(seeking));
+		Assert.assertEquals(" LIMIT 5 ", mapper.toLimitClause(seeking));
+	}
+
+	@Test
+	public void seekWithoutOrderIsError() throws Exception {
+		boolean success = compile("sample.Unordered", 
+				"package sample;\n" +
+				"import be.ceau.querymapper.annotations.*;\n" +
+				"public class Unordered {\n" +
+				"	@Where String name;\n" +
+				"	@Seek java.util.List<Object> after;\n" +
+				"}\n");
+		Assert.assertFalse(success);
+		Assert.assertTrue(hasDiagnostic(Diagnostic.Kind.ERROR, "@Seek requires at least one @Order field"));
+	}
+
+	@Test
+	public void scalarSeekIsError() throws Exception {
+		boolean success = compile("sample.ScalarSeek", 
+				"package sample;\n" +
+				"import be.ceau.querymapper.annotations.*;\n" +
+				"public class ScalarSeek {\n" +
+				"	@Order String name;\n" +
+				"	@Seek String after;\n" +
+				"}\n");
+		Assert.assertFalse(success);
+		Assert.assertTrue(hasDiagnostic(Diagnostic.Kind.ERROR, "@Seek is only valid on fields of type java.util.List or Object[]"));
+	}
+
+	@Test
+	public void seekOnlyClassIsProcessed() throws Exception {
+		boolean success = compile("sample.SeekOnly", 
+				"package sample;\n" +
+				"import be.ceau.querymapper.annotations.*;\n" +
+				"public class SeekOnly {\n" +
+				"	@Seek Object[] after;\n" +
+				"}\n");
+		Assert.assertFalse(success);
+		Assert.assertTrue(hasDiagnostic(Diagnostic.Kind.ERROR, "@Seek requires at least one @Order field"));
+	}
+
+	@Test
+	public void staticSeekIsIgnored() throws Exception {
+		boolean success = compile("sample.StaticSeek", 
+				"package sample;\n" +
+				"import be.ceau.querymapper.annotations.*;\n" +
+				"public class StaticSeek {\n" +
+				"	@Where String name;\n" +
+				"	@Seek static String after;\n" +
+				"}\n");
+		Assert.assertTrue(diagnostics.getDiagnostics().toString(), success);
+		Assert.assertTrue(new File(generated, "sample/StaticSeek" + QueryMapping.SUFFIX + ".java").isFile());
+
+		Object bean = newInstance("sample.StaticSeek");
+		set(bean, "name", "x");
+		Assert.assertEquals(" WHERE `name` = :name ", mapper(bean).toWhereClause(bean));
+	}
+
+	@Test
+	public void rendersSameWithAndWithoutMapping() throws Exception {
+		String source = "package sample;\n" +
+				"import be.ceau.querymapper.annotations.*;\n" +
+				"import be.ceau.querymapper.enums.*;\n" +
+				"public class Trimmed {\n" +
+				"	@Where String name;\n" +
+				"	@Where(comparison = Comparison.GREATER) Integer minimum;\n" +
+				"	@Limit int rows;\n" +
+				"	public String getName() { return name == null ? null : name.trim(); }\n" +
+				"	public Integer getMinimum() { return null; }\n" +
+				"	public int getRows() { return rows * 2; }\n" +
+				"}\n";
+		Assert.assertTrue(diagnostics.getDiagnostics().toString(), compile("sample.Trimmed", source));
+		Assert.assertTrue(new File(generated, "sample/Trimmed" + QueryMapping.SUFFIX + ".java").isFile());
+		File plain = folder.newFolder("plain");
+		Assert.assertTrue(diagnostics.getDiagnostics().toString(), compile("sample.Trimmed", source, plain, false));
+
+		Object mapped = newInstance("sample.Trimmed");
+		Object reflected = Class.forName("sample.Trimmed", true, new URLClassLoader(new URL[] { plain.toURI().toURL() }, getClass().getClassLoader()))
+				.getDeclaredConstructor().newInstance();
+		Assert.assertNotSame(mapped.getClass(), reflected.getClass());
+		for (Object bean : Arrays.asList(mapped, reflected)) {
+			set(bean, "name", " x ");
+			set(bean, "minimum", 3);
+			set(bean, "rows", 5);
+		}
+		QueryMapper<Object> mapper = mapper(mapped);
+		Assert.assertEquals(" WHERE `name` = :name AND `minimum` > :minimum ", mapper.toWhereClause(mapped));
+		Assert.assertEquals(" x ", mapper.toParameterMap(mapped).get("name"));
+		Assert.assertEquals(" LIMIT 5 ", mapper.toLimitClause(mapped));
+		Assert.assertEquals(mapper.toWhereClause(mapped), mapper(reflected).toWhereClause(reflected));
+		Assert.assertEquals(mapper.toParameterMap(mapped), mapper(reflected).toParameterMap(reflected));
+		Assert.assertEquals(mapper.toLimitClause(mapped), mapper(reflected).toLimitClause(reflected));
+	}
+
+	@Test
+	public void unreadableFieldSkipsGeneration() throws Exception {
+		boolean success = compile("sample.Hidden", 
+				"package sample;\n" +
+				"import be.ceau.querymapper.annotations.*;\n" +
+				"public class Hidden {\n" +
+				"	@Where private String name;\n" +
+				"	public String getName() { return name; }\n" +
+				"}\n");
+		Assert.assertTrue(diagnostics.getDiagnostics().toString(), success);
+		Assert.assertFalse(new File(generated, "sample/Hidden" + QueryMapping.SUFFIX + ".java").isFile());
+		Assert.assertTrue(hasDiagnostic(Diagnostic.Kind.NOTE, "QueryMapper will use reflection"));
+	}
+
+	@Test
+	public void duplicateLimitTypeIsCompilationError() throws Exception {
+		boolean success = compile("sample.Invalid", 
+				"package sample;\n" +
+				"import be.ceau.querymapper.annotations.*;\n" +
+				"public class Invalid {\n" +
+				"	@Limit Integer first;\n" +
+				"	@Limit Integer second;\n" +
+				"}\n");
+		Assert.assertFalse(success);
+		Assert.assertTrue(hasDiagnostic(Diagnostic.Kind.ERROR, "Having 2 @Limit annotations with the same LimitType in one class is not valid."));
+	}
+
+	@Test
+	public void offsetWithoutRowsIsCompilationError() throws Exception {
+		boolean success = compile("sample.Invalid", 
+				"package sample;\n" +
+				"import be.ceau.querymapper.annotations.*;\n" +
+				"import be.ceau.querymapper.enums.*;\n" +
+				"public class Invalid {\n" +
+				"	@Limit(LimitType.OFFSET) Integer offset;\n" +
+				"}\n");
+		Assert.assertFalse(success);
+		Assert.assertTrue(hasDiagnostic(Diagnostic.Kind.ERROR, "its LimitType value must be LimitType.ROWS"));
+	}
+
+	@Test
+	public void nonNumericLimitIsCompilationError() throws Exception {
+		boolean success = compile("sample.Invalid", 
+				"package sample;\n" +
+				"import be.ceau.querymapper.annotations.*;\n" +
+				"public class Invalid {\n" +
+				"	@Limit String rows;\n" +
+				"}\n");
+		Assert.assertFalse(success);
+		Assert.assertTrue(hasDiagnostic(Diagnostic.Kind.ERROR, "The @Limit annotation may only be applied to fields"));
+	}
+
+	@Test
+	public void negativeOrderIndexIsCompilationError() throws Exception {
+		boolean success = compile("sample.Invalid", 
+				"package sample;\n" +
+				"import be.ceau.querymapper.annotations.*;\n" +
+				"public class Invalid {\n" +
+				"	@Order(index = -1) String name;\n" +
+				"}\n");
+		Assert.assertFalse(success);
+		Assert.assertTrue(hasDiagnostic(Diagnostic.Kind.ERROR, "index must be equal to or greater than zero"));
+	}
+
+	private boolean compile(String className, String source) throws Exception {
+		return compile(className, source, classes, true);
+	}
+
+	/**
+	 * @param output the directory to write the classes to
+	 * @param process <code>false</code> to compile without running the processor
+	 */
+	private boolean compile(String className, String source, File output, boolean process) throws Exception {
+		File file = new File(sources, className.replace('.', '/') + ".java");
+		file.getParentFile().mkdirs();
+		Files.write(file.toPath(), source.getBytes(StandardCharsets.UTF_8));
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		StandardJavaFileManager fileManager = compiler.getStandardFileManager(diagnostics, Locale.ROOT, StandardCharsets.UTF_8);
+		try {
+			List<String> options = new ArrayList<String>(Arrays.asList(
+					"-classpath", location(QueryMapping.class), 
+					"-d", output.getPath(), 
+					"-s", generated.getPath()));
+			if (!process) {
+				options.add("-proc:none");
+			}
+			JavaCompiler.CompilationTask task = compiler.getTask(null, fileManager, diagnostics, options, null, fileManager.getJavaFileObjects(file));
+			if (process) {
+				task.setProcessors(Collections.singletonList(new QueryMapperProcessor()));
+			}
+			return task.call();
+		} finally {
+			fileManager.close();
+		}
+	}
+
+	private boolean hasDiagnostic(Diagnostic.Kind kind, String message) {
+		for (Diagnostic<? extends JavaFileObject> diagnostic : diagnostics.getDiagnostics()) {
+			if (diagnostic.getKind() == kind && diagnostic.getMessage(Locale.ROOT).contains(message)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private Object newInstance(String className) throws Exception {
+		if (loader == null) {
+			loader = new URLClassLoader(new URL[] { classes.toURI().toURL() }, getClass().getClassLoader());
+		}
+		return Class.forName(className, true, loader).getDeclaredConstructor().newInstance();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static QueryMapper<Object> mapper(Object bean) {
+		return (QueryMapper<Object>) QueryMapper.forClass(bean.getClass());
+	}
+
+	private static void set(Object bean, String name, Object value) throws Exception {
+		Field field = bean.getClass().getDeclaredField(name);
+		field.setAccessible(true);
+		field.set(bean, value);
+	}
+
+	private static String location(Class<?> clazz) throws Exception {
+		return new File(clazz.getProtectionDomain().getCodeSource().getLocation().toURI()).getPath();
+	}
+
+}
@@ -0,0 +1,404 @@
+/*
+	Copyright 2015 Marceau Dewilde <m@ceau.be>
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.querymapper;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.Arrays;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compiled read access to the value of a single Field.<br/>
+ * Values of a Field are read from the Field itself, never through a getter, as with plain reflection: 
+ * through a MethodHandle for the Field, or through reflection if no MethodHandle can be created.<br/>
+ * Accessors for classes with a generated {@link QueryMapping} wrap the Function supplied by the generated code instead, which reads the field directly as well. 
+ * Accessors for properties without a Field read through a lambda generated for their getter {@link #of(Method) Method}. 
+ * Accessors for nested fields read through a {@link #path(Accessor, Accessor) path} of Accessors, as compiled by {@link PropertyPath}.<br/>
+ * Primitive integral values can be read with {@link #getLong(Object)}, which does not box the value.
+ */
+abstract class Accessor {
+
+	private static final Logger logger = LoggerFactory.getLogger(Accessor.class);
+
+	private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+	private final String name;
+	private final Class<?> type;
+
+	private Accessor(String name, Class<?> type) {
+		this.name = name;
+		this.type = type;
+	}
+
+	/**
+	 * @return a new Accessor for the given Field, never <code>null</code>
+	 * @throws IllegalArgumentException if Field argument is <code>null</code>
+	 */
+	static Accessor of(Field field) {
+		if (field == null) {
+			throw new IllegalArgumentException("Field argument may not be null");
+		}
+		try {
+			field.setAccessible(true);
+			return new HandleAccessor(field.toString(), field.getType(), LOOKUP.unreflectGetter(field));
+		} catch (IllegalAccessException e) {
+			logger.debug("of({}): falling back to reflective access", field, e);
+		} catch (RuntimeException e) {
+			logger.debug("of({}): falling back to reflective access", field, e);
+		}
+		return new ReflectiveAccessor(field);
+	}
+
+	/**
+	 * @return a new Accessor invoking the given non-static method without arguments, never <code>null</code>
+	 * @throws IllegalArgumentException if Method argument is <code>null</code>, static, or takes arguments
+	 */
+	static Accessor of(Method method) {
+		if (method == null) {
+			throw new IllegalArgumentException("Method argument may not be null");
+		}
+		if (Modifier.isStatic(method.getModifiers()) || method.getParameterCount() != 0 || method.getReturnType() == void.class) {
+			throw new IllegalArgumentException("Method argument must be a non-static method without arguments returning a value");
+		}
+		Class<?> declaringClass = method.getDeclaringClass();
+		if (Modifier.isPublic(method.getModifiers()) && Modifier.isPublic(declaringClass.getModifiers()) && isVisible(declaringClass)) {
+			try {
+				return new LambdaAccessor(method.toString(), method.getReturnType(), method);
+			} catch (Throwable e) {
+				logger.debug("of({}): no lambda accessor", method, e);
+			}
+		}
+		try {
+			method.setAccessible(true);
+			return new HandleAccessor(method.toString(), method.getReturnType(), LOOKUP.unreflect(method));
+		} catch (IllegalAccessException e) {
+			throw new IllegalArgumentException("Method " + method + " can not be accessed", e);
+		} catch (RuntimeException e) {
+			throw new IllegalArgumentException("Method " + method + " can not be accessed", e);
+		}
+	}
+
+	/**
+	 * @return a new Accessor reading values of the given type through the given Function, never <code>null</code>
+	 * @throws IllegalArgumentException if any argument is <code>null</code>
+	 */
+	static Accessor of(String name, Class<?> type, Function<Object, ?> function) {
+		if (name == null || type == null || function == null) {
+			throw new IllegalArgumentException("arguments may not be null");
+		}
+		return new FunctionAccessor(name, type, function);
+	}
+
+	/**
+	 * @return a new Accessor reading the value of next from the value read by parent, 
+	 * or <code>null</code> without reading next if parent reads <code>null</code>
+	 * @throws IllegalArgumentException if any argument is <code>null</code>
+	 */
+	static Accessor path(Accessor parent, Accessor next) {
+		if (parent == null || next == null) {
+			throw new IllegalArgumentException("arguments may not be null");
+		}
+		return new PathAccessor(parent, next);
+	}
+
+	/**
+	 * @param bool <code>true</code> if the property is of type boolean
+	 * @param record <code>true</code> if the property is a record component
+	 * @return the names of the methods reading the given property, in order of preference
+	 */
+	static String[] getterNames(String property, boolean bool, boolean record) {
+		String suffix = Character.toUpperCase(property.charAt(0)) + property.substring(1);
+		if (record) {
+			return bool ? new String[] { property, "is" + suffix, "get" + suffix } : new String[] { property, "get" + suffix };
+		}
+		return bool ? new String[] { "is" + suffix, "get" + suffix } : new String[] { "get" + suffix };
+	}
+
+	/**
+	 * Records are detected by name, as this library is compiled for Java versions without <code>Class.isRecord()</code>.
+	 * @return <code>true</code> if the given class is a record
+	 */
+	static boolean isRecord(Class<?> clazz) {
+		return clazz.getSuperclass() != null && "java.lang.Record".equals(clazz.getSuperclass().getName());
+	}
+
+	/**
+	 * Generated lambdas resolve the bean class through the class loader of this library.
+	 */
+	private static boolean isVisible(Class<?> clazz) {
+		try {
+			return Class.forName(clazz.getName(), false, Accessor.class.getClassLoader()) == clazz;
+		} catch (ClassNotFoundException e) {
+			return false;
+		} catch (LinkageError e) {
+			return false;
+		}
+	}
+
+	/**
+	 * @return a description of the value read by this Accessor, for use in messages
+	 */
+	String getName() {
+		return name;
+	}
+
+	/**
+	 * @return the declared type of the value read by this Accessor
+	 */
+	Class<?> getType() {
+		return type;
+	}
+
+	/**
+	 * @return <code>true</code> if the value is of a primitive type, and can never be <code>null</code>
+	 */
+	boolean isPrimitive() {
+		return type.isPrimitive();
+	}
+
+	/**
+	 * @return <code>true</code> if the value for the given instance is not <code>null</code>, 
+	 * without boxing the value if it is primitive
+	 * @throws IllegalAccessException if the Field can only be read through reflection, and access is denied
+	 */
+	boolean isPresent(Object bean) throws IllegalAccessException {
+		return isPrimitive() || get(bean) != null;
+	}
+
+	/**
+	 * Retrieves the value of the Field for the given instance.
+	 * @throws IllegalAccessException if the Field can only be read through reflection, and access is denied
+	 */
+	abstract Object get(Object bean) throws IllegalAccessException;
+
+	/**
+	 * Retrieves the value of a Field of type byte, short, int or long, primitive or boxed, as a primitive long.<br/>
+	 * Values of primitive fields are not boxed.
+	 * @throws NullPointerException if the value is a <code>null</code> Number
+	 * @throws IllegalAccessException if the Field can only be read through reflection, and access is denied
+	 */
+	long getLong(Object bean) throws IllegalAccessException {
+		return ((Number) get(bean)).longValue();
+	}
+
+	private static boolean isIntegral(Class<?> type) {
+		return type == byte.class || type == short.class || type == int.class || type == long.class;
+	}
+
+	private static final class LambdaAccessor extends Accessor {
+
+		private final Function<Object, Object> function;
+		private final ToLongFunction<Object> longFunction;
+
+		private LambdaAccessor(String name, Class<?> type, Method getter) throws Throwable {
+			super(name, type);
+			MethodHandle handle = LOOKUP.unreflect(getter);
+			Class<?> declaringClass = getter.getDeclaringClass();
+			Class<?> returnType = getter.getReturnType();
+			this.function = function(handle, declaringClass, returnType.isPrimitive() ? MethodType.methodType(returnType).wrap().returnType() : returnType);
+			this.longFunction = isIntegral(returnType) ? longFunction(handle, declaringClass) : null;
+		}
+
+		@SuppressWarnings("unchecked")
+		private static Function<Object, Object> function(MethodHandle handle, Class<?> declaringClass, Class<?> returnType) throws Throwable {
+			CallSite site = LambdaMetafactory.metafactory(LOOKUP, "apply", MethodType.methodType(Function.class), 
+					MethodType.methodType(Object.class, Object.class), handle, MethodType.methodType(returnType, declaringClass));
+			return (Function<Object, Object>) site.getTarget().invokeExact();
+		}
+
+		@SuppressWarnings("unchecked")
+		private static ToLongFunction<Object> longFunction(MethodHandle handle, Class<?> declaringClass) throws Throwable {
+			CallSite site = LambdaMetafactory.metafactory(LOOKUP, "applyAsLong", MethodType.methodType(ToLongFunction.class), 
+					MethodType.methodType(long.class, Object.class), handle, MethodType.methodType(long.class, declaringClass));
+			return (ToLongFunction<Object>) site.getTarget().invokeExact();
+		}
+
+		@Override
+		Object get(Object bean) {
+			try {
+				return function.apply(bean);
+			} catch (ClassCastException e) {
+				throw new IllegalArgumentException("The argument is not an instance of the class declaring " + getName(), e);
+			}
+		}
+
+		@Override
+		long getLong(Object bean) throws IllegalAccessException {
+			if (longFunction != null) {
+				return longFunction.applyAsLong(bean);
+			}
+			return super.getLong(bean);
+		}
+
+	}
+
+	private static final class HandleAccessor extends Accessor {
+
+		private final MethodHandle handle;
+		private final MethodHandle longHandle;
+
+		private HandleAccessor(String name, Class<?> type, MethodHandle handle) {
+			super(name, type);
+			this.handle = handle.asType(MethodType.methodType(Object.class, Object.class));
+			this.longHandle = isIntegral(type) ? handle.asType(MethodType.methodType(long.class, Object.class)) : null;
+		}
+
+		@Override
+		Object get(Object bean) {
+			try {
+				return handle.invokeExact(bean);
+			} catch (ClassCastException e) {
+				throw new IllegalArgumentException("The argument is not an instance of the class declaring " + getName(), e);
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		@Override
+		long getLong(Object bean) throws IllegalAccessException {
+			if (longHandle == null) {
+				return super.getLong(bean);
+			}
+			try {
+				return (long) longHandle.invokeExact(bean);
+			} catch (RuntimeException e) {
+				throw e;
+			} catch (Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+	}
+
+	private static final class ReflectiveAccessor extends Accessor {
+
+		private final Field field;
+
+		private ReflectiveAccessor(Field field) {
+			super(field.toString(), field.getType());
+			this.field = field;
+		}
+
+		@Override
+		Object get(Object bean) throws IllegalAccessException {
+			return field.get(bean);
+		}
+
+		@Override
+		long getLong(Object bean) throws IllegalAccessException {
+			if (isIntegral(getType())) {
+				return field.getLong(bean);
+			}
+			return super.getLong(bean);
+		}
+
+	}
+
+	private static final class FunctionAccessor extends Accessor {
+
+		private final Function<Object, ?> function;
+
+		private FunctionAccessor(String name, Class<?> type, Function<Object, ?> function) {
+			super(name, type);
+			this.function = function;
+		}
+
+		@Override
+		Object get(Object bean) {
+			try {
+				return function.apply(bean);
+			} catch (ClassCastException e) {
+				throw new IllegalArgumentException("The argument is not an instance of the class declaring " + getName(), e);
+			}
+		}
+
+	}
+
+	/**
+	 * Accessor reading a value through a flat array of Accessors, each reading from the value of the previous one
+	 */
+	private static final class PathAccessor extends Accessor {
+
+		private final Accessor[] steps;
+		private final Accessor last;
+
+		private PathAccessor(Accessor parent, Accessor next) {
+			super(parent.getName() + " -> " + next.getName(), next.getType());
+			Accessor[] parentSteps = parent instanceof PathAccessor ? ((PathAccessor) parent).steps : new Accessor[] { parent };
+			this.steps = Arrays.copyOf(parentSteps, parentSteps.length + 1);
+			this.steps[parentSteps.length] = next;
+			this.last = next;
+		}
+
+		/**
+		 * A value read through a path is <code>null</code> if any value along the path is <code>null</code>, even if its type is primitive
+		 */
+		@Override
+		boolean isPrimitive() {
+			return false;
+		}
+
+		/**
+		 * @return the instance declaring the last value, or <code>null</code> if any value along the path is <code>null</code>
+		 */
+		private Object declaring(Object bean) throws IllegalAccessException {
+			Object o = bean;
+			for (int i = 0; i < steps.length - 1 && o != null; i++) {
+				o = steps[i].get(o);
+			}
+			return o;
+		}
+
+		@Override
+		boolean isPresent(Object bean) throws IllegalAccessException {
+			Object o = declaring(bean);
+			return o != null && last.isPresent(o);
+		}
+
+		@Override
+		Object get(Object bean) throws IllegalAccessException {
+			Object o = declaring(bean);
+			return o == null ? null : last.get(o);
+		}
+
+		@Override
+		long getLong(Object bean) throws IllegalAccessException {
+			Object o = declaring(bean);
+			if (o == null) {
+				throw new NullPointerException("The path to " + last.getName() + " has a null value");
+			}
+			return last.getLong(o);
+		}
+
+	}
+
+}
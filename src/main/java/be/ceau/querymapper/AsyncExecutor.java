@@ -0,0 +1,370 @@
+/*
+	Copyright 2015 Marceau Dewilde <m@ceau.be>
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.querymapper;
+
+import java.lang.reflect.Method;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Executes mapped queries asynchronously against a single DataSource, returning a CompletableFuture for each query.<br/>
+ * Queries run on virtual threads if the Java runtime supports them, or else on a cached pool of daemon platform threads. 
+ * At most <code>maxConcurrency</code> queries hold a Connection of the DataSource at any time; 
+ * further queries wait in a queue, without a thread, and are handed to the Executor in order as permits become available, 
+ * so that neither the connection pool nor the Executor can be exhausted. 
+ * Use a single AsyncExecutor per DataSource for the limit to hold.<br/>
+ * Cancelling a returned future, or the expiry of its timeout, cancels the running Statement through {@link Statement#cancel()}. 
+ * A timeout covers the wait for a permit and a Connection as well as the execution of the query.<br/>
+ * AsyncExecutor instances are thread-safe.
+ */
+public final class AsyncExecutor implements AutoCloseable {
+
+	private static final Logger logger = LoggerFactory.getLogger(AsyncExecutor.class);
+
+	private static final AtomicInteger THREADS = new AtomicInteger();
+
+	private final DataSource dataSource;
+	private final int maxConcurrency;
+	private final Semaphore permits;
+
+	/**
+	 * Queries waiting for a permit, in order of submission
+	 */
+	private final Queue<QueryFuture<?>> waiting = new ConcurrentLinkedQueue<QueryFuture<?>>();
+
+	private final Executor executor;
+	private final boolean virtual;
+
+	/**
+	 * ExecutorService created by this AsyncExecutor, shut down on {@link #close()}, or <code>null</code> if the Executor was provided
+	 */
+	private final ExecutorService owned;
+
+	private volatile boolean closed;
+
+	/**
+	 * @param dataSource the DataSource to execute queries against
+	 * @param maxConcurrency the maximum number of queries to execute at the same time, a positive integer
+	 */
+	public AsyncExecutor(DataSource dataSource, int maxConcurrency) {
+		this(dataSource, maxConcurrency, null);
+	}
+
+	/**
+	 * @param dataSource the DataSource to execute queries against
+	 * @param maxConcurrency the maximum number of queries to execute at the same time, a positive integer
+	 * @param executor the Executor to run queries on, not shut down by this AsyncExecutor, 
+	 * or <code>null</code> to use virtual threads or a platform-thread fallback
+	 */
+	public AsyncExecutor(DataSource dataSource, int maxConcurrency, Executor executor) {
+		if (dataSource == null) {
+			throw new IllegalArgumentException("dataSource argument may not be null");
+		}
+		if (maxConcurrency < 1) {
+			throw new IllegalArgumentException("maxConcurrency argument must be a positive integer");
+		}
+		this.dataSource = dataSource;
+		this.maxConcurrency = maxConcurrency;
+		this.permits = new Semaphore(maxConcurrency);
+		if (executor != null) {
+			this.executor = executor;
+			this.owned = null;
+			this.virtual = false;
+		} else {
+			ExecutorService virtualExecutor = newVirtualThreadExecutor();
+			this.virtual = virtualExecutor != null;
+			this.owned = virtual ? virtualExecutor : Executors.newCachedThreadPool(new PlatformThreadFactory());
+			this.executor = owned;
+		}
+		logger.debug("AsyncExecutor: maxConcurrency {}, virtual threads {}", maxConcurrency, virtual);
+	}
+
+	/**
+	 * @return a new ExecutorService starting a virtual thread per task, or <code>null</code> if the runtime has no virtual threads
+	 */
+	private static ExecutorService newVirtualThreadExecutor() {
+		try {
+			Method method = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+			return (ExecutorService) method.invoke(null);
+		} catch (ReflectiveOperationException e) {
+			logger.debug("newVirtualThreadExecutor(): virtual threads are not available", e);
+			return null;
+		} catch (RuntimeException e) {
+			logger.debug("newVirtualThreadExecutor(): virtual threads are not available", e);
+			return null;
+		}
+	}
+
+	/**
+	 * Executes a query for the given instance, without timeout.
+	 * @see #query(QueryMapper, String, Object, ResultSetHandler, long, TimeUnit)
+	 */
+	public <T, R> CompletableFuture<R> query(QueryMapper<T> mapper, String select, T t, ResultSetHandler<? extends R> handler) {
+		return query(mapper, select, t, handler, 0L, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Executes a query for the given instance, 
+	 * with the positional where clause, the order clause and the positional limit clause of the instance appended to the select statement.<br/>
+	 * The returned future completes with the result of the handler, or exceptionally with the {@link SQLException} of the query. 
+	 * On timeout, it completes exceptionally with a {@link TimeoutException}, and the running Statement is cancelled.
+	 * @param mapper the QueryMapper for the class of the given instance
+	 * @param select the SQL before the where clause, for example <code>SELECT * FROM person</code>
+	 * @param t the instance to query for, read on the thread that executes the query, and not to be modified until the future completes
+	 * @param handler converts the ResultSet to a result
+	 * @param timeout the maximum time to wait for the result, or <code>0</code> for no timeout
+	 * @param unit the unit of the timeout
+	 * @return a new CompletableFuture, never <code>null</code>
+	 * @throws RejectedExecutionException if this AsyncExecutor is closed; 
+	 * if the Executor rejects the query when a permit becomes available, the returned future completes exceptionally instead
+	 */
+	public <T, R> CompletableFuture<R> query(final QueryMapper<T> mapper, final String select, final T t, final ResultSetHandler<? extends R> handler, 
+			long timeout, TimeUnit unit) {
+		if (mapper == null) {
+			throw new IllegalArgumentException("mapper argument may not be null");
+		}
+		if (select == null) {
+			throw new IllegalArgumentException("select argument may not be null");
+		}
+		if (handler == null) {
+			throw new IllegalArgumentException("handler argument may not be null");
+		}
+		if (timeout < 0L || unit == null) {
+			throw new IllegalArgumentException("timeout must be non-negative, with a unit");
+		}
+		if (closed) {
+			throw new RejectedExecutionException("AsyncExecutor is closed");
+		}
+		final QueryFuture<R> future = new QueryFuture<R>();
+		future.task = () -> run(future, mapper, select, t, handler);
+		waiting.add(future);
+		drain();
+		if (timeout > 0L) {
+			final ScheduledFuture<?> expiry = Timeouts.SCHEDULER.schedule(() -> {
+				if (future.completeExceptionally(new TimeoutException("Query timed out after " + timeout + " " + unit))) {
+					future.cancelStatement();
+				}
+			}, timeout, unit);
+			future.whenComplete((r, e) -> expiry.cancel(false));
+		}
+		return future;
+	}
+
+	/**
+	 * Hands waiting queries to the Executor while permits are available, 
+	 * and shuts down an owned ExecutorService once this AsyncExecutor is closed and no query is waiting.<br/>
+	 * Called after every submission, after every completed query and on close. 
+	 * The queue is checked again after releasing an unused permit, so that a query added concurrently is never left waiting.
+	 */
+	private void drain() {
+		while (!waiting.isEmpty() && permits.tryAcquire()) {
+			QueryFuture<?> next = waiting.poll();
+			if (next == null) {
+				permits.release();
+			} else {
+				try {
+					executor.execute(next.task);
+				} catch (RejectedExecutionException e) {
+					permits.release();
+					next.completeExceptionally(e);
+				}
+			}
+		}
+		if (closed && owned != null && waiting.isEmpty()) {
+			owned.shutdown();
+		}
+	}
+
+	/**
+	 * Executes the query for the given future, unless it is already completed, 
+	 * then releases the permit acquired for it by {@link #drain()}
+	 */
+	private <T, R> void run(QueryFuture<R> future, QueryMapper<T> mapper, String select, T t, ResultSetHandler<? extends R> handler) {
+		try {
+			if (future.isDone()) {
+				return;
+			}
+			Connection connection = dataSource.getConnection();
+			try {
+				long normalized = t == null ? 0L : mapper.normalize(t);
+				mapper.loadInTables(t, connection, normalized);
+				StringBuilder sql = new StringBuilder(select)
+						.append(mapper.toPositionalWhereClause(t, normalized))
+						.append(mapper.toOrderClause());
+				mapper.appendPositionalLimitClause(t, sql);
+				PreparedStatement ps = connection.prepareStatement(sql.toString());
+				try {
+					mapper.bindLimitParameters(t, ps, mapper.bindWhereParameters(t, ps, 1, normalized));
+					future.statement = ps;
+					if (future.isDone()) {
+						return;
+					}
+					ResultSet rs = ps.executeQuery();
+					try {
+						future.complete(handler.handle(rs));
+					} finally {
+						rs.close();
+					}
+				} finally {
+					future.statement = null;
+					ps.close();
+				}
+			} finally {
+				connection.close();
+			}
+		} catch (SQLException e) {
+			if (!future.completeExceptionally(e)) {
+				logger.debug("run(): query failed after its future completed", e);
+			}
+		} catch (RuntimeException e) {
+			future.completeExceptionally(e);
+		} catch (Error e) {
+			future.completeExceptionally(e);
+			throw e;
+		} finally {
+			permits.release();
+			drain();
+		}
+	}
+
+	/**
+	 * @return the maximum number of queries executed at the same time
+	 */
+	public int getMaxConcurrency() {
+		return maxConcurrency;
+	}
+
+	/**
+	 * @return the number of queries that could start executing right now
+	 */
+	public int getAvailablePermits() {
+		return permits.availablePermits();
+	}
+
+	/**
+	 * @return <code>true</code> if queries run on virtual threads
+	 */
+	public boolean isVirtual() {
+		return virtual;
+	}
+
+	/**
+	 * Stops accepting new queries. Queries already submitted are executed, including those still waiting for a permit. 
+	 * An Executor provided at construction is not shut down.
+	 */
+	@Override
+	public void close() {
+		closed = true;
+		drain();
+	}
+
+	@Override
+	public String toString() {
+		return new StringBuilder()
+				.append("AsyncExecutor [maxConcurrency=")
+				.append(maxConcurrency)
+				.append(", availablePermits=")
+				.append(permits.availablePermits())
+				.append(", virtual=")
+				.append(virtual)
+				.append("]")
+				.toString();
+	}
+
+	/**
+	 * CompletableFuture that cancels its running Statement when cancelled
+	 */
+	private static final class QueryFuture<R> extends CompletableFuture<R> {
+
+		/**
+		 * Executes the query and releases its permit, handed to the Executor once a permit is acquired
+		 */
+		private Runnable task;
+
+		/**
+		 * The Statement while it is executing, or <code>null</code>
+		 */
+		private volatile Statement statement;
+
+		@Override
+		public boolean cancel(boolean mayInterruptIfRunning) {
+			boolean cancelled = super.cancel(mayInterruptIfRunning);
+			if (cancelled) {
+				cancelStatement();
+			}
+			return cancelled;
+		}
+
+		void cancelStatement() {
+			Statement s = statement;
+			if (s != null) {
+				try {
+					s.cancel();
+				} catch (SQLException e) {
+					logger.warn("cancelStatement(): Statement.cancel() failed", e);
+				}
+			}
+		}
+
+	}
+
+	/**
+	 * Holder of the single daemon thread that expires timeouts, started on first use
+	 */
+	private static final class Timeouts {
+
+		static final ScheduledExecutorService SCHEDULER = Executors.newSingleThreadScheduledExecutor(r -> {
+			Thread thread = new Thread(r, "querymapper-timeout");
+			thread.setDaemon(true);
+			return thread;
+		});
+
+	}
+
+	private static final class PlatformThreadFactory implements ThreadFactory {
+
+		@Override
+		public Thread newThread(Runnable r) {
+			Thread thread = new Thread(r, "querymapper-async-" + THREADS.incrementAndGet());
+			thread.setDaemon(true);
+			return thread;
+		}
+
+	}
+
+}
@@ -0,0 +1,183 @@
+/*
+	Copyright 2015 Marceau Dewilde <m@ceau.be>
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.querymapper;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Executes one SQL statement for each of many instances of a class, grouped by the shape of their positional SQL.<br/>
+ * Instances that render to the same SQL text share a single PreparedStatement, 
+ * so each distinct shape is prepared only once per batch. Results are returned in the order of the instances.
+ */
+final class Batch<T> {
+
+	private final QueryMapper<T> mapper;
+	private final List<T> beans;
+
+	/**
+	 * The normalization of each bean, as returned by {@link QueryMapper#normalize(Object)}, computed once when grouping
+	 */
+	private final long[] normalized;
+
+	/**
+	 * Indices into beans, grouped by SQL text, in order of first occurrence
+	 */
+	private final Map<String, List<Integer>> shapes;
+
+	private Batch(QueryMapper<T> mapper, List<T> beans, long[] normalized, Map<String, List<Integer>> shapes) {
+		this.mapper = mapper;
+		this.beans = beans;
+		this.normalized = normalized;
+		this.shapes = shapes;
+	}
+
+	/**
+	 * @param statement the SQL before the where clause
+	 * @param full <code>true</code> to append the order and limit clauses after the where clause
+	 */
+	static <T> Batch<T> group(QueryMapper<T> mapper, String statement, Iterable<? extends T> beans, boolean full) {
+		if (statement == null) {
+			throw new IllegalArgumentException("statement argument may not be null");
+		}
+		if (beans == null) {
+			throw new IllegalArgumentException("beans argument may not be null");
+		}
+		List<T> list = new ArrayList<T>();
+		long[] normalized = new long[16];
+		Map<String, List<Integer>> shapes = new LinkedHashMap<String, List<Integer>>();
+		StringBuilder sb = new StringBuilder(statement.length() + 128);
+		for (T bean : beans) {
+			if (bean == null) {
+				throw new IllegalArgumentException("beans argument may not contain null");
+			}
+			if (list.size() == normalized.length) {
+				normalized = Arrays.copyOf(normalized, 2 * normalized.length);
+			}
+			normalized[list.size()] = mapper.normalize(bean);
+			sb.setLength(0);
+			sb.append(statement);
+			mapper.appendPositionalWhereClause(bean, sb, normalized[list.size()]);
+			if (full) {
+				mapper.appendOrderClause(sb);
+				mapper.appendLimitClause(bean, sb);
+			}
+			String sql = sb.toString();
+			List<Integer> indices = shapes.get(sql);
+			if (indices == null) {
+				indices = new ArrayList<Integer>();
+				shapes.put(sql, indices);
+			}
+			indices.add(list.size());
+			list.add(bean);
+		}
+		return new Batch<T>(mapper, list, normalized, shapes);
+	}
+
+	/**
+	 * @return the number of distinct statements in this batch
+	 */
+	int shapes() {
+		return shapes.size();
+	}
+
+	/**
+	 * Executes the statement for each group with JDBC batching.
+	 * @return the update count for each instance, in input order
+	 */
+	int[] executeUpdate(Connection connection) throws SQLException {
+		int[] counts = new int[beans.size()];
+		for (Map.Entry<String, List<Integer>> shape : shapes.entrySet()) {
+			List<Integer> indices = shape.getValue();
+			if (mapper.usesTempTables()) {
+				// temporary table contents differ per instance, so each instance is executed on its own
+				for (Integer index : indices) {
+					mapper.loadInTables(beans.get(index), connection, normalized[index]);
+					PreparedStatement ps = connection.prepareStatement(shape.getKey());
+					try {
+						mapper.bindWhereParameters(beans.get(index), ps, 1, normalized[index]);
+						counts[index] = ps.executeUpdate();
+					} finally {
+						ps.close();
+					}
+				}
+				continue;
+			}
+			PreparedStatement ps = connection.prepareStatement(shape.getKey());
+			try {
+				for (Integer index : indices) {
+					mapper.bindWhereParameters(beans.get(index), ps, 1, normalized[index]);
+					ps.addBatch();
+				}
+				int[] batch = ps.executeBatch();
+				for (int i = 0; i < indices.size(); i++) {
+					counts[indices.get(i)] = i < batch.length ? batch[i] : PreparedStatement.SUCCESS_NO_INFO;
+				}
+			} finally {
+				ps.close();
+			}
+		}
+		return counts;
+	}
+
+	/**
+	 * Executes the query for each instance, reusing one PreparedStatement per group.
+	 * @return the result of the handler for each instance, in input order
+	 */
+	<R> List<R> executeQuery(Connection connection, ResultSetHandler<? extends R> handler) throws SQLException {
+		if (handler == null) {
+			throw new IllegalArgumentException("handler argument may not be null");
+		}
+		Object[] results = new Object[beans.size()];
+		boolean load = mapper.usesTempTables();
+		for (Map.Entry<String, List<Integer>> shape : shapes.entrySet()) {
+			Integer first = shape.getValue().get(0);
+			if (load) {
+				// temporary tables must exist before the statement is prepared
+				mapper.loadInTables(beans.get(first), connection, normalized[first]);
+			}
+			PreparedStatement ps = connection.prepareStatement(shape.getKey());
+			try {
+				for (Integer index : shape.getValue()) {
+					if (load && !index.equals(first)) {
+						mapper.loadInTables(beans.get(index), connection, normalized[index]);
+					}
+					ps.clearParameters();
+					mapper.bindWhereParameters(beans.get(index), ps, 1, normalized[index]);
+					ResultSet rs = ps.executeQuery();
+					try {
+						results[index] = handler.handle(rs);
+					} finally {
+						rs.close();
+					}
+				}
+			} finally {
+				ps.close();
+			}
+		}
+		@SuppressWarnings("unchecked")
+		List<R> list = (List<R>) Arrays.asList(results);
+		return new ArrayList<R>(list);
+	}
+
+}
@@ -0,0 +1,227 @@
+/*
+	Copyright 2015 Marceau Dewilde <m@ceau.be>
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.querymapper;
+
+import java.math.BigDecimal;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Collection;
+
+import be.ceau.querymapper.dialect.Dialect;
+import be.ceau.querymapper.enums.Comparison;
+import be.ceau.querymapper.enums.FieldType;
+
+/**
+ * Writes the value of a single WhereField to a PreparedStatement, using the setter that matches its type.<br/>
+ * The Binder for each WhereField is chosen once, when the WhereField is built, 
+ * so binding does not need to inspect the {@link FieldType} or the {@link Comparison} of the field.<br/>
+ * Values are bound exactly as they appear in the Map returned by {@link QueryMapper#toParameterMap(Object)}.
+ */
+abstract class Binder {
+
+	/**
+	 * @param ps the PreparedStatement to bind to
+	 * @param index the parameter index of the first placeholder to bind
+	 * @param value the non-null value to bind
+	 * @return the parameter index of the first placeholder after the bound value
+	 */
+	abstract int bind(PreparedStatement ps, int index, Object value) throws SQLException;
+
+	/**
+	 * @return <code>true</code> if the given Comparison transforms values into a <code>LIKE</code> pattern
+	 */
+	static boolean isPattern(Comparison comparison) {
+		switch (comparison) {
+			case LIKE:
+			case STARTS_WITH:
+			case ENDS_WITH:
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if values of the given FieldType and Comparison are bound to a placeholder per element
+	 */
+	static boolean isExpanded(Comparison comparison, FieldType fieldType) {
+		return fieldType == FieldType.COLLECTION && !isPattern(comparison);
+	}
+
+	/**
+	 * @return the smallest power of two not less than the given collection size, or <code>0</code> for empty collections
+	 */
+	static int bucket(int size) {
+		return size <= 1 ? size : Integer.highestOneBit(size - 1) << 1;
+	}
+
+	/**
+	 * @param bucketed <code>true</code> to pad collections to {@link #bucket(int) bucket size} by repeating their last element
+	 * @param dialect the Dialect escaping <code>LIKE</code> patterns
+	 */
+	static Binder of(Comparison comparison, FieldType fieldType, Class<?> type, boolean bucketed, Dialect dialect) {
+		if (isPattern(comparison) || fieldType == FieldType.ENUM || fieldType == FieldType.OTHER) {
+			return new StringBinder(comparison, fieldType, dialect);
+		}
+		if (fieldType == FieldType.COLLECTION) {
+			return bucketed ? BUCKETED_COLLECTION : COLLECTION;
+		}
+		if (type == Integer.class || type == int.class) {
+			return INT;
+		} else if (type == Long.class || type == long.class) {
+			return LONG;
+		} else if (type == Short.class || type == short.class) {
+			return SHORT;
+		} else if (type == Byte.class || type == byte.class) {
+			return BYTE;
+		} else if (type == Double.class || type == double.class) {
+			return DOUBLE;
+		} else if (type == Float.class || type == float.class) {
+			return FLOAT;
+		} else if (type == BigDecimal.class) {
+			return BIG_DECIMAL;
+		}
+		return OBJECT;
+	}
+
+	/**
+	 * Binds a single element of a collection, with the setter matching its runtime type
+	 */
+	static void bindElement(PreparedStatement ps, int index, Object element) throws SQLException {
+		if (element instanceof String) {
+			ps.setString(index, (String) element);
+		} else if (element instanceof Integer) {
+			ps.setInt(index, ((Integer) element).intValue());
+		} else if (element instanceof Long) {
+			ps.setLong(index, ((Long) element).longValue());
+		} else if (element instanceof Enum) {
+			ps.setString(index, ((Enum<?>) element).name());
+		} else {
+			ps.setObject(index, element);
+		}
+	}
+
+	private static final class StringBinder extends Binder {
+
+		private final Comparison comparison;
+		private final FieldType fieldType;
+		private final Dialect dialect;
+
+		StringBinder(Comparison comparison, FieldType fieldType, Dialect dialect) {
+			this.comparison = comparison;
+			this.fieldType = fieldType;
+			this.dialect = dialect;
+		}
+
+		@Override
+		int bind(PreparedStatement ps, int index, Object value) throws SQLException {
+			ps.setString(index, (String) WhereField.transform(comparison, fieldType, dialect, value));
+			return index + 1;
+		}
+
+	}
+
+	private static final Binder COLLECTION = new Binder() {
+		@Override
+		int bind(PreparedStatement ps, int index, Object value) throws SQLException {
+			for (Object element : (Collection<?>) value) {
+				bindElement(ps, index++, element);
+			}
+			return index;
+		}
+	};
+
+	private static final Binder BUCKETED_COLLECTION = new Binder() {
+		@Override
+		int bind(PreparedStatement ps, int index, Object value) throws SQLException {
+			Collection<?> collection = (Collection<?>) value;
+			Object last = null;
+			for (Object element : collection) {
+				bindElement(ps, index++, element);
+				last = element;
+			}
+			for (int i = collection.size(); i < bucket(collection.size()); i++) {
+				bindElement(ps, index++, last);
+			}
+			return index;
+		}
+	};
+
+	private static final Binder INT = new Binder() {
+		@Override
+		int bind(PreparedStatement ps, int index, Object value) throws SQLException {
+			ps.setInt(index, ((Number) value).intValue());
+			return index + 1;
+		}
+	};
+
+	private static final Binder LONG = new Binder() {
+		@Override
+		int bind(PreparedStatement ps, int index, Object value) throws SQLException {
+			ps.setLong(index, ((Number) value).longValue());
+			return index + 1;
+		}
+	};
+
+	private static final Binder SHORT = new Binder() {
+		@Override
+		int bind(PreparedStatement ps, int index, Object value) throws SQLException {
+			ps.setShort(index, ((Number) value).shortValue());
+			return index + 1;
+		}
+	};
+
+	private static final Binder BYTE = new Binder() {
+		@Override
+		int bind(PreparedStatement ps, int index, Object value) throws SQLException {
+			ps.setByte(index, ((Number) value).byteValue());
+			return index + 1;
+		}
+	};
+
+	private static final Binder DOUBLE = new Binder() {
+		@Override
+		int bind(PreparedStatement ps, int index, Object value) throws SQLException {
+			ps.setDouble(index, ((Number) value).doubleValue());
+			return index + 1;
+		}
+	};
+
+	private static final Binder FLOAT = new Binder() {
+		@Override
+		int bind(PreparedStatement ps, int index, Object value) throws SQLException {
+			ps.setFloat(index, ((Number) value).floatValue());
+			return index + 1;
+		}
+	};
+
+	private static final Binder BIG_DECIMAL = new Binder() {
+		@Override
+		int bind(PreparedStatement ps, int index, Object value) throws SQLException {
+			ps.setBigDecimal(index, (BigDecimal) value);
+			return index + 1;
+		}
+	};
+
+	private static final Binder OBJECT = new Binder() {
+		@Override
+		int bind(PreparedStatement ps, int index, Object value) throws SQLException {
+			ps.setObject(index, value);
+			return index + 1;
+		}
+	};
+
+}
@@ -0,0 +1,463 @@
+/*
+	Copyright 2015 Marceau Dewilde <m@ceau.be>
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.querymapper;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Minimal writer of class files, for the classes generated by {@link Specialized}.<br/>
+ * Classes are written in class file version 49, which the JVM verifies by type inference, so that no stack map frames are needed.
+ * Only the instructions used by the generated classes are supported, and methods are limited to 32 kilobytes of code.
+ */
+final class Bytecode {
+
+	static final int ACC_PRIVATE = 0x0002;
+	static final int ACC_FINAL = 0x0010;
+	static final int ACC_SUPER = 0x0020;
+	static final int ACC_SYNTHETIC = 0x1000;
+
+	static final int ICONST_0 = 0x03;
+	static final int ICONST_1 = 0x04;
+	static final int LCONST_0 = 0x09;
+	static final int LCONST_1 = 0x0a;
+	static final int POP = 0x57;
+	static final int AALOAD = 0x32;
+	static final int LMUL = 0x69;
+	static final int LAND = 0x7f;
+	static final int LOR = 0x81;
+	static final int LXOR = 0x83;
+	static final int LCMP = 0x94;
+	static final int IFNE = 0x9a;
+	static final int IF_ACMPEQ = 0xa5;
+	static final int GOTO = 0xa7;
+	static final int IRETURN = 0xac;
+	static final int LRETURN = 0xad;
+	static final int RETURN = 0xb1;
+	static final int IFNULL = 0xc6;
+
+	private static final int MAGIC = 0xcafebabe;
+	private static final int VERSION = 49;
+
+	private final ByteArrayOutputStream pool = new ByteArrayOutputStream();
+	private final DataOutputStream poolOut = new DataOutputStream(pool);
+	private final Map<String, Integer> constants = new HashMap<String, Integer>();
+	private int poolSize = 1;
+
+	private final int thisClass;
+	private final int superClass;
+	private final List<byte[]> fields = new ArrayList<byte[]>();
+	private final List<byte[]> methods = new ArrayList<byte[]>();
+
+	/**
+	 * @param name the internal name of the class to write, such as <code>be/ceau/querymapper/Generated</code>
+	 * @param superName the internal name of its superclass
+	 */
+	Bytecode(String name, String superName) {
+		this.thisClass = classConstant(name);
+		this.superClass = classConstant(superName);
+	}
+
+	/**
+	 * Adds a field without attributes
+	 */
+	void field(int access, String name, String descriptor) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			out.writeShort(access);
+			out.writeShort(utf8(name));
+			out.writeShort(utf8(descriptor));
+			out.writeShort(0);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		fields.add(bytes.toByteArray());
+	}
+
+	/**
+	 * Starts a method, which is added to the class by {@link Code#end()}
+	 * @param maxStack the maximum depth of the operand stack
+	 * @param maxLocals the number of local variable slots, including the arguments and <code>this</code>
+	 */
+	Code method(int access, String name, String descriptor, int maxStack, int maxLocals) {
+		return new Code(access, name, descriptor, maxStack, maxLocals);
+	}
+
+	/**
+	 * @return the class file, with the given access flags
+	 */
+	byte[] toByteArray(int access) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			out.writeInt(MAGIC);
+			out.writeShort(0);
+			out.writeShort(VERSION);
+			out.writeShort(poolSize);
+			poolOut.flush();
+			pool.writeTo(out);
+			out.writeShort(access);
+			out.writeShort(thisClass);
+			out.writeShort(superClass);
+			out.writeShort(0);
+			out.writeShort(fields.size());
+			for (byte[] field : fields) {
+				out.write(field);
+			}
+			out.writeShort(methods.size());
+			for (byte[] method : methods) {
+				out.write(method);
+			}
+			out.writeShort(0);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	private int utf8(String value) {
+		Integer index = constants.get("U" + value);
+		if (index == null) {
+			try {
+				poolOut.writeByte(1);
+				poolOut.writeUTF(value);
+			} catch (IOException e) {
+				throw new IllegalArgumentException("The constant " + value + " can not be written to a class file", e);
+			}
+			index = add("U" + value, 1);
+		}
+		return index;
+	}
+
+	private int classConstant(String name) {
+		return reference("C" + name, 7, utf8(name), -1);
+	}
+
+	private int stringConstant(String value) {
+		return reference("S" + value, 8, utf8(value), -1);
+	}
+
+	private int longConstant(long value) {
+		Integer index = constants.get("J" + value);
+		if (index == null) {
+			try {
+				poolOut.writeByte(5);
+				poolOut.writeLong(value);
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+			index = add("J" + value, 2);
+		}
+		return index;
+	}
+
+	/**
+	 * @param tag <code>9</code> for fields, <code>10</code> for class methods, <code>11</code> for interface methods
+	 */
+	private int member(int tag, String owner, String name, String descriptor) {
+		int nameAndType = reference("N" + name + ' ' + descriptor, 12, utf8(name), utf8(descriptor));
+		return reference(tag + owner + '.' + name + ' ' + descriptor, tag, classConstant(owner), nameAndType);
+	}
+
+	/**
+	 * Adds a constant referring to one or two other constants, if not added already
+	 * @param second the second index, or <code>-1</code> if there is none
+	 */
+	private int reference(String key, int tag, int first, int second) {
+		Integer index = constants.get(key);
+		if (index == null) {
+			try {
+				poolOut.writeByte(tag);
+				poolOut.writeShort(first);
+				if (second >= 0) {
+					poolOut.writeShort(second);
+				}
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+			index = add(key, 1);
+		}
+		return index;
+	}
+
+	private int add(String key, int slots) {
+		int index = poolSize;
+		if (index + slots > 0xffff) {
+			throw new IllegalStateException("The constant pool is full");
+		}
+		constants.put(key, index);
+		poolSize += slots;
+		return index;
+	}
+
+	/**
+	 * A position in the code of a method, the target of jumps and exception handlers
+	 */
+	static final class Label {
+
+		private int offset = -1;
+		private final List<int[]> jumps = new ArrayList<int[]>();
+
+	}
+
+	/**
+	 * The code of a single method
+	 */
+	final class Code {
+
+		private final int access;
+		private final String name;
+		private final String descriptor;
+		private final int maxStack;
+		private final int maxLocals;
+		private byte[] code = new byte[256];
+		private int length;
+		private final List<Object[]> handlers = new ArrayList<Object[]>();
+
+		private Code(int access, String name, String descriptor, int maxStack, int maxLocals) {
+			this.access = access;
+			this.name = name;
+			this.descriptor = descriptor;
+			this.maxStack = maxStack;
+			this.maxLocals = maxLocals;
+		}
+
+		/**
+		 * Writes an instruction without operands
+		 */
+		Code op(int opcode) {
+			write(opcode);
+			return this;
+		}
+
+		Code aload(int index) {
+			return local(0x2a, 0x19, index);
+		}
+
+		Code astore(int index) {
+			return local(0x4b, 0x3a, index);
+		}
+
+		Code lload(int index) {
+			return local(0x1e, 0x16, index);
+		}
+
+		Code lstore(int index) {
+			return local(0x3f, 0x37, index);
+		}
+
+		/**
+		 * @param shortOpcode the opcode for index 0, followed by the opcodes for indices 1 to 3
+		 */
+		private Code local(int shortOpcode, int opcode, int index) {
+			if (index < 4) {
+				write(shortOpcode + index);
+			} else {
+				write(opcode);
+				write(index);
+			}
+			return this;
+		}
+
+		/**
+		 * Pushes an int constant
+		 */
+		Code push(int value) {
+			if (value >= -1 && value <= 5) {
+				write(0x03 + value);
+			} else if (value >= Byte.MIN_VALUE && value <= Byte.MAX_VALUE) {
+				write(0x10);
+				write(value);
+			} else {
+				write(0x11);
+				writeShort(value);
+			}
+			return this;
+		}
+
+		/**
+		 * Pushes a String constant
+		 */
+		Code ldc(String value) {
+			write(0x13);
+			writeShort(stringConstant(value));
+			return this;
+		}
+
+		/**
+		 * Pushes a long constant
+		 */
+		Code ldc(long value) {
+			if (value == 0L) {
+				return op(LCONST_0);
+			} else if (value == 1L) {
+				return op(LCONST_1);
+			}
+			write(0x14);
+			writeShort(longConstant(value));
+			return this;
+		}
+
+		Code getfield(String owner, String name, String descriptor) {
+			return memberOp(0xb4, 9, owner, name, descriptor);
+		}
+
+		Code putfield(String owner, String name, String descriptor) {
+			return memberOp(0xb5, 9, owner, name, descriptor);
+		}
+
+		Code invokevirtual(String owner, String name, String descriptor) {
+			return memberOp(0xb6, 10, owner, name, descriptor);
+		}
+
+		Code invokespecial(String owner, String name, String descriptor) {
+			return memberOp(0xb7, 10, owner, name, descriptor);
+		}
+
+		Code invokestatic(String owner, String name, String descriptor) {
+			return memberOp(0xb8, 10, owner, name, descriptor);
+		}
+
+		/**
+		 * @param arguments the number of argument slots, including the receiver
+		 */
+		Code invokeinterface(String owner, String name, String descriptor, int arguments) {
+			memberOp(0xb9, 11, owner, name, descriptor);
+			write(arguments);
+			write(0);
+			return this;
+		}
+
+		private Code memberOp(int opcode, int tag, String owner, String name, String descriptor) {
+			write(opcode);
+			writeShort(member(tag, owner, name, descriptor));
+			return this;
+		}
+
+		Code newObject(String type) {
+			write(0xbb);
+			writeShort(classConstant(type));
+			return this;
+		}
+
+		Code checkcast(String type) {
+			write(0xc0);
+			writeShort(classConstant(type));
+			return this;
+		}
+
+		/**
+		 * Writes a jump instruction to the given label, which may be marked before or after the jump
+		 */
+		Code jump(int opcode, Label label) {
+			int at = length;
+			write(opcode);
+			if (label.offset >= 0) {
+				checkJump(label.offset - at);
+				writeShort(label.offset - at);
+			} else {
+				label.jumps.add(new int[] { at, length });
+				writeShort(0);
+			}
+			return this;
+		}
+
+		/**
+		 * Marks the current position with the given label
+		 */
+		Code mark(Label label) {
+			label.offset = length;
+			for (int[] jump : label.jumps) {
+				int relative = label.offset - jump[0];
+				checkJump(relative);
+				code[jump[1]] = (byte) (relative >>> 8);
+				code[jump[1] + 1] = (byte) relative;
+			}
+			label.jumps.clear();
+			return this;
+		}
+
+		/**
+		 * Adds an exception handler for the given type, for the code between the given labels
+		 * @param type the internal name of the caught exception class
+		 */
+		Code handler(Label start, Label end, Label handler, String type) {
+			handlers.add(new Object[] { start, end, handler, type });
+			return this;
+		}
+
+		private void write(int value) {
+			if (length == code.length) {
+				code = Arrays.copyOf(code, 2 * length);
+			}
+			code[length++] = (byte) value;
+		}
+
+		private void writeShort(int value) {
+			write(value >>> 8);
+			write(value);
+		}
+
+		private void checkJump(int relative) {
+			if (relative < Short.MIN_VALUE || relative > Short.MAX_VALUE) {
+				throw new IllegalStateException("The code of method " + name + " is too large");
+			}
+		}
+
+		/**
+		 * Adds this method to the class
+		 */
+		void end() {
+			if (length > Short.MAX_VALUE) {
+				throw new IllegalStateException("The code of method " + name + " is too large");
+			}
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			DataOutputStream out = new DataOutputStream(bytes);
+			try {
+				out.writeShort(access);
+				out.writeShort(utf8(name));
+				out.writeShort(utf8(descriptor));
+				out.writeShort(1);
+				out.writeShort(utf8("Code"));
+				out.writeInt(12 + length + 8 * handlers.size());
+				out.writeShort(maxStack);
+				out.writeShort(maxLocals);
+				out.writeInt(length);
+				out.write(code, 0, length);
+				out.writeShort(handlers.size());
+				for (Object[] handler : handlers) {
+					out.writeShort(((Label) handler[0]).offset);
+					out.writeShort(((Label) handler[1]).offset);
+					out.writeShort(((Label) handler[2]).offset);
+					out.writeShort(classConstant((String) handler[3]));
+				}
+				out.writeShort(0);
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+			methods.add(bytes.toByteArray());
+		}
+
+	}
+
+}
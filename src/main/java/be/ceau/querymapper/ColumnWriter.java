@@ -0,0 +1,350 @@
+/*
+	Copyright 2015 Marceau Dewilde <m@ceau.be>
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.querymapper;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.math.BigDecimal;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.function.BiConsumer;
+import java.util.function.ObjDoubleConsumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ObjLongConsumer;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Compiled write access from a column of a ResultSet to a single Field, the counterpart of {@link Accessor}.<br/>
+ * Values are written through a lambda generated for the public JavaBean setter of the Field if there is one, 
+ * or else through a MethodHandle for the Field itself.<br/>
+ * Fields of type int, long and double are read with {@link ResultSet#getInt(int)}, {@link ResultSet#getLong(int)} and {@link ResultSet#getDouble(int)}, 
+ * and written without boxing. Boxed fields read <code>NULL</code> as <code>null</code>.
+ */
+abstract class ColumnWriter {
+
+	private static final Logger logger = LoggerFactory.getLogger(ColumnWriter.class);
+
+	private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+	private final String name;
+
+	private ColumnWriter(Field field) {
+		this.name = field.toString();
+	}
+
+	/**
+	 * @return a new ColumnWriter for the given non-static, non-final Field, never <code>null</code>
+	 * @throws IllegalArgumentException if the Field can not be written
+	 */
+	static ColumnWriter of(Field field) {
+		Class<?> type = field.getType();
+		if (type == int.class) {
+			return new IntWriter(field, compile(field, ObjIntConsumer.class, int.class));
+		} else if (type == long.class) {
+			return new LongWriter(field, compile(field, ObjLongConsumer.class, long.class));
+		} else if (type == double.class) {
+			return new DoubleWriter(field, compile(field, ObjDoubleConsumer.class, double.class));
+		}
+		@SuppressWarnings("unchecked")
+		BiConsumer<Object, Object> setter = compile(field, BiConsumer.class, Object.class);
+		return new ObjectWriter(field, setter, reader(type));
+	}
+
+	/**
+	 * @return a description of the written Field, for use in messages
+	 */
+	String getName() {
+		return name;
+	}
+
+	/**
+	 * Reads the column at the given index of the current row, and writes it to the Field of the given instance.
+	 * @throws SQLException if the ResultSet throws SQLException
+	 */
+	abstract void write(Object bean, ResultSet rs, int index) throws SQLException;
+
+	/**
+	 * @param samType the functional interface to implement, taking the bean and the value
+	 * @param valueType the type of the value in the functional method, <code>Object</code> for reference types
+	 * @return an instance of samType writing the Field
+	 */
+	@SuppressWarnings("unchecked")
+	private static <F> F compile(Field field, Class<?> samType, Class<?> valueType) {
+		Method setter = findSetter(field);
+		if (setter != null) {
+			try {
+				MethodHandle handle = LOOKUP.unreflect(setter);
+				Class<?> instantiatedType = field.getType().isPrimitive() ? field.getType() : MethodType.methodType(field.getType()).wrap().returnType();
+				CallSite site = LambdaMetafactory.metafactory(LOOKUP, "accept", MethodType.methodType(samType), 
+						MethodType.methodType(void.class, Object.class, valueType), handle, 
+						MethodType.methodType(void.class, setter.getDeclaringClass(), instantiatedType));
+				return (F) site.getTarget().invoke();
+			} catch (Throwable e) {
+				logger.debug("compile({}): no lambda writer for setter {}", field, setter, e);
+			}
+		}
+		final MethodHandle handle;
+		try {
+			field.setAccessible(true);
+			handle = LOOKUP.unreflectSetter(field).asType(MethodType.methodType(void.class, Object.class, valueType));
+		} catch (IllegalAccessException e) {
+			throw new IllegalArgumentException("Field " + field + " can not be written", e);
+		} catch (RuntimeException e) {
+			throw new IllegalArgumentException("Field " + field + " can not be written", e);
+		}
+		if (valueType == int.class) {
+			return (F) (ObjIntConsumer<Object>) (bean, value) -> invoke(handle, bean, value);
+		} else if (valueType == long.class) {
+			return (F) (ObjLongConsumer<Object>) (bean, value) -> invoke(handle, bean, value);
+		} else if (valueType == double.class) {
+			return (F) (ObjDoubleConsumer<Object>) (bean, value) -> invoke(handle, bean, value);
+		}
+		return (F) (BiConsumer<Object, Object>) (bean, value) -> invoke(handle, bean, value);
+	}
+
+	private static void invoke(MethodHandle handle, Object bean, int value) {
+		try {
+			handle.invokeExact(bean, value);
+		} catch (Throwable e) {
+			throw rethrow(e);
+		}
+	}
+
+	private static void invoke(MethodHandle handle, Object bean, long value) {
+		try {
+			handle.invokeExact(bean, value);
+		} catch (Throwable e) {
+			throw rethrow(e);
+		}
+	}
+
+	private static void invoke(MethodHandle handle, Object bean, double value) {
+		try {
+			handle.invokeExact(bean, value);
+		} catch (Throwable e) {
+			throw rethrow(e);
+		}
+	}
+
+	private static void invoke(MethodHandle handle, Object bean, Object value) {
+		try {
+			handle.invokeExact(bean, value);
+		} catch (Throwable e) {
+			throw rethrow(e);
+		}
+	}
+
+	private static RuntimeException rethrow(Throwable e) {
+		if (e instanceof RuntimeException) {
+			return (RuntimeException) e;
+		} else if (e instanceof Error) {
+			throw (Error) e;
+		}
+		return new IllegalStateException(e);
+	}
+
+	/**
+	 * @return the public, non-static setter of the given field following JavaBean naming conventions, or <code>null</code>
+	 */
+	private static Method findSetter(Field field) {
+		Class<?> declaringClass = field.getDeclaringClass();
+		if (!Modifier.isPublic(declaringClass.getModifiers()) || !isVisible(declaringClass)) {
+			return null;
+		}
+		String name = "set" + Character.toUpperCase(field.getName().charAt(0)) + field.getName().substring(1);
+		try {
+			Method method = declaringClass.getDeclaredMethod(name, field.getType());
+			if (Modifier.isPublic(method.getModifiers()) && !Modifier.isStatic(method.getModifiers())) {
+				return method;
+			}
+		} catch (NoSuchMethodException e) {
+			// no setter
+		}
+		return null;
+	}
+
+	/**
+	 * Generated lambdas resolve the bean class through the class loader of this library.
+	 */
+	private static boolean isVisible(Class<?> clazz) {
+		try {
+			return Class.forName(clazz.getName(), false, ColumnWriter.class.getClassLoader()) == clazz;
+		} catch (ClassNotFoundException e) {
+			return false;
+		} catch (LinkageError e) {
+			return false;
+		}
+	}
+
+	/**
+	 * @return the Reader for values of the given type
+	 */
+	private static Reader reader(final Class<?> type) {
+		if (type == String.class) {
+			return ResultSet::getString;
+		} else if (type == Integer.class) {
+			return (rs, i) -> {
+				int value = rs.getInt(i);
+				return rs.wasNull() ? null : Integer.valueOf(value);
+			};
+		} else if (type == Long.class) {
+			return (rs, i) -> {
+				long value = rs.getLong(i);
+				return rs.wasNull() ? null : Long.valueOf(value);
+			};
+		} else if (type == Double.class) {
+			return (rs, i) -> {
+				double value = rs.getDouble(i);
+				return rs.wasNull() ? null : Double.valueOf(value);
+			};
+		} else if (type == boolean.class) {
+			return (rs, i) -> Boolean.valueOf(rs.getBoolean(i));
+		} else if (type == Boolean.class) {
+			return (rs, i) -> {
+				boolean value = rs.getBoolean(i);
+				return rs.wasNull() ? null : Boolean.valueOf(value);
+			};
+		} else if (type == short.class) {
+			return (rs, i) -> Short.valueOf(rs.getShort(i));
+		} else if (type == Short.class) {
+			return (rs, i) -> {
+				short value = rs.getShort(i);
+				return rs.wasNull() ? null : Short.valueOf(value);
+			};
+		} else if (type == byte.class) {
+			return (rs, i) -> Byte.valueOf(rs.getByte(i));
+		} else if (type == Byte.class) {
+			return (rs, i) -> {
+				byte value = rs.getByte(i);
+				return rs.wasNull() ? null : Byte.valueOf(value);
+			};
+		} else if (type == float.class) {
+			return (rs, i) -> Float.valueOf(rs.getFloat(i));
+		} else if (type == Float.class) {
+			return (rs, i) -> {
+				float value = rs.getFloat(i);
+				return rs.wasNull() ? null : Float.valueOf(value);
+			};
+		} else if (type == BigDecimal.class) {
+			return ResultSet::getBigDecimal;
+		} else if (type == byte[].class) {
+			return ResultSet::getBytes;
+		} else if (type == java.sql.Timestamp.class || type == java.util.Date.class) {
+			return ResultSet::getTimestamp;
+		} else if (type == java.sql.Date.class) {
+			return ResultSet::getDate;
+		} else if (type == java.sql.Time.class) {
+			return ResultSet::getTime;
+		} else if (type.isEnum()) {
+			return (rs, i) -> {
+				String value = rs.getString(i);
+				return value == null ? null : enumValue(type, value);
+			};
+		} else if (type.isPrimitive()) {
+			throw new IllegalArgumentException("Fields of type " + type + " can not be read from a ResultSet");
+		}
+		return (rs, i) -> rs.getObject(i, type);
+	}
+
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static Object enumValue(Class type, String value) {
+		return Enum.valueOf(type, value);
+	}
+
+	/**
+	 * Reads the value of a column as an Object
+	 */
+	private interface Reader {
+
+		Object read(ResultSet rs, int index) throws SQLException;
+
+	}
+
+	private static final class IntWriter extends ColumnWriter {
+
+		private final ObjIntConsumer<Object> setter;
+
+		private IntWriter(Field field, ObjIntConsumer<Object> setter) {
+			super(field);
+			this.setter = setter;
+		}
+
+		@Override
+		void write(Object bean, ResultSet rs, int index) throws SQLException {
+			setter.accept(bean, rs.getInt(index));
+		}
+
+	}
+
+	private static final class LongWriter extends ColumnWriter {
+
+		private final ObjLongConsumer<Object> setter;
+
+		private LongWriter(Field field, ObjLongConsumer<Object> setter) {
+			super(field);
+			this.setter = setter;
+		}
+
+		@Override
+		void write(Object bean, ResultSet rs, int index) throws SQLException {
+			setter.accept(bean, rs.getLong(index));
+		}
+
+	}
+
+	private static final class DoubleWriter extends ColumnWriter {
+
+		private final ObjDoubleConsumer<Object> setter;
+
+		private DoubleWriter(Field field, ObjDoubleConsumer<Object> setter) {
+			super(field);
+			this.setter = setter;
+		}
+
+		@Override
+		void write(Object bean, ResultSet rs, int index) throws SQLException {
+			setter.accept(bean, rs.getDouble(index));
+		}
+
+	}
+
+	private static final class ObjectWriter extends ColumnWriter {
+
+		private final BiConsumer<Object, Object> setter;
+		private final Reader reader;
+
+		private ObjectWriter(Field field, BiConsumer<Object, Object> setter, Reader reader) {
+			super(field);
+			this.setter = setter;
+			this.reader = reader;
+		}
+
+		@Override
+		void write(Object bean, ResultSet rs, int index) throws SQLException {
+			setter.accept(bean, reader.read(rs, index));
+		}
+
+	}
+
+}
@@ -0,0 +1,61 @@
+/*
+	Copyright 2015 Marceau Dewilde <m@ceau.be>
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.querymapper;
+
+/**
+ * 64-bit FNV-1a hashing of the values that determine the SQL rendered by a QueryMapper.<br/>
+ * The resulting fingerprints only depend on their input, and are therefore stable across JVM restarts. 
+ * Strings are hashed char by char, two bytes per char, followed by their length, so that consecutive Strings do not run together.
+ */
+final class Fingerprint {
+
+	/**
+	 * The FNV-1a offset basis, being the fingerprint of empty input
+	 */
+	static final long OFFSET_BASIS = 0xcbf29ce484222325L;
+
+	private static final long PRIME = 0x100000001b3L;
+
+	private Fingerprint() {
+	}
+
+	/**
+	 * @return the given hash, extended with the 8 bytes of the given value
+	 */
+	static long hash(long hash, long value) {
+		for (int i = 0; i < 8; i++) {
+			hash ^= value & 0xffL;
+			hash *= PRIME;
+			value >>>= 8;
+		}
+		return hash;
+	}
+
+	/**
+	 * @return the given hash, extended with the chars and the length of the given String
+	 */
+	static long hash(long hash, String value) {
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			hash ^= c & 0xffL;
+			hash *= PRIME;
+			hash ^= c >>> 8;
+			hash *= PRIME;
+		}
+		return hash(hash, value.length());
+	}
+
+}
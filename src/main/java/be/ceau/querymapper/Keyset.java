@@ -0,0 +1,216 @@
+/*
+	Copyright 2015 Marceau Dewilde <m@ceau.be>
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.querymapper;
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import be.ceau.querymapper.annotations.Seek;
+import be.ceau.querymapper.enums.SortOrder;
+
+/**
+ * Keyset pagination for a class with a <code>@Seek</code> field.<br/>
+ * Instead of skipping an offset of rows, the where clause selects the rows following the seek key in the order of the <code>@Order</code> fields. 
+ * If all <code>@Order</code> fields sort in the same direction, the predicate is a single row-value comparison, 
+ * such as <code>(`a`, `b`) &gt; (:qm_seek0, :qm_seek1)</code>. 
+ * Otherwise, it is expanded to <code>((`a` &gt; :qm_seek0) OR (`a` = :qm_seek0 AND `b` &lt; :qm_seek1))</code>.
+ * Both predicates are rendered once, at construction.
+ */
+final class Keyset {
+
+	/**
+	 * Prefix of the names of the seek key parameters in the parameter Map
+	 */
+	static final String PARAMETER = "qm_seek";
+
+	private final Accessor accessor;
+	private final String[] names;
+	private final String namedPredicate;
+	private final String positionalPredicate;
+
+	/**
+	 * Index into the seek key of the value for each <code>?</code> placeholder of the positional predicate
+	 */
+	private final int[] bindings;
+
+	/**
+	 * @return the Accessor for the <code>@Seek</code> field, or <code>null</code> if the field is not annotated with <code>@Seek</code>
+	 * @throws IllegalAnnotationException if the annotated field is not a List or an Object[]
+	 */
+	static Accessor extract(Field field) {
+		if (field.getAnnotation(Seek.class) == null || Modifier.isStatic(field.getModifiers())) {
+			return null;
+		}
+		if (!List.class.isAssignableFrom(field.getType()) && field.getType() != Object[].class) {
+			throw new IllegalAnnotationException("@Seek is only valid on fields of type java.util.List or Object[]");
+		}
+		field.setAccessible(true);
+		return Accessor.of(field);
+	}
+
+	/**
+	 * @param orderFields the sorted <code>@Order</code> fields
+	 * @throws IllegalAnnotationException if there are no <code>@Order</code> fields
+	 */
+	Keyset(List<OrderField> orderFields, Accessor accessor) {
+		if (orderFields.isEmpty()) {
+			throw new IllegalAnnotationException("@Seek requires at least one @Order field");
+		}
+		this.accessor = accessor;
+		this.names = new String[orderFields.size()];
+		for (int i = 0; i < names.length; i++) {
+			names[i] = PARAMETER + i;
+		}
+		boolean uniform = true;
+		for (OrderField orderField : orderFields) {
+			uniform &= orderField.getSortOrder() == orderFields.get(0).getSortOrder();
+		}
+		if (uniform) {
+			this.namedPredicate = renderRowValue(orderFields, false);
+			this.positionalPredicate = renderRowValue(orderFields, true);
+			this.bindings = new int[names.length];
+			for (int i = 0; i < bindings.length; i++) {
+				bindings[i] = i;
+			}
+		} else {
+			this.namedPredicate = renderExpanded(orderFields, false);
+			this.positionalPredicate = renderExpanded(orderFields, true);
+			this.bindings = new int[names.length * (names.length + 1) / 2];
+			int b = 0;
+			for (int i = 0; i < names.length; i++) {
+				for (int j = 0; j <= i; j++) {
+					bindings[b++] = j;
+				}
+			}
+		}
+	}
+
+	private static String operator(OrderField orderField) {
+		return orderField.getSortOrder() == SortOrder.DESCENDING ? " < " : " > ";
+	}
+
+	private String renderRowValue(List<OrderField> orderFields, boolean positional) {
+		StringBuilder columns = new StringBuilder();
+		StringBuilder values = new StringBuilder();
+		for (int i = 0; i < orderFields.size(); i++) {
+			columns.append(i == 0 ? "" : ", ").append(orderFields.get(i).getIdentifier());
+			values.append(i == 0 ? "" : ", ").append(positional ? "?" : ":" + names[i]);
+		}
+		if (orderFields.size() == 1) {
+			return columns + operator(orderFields.get(0)) + values;
+		}
+		return "(" + columns + ")" + operator(orderFields.get(0)) + "(" + values + ")";
+	}
+
+	private String renderExpanded(List<OrderField> orderFields, boolean positional) {
+		StringBuilder sb = new StringBuilder("(");
+		for (int i = 0; i < orderFields.size(); i++) {
+			sb.append(i == 0 ? "(" : " OR (");
+			for (int j = 0; j < i; j++) {
+				sb.append(orderFields.get(j).getIdentifier()).append(" = ").append(positional ? "?" : ":" + names[j]).append(" AND ");
+			}
+			sb.append(orderFields.get(i).getIdentifier()).append(operator(orderFields.get(i))).append(positional ? "?" : ":" + names[i]).append(")");
+		}
+		return sb.append(")").toString();
+	}
+
+	Accessor getAccessor() {
+		return accessor;
+	}
+
+	/**
+	 * @return the seek key of the given instance, or <code>null</code> if there is none
+	 * @throws IllegalArgumentException if the seek key does not have one value per <code>@Order</code> field
+	 */
+	List<?> key(Object t) throws IllegalAccessException {
+		Object value = accessor.get(t);
+		if (!isKey(value)) {
+			return null;
+		}
+		return value instanceof Object[] ? Arrays.asList((Object[]) value) : (List<?>) value;
+	}
+
+	/**
+	 * @return <code>true</code> if the given instance has a seek key, without allocating
+	 * @throws IllegalArgumentException if the seek key does not have one value per <code>@Order</code> field
+	 */
+	boolean hasKey(Object t) throws IllegalAccessException {
+		return isKey(accessor.get(t));
+	}
+
+	/**
+	 * @param value the value of the <code>@Seek</code> field
+	 * @return <code>true</code> if the value is a seek key, <code>false</code> if it is <code>null</code>
+	 */
+	private boolean isKey(Object value) {
+		if (value == null) {
+			return false;
+		}
+		int size = value instanceof Object[] ? ((Object[]) value).length : ((List<?>) value).size();
+		if (size != names.length) {
+			throw new IllegalArgumentException("The value of the field annotated with @Seek must have " + names.length + " elements, one for each @Order field");
+		}
+		return true;
+	}
+
+	/**
+	 * @param where a where clause, possibly empty
+	 * @return the where clause, restricted to rows after the seek key
+	 */
+	String append(String where, boolean positional) {
+		String predicate = positional ? positionalPredicate : namedPredicate;
+		if (where.isEmpty()) {
+			return " WHERE " + predicate + " ";
+		}
+		return where + "AND " + predicate + " ";
+	}
+
+	/**
+	 * Appends the named predicate to a where clause that was just appended to the given Appendable
+	 * @param empty <code>true</code> if the where clause is empty
+	 */
+	void append(Appendable appendable, boolean empty) throws IOException {
+		appendable.append(empty ? " WHERE " : "AND ").append(namedPredicate).append(' ');
+	}
+
+	/**
+	 * Adds the values of the seek key to the given parameter Map
+	 */
+	void putParameters(List<?> key, Map<String, Object> map) {
+		for (int i = 0; i < names.length; i++) {
+			Object value = key.get(i);
+			map.put(names[i], value instanceof Enum ? ((Enum<?>) value).name() : value);
+		}
+	}
+
+	/**
+	 * Binds the values of the seek key to the placeholders of the positional predicate
+	 * @return the parameter index of the first placeholder after the predicate
+	 */
+	int bind(PreparedStatement ps, int index, List<?> key) throws SQLException {
+		for (int binding : bindings) {
+			Binder.bindElement(ps, index++, key.get(binding));
+		}
+		return index;
+	}
+
+}
@@ -0,0 +1,233 @@
+/*
+	Copyright 2015 Marceau Dewilde <m@ceau.be>
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.querymapper;
+
+import java.math.BigDecimal;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collection;
+
+import be.ceau.querymapper.dialect.Dialect;
+import be.ceau.querymapper.enums.InStrategy;
+
+/**
+ * Positional rendering and binding of a collection compared with <code>IN</code>, 
+ * for collections with more elements than a threshold.<br/>
+ * Large collections expanded to one placeholder per element result in huge statements, slow parsing, 
+ * and failures on driver limits for the number of parameters. 
+ * The {@link InStrategy} of a LargeIn renders them in a more compact form, which selects the same rows.
+ */
+final class LargeIn {
+
+	/**
+	 * Number of rows inserted in a temporary table per JDBC batch
+	 */
+	private static final int LOAD_BATCH_SIZE = 1000;
+
+	/**
+	 * SQL type names for the elements of a collection, as returned by {@link #sqlTypeIndex(Class)}
+	 */
+	/**
+	 * Upper bound of the values returned by {@link #shape(Collection)}
+	 */
+	static final int SHAPES = 8;
+
+	private static final String[] SQL_TYPES = { "VARCHAR", "BIGINT", "INTEGER", "SMALLINT", "DOUBLE PRECISION", "NUMERIC" };
+
+	private final InStrategy strategy;
+	private final int threshold;
+	private final String prefix;
+	private final String tempTable;
+	private final Dialect dialect;
+
+	/**
+	 * @param identifier the quoted column, with its table if any
+	 * @param table the unquoted table name or alias, or <code>null</code> or empty if there is none
+	 * @param column the unquoted column name
+	 */
+	LargeIn(InStrategy strategy, int threshold, String identifier, String table, String column, Dialect dialect) {
+		if (strategy == null) {
+			throw new IllegalArgumentException("InStrategy argument may not be null");
+		}
+		if (threshold < 0) {
+			throw new IllegalArgumentException("threshold argument may not be negative");
+		}
+		this.strategy = strategy;
+		this.threshold = threshold;
+		this.dialect = dialect;
+		this.tempTable = tempTableName(table, column);
+		switch (strategy) {
+			case ARRAY:
+				this.prefix = identifier + " = ANY(?)";
+				break;
+			case VALUES:
+				this.prefix = identifier + " IN (SELECT v FROM (VALUES ";
+				break;
+			case TEMP_TABLE:
+				this.prefix = identifier + " IN (SELECT v FROM " + tempTable + ")";
+				break;
+			default:
+				this.prefix = null;
+		}
+	}
+
+	InStrategy getStrategy() {
+		return strategy;
+	}
+
+	int getThreshold() {
+		return threshold;
+	}
+
+	/**
+	 * @return <code>true</code> if a collection of the given size is rendered with the {@link InStrategy} of this LargeIn
+	 */
+	boolean applies(int size) {
+		return strategy != InStrategy.EXPAND && size > threshold;
+	}
+
+	/**
+	 * @param placeholders the number of elements to render, only used by {@link InStrategy#VALUES}
+	 * @param collection the collection to render
+	 */
+	void appendFragment(int placeholders, Collection<?> collection, StringBuilder sb) {
+		sb.append(prefix);
+		if (strategy == InStrategy.VALUES) {
+			// the first row declares the column type, as some databases can not infer it from parameters
+			sb.append("(CAST(? AS ").append(sqlType(elementType(collection))).append("))");
+			for (int i = 1; i < placeholders; i++) {
+				sb.append(", (?)");
+			}
+			sb.append(") AS qm_values(v))");
+		}
+	}
+
+	/**
+	 * The <code>CAST</code> type rendered by {@link InStrategy#VALUES} depends on the type of the elements of the collection, 
+	 * so collections of different types are rendered as different statements, even with the same number of placeholders.
+	 * @return a number identifying the SQL text for the given collection, apart from its number of placeholders, 
+	 * smaller than {@value #SHAPES}
+	 */
+	int shape(Collection<?> collection) {
+		return strategy == InStrategy.VALUES ? sqlTypeIndex(elementType(collection)) : 0;
+	}
+
+	/**
+	 * Binds the collection as a single SQL array
+	 */
+	static int bindArray(PreparedStatement ps, int index, Collection<?> collection) throws SQLException {
+		Object[] elements = new Object[collection.size()];
+		int i = 0;
+		for (Object element : collection) {
+			elements[i++] = element instanceof Enum ? ((Enum<?>) element).name() : element;
+		}
+		Array array = ps.getConnection().createArrayOf(sqlType(elementType(collection)), elements);
+		ps.setArray(index, array);
+		return index + 1;
+	}
+
+	/**
+	 * Fills the temporary table of this LargeIn with the elements of the collection, creating the table if needed
+	 */
+	void load(Connection connection, Collection<?> collection) throws SQLException {
+		Class<?> type = elementType(collection);
+		Statement statement = connection.createStatement();
+		try {
+			statement.execute(dialect.createTemporaryTable(tempTable, "v " + columnType(type, dialect)));
+			statement.execute("DELETE FROM " + tempTable);
+		} finally {
+			statement.close();
+		}
+		PreparedStatement insert = connection.prepareStatement("INSERT INTO " + tempTable + " (v) VALUES (?)");
+		try {
+			int pending = 0;
+			for (Object element : collection) {
+				Binder.bindElement(insert, 1, element);
+				insert.addBatch();
+				if (++pending == LOAD_BATCH_SIZE) {
+					insert.executeBatch();
+					pending = 0;
+				}
+			}
+			if (pending > 0) {
+				insert.executeBatch();
+			}
+		} finally {
+			insert.close();
+		}
+	}
+
+	/**
+	 * @return the name of the temporary table for a column, distinct for the same column name in different tables
+	 */
+	private static String tempTableName(String table, String column) {
+		StringBuilder sb = new StringBuilder("qm_in_");
+		if (table != null && !table.isEmpty()) {
+			sb.append(table).append("__");
+		}
+		sb.append(column);
+		return sb.toString().replaceAll("[^A-Za-z0-9_]", "_").toLowerCase();
+	}
+
+	/**
+	 * @return the type of the first non-null element, with enums as String, or <code>null</code> if there is none
+	 */
+	private static Class<?> elementType(Collection<?> collection) {
+		for (Object element : collection) {
+			if (element != null) {
+				return element instanceof Enum ? String.class : element.getClass();
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return the SQL type name for an array of elements of the given type
+	 */
+	private static String sqlType(Class<?> type) {
+		return SQL_TYPES[sqlTypeIndex(type)];
+	}
+
+	/**
+	 * @return the index in {@link #SQL_TYPES} of the SQL type name for elements of the given type
+	 */
+	private static int sqlTypeIndex(Class<?> type) {
+		if (type == Long.class) {
+			return 1;
+		} else if (type == Integer.class) {
+			return 2;
+		} else if (type == Short.class || type == Byte.class) {
+			return 3;
+		} else if (type == Double.class || type == Float.class) {
+			return 4;
+		} else if (type == BigDecimal.class) {
+			return 5;
+		}
+		return 0;
+	}
+
+	/**
+	 * @return the column definition of a temporary table for elements of the given type
+	 */
+	private static String columnType(Class<?> type, Dialect dialect) {
+		String sqlType = sqlType(type);
+		return "VARCHAR".equals(sqlType) ? dialect.getUnboundedStringType() : sqlType;
+	}
+
+}
@@ -16,14 +16,16 @@
 package be.ceau.querymapper;
 
 import java.lang.reflect.Field;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
+import java.lang.reflect.Modifier;
+import java.util.ArrayDeque;
+import java.util.Deque;
 import java.util.EnumMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
 
 import be.ceau.querymapper.annotations.Limit;
 import be.ceau.querymapper.enums.LimitType;
@@ -48,118 +50,274 @@ class Limits {
 		PERMITTED_CLASSES.add(java.lang.Long.class);
 	}
 	
-	private final NestedField rows;
-	private final NestedField part;
-	private final NestedField offset;
+	private final Value rows;
+	private final Value part;
+	private final Value offset;
 
 	/**
 	 * Ways to specify:
 	 * <ol>
 	 * <li>annotate a field of type short, byte, int or long (primitive or boxed)
-	 * <li>annotate a field of a type that contains an <code>@Limit</code> annotated field of type byte, short, int or long (primitive or boxed)
+	 * <li>annotate a field of a type that contains <code>@Limit</code> annotated fields, to any depth, 
+	 * ending in fields of type byte, short, int or long (primitive or boxed)
 	 * </ol>
+	 * The LimitType and Value of each such field are added to the given Lists, in the same order.
+	 * @throws IllegalAnnotationException if the field is annotated with <code>@Limit</code> but no such field is found, 
+	 * or if nested <code>@Limit</code> fields form a cycle
 	 */
-	static List<NestedField> parse(Field field) {
-		Limit limit = field.getAnnotation(Limit.class);
-		if (limit != null) {
-			if (PERMITTED_CLASSES.contains(field.getType())) {
-				field.setAccessible(true);
-				return Arrays.asList(new NestedField(field));
-			} else {
-				// TODO: restrict LimitType for @Limit annotation on nested fields
-				List<NestedField> nestedFields = new ArrayList<NestedField>();
-				for (Field subfield : field.getType().getDeclaredFields()) {
-					Limit sublimit = subfield.getAnnotation(Limit.class);
-					if (sublimit != null && PERMITTED_CLASSES.contains(subfield.getType())) {
-						NestedField nestedfield = new NestedField(field);
-						subfield.setAccessible(true);
-						nestedfield.nest(subfield);
-						nestedFields.add(nestedfield);
-					}
-				}
-				if (!nestedFields.isEmpty()) {
-					return nestedFields;
-				}
-			}
+	static void parse(Field field, List<LimitType> limitTypes, List<Value> values) {
+		if (field.getAnnotation(Limit.class) == null) {
+			return;
+		}
+		Deque<Class<?>> path = new ArrayDeque<Class<?>>();
+		path.push(field.getDeclaringClass());
+		if (!parse(field.getDeclaringClass(), field, null, path, limitTypes, values)) {
 			throw new IllegalAnnotationException("The @Limit annotation may only be applied to fields that are either a primitive or boxed Byte, Short, Integer or Long, or on a field of a type that contains such fields");
-		} else {
-			return Collections.emptyList();
 		}
 	}
 
 	/**
-	 * Validates a List of LimitField objects.<br/>
+	 * @param root the mapped class
+	 * @param parent the property path to the instance declaring the field, or <code>null</code> for the mapped class
+	 * @param path the classes declaring the fields from the mapped class up to and including the declaring class of the field
+	 * @return <code>true</code> if any Value was added
+	 */
+	private static boolean parse(Class<?> root, Field field, String parent, Deque<Class<?>> path, List<LimitType> limitTypes, List<Value> values) {
+		String property = PropertyPath.append(parent, field.getName());
+		if (PERMITTED_CLASSES.contains(field.getType())) {
+			// TODO: restrict LimitType for @Limit annotation on nested fields
+			limitTypes.add(field.getAnnotation(Limit.class).value());
+			values.add(new AccessorValue(PropertyPath.of(root, property)));
+			return true;
+		}
+		if (path.contains(field.getType())) {
+			throw new IllegalAnnotationException("The nested @Limit fields of " + field + " form a cycle through " + field.getType().getName());
+		}
+		path.push(field.getType());
+		boolean parsed = false;
+		for (Field subfield : field.getType().getDeclaredFields()) {
+			if (subfield.getAnnotation(Limit.class) != null && !Modifier.isStatic(subfield.getModifiers())) {
+				parsed |= parse(root, subfield, property, path, limitTypes, values);
+			}
+		}
+		path.pop();
+		return parsed;
+	}
+
+	/**
+	 * Validates the LimitType values of a List of LimitField objects.<br/>
 	 * As SQL LIMIT clauses have a specific, limited syntax, care must be used when allowing certain combinations of @Limit annotations.
 	 * @throws IllegalAnnotationException if the List of LimitField objects contains an incompatible combination
 	 */
-	private static void validate(List<NestedField> limitFields) {
-		if (limitFields.size() > 2) {
+	private static void validate(List<LimitType> limitTypes) {
+		if (limitTypes.size() > 2) {
 			throw new IllegalAnnotationException("Having more than 2 @Limit annotations in one class is not valid.");
 		}
-		if (limitFields.size() == 2) {
-			if (limitFields.get(0).last().getAnnotation(Limit.class).value() == limitFields.get(1).last().getAnnotation(Limit.class).value()) {
+		if (limitTypes.size() == 2) {
+			if (limitTypes.get(0) == limitTypes.get(1)) {
 				throw new IllegalAnnotationException("Having 2 @Limit annotations with the same LimitType in one class is not valid.");
-			} else if (limitFields.get(0).last().getAnnotation(Limit.class).value() != LimitType.ROWS && limitFields.get(1).last().getAnnotation(Limit.class).value() != LimitType.ROWS) {
+			} else if (limitTypes.get(0) != LimitType.ROWS && limitTypes.get(1) != LimitType.ROWS) {
 				throw new IllegalAnnotationException("Having both LimitType.OFFSET and LimitType.PART annotations is not valid.");
 			}
-		} else if (limitFields.size() == 1) {
-			if (limitFields.get(0).last().getAnnotation(Limit.class).value() != LimitType.ROWS) {
+		} else if (limitTypes.size() == 1) {
+			if (limitTypes.get(0) != LimitType.ROWS) {
 				throw new IllegalAnnotationException("If only 1 @Limit annotation is specified in a given class, its LimitType value must be LimitType.ROWS.");
 			}
 		}
 	}
 
-	static Limits from(List<NestedField> limitFields) {
-		if (limitFields.isEmpty()) {
+	/**
+	 * @param limitTypes the LimitType of each value, in the same order as the List of values
+	 * @throws IllegalAnnotationException if the List of LimitType values contains an incompatible combination
+	 */
+	static Limits from(List<LimitType> limitTypes, List<Value> values) {
+		if (limitTypes.isEmpty()) {
 			return null;
 		}
-		validate(limitFields);
-		Map<LimitType, NestedField> map = new EnumMap<LimitType, NestedField>(LimitType.class);
-		for (NestedField nestedField : limitFields) {
-			map.put(nestedField.last().getAnnotation(Limit.class).value(), nestedField);
+		validate(limitTypes);
+		Map<LimitType, Value> map = new EnumMap<LimitType, Value>(LimitType.class);
+		for (int i = 0; i < limitTypes.size(); i++) {
+			map.put(limitTypes.get(i), values.get(i));
 		}
 		return new Limits(map.get(LimitType.OFFSET), map.get(LimitType.PART), map.get(LimitType.ROWS));
 	}
 
-	private Limits(NestedField offset, NestedField part, NestedField rows) {
+	private Limits(Value offset, Value part, Value rows) {
 		if (rows == null) {
-			throw new IllegalArgumentException("NestedField rows argument is null");
+			throw new IllegalArgumentException("Value rows argument is null");
 		}
 		this.offset = offset;
 		this.part = part;
 		this.rows = rows;
 	}
 	
-	<T> String toLimitClause(T t) throws IllegalAccessException {
-		if (this.rows != null) {
-			Number numrows = (Number) this.rows.get(t);
-			if (numrows == null) {
-				return "";
-			} else if (numrows.longValue() < 1) {
-				throw new IllegalArgumentException("The value of fields annotated with @Limit of type LimitType.ROWS must be a positive integer");
-			} else if (this.offset != null) {
-				Number numoffset = (Number) this.offset.get(t);
-				if (numoffset != null) {
-					if (numoffset.longValue() < 0) {
-						throw new IllegalArgumentException("The value of fields annotated with @Limit of type LimitType.OFFSET must be a non-negative integer");
-					} else {
-						return " LIMIT " + String.valueOf(numoffset) + ", " + String.valueOf(numrows) + " ";
-					}
-				}
-			} else if (this.part != null) {
-				Number numpart = (Number) this.part.get(t);
-				if (numpart != null) {
-					if (numpart.longValue() < 0) {
-						throw new IllegalArgumentException("The value of fields annotated with @Limit of type LimitType.PART must be non-negative integer");
-					} else {
-						return " LIMIT " + String.valueOf(numpart.longValue() * numrows.longValue()) + ", " + String.valueOf(numrows) + " ";
-					}
-				}
+	/**
+	 * @return the maximum number of rows for the given instance, or <code>-1</code> if there is none
+	 * @throws IllegalArgumentException if the number of rows is not a positive integer
+	 */
+	<T> long rows(T t) throws IllegalAccessException {
+		if (!this.rows.isPresent(t)) {
+			return -1L;
+		}
+		return validRows(this.rows.getLong(t));
+	}
+
+	/**
+	 * @param numrows the maximum number of rows for the given instance, as returned by {@link #rows(Object)}
+	 * @return the offset of the first row for the given instance, or <code>-1</code> if there is none
+	 * @throws IllegalArgumentException if the offset or part is not a non-negative integer
+	 */
+	<T> long offset(T t, long numrows) throws IllegalAccessException {
+		if (this.offset != null) {
+			if (this.offset.isPresent(t)) {
+				return validOffset(this.offset.getLong(t));
+			}
+		} else if (this.part != null) {
+			if (this.part.isPresent(t)) {
+				return validPart(this.part.getLong(t)) * numrows;
 			}
-			return " LIMIT " + String.valueOf(numrows) + " ";
-		} else {
-			return "";
 		}
+		return -1L;
+	}
+
+	/**
+	 * @return the given value of a <code>LimitType.ROWS</code> field
+	 * @throws IllegalArgumentException if the value is not a positive integer
+	 */
+	static long validRows(long numrows) {
+		if (numrows < 1) {
+			throw new IllegalArgumentException("The value of fields annotated with @Limit of type LimitType.ROWS must be a positive integer");
+		}
+		return numrows;
+	}
+
+	/**
+	 * @return the given value of a <code>LimitType.OFFSET</code> field
+	 * @throws IllegalArgumentException if the value is not a non-negative integer
+	 */
+	static long validOffset(long numoffset) {
+		if (numoffset < 0) {
+			throw new IllegalArgumentException("The value of fields annotated with @Limit of type LimitType.OFFSET must be a non-negative integer");
+		}
+		return numoffset;
+	}
+
+	/**
+	 * @return the given value of a <code>LimitType.PART</code> field
+	 * @throws IllegalArgumentException if the value is not a non-negative integer
+	 */
+	static long validPart(long numpart) {
+		if (numpart < 0) {
+			throw new IllegalArgumentException("The value of fields annotated with @Limit of type LimitType.PART must be non-negative integer");
+		}
+		return numpart;
+	}
+
+	/**
+	 * @return the Value of the <code>LimitType.ROWS</code> field, never <code>null</code>
+	 */
+	Value getRows() {
+		return rows;
+	}
+
+	/**
+	 * @return the Value of the <code>LimitType.OFFSET</code> field, or <code>null</code> if there is none
+	 */
+	Value getOffset() {
+		return offset;
+	}
+
+	/**
+	 * @return the Value of the <code>LimitType.PART</code> field, or <code>null</code> if there is none
+	 */
+	Value getPart() {
+		return part;
+	}
+
+	/**
+	 * The value of a single <code>@Limit</code> annotated field, for a given instance of the mapped class.
+	 */
+	abstract static class Value {
+
+		/**
+		 * @return <code>true</code> if the field has a non-null value for the given instance
+		 */
+		abstract boolean isPresent(Object t) throws IllegalAccessException;
+
+		/**
+		 * @return the value of the field for the given instance, which must be present
+		 */
+		abstract long getLong(Object t) throws IllegalAccessException;
+
+	}
+
+	/**
+	 * Value read through an Accessor, possibly along a path of nested fields
+	 */
+	private static final class AccessorValue extends Value {
+
+		private final Accessor accessor;
+
+		private AccessorValue(Accessor accessor) {
+			this.accessor = accessor;
+		}
+
+		@Override
+		boolean isPresent(Object t) throws IllegalAccessException {
+			return accessor.isPresent(t);
+		}
+
+		@Override
+		long getLong(Object t) throws IllegalAccessException {
+			return accessor.getLong(t);
+		}
+
+	}
+
+	/**
+	 * Value read through a Function returning a boxed Number, possibly <code>null</code>
+	 */
+	static final class FunctionValue extends Value {
+
+		private final Function<Object, ? extends Number> function;
+
+		FunctionValue(Function<Object, ? extends Number> function) {
+			this.function = function;
+		}
+
+		@Override
+		boolean isPresent(Object t) {
+			return function.apply(t) != null;
+		}
+
+		@Override
+		long getLong(Object t) {
+			return function.apply(t).longValue();
+		}
+
+	}
+
+	/**
+	 * Value read through a ToLongFunction, always present
+	 */
+	static final class LongFunctionValue extends Value {
+
+		private final ToLongFunction<Object> function;
+
+		LongFunctionValue(ToLongFunction<Object> function) {
+			this.function = function;
+		}
+
+		@Override
+		boolean isPresent(Object t) {
+			return true;
+		}
+
+		@Override
+		long getLong(Object t) {
+			return function.applyAsLong(t);
+		}
+
 	}
 
 }
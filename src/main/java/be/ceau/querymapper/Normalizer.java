@@ -0,0 +1,360 @@
+/*
+	Copyright 2015 Marceau Dewilde <m@ceau.be>
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.querymapper;
+
+import java.math.BigDecimal;
+import java.time.temporal.TemporalAccessor;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import be.ceau.querymapper.enums.Comparison;
+import be.ceau.querymapper.enums.FieldType;
+
+/**
+ * Normalization of the <code>@Where</code> predicates of an instance, before they are rendered.<br/>
+ * Finds instances that can not match any row: an empty collection for an <code>IN</code> field, 
+ * contradicting ranges or equality checks on the same column, or an equality check combined with an inequality check for the same value. 
+ * Finds redundant predicates on the same column: duplicate equality or inequality checks, 
+ * range bounds enclosing a tighter bound in the same direction, and range bounds enclosing an equality check.<br/>
+ * Values are only ordered if both are numbers, or both are dates or times of the same class, 
+ * as the ordering of other types, such as Strings, depends on the collation of the database.<br/>
+ * The result of {@link #normalize(Object)} is a single <code>long</code>, computed once per render and passed to every step of it, 
+ * so that normalizing an instance allocates nothing.
+ */
+final class Normalizer {
+
+	/**
+	 * Flag in the result of {@link #normalize(Object)} for an instance with contradicting predicates on the same column. 
+	 * The other bits flag redundant fields, so only fields with an index below 63 are normalized.
+	 */
+	static final long UNSATISFIABLE = Long.MIN_VALUE;
+
+	/**
+	 * Groups of at least two indices of fields with the same table and column, for fields with an index below 63
+	 */
+	private final int[][] groups;
+
+	/**
+	 * Indices of the fields of type Collection compared with <code>IN</code>
+	 */
+	private final int[] collections;
+
+	private final List<WhereField> whereFields;
+
+	private Normalizer(List<WhereField> whereFields, int[][] groups, int[] collections) {
+		this.whereFields = whereFields;
+		this.groups = groups;
+		this.collections = collections;
+	}
+
+	/**
+	 * @return a new Normalizer for the given fields, or <code>null</code> if no instance could ever be normalized
+	 */
+	static Normalizer of(List<WhereField> whereFields) {
+		Map<String, List<Integer>> columns = new LinkedHashMap<String, List<Integer>>();
+		List<Integer> collections = new ArrayList<Integer>();
+		for (int i = 0; i < whereFields.size(); i++) {
+			WhereField whereField = whereFields.get(i);
+			if (whereField.getFieldType() == FieldType.COLLECTION) {
+				if (isIn(whereField)) {
+					collections.add(i);
+				}
+			} else if (i < 63 && isOrdered(whereField.getComparison())) {
+				String key = (whereField.getTable() == null ? "" : whereField.getTable()) + '.' + whereField.getColumn();
+				List<Integer> group = columns.get(key.toLowerCase(Locale.ROOT));
+				if (group == null) {
+					group = new ArrayList<Integer>();
+					columns.put(key.toLowerCase(Locale.ROOT), group);
+				}
+				group.add(i);
+			}
+		}
+		List<int[]> groups = new ArrayList<int[]>();
+		for (List<Integer> group : columns.values()) {
+			if (group.size() > 1) {
+				groups.add(toArray(group));
+			}
+		}
+		if (groups.isEmpty() && collections.isEmpty()) {
+			return null;
+		}
+		return new Normalizer(whereFields, groups.toArray(new int[groups.size()][]), toArray(collections));
+	}
+
+	/**
+	 * @return <code>true</code> for the comparisons analyzed by this Normalizer
+	 */
+	private static boolean isOrdered(Comparison comparison) {
+		switch (comparison) {
+			case EQUALS:
+			case DOES_NOT_EQUAL:
+			case GREATER:
+			case GREATER_OR_EQUAL:
+			case LESS:
+			case LESS_OR_EQUAL:
+				return true;
+			default:
+				return false;
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if the given field is a Collection compared with <code>IN</code>, 
+	 * which matches no rows if the Collection is empty
+	 */
+	static boolean isIn(WhereField whereField) {
+		return whereField.getFieldType() == FieldType.COLLECTION && whereField.getComparison() == Comparison.IN;
+	}
+
+	private static int[] toArray(List<Integer> list) {
+		int[] array = new int[list.size()];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = list.get(i);
+		}
+		return array;
+	}
+
+	/**
+	 * @return <code>true</code> if the field at the given index is flagged in the given result of {@link #normalize(Object)}
+	 */
+	static boolean skips(long normalized, int index) {
+		return index < 63 && (normalized & (1L << index)) != 0L;
+	}
+
+	/**
+	 * @return the given result of {@link #normalize(Object)}, without the {@link #UNSATISFIABLE} flag
+	 */
+	static long redundant(long normalized) {
+		return normalized & ~UNSATISFIABLE;
+	}
+
+	/**
+	 * Analyzes the predicates on the same column of the given instance. Collections are not checked.
+	 * @return the bitmask of the fields that are implied by other fields on the same column, and need not be rendered, 
+	 * with the {@link #UNSATISFIABLE} flag set if predicates on the same column contradict each other
+	 */
+	long normalize(Object t) {
+		long normalized = 0L;
+		for (int[] group : groups) {
+			normalized |= normalize(t, group);
+		}
+		return normalized;
+	}
+
+	/**
+	 * @return <code>true</code> if a field of type Collection compared with <code>IN</code> of the given instance is an empty Collection
+	 */
+	boolean hasEmptyCollection(Object t) {
+		for (int index : collections) {
+			Object value = value(t, index);
+			if (value instanceof Collection && ((Collection<?>) value).isEmpty()) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return <code>true</code> if the given instance can not match any row
+	 */
+	boolean unsatisfiable(Object t) {
+		return hasEmptyCollection(t) || (normalize(t) & UNSATISFIABLE) != 0L;
+	}
+
+	/**
+	 * Analyzes a single group of fields on the same column. 
+	 * Equality checks and range bounds are read first, keeping only the values of the first equality check and of the tightest bounds. 
+	 * Inequality checks are read last, and only read again to find duplicates if a group has several of them.
+	 */
+	private long normalize(Object t, int[] group) {
+		long normalized = 0L;
+		int equal = -1;
+		int lower = -1;
+		int upper = -1;
+		Object equalValue = null;
+		Object lowerValue = null;
+		Object upperValue = null;
+		for (int index : group) {
+			Comparison comparison = whereFields.get(index).getComparison();
+			if (comparison == Comparison.DOES_NOT_EQUAL) {
+				continue;
+			}
+			Object value = value(t, index);
+			if (value == null) {
+				continue;
+			}
+			if (comparison == Comparison.EQUALS) {
+				if (equal < 0) {
+					equal = index;
+					equalValue = value;
+				} else if (same(equalValue, value)) {
+					normalized |= 1L << index;
+				} else if (compare(equalValue, value) != null) {
+					normalized |= UNSATISFIABLE;
+				}
+			} else {
+				int direction = comparison == Comparison.GREATER || comparison == Comparison.GREATER_OR_EQUAL ? 1 : -1;
+				int current = direction > 0 ? lower : upper;
+				Object currentValue = direction > 0 ? lowerValue : upperValue;
+				if (current >= 0) {
+					Integer c = compare(value, currentValue);
+					if (c == null) {
+						continue;
+					}
+					c = c * direction;
+					if (c > 0 || c == 0 && strict(index) && !strict(current)) {
+						normalized |= 1L << current;
+					} else {
+						normalized |= 1L << index;
+						continue;
+					}
+				}
+				if (direction > 0) {
+					lower = index;
+					lowerValue = value;
+				} else {
+					upper = index;
+					upperValue = value;
+				}
+			}
+		}
+		if (lower >= 0 && upper >= 0) {
+			Integer c = compare(lowerValue, upperValue);
+			if (c != null && (c > 0 || c == 0 && (strict(lower) || strict(upper)))) {
+				normalized |= UNSATISFIABLE;
+			}
+		}
+		if (equal >= 0) {
+			normalized |= enclose(equalValue, lower, lowerValue, 1);
+			normalized |= enclose(equalValue, upper, upperValue, -1);
+		}
+		int unequal = -1;
+		for (int p = 0; p < group.length; p++) {
+			int index = group[p];
+			if (whereFields.get(index).getComparison() != Comparison.DOES_NOT_EQUAL) {
+				continue;
+			}
+			Object value = value(t, index);
+			if (value == null) {
+				continue;
+			}
+			if (unequal >= 0 && duplicate(t, group, unequal, p, value)) {
+				normalized |= 1L << index;
+			} else if (equal >= 0 && same(equalValue, value)) {
+				normalized |= UNSATISFIABLE;
+			} else if (equal >= 0 && compare(equalValue, value) != null) {
+				normalized |= 1L << index;
+			} else if (unequal < 0) {
+				unequal = p;
+			}
+		}
+		return normalized;
+	}
+
+	/**
+	 * @param first the position in the group of the first inequality check with a value
+	 * @return <code>true</code> if an earlier inequality check in the group has the same value as the one at the given position
+	 */
+	private boolean duplicate(Object t, int[] group, int first, int p, Object value) {
+		for (int q = first; q < p; q++) {
+			if (whereFields.get(group[q]).getComparison() == Comparison.DOES_NOT_EQUAL) {
+				Object other = value(t, group[q]);
+				if (other != null && same(other, value)) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @param direction <code>1</code> for lower bounds, <code>-1</code> for upper bounds
+	 * @return the flag of the given bound if it encloses the equality check, 
+	 * {@link #UNSATISFIABLE} if it excludes it, or <code>0</code> if there is no bound or its order is not known
+	 */
+	private long enclose(Object equalValue, int bound, Object boundValue, int direction) {
+		if (bound < 0) {
+			return 0L;
+		}
+		Integer c = compare(equalValue, boundValue);
+		if (c == null) {
+			return 0L;
+		}
+		c = c * direction;
+		return c > 0 || c == 0 && !strict(bound) ? 1L << bound : UNSATISFIABLE;
+	}
+
+	private boolean strict(int index) {
+		Comparison comparison = whereFields.get(index).getComparison();
+		return comparison == Comparison.GREATER || comparison == Comparison.LESS;
+	}
+
+	/**
+	 * @return the value of the field at the given index, or <code>null</code> if it can not be read
+	 */
+	private Object value(Object t, int index) {
+		try {
+			return whereFields.get(index).getAccessor().get(t);
+		} catch (IllegalAccessException e) {
+			return null;
+		} catch (RuntimeException e) {
+			return null;
+		}
+	}
+
+	private static boolean same(Object a, Object b) {
+		if (a.equals(b)) {
+			return true;
+		}
+		Integer c = compare(a, b);
+		return c != null && c == 0;
+	}
+
+	/**
+	 * @return a negative integer, zero, or a positive integer as a is less than, equal to, or greater than b, 
+	 * or <code>null</code> if their order is not known
+	 */
+	@SuppressWarnings({ "unchecked", "rawtypes" })
+	private static Integer compare(Object a, Object b) {
+		if (isIntegral(a) && isIntegral(b)) {
+			return Integer.valueOf(Long.compare(((Number) a).longValue(), ((Number) b).longValue()));
+		}
+		if (a instanceof Number && b instanceof Number) {
+			try {
+				return new BigDecimal(a.toString()).compareTo(new BigDecimal(b.toString()));
+			} catch (NumberFormatException e) {
+				// NaN or infinity
+				return null;
+			}
+		}
+		if (a.getClass() == b.getClass() && a instanceof Comparable && (a instanceof java.util.Date || a instanceof TemporalAccessor)) {
+			return ((Comparable) a).compareTo(b);
+		}
+		return null;
+	}
+
+	/**
+	 * @return <code>true</code> for numbers whose exact value is their <code>long</code> value
+	 */
+	private static boolean isIntegral(Object o) {
+		return o instanceof Long || o instanceof Integer || o instanceof Short || o instanceof Byte;
+	}
+
+}
@@ -15,11 +15,11 @@
 */
 package be.ceau.querymapper;
 
-import static be.ceau.querymapper.QueryMapper.ESCAPE;
-
 import java.lang.reflect.Field;
 
 import be.ceau.querymapper.annotations.Order;
+import be.ceau.querymapper.dialect.Dialect;
+import be.ceau.querymapper.dialect.Dialects;
 import be.ceau.querymapper.enums.SortOrder;
 
 public class OrderField implements Comparable<OrderField> {
@@ -28,6 +28,9 @@ public class OrderField implements Comparable<OrderField> {
 	private final String table;
 	private final SortOrder sortOrder;
 	private final int index;
+	private final Dialect dialect;
+	private final String identifier;
+	private final String fragment;
 
 	static OrderField extract(Field field) {
 		Order order = field.getAnnotation(Order.class);
@@ -43,7 +46,11 @@ public class OrderField implements Comparable<OrderField> {
 		return null;
 	}
 	
-	private OrderField(String column, String table, SortOrder sortOrder, int index) {
+	OrderField(String column, String table, SortOrder sortOrder, int index) {
+		this(column, table, sortOrder, index, Dialects.MYSQL);
+	}
+
+	private OrderField(String column, String table, SortOrder sortOrder, int index, Dialect dialect) {
 		if (column == null || column.trim().length() == 0) {
 			throw new IllegalArgumentException("column argument may not be blank");
 		}
@@ -60,6 +67,9 @@ public class OrderField implements Comparable<OrderField> {
 		this.table = table;
 		this.sortOrder = sortOrder;
 		this.index = index;
+		this.dialect = dialect;
+		this.identifier = renderIdentifier();
+		this.fragment = identifier + " " + sortOrder.getCode();
 	}
 	
 	String getColumn() {
@@ -78,20 +88,38 @@ public class OrderField implements Comparable<OrderField> {
 		return index;
 	}
 
-	StringBuilder toStringBuilder() {
+	/**
+	 * @return an OrderField identical to this one, but rendered with the given Dialect
+	 */
+	OrderField withDialect(Dialect dialect) {
+		if (this.dialect == dialect) {
+			return this;
+		}
+		return new OrderField(column, table == null ? "" : table, sortOrder, index, dialect);
+	}
+
+	/**
+	 * @return the SQL fragment for this field, with all identifiers quoted, as rendered once at construction
+	 */
+	String getFragment() {
+		return fragment;
+	}
+
+	/**
+	 * @return the quoted column, preceded by the quoted table if any, as rendered once at construction
+	 */
+	String getIdentifier() {
+		return identifier;
+	}
+
+	private String renderIdentifier() {
 		StringBuilder sb = new StringBuilder();
 		if (table != null && !table.isEmpty()) {
-			sb.append(ESCAPE);
-			sb.append(table);
-			sb.append(ESCAPE);
+			sb.append(dialect.quote(table));
 			sb.append(".");
 		}
-		sb.append(ESCAPE);
-		sb.append(column);
-		sb.append(ESCAPE);
-		sb.append(" ");
-		sb.append(sortOrder.getCode());
-		return sb;
+		sb.append(dialect.quote(column));
+		return sb.toString();
 	}
 	
 	@Override
@@ -0,0 +1,132 @@
+/*
+	Copyright 2015 Marceau Dewilde <m@ceau.be>
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.querymapper;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Resolves dotted property paths, such as <code>paging.window.rows</code>, into a single compiled {@link Accessor}.<br/>
+ * Each element of a path is resolved, in the class read by the preceding element, to:
+ * <ol>
+ * <li>a field declared by that class or one of its superclasses, read directly, never through a getter or record accessor
+ * <li>a public JavaBean getter, or the accessor method of a record component, without a field
+ * </ol>
+ * The Accessor for a path of more than one element returns <code>null</code> as soon as any intermediate value is <code>null</code>.<br/>
+ * Compiled paths are cached per root class, so each path is resolved once.
+ */
+final class PropertyPath {
+
+	private static final ClassValue<ConcurrentMap<String, Accessor>> PATHS = new ClassValue<ConcurrentMap<String, Accessor>>() {
+
+		@Override
+		protected ConcurrentMap<String, Accessor> computeValue(Class<?> type) {
+			return new ConcurrentHashMap<String, Accessor>();
+		}
+
+	};
+
+	private PropertyPath() {
+	}
+
+	/**
+	 * @param root the class of the instances the path is read from
+	 * @param path one or more property names, separated by dots
+	 * @return the cached Accessor for the given path, never <code>null</code>
+	 * @throws IllegalArgumentException if any argument is <code>null</code>, or if any element of the path can not be resolved
+	 */
+	static Accessor of(Class<?> root, String path) {
+		if (root == null || path == null) {
+			throw new IllegalArgumentException("arguments may not be null");
+		}
+		ConcurrentMap<String, Accessor> paths = PATHS.get(root);
+		Accessor accessor = paths.get(path);
+		if (accessor == null) {
+			accessor = compile(root, path);
+			Accessor previous = paths.putIfAbsent(path, accessor);
+			if (previous != null) {
+				accessor = previous;
+			}
+		}
+		return accessor;
+	}
+
+	/**
+	 * @return the given path, extended with the given property name
+	 */
+	static String append(String path, String property) {
+		return path == null || path.isEmpty() ? property : path + "." + property;
+	}
+
+	/**
+	 * Removes all cached paths for the given class.
+	 */
+	static void evict(Class<?> root) {
+		PATHS.remove(root);
+	}
+
+	private static Accessor compile(Class<?> root, String path) {
+		Accessor accessor = null;
+		Class<?> type = root;
+		for (String property : path.split("\\.", -1)) {
+			if (property.isEmpty()) {
+				throw new IllegalArgumentException("The path " + path + " contains an empty property name");
+			}
+			if (type.isPrimitive() || type.isArray()) {
+				throw new IllegalArgumentException("The path " + path + " reads property " + property + " from a value of type " + type.getName());
+			}
+			Accessor next = resolve(type, property);
+			if (next == null) {
+				throw new IllegalArgumentException("The path " + path + " reads property " + property + " that does not exist in " + type.getName());
+			}
+			accessor = accessor == null ? next : Accessor.path(accessor, next);
+			type = next.getType();
+		}
+		return accessor;
+	}
+
+	/**
+	 * @return an Accessor for the given property of the given class, or <code>null</code> if there is no such property
+	 */
+	private static Accessor resolve(Class<?> type, String property) {
+		for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+			try {
+				Field field = c.getDeclaredField(property);
+				if (!Modifier.isStatic(field.getModifiers())) {
+					return Accessor.of(field);
+				}
+			} catch (NoSuchFieldException e) {
+				// try superclass
+			}
+		}
+		for (String name : Accessor.getterNames(property, true, Accessor.isRecord(type))) {
+			try {
+				Method method = type.getMethod(name);
+				if (!Modifier.isStatic(method.getModifiers()) && method.getReturnType() != void.class 
+						&& (!name.startsWith("is") || method.getReturnType() == boolean.class || Accessor.isRecord(type))) {
+					return Accessor.of(method);
+				}
+			} catch (NoSuchMethodException e) {
+				// try next name
+			}
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,142 @@
+/*
+	Copyright 2015 Marceau Dewilde <m@ceau.be>
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.querymapper;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Immutable result of mapping a single instance with {@link QueryMapper#toQuery(Object)}.<br/>
+ * Holds the where, order and limit clauses, the parameters to bind to the where clause, 
+ * the limit values, an identifier of the shape of the where clause, and a fingerprint of the SQL.
+ * @author Marceau Dewilde
+ */
+public final class Query {
+
+	private final String whereClause;
+	private final String orderClause;
+	private final String limitClause;
+	private final String clause;
+	private final Map<String, Object> parameters;
+	private final Long offset;
+	private final Long rows;
+	private final long shape;
+	private final long fingerprint;
+	private final boolean unsatisfiable;
+
+	Query(String whereClause, String orderClause, String limitClause, Map<String, Object> parameters, Long offset, Long rows, long shape, long fingerprint, 
+			boolean unsatisfiable) {
+		this.whereClause = whereClause;
+		this.orderClause = orderClause;
+		this.limitClause = limitClause;
+		this.clause = whereClause.concat(orderClause).concat(limitClause);
+		this.parameters = Collections.unmodifiableMap(parameters);
+		this.offset = offset;
+		this.rows = rows;
+		this.shape = shape;
+		this.fingerprint = fingerprint;
+		this.unsatisfiable = unsatisfiable;
+	}
+
+	/**
+	 * @return the where, order and limit clauses, in that order, never <code>null</code>
+	 */
+	public String getClause() {
+		return clause;
+	}
+
+	/**
+	 * @return the where clause, as returned by {@link QueryMapper#toWhereClause(Object)}
+	 */
+	public String getWhereClause() {
+		return whereClause;
+	}
+
+	/**
+	 * @return the order clause, as returned by {@link QueryMapper#toOrderClause()}
+	 */
+	public String getOrderClause() {
+		return orderClause;
+	}
+
+	/**
+	 * @return the limit clause, as returned by {@link QueryMapper#toLimitClause(Object)}
+	 */
+	public String getLimitClause() {
+		return limitClause;
+	}
+
+	/**
+	 * @return an unmodifiable Map with the same entries as returned by {@link QueryMapper#toParameterMap(Object)}
+	 */
+	public Map<String, Object> getParameters() {
+		return parameters;
+	}
+
+	/**
+	 * @return the offset of the first row in the limit clause, or <code>null</code> if there is none
+	 */
+	public Long getOffset() {
+		return offset;
+	}
+
+	/**
+	 * @return the maximum number of rows in the limit clause, or <code>null</code> if there is none
+	 */
+	public Long getRows() {
+		return rows;
+	}
+
+	/**
+	 * Identifier of the shape of the where clause, being the presence bitmask of the <code>@Where</code> fields: 
+	 * bit <code>i</code> is set if the <code>i</code>th <code>@Where</code> field of the class has a non-null value.<br/>
+	 * Queries for the same class with the same shape have the same where clause. 
+	 * For classes with more than 64 <code>@Where</code> fields, the shape is always <code>-1</code>.
+	 */
+	public long getShape() {
+		return shape;
+	}
+
+	/**
+	 * Fingerprint of the SQL of this Query, for use as a key in statement caches, metrics and logs.<br/>
+	 * Queries with the same fingerprint have the same where and order clauses and the same form of limit clause: 
+	 * none, rows only, or offset and rows. The values of the limit clause are not part of the fingerprint.<br/>
+	 * Unlike {@link #getShape()}, the fingerprint differs between classes, and is computed with 64-bit FNV-1a from the class name, 
+	 * the rendered fragments and the Dialect, so that it is stable across JVM restarts 
+	 * as long as the annotations of the class, and the options of the QueryMapper, are unchanged.
+	 * @see QueryMapper#toFingerprint(Object)
+	 */
+	public long getFingerprint() {
+		return fingerprint;
+	}
+
+	/**
+	 * Marker for queries that can not return any row, such as queries for an empty <code>IN</code> collection or contradicting ranges on a column. 
+	 * Skip the database round trip for such queries.
+	 * @return <code>true</code> if this Query can not match any row
+	 * @see QueryMapper#isUnsatisfiable(Object)
+	 */
+	public boolean isUnsatisfiable() {
+		return unsatisfiable;
+	}
+
+	@Override
+	public String toString() {
+		return "Query [clause=" + clause + ", parameters=" + parameters + ", shape=" + shape + ", fingerprint=" + Long.toHexString(fingerprint) 
+				+ (unsatisfiable ? ", unsatisfiable" : "") + "]";
+	}
+
+}
@@ -15,22 +15,52 @@
 */
 package be.ceau.querymapper;
 
+import java.io.IOException;
 import java.lang.reflect.Field;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import javax.sql.DataSource;
+
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import be.ceau.querymapper.dialect.Dialect;
+import be.ceau.querymapper.dialect.Dialects;
+import be.ceau.querymapper.enums.InStrategy;
+import be.ceau.querymapper.enums.LimitType;
+import be.ceau.querymapper.enums.RenderMethod;
+import be.ceau.querymapper.metrics.QueryMapperListener;
+
 public class QueryMapper<T> {
 
 	private static final Logger logger = LoggerFactory.getLogger(QueryMapper.class);
-	
-	static final String ESCAPE = "`";
-	
+
+	/**
+	 * Label of the column holding the total number of matching rows, in the query returned by {@link #toWindowCountQuery(String, String, Object)}
+	 */
+	public static final String TOTAL_COLUMN = "qm_total";
+
+	/**
+	 * The installed listener, or <code>null</code> if there is none
+	 */
+	private static volatile QueryMapperListener listener;
+
+	/**
+	 * The mapped class
+	 */
+	private final Class<T> type;
+
 	/**
 	 * A list of WhereField objects, allowing quick mapping of JavaBean properties to SQL queries and parameter maps
 	 */
@@ -47,141 +77,1581 @@ public class QueryMapper<T> {
 	private final Limits limits;
 
 	/**
-	 * Static factory for creation of a new, reusable QueryMapper for a class.
-	 * @return a new, reusable and threadsafe instance of the QueryMapper
+	 * Keyset pagination for the <code>@Seek</code> field, or <code>null</code> if there is none
+	 */
+	private final Keyset keyset;
+
+	/**
+	 * The maximum offset of the limit clause, or <code>-1</code> if there is none
+	 */
+	private final long maxOffset;
+
+	/**
+	 * The Dialect rendering identifiers, limit clauses and <code>LIKE</code> patterns
+	 */
+	private final Dialect dialect;
+
+	/**
+	 * The order clause, which does not depend on instance values
+	 */
+	private final String orderClause;
+
+	/**
+	 * Fingerprint of the class, fields, order clause and Dialect, which determine the rendered SQL apart from instance values
+	 */
+	private final long fingerprint;
+
+	/**
+	 * Cache of where clauses per presence bitmask, or <code>null</code> if the class has too many <code>@Where</code> fields
+	 */
+	private final WhereTemplates whereTemplates;
+
+	/**
+	 * Cache of positional where clauses per presence bitmask, 
+	 * or <code>null</code> if the class has too many <code>@Where</code> fields or has collection fields expanded to several placeholders
+	 */
+	private final WhereTemplates positionalTemplates;
+
+	/**
+	 * Distinct shapes of the positional where clauses rendered by this QueryMapper
+	 */
+	private final ShapeCounter positionalShapes = new ShapeCounter();
+
+	/**
+	 * Normalizer for the <code>@Where</code> fields, or <code>null</code> if no instance can be normalized
+	 */
+	private final Normalizer normalizer;
+
+	/**
+	 * Distinct shapes of the named where clauses rendered by this QueryMapper
+	 */
+	private final ShapeCounter namedShapes = new ShapeCounter();
+
+	/**
+	 * The generated class rendering the <code>@Where</code> and <code>@Limit</code> fields, or <code>null</code> if rendering is interpreted
+	 */
+	private final Specialized specialization;
+
+	/**
+	 * The bucketed variant of this QueryMapper, created on the first call to {@link #bucketed()}
+	 */
+	private volatile QueryMapper<T> bucketed;
+
+	/**
+	 * The specialized variant of this QueryMapper, created on the first call to {@link #specialize()}
+	 */
+	private volatile QueryMapper<T> specialized;
+
+	/**
+	 * Static factory for retrieval of the reusable QueryMapper for a class.<br/>
+	 * The QueryMapper is built on the first invocation for a given class, and the same instance is returned on every later invocation.
+	 * @return a reusable and threadsafe instance of the QueryMapper, shared by all callers
 	 * @throws IllegalAnnotationException if the annotations for the given class are not applied in a valid manner.
 	 */
 	public static <T> QueryMapper<T> forClass(Class<T> clazz) {
+		return QueryMapperCache.get(clazz);
+	}
+
+	/**
+	 * Builds and caches the QueryMapper for each of the given classes, if not cached already.<br/>
+	 * Use this method at startup to avoid paying the cost of building a QueryMapper on the first {@link #forClass(Class)} call.
+	 * @throws IllegalAnnotationException if the annotations for any of the given classes are not applied in a valid manner.
+	 * @see WarmUp
+	 */
+	public static void warm(Class<?>... classes) {
+		for (Class<?> clazz : classes) {
+			QueryMapperCache.get(clazz);
+		}
+	}
+
+	/**
+	 * Removes the cached QueryMapper for the given class, if any.<br/>
+	 * The next {@link #forClass(Class)} call for the class will build a new QueryMapper.
+	 */
+	public static void evict(Class<?> clazz) {
+		QueryMapperCache.evict(clazz);
+	}
+
+	/**
+	 * Installs a listener receiving build, render and error events from every QueryMapper, replacing any installed listener.<br/>
+	 * Without a listener, QueryMapper skips all instrumentation.
+	 * @param listener the listener to install, or <code>null</code> to remove the installed listener
+	 */
+	public static void setListener(QueryMapperListener listener) {
+		QueryMapper.listener = listener;
+	}
+
+	/**
+	 * @return the installed listener, or <code>null</code> if there is none
+	 */
+	public static QueryMapperListener getListener() {
+		return listener;
+	}
+
+	/**
+	 * Creates a new QueryMapper for a class, bypassing the cache.<br/>
+	 * The QueryMapper is built from the generated {@link QueryMapping} for the class if there is one, 
+	 * or else from the annotations on the class.
+	 * @throws IllegalAnnotationException if the annotations for the given class are not applied in a valid manner.
+	 */
+	static <T> QueryMapper<T> build(Class<T> clazz) {
+		QueryMapping<T> mapping = QueryMapping.lookup(clazz);
+		if (mapping != null) {
+			logger.debug("build({}): using generated {}", clazz.getName(), mapping.getClass().getName());
+			return mapping.toQueryMapper();
+		}
 		List<WhereField> whereFields = new ArrayList<WhereField>();
 		List<OrderField> orderFields = new ArrayList<OrderField>();
-		List<NestedField> limitFields = new ArrayList<NestedField>();
+		List<LimitType> limitTypes = new ArrayList<LimitType>();
+		List<Limits.Value> limitValues = new ArrayList<Limits.Value>();
+		Accessor seek = null;
 		for (Field field : clazz.getDeclaredFields()) {
-			WhereField where = WhereField.extract(field);
-			if (where != null) {
-				whereFields.add(where);
-			}
+			whereFields.addAll(WhereField.extract(field));
 			OrderField order = OrderField.extract(field);
 			if (order != null) {
 				orderFields.add(order);
 			}
-			limitFields.addAll(Limits.parse(field));
+			Limits.parse(field, limitTypes, limitValues);
+			Accessor accessor = Keyset.extract(field);
+			if (accessor != null) {
+				if (seek != null) {
+					throw new IllegalAnnotationException("Having more than 1 @Seek annotation in one class is not valid.");
+				}
+				seek = accessor;
+			}
 		}
 		Collections.sort(orderFields);
-		return new QueryMapper<T>(whereFields, orderFields, Limits.from(limitFields));
+		return new QueryMapper<T>(clazz, whereFields, orderFields, Limits.from(limitTypes, limitValues), seek == null ? null : new Keyset(orderFields, seek), -1L, Dialects.MYSQL);
+	}
+
+	/**
+	 * Constructor for static factories and derived variants only
+	 */
+	QueryMapper(Class<T> type, List<WhereField> whereFields, List<OrderField> orderFields, Limits limits) {
+		this(type, whereFields, orderFields, limits, null, -1L, Dialects.MYSQL);
+	}
+
+	/**
+	 * Constructor for static factories and derived variants only
+	 * @param type the mapped class
+	 * @param keyset the Keyset for the <code>@Seek</code> field, or <code>null</code> if there is none
+	 * @param maxOffset the maximum offset, or <code>-1</code> if there is none
+	 * @param dialect the Dialect of the fields, which renders the limit clause
+	 */
+	QueryMapper(Class<T> type, List<WhereField> whereFields, List<OrderField> orderFields, Limits limits, Keyset keyset, long maxOffset, Dialect dialect) {
+		this(type, whereFields, orderFields, limits, keyset, maxOffset, dialect, false);
 	}
 
 	/**
-	 * Private constructor for static factory only
+	 * Constructor for derived variants only
+	 * @param specialize <code>true</code> to render through a generated class, if supported
+	 * @see #specialize()
 	 */
-	private QueryMapper(List<WhereField> whereFields, List<OrderField> orderFields, Limits limits) {
+	private QueryMapper(Class<T> type, List<WhereField> whereFields, List<OrderField> orderFields, Limits limits, Keyset keyset, long maxOffset, Dialect dialect, boolean specialize) {
+		this.type = type;
 		this.whereFields = Collections.unmodifiableList(whereFields);
 		this.orderFields = Collections.unmodifiableList(orderFields);
 		this.limits = limits;
+		this.keyset = keyset;
+		this.maxOffset = maxOffset;
+		this.dialect = dialect;
+		this.orderClause = renderOrderClause(orderFields);
+		this.fingerprint = fingerprint(type, whereFields, orderClause, keyset, dialect);
+		this.whereTemplates = WhereTemplates.supports(whereFields.size()) ? new WhereTemplates(whereFields) : null;
+		this.positionalTemplates = whereTemplates != null && !hasExpandedField(whereFields) ? new WhereTemplates(whereFields, true) : null;
+		this.normalizer = Normalizer.of(whereFields);
+		this.specialization = specialize ? Specialized.of(this) : null;
+	}
+
+	private static long fingerprint(Class<?> type, List<WhereField> whereFields, String orderClause, Keyset keyset, Dialect dialect) {
+		long hash = Fingerprint.hash(Fingerprint.OFFSET_BASIS, type.getName());
+		hash = Fingerprint.hash(hash, dialect.getClass().getName());
+		for (WhereField whereField : whereFields) {
+			hash = Fingerprint.hash(hash, whereField.getFragment());
+			hash = Fingerprint.hash(hash, whereField.getPositionalFragment());
+		}
+		hash = Fingerprint.hash(hash, orderClause);
+		return Fingerprint.hash(hash, keyset == null ? 0L : 1L);
+	}
+
+	private static boolean hasExpandedField(List<WhereField> whereFields) {
+		for (WhereField whereField : whereFields) {
+			if (whereField.isExpanded()) {
+				return true;
+			}
+		}
+		return false;
 	}
 
 	/**
-	 * Converts objects of the target class to a full and complete where clause.<br/>
-	 * @return a new, possibly empty, String on every invocation.
+	 * Returns a QueryMapper for the same class, which pads every collection in positional SQL to the next power of two, 
+	 * as if all collection fields were annotated with <code>@Where(bucketed = true)</code>.<br/>
+	 * The bucketed QueryMapper is created on the first invocation, and the same instance is returned on every later invocation.
+	 * @return a reusable and threadsafe bucketed QueryMapper, never <code>null</code>
+	 * @see be.ceau.querymapper.annotations.Where#bucketed()
 	 */
-	public String toWhereClause(T t) {
-		if (t == null) {
-			return "";
+	public QueryMapper<T> bucketed() {
+		QueryMapper<T> result = bucketed;
+		if (result == null) {
+			synchronized (this) {
+				result = bucketed;
+				if (result == null) {
+					List<WhereField> fields = new ArrayList<WhereField>(whereFields.size());
+					for (WhereField whereField : whereFields) {
+						fields.add(whereField.bucket());
+					}
+					result = fields.equals(whereFields) ? this : new QueryMapper<T>(type, fields, orderFields, limits, keyset, maxOffset, dialect, specialization != null);
+					bucketed = result;
+				}
+			}
 		}
-		StringBuilder where = new StringBuilder();
-		for (WhereField whereField : whereFields) {
-			try {
-				Object o = whereField.getField().get(t);
-				if (o != null) {
-					if (where.length() > 0) {
-						where.append(" AND ");
-					} else {
-						where.append(" WHERE ");
+		return result;
+	}
+
+	/**
+	 * Returns a QueryMapper for the same class, which renders through a class generated for it at runtime.<br/>
+	 * The generated class reads each <code>@Where</code> and <code>@Limit</code> field through its own call site, 
+	 * and appends the SQL fragments and parameters of the fields as constants, 
+	 * without looping over the fields or branching on their types. 
+	 * It renders the where clause, the parameter map and the limit clause, in all methods that render them. 
+	 * The order clause is a constant of every QueryMapper already.<br/>
+	 * The output of the specialized QueryMapper is identical to the output of this QueryMapper, 
+	 * and QueryMappers derived from it, such as {@link #withDialect(Dialect)}, are specialized as well.<br/>
+	 * The generated class is defined as a hidden class, which requires Java 15 or later. 
+	 * On earlier versions, or if the class can not be generated, this QueryMapper is returned, which interprets the fields as before.<br/>
+	 * The specialized QueryMapper is created on the first invocation, and the same instance is returned on every later invocation.
+	 * @return a reusable and threadsafe specialized QueryMapper, never <code>null</code>
+	 */
+	public QueryMapper<T> specialize() {
+		if (specialization != null) {
+			return this;
+		}
+		QueryMapper<T> result = specialized;
+		if (result == null) {
+			synchronized (this) {
+				result = specialized;
+				if (result == null) {
+					result = new QueryMapper<T>(type, whereFields, orderFields, limits, keyset, maxOffset, dialect, true);
+					if (result.specialization == null) {
+						result = this;
 					}
-					where.append(whereField.toStringBuilder());
+					specialized = result;
 				}
-			} catch (IllegalArgumentException e) {
-				logger.error("toWhereClause({} t)", t.getClass().getSimpleName(), e);
-			} catch (IllegalAccessException e) {
-				logger.error("toWhereClause({} t)", t.getClass().getSimpleName(), e);
 			}
 		}
-		if (where.length() > 0) {
-			where.append(" ");
+		return result;
+	}
+
+	/**
+	 * Returns a new QueryMapper for the same class, which renders collections compared with <code>IN</code> 
+	 * with the given strategy in positional SQL, if they have more than threshold elements.<br/>
+	 * Smaller collections are rendered with one placeholder per element, as before. 
+	 * The result of the query is the same for every strategy. 
+	 * Use {@link InStrategy#forDatabase(String)} for the preferred strategy of a database.<br/>
+	 * The returned QueryMapper is not cached: create it once and reuse it.
+	 * @param threshold the largest collection size rendered with one placeholder per element, not negative
+	 * @return a new reusable and threadsafe QueryMapper
+	 */
+	public QueryMapper<T> withInStrategy(InStrategy strategy, int threshold) {
+		if (strategy == null) {
+			throw new IllegalArgumentException("strategy argument may not be null");
+		}
+		if (threshold < 0) {
+			throw new IllegalArgumentException("threshold argument may not be negative");
 		}
-		logger.trace("toWhereClause({} t) output: {}", t.getClass().getSimpleName(), where);
-		return where.toString();
+		List<WhereField> fields = new ArrayList<WhereField>(whereFields.size());
+		for (WhereField whereField : whereFields) {
+			fields.add(whereField.withInStrategy(strategy, threshold));
+		}
+		return new QueryMapper<T>(type, fields, orderFields, limits, keyset, maxOffset, dialect, specialization != null);
 	}
 
 	/**
-	 * Converts objects of the target class to parameter map.<br/>
-	 * This conversion process works on the basis of the mapping applied with annotation {@link be.ceau.querymapper.annotations.Where}.<br>
-	 * Any annotated property will be included. Values for those properties will be mapped to the determined column name for that property.
-	 * @return a new, modifiable Map on every invocation.
+	 * Returns a new QueryMapper for the same class, which rejects limit clauses with an offset larger than the given maximum.<br/>
+	 * Deep offsets force the database to read and discard every skipped row. 
+	 * Instances with a <code>@Seek</code> key are rendered in keyset form, without an offset, and are never rejected, 
+	 * so clients paging past the maximum offset must send the seek key of the last row they have seen.<br/>
+	 * The returned QueryMapper is not cached: create it once and reuse it.
+	 * @param maxOffset the largest offset allowed in a limit clause, not negative
+	 * @return a new reusable and threadsafe QueryMapper
+	 * @see be.ceau.querymapper.annotations.Seek
 	 */
-	public Map<String,Object> toParameterMap(T t) {
-		Map<String,Object> map = new HashMap<String,Object>();
-		if (t == null) {
-			return map;
+	public QueryMapper<T> withMaxOffset(long maxOffset) {
+		if (maxOffset < 0) {
+			throw new IllegalArgumentException("maxOffset argument may not be negative");
+		}
+		return new QueryMapper<T>(type, whereFields, orderFields, limits, keyset, maxOffset, dialect, specialization != null);
+	}
+
+	/**
+	 * Returns a new QueryMapper for the same class, which renders its SQL for the given Dialect.<br/>
+	 * The Dialect determines identifier quoting, the limit clause syntax, and the escaping of <code>LIKE</code> patterns. 
+	 * All constant fragments are rendered once, when the QueryMapper is created. 
+	 * QueryMapper instances returned by {@link #forClass(Class)} render for {@link Dialects#MYSQL}.<br/>
+	 * Collections compared with <code>IN</code> are rendered as before: 
+	 * combine with {@link #withInStrategy(InStrategy, int)} and {@link Dialect#getInStrategy()} for large collections.<br/>
+	 * The returned QueryMapper is not cached: create it once and reuse it.
+	 * @return a new reusable and threadsafe QueryMapper
+	 */
+	public QueryMapper<T> withDialect(Dialect dialect) {
+		if (dialect == null) {
+			throw new IllegalArgumentException("dialect argument may not be null");
+		}
+		List<WhereField> fields = new ArrayList<WhereField>(whereFields.size());
+		for (WhereField whereField : whereFields) {
+			fields.add(whereField.withDialect(dialect));
+		}
+		List<OrderField> orders = new ArrayList<OrderField>(orderFields.size());
+		for (OrderField orderField : orderFields) {
+			orders.add(orderField.withDialect(dialect));
+		}
+		Keyset seek = keyset == null ? null : new Keyset(orders, keyset.getAccessor());
+		return new QueryMapper<T>(type, fields, orders, limits, seek, maxOffset, dialect, specialization != null);
+	}
+
+	/**
+	 * Fills the temporary tables for collections of the given instance rendered with {@link InStrategy#TEMP_TABLE}.<br/>
+	 * Call this method on the Connection that will execute the statement, 
+	 * after rendering the positional where clause and before preparing the statement.
+	 * Does nothing if no collections of the instance are rendered with a temporary table.
+	 * @throws SQLException if creating or filling a temporary table fails
+	 */
+	public void loadInTables(T t, Connection connection) throws SQLException {
+		if (t == null || !usesTempTables()) {
+			return;
+		}
+		loadInTables(t, connection, normalize(t));
+	}
+
+	/**
+	 * @param normalized the normalization of the given instance, as returned by {@link #normalize(Object)}
+	 * @see #loadInTables(Object, Connection)
+	 */
+	void loadInTables(T t, Connection connection, long normalized) throws SQLException {
+		if (t == null || !usesTempTables()) {
+			return;
 		}
-		for (WhereField queryField : whereFields) {
+		for (int i = 0; i < whereFields.size(); i++) {
+			WhereField whereField = whereFields.get(i);
 			try {
-				Object o = queryField.getField().get(t);
-				if (o != null) {
-					map.put(queryField.getColumn(), queryField.getComparison().transform(o, queryField.getFieldType()));
-					for (WhereField nestedQueryField : queryField.getNestedQueryFields()) {
-						map.put(nestedQueryField.getColumn(), nestedQueryField.getComparison().transform(o, queryField.getFieldType()));
-					}
+				Object o = whereField.getAccessor().get(t);
+				if (o != null && !Normalizer.skips(normalized, i)) {
+					whereField.load(connection, o);
 				}
 			} catch (IllegalArgumentException e) {
-				logger.error("toParameterMap({} t)", t.getClass().getSimpleName(), e);
+				accessFailed("loadInTables", t, e);
 			} catch (IllegalAccessException e) {
-				logger.error("toParameterMap({} t)", t.getClass().getSimpleName(), e);
+				accessFailed("loadInTables", t, e);
 			}
 		}
-		logger.trace("toParameterMap({} t) output: {}", t.getClass().getSimpleName(), map);
-		return map;
 	}
 
 	/**
-	 * Converts objects of the target class to a full and complete order clause.<br>
-	 * This conversion process works on the basis of the mapping applied with annotation {@link be.ceau.querymapper.annotations.Order}.<br>
-	 * This method does not accept arguments, as the syntax of the order clause does not depend on the instance values of the mapped class.
-	 * @return a new, possibly zero-length, String, never <code>null</code>.
+	 * @return <code>true</code> if any collection may be rendered with {@link InStrategy#TEMP_TABLE}
 	 */
-	public String toOrderClause() {
-		StringBuilder order = new StringBuilder();
-		for (OrderField orderField : orderFields) {
-			if (order.length() > 0) {
-				order.append(", ");
-			} else {
-				order.append(" ORDER BY ");
+	boolean usesTempTables() {
+		for (WhereField whereField : whereFields) {
+			if (whereField.usesTempTable()) {
+				return true;
 			}
-			order.append(orderField.toStringBuilder());
 		}
-		if (order.length() > 0) {
-			order.append(" ");
+		return false;
+	}
+
+	/**
+	 * Returns the number of distinct positional where clauses rendered by this QueryMapper so far, 
+	 * each of which is a separate entry in driver and server statement caches.<br/>
+	 * Use this number to verify the effect of {@link be.ceau.querymapper.annotations.Where#bucketed() bucketing}. 
+	 * Shapes are always counted, without allocating, by hashing each shape to one of {@value ShapeCounter#MAX_SHAPES} buckets, 
+	 * so the count is exact for small numbers of shapes, and an estimate from below for large numbers.
+	 */
+	public int getPositionalShapeCount() {
+		return positionalShapes.count();
+	}
+
+	Class<T> getType() {
+		return type;
+	}
+
+	List<WhereField> getWhereFields() {
+		return whereFields;
+	}
+
+	List<OrderField> getOrderFields() {
+		return orderFields;
+	}
+
+	Limits getLimits() {
+		return limits;
+	}
+
+	WhereTemplates getWhereTemplates() {
+		return whereTemplates;
+	}
+
+	Keyset getKeyset() {
+		return keyset;
+	}
+
+	Dialect getDialect() {
+		return dialect;
+	}
+
+	/**
+	 * @return the seek key of the given instance, or <code>null</code> if there is none
+	 */
+	List<?> seekKey(T t) {
+		if (keyset == null) {
+			return null;
+		}
+		try {
+			return keyset.key(t);
+		} catch (IllegalAccessException e) {
+			accessFailed("seekKey", t, e);
+			return null;
 		}
-		logger.trace("toOrderClause() output: {}", order);
-		return order.toString();
 	}
 
 	/**
-	 * Converts objects of the target class to a full and complete limit clause.<br/>
-	 * This conversion process works on the basis of the mapping applied with annotation {@link be.ceau.querymapper.annotations.Limit}.<br>
-	 * @return a new, modifiable Map on every invocation.
+	 * @return <code>true</code> if the given instance has a seek key, without allocating
 	 */
-	public String toLimitClause(T t) {
+	private boolean hasSeekKey(T t) {
+		if (keyset == null) {
+			return false;
+		}
+		try {
+			return keyset.hasKey(t);
+		} catch (IllegalAccessException e) {
+			accessFailed("seekKey", t, e);
+			return false;
+		}
+	}
+
+	/**
+	 * @param where the where clause for the <code>@Where</code> fields of the given instance
+	 * @return the where clause, restricted to rows after the seek key of the given instance if there is one
+	 */
+	String seek(T t, String where, boolean positional) {
+		return keyset == null || seekKey(t) == null ? where : keyset.append(where, positional);
+	}
+
+	/**
+	 * Adds the seek key of the given instance to the parameter Map, if there is one
+	 */
+	void putSeekParameters(T t, Map<String, Object> map) {
+		List<?> key = seekKey(t);
+		if (key != null) {
+			keyset.putParameters(key, map);
+		}
+	}
+
+	/**
+	 * @return the maximum number of rows for the given instance, or <code>-1</code> if there is none
+	 * @throws IllegalArgumentException if the number of rows is not a positive integer
+	 */
+	private long rows(T t) throws IllegalAccessException {
+		return specialization != null ? specialization.rows(t) : limits.rows(t);
+	}
+
+	/**
+	 * @param numrows the maximum number of rows for the given instance
+	 * @return the offset of the first row for the given instance, or <code>-1</code> if there is none or if a seek key replaces it
+	 * @throws IllegalArgumentException if the offset is larger than the maximum offset
+	 */
+	private long offset(T t, long numrows) throws IllegalAccessException {
+		if (seekKey(t) != null) {
+			return -1L;
+		}
+		long numoffset = specialization != null ? specialization.offset(t, numrows) : limits.offset(t, numrows);
+		if (maxOffset >= 0 && numoffset > maxOffset) {
+			throw new IllegalArgumentException("The offset " + numoffset + " is larger than the maximum offset " + maxOffset + ", use a @Seek key instead");
+		}
+		return numoffset;
+	}
+
+	/**
+	 * Converts objects of the target class to a full and complete where clause.<br/>
+	 * The where clause only depends on which <code>@Where</code> fields are non-null, 
+	 * so the where clause for each combination of non-null fields is rendered once, and looked up on later invocations.<br/>
+	 * An empty collection is still rendered as <code>IN (:column)</code>, with an empty collection as parameter value, 
+	 * which many databases and frameworks reject. Check {@link #isUnsatisfiable(Object)} before executing the query, 
+	 * or use {@link #toPositionalWhereClause(Object)}, which renders an empty collection as <code>(NULL)</code>.
+	 * @return a possibly empty String, never <code>null</code>.
+	 */
+	public String toWhereClause(T t) {
+		QueryMapperListener l = listener;
+		if (l == null) {
+			return renderWhereClause(t);
+		}
+		long start = System.nanoTime();
+		try {
+			return renderWhereClause(t);
+		} finally {
+			l.rendered(type, RenderMethod.WHERE_CLAUSE, System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * @see #toWhereClause(Object)
+	 */
+	private String renderWhereClause(T t) {
 		if (t == null) {
 			return "";
-		} else if (limits == null) {
-			return "";
+		}
+		String where;
+		if (whereTemplates != null) {
+			long mask = presence(t, normalize(t));
+			namedShape(mask);
+			where = whereTemplates.get(mask);
 		} else {
+			StringBuilder sb = new StringBuilder();
+			try {
+				appendBaseWhereClause(t, sb, normalize(t));
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+			where = sb.toString();
+		}
+		where = seek(t, where, false);
+		logger.trace("toWhereClause({} t) output: {}", t.getClass().getSimpleName(), where);
+		return where;
+	}
+
+	/**
+	 * Appends the where clause for the given instance, as returned by {@link #toWhereClause(Object)}, to the given StringBuilder.<br/>
+	 * No objects are allocated for rendering, apart from any growth of the StringBuilder.
+	 * @return the StringBuilder argument
+	 */
+	public StringBuilder appendWhereClause(T t, StringBuilder sb) {
+		try {
+			appendWhereClause(t, (Appendable) sb);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return sb;
+	}
+
+	/**
+	 * Appends the where clause for the given instance, as returned by {@link #toWhereClause(Object)}, to the given Appendable.
+	 * @return the Appendable argument
+	 * @throws IOException if the Appendable throws IOException
+	 */
+	public Appendable appendWhereClause(T t, Appendable appendable) throws IOException {
+		if (t == null) {
+			return appendable;
+		}
+		boolean appended = appendBaseWhereClause(t, appendable, normalize(t));
+		if (hasSeekKey(t)) {
+			keyset.append(appendable, !appended);
+		}
+		return appendable;
+	}
+
+	/**
+	 * Appends the where clause for the <code>@Where</code> fields of the given instance, without any seek predicate
+	 * @param normalized the normalization of the given instance, as returned by {@link #normalize(Object)}
+	 * @return <code>true</code> if anything was appended
+	 */
+	private boolean appendBaseWhereClause(T t, Appendable appendable, long normalized) throws IOException {
+		if (t == null) {
+			return false;
+		}
+		if (whereTemplates != null) {
+			String where = whereTemplates.get(presence(t, normalized));
+			appendable.append(where);
+			return !where.isEmpty();
+		}
+		if (specialization != null) {
+			return specialization.appendWhere(t, normalized, appendable);
+		}
+		boolean empty = true;
+		for (int i = 0; i < whereFields.size(); i++) {
+			WhereField whereField = whereFields.get(i);
 			try {
-				return limits.toLimitClause(t);
+				if (whereField.getAccessor().get(t) != null && !Normalizer.skips(normalized, i)) {
+					appendable.append(empty ? " WHERE " : " AND ").append(whereField.getFragment());
+					empty = false;
+				}
+			} catch (IllegalArgumentException e) {
+				accessFailed("appendWhereClause", t, e);
 			} catch (IllegalAccessException e) {
-				logger.error("toLimitClause({} t)", t.getClass().getSimpleName(), e);
-				return "";
+				accessFailed("appendWhereClause", t, e);
+			}
+		}
+		if (!empty) {
+			appendable.append(' ');
+		}
+		return !empty;
+	}
+
+	/**
+	 * Records a named where clause shape, and reports it to the listener, if one is installed and the shape is new
+	 */
+	void namedShape(long mask) {
+		if (namedShapes.record(mask)) {
+			QueryMapperListener l = listener;
+			if (l != null) {
+				l.shapeSeen(type, mask, false);
+			}
+		}
+	}
+
+	/**
+	 * Records a positional where clause shape, and reports it to the listener, if one is installed and the shape is new
+	 */
+	private void positionalShape(long shape) {
+		if (positionalShapes.record(shape)) {
+			QueryMapperListener l = listener;
+			if (l != null) {
+				l.shapeSeen(type, shape, true);
+			}
+		}
+	}
+
+	/**
+	 * Logs an exception reading a field of the given instance, which is then skipped, and reports it to the listener if one is installed
+	 * @param method the name of the method reading the field
+	 */
+	void accessFailed(String method, T t, Exception e) {
+		logger.error("{}({} t)", method, t.getClass().getSimpleName(), e);
+		QueryMapperListener l = listener;
+		if (l != null) {
+			l.accessFailed(type, method, e);
+		}
+	}
+
+	/**
+	 * Normalizes the given non-null instance once per render, for all steps of that render: 
+	 * the clauses, the parameters, the binding and the fingerprints.
+	 * @return the bitmask of the <code>@Where</code> fields of the given instance that are implied by other fields on the same column, 
+	 * and are left out of all clauses, parameters and fingerprints, 
+	 * with {@link Normalizer#UNSATISFIABLE} set if predicates on the same column contradict each other
+	 */
+	long normalize(T t) {
+		return normalizer == null ? 0L : normalizer.normalize(t);
+	}
+
+	/**
+	 * @param normalized the normalization of the given instance, as returned by {@link #normalize(Object)}
+	 * @see #isUnsatisfiable(Object)
+	 */
+	boolean isUnsatisfiable(T t, long normalized) {
+		return t != null && normalizer != null && ((normalized & Normalizer.UNSATISFIABLE) != 0L || normalizer.hasEmptyCollection(t));
+	}
+
+	/**
+	 * Checks whether the given instance can not match any row, so that the query need not be executed at all.<br/>
+	 * This is the case if a collection for an <code>IN</code> field is empty, 
+	 * if range or equality checks on the same column contradict each other, such as <code>age &gt; 60</code> and <code>age &lt; 30</code>, 
+	 * or if an equality and an inequality check on the same column have the same value.<br/>
+	 * The clauses rendered for such an instance remain valid positional SQL that returns no rows, 
+	 * but the named form of an empty <code>IN</code> collection is rejected by some databases and frameworks. 
+	 * {@link #count(Connection, String, Object)}, {@link #exists(Connection, String, Object)} 
+	 * and {@link #stream(DataSource, String, Object, RowMapper, int)} do not query the database for such instances.
+	 * @return <code>true</code> if the given instance can not match any row, <code>false</code> if it may
+	 */
+	public boolean isUnsatisfiable(T t) {
+		return t != null && normalizer != null && normalizer.unsatisfiable(t);
+	}
+
+	/**
+	 * Computes the presence bitmask for the given instance, in which bit <code>i</code> is set if the <code>i</code>th WhereField has a non-null value that is not redundant.<br/>
+	 * Only valid if there is a WhereTemplates instance for this QueryMapper.
+	 * @param normalized the normalization of the given instance, as returned by {@link #normalize(Object)}
+	 */
+	long presence(T t, long normalized) {
+		if (specialization != null) {
+			return specialization.presence(t, normalized);
+		}
+		long mask = 0L;
+		for (int i = 0; i < whereFields.size(); i++) {
+			try {
+				if (whereFields.get(i).getAccessor().get(t) != null) {
+					mask |= 1L << i;
+				}
+			} catch (IllegalArgumentException e) {
+				accessFailed("presence", t, e);
+			} catch (IllegalAccessException e) {
+				accessFailed("presence", t, e);
+			}
+		}
+		return mask & ~Normalizer.redundant(normalized);
+	}
+
+	/**
+	 * Converts objects of the target class to parameter map.<br/>
+	 * This conversion process works on the basis of the mapping applied with annotation {@link be.ceau.querymapper.annotations.Where}.<br>
+	 * Any annotated property will be included. Values for those properties will be mapped to the determined column name for that property.
+	 * @return a new, modifiable Map on every invocation.
+	 */
+	public Map<String,Object> toParameterMap(T t) {
+		QueryMapperListener l = listener;
+		if (l == null) {
+			return renderParameterMap(t);
+		}
+		long start = System.nanoTime();
+		try {
+			return renderParameterMap(t);
+		} finally {
+			l.rendered(type, RenderMethod.PARAMETER_MAP, System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * @see #toParameterMap(Object)
+	 */
+	private Map<String, Object> renderParameterMap(T t) {
+		Map<String,Object> map = new HashMap<String,Object>();
+		if (t == null) {
+			return map;
+		}
+		long normalized = normalize(t);
+		if (specialization != null) {
+			specialization.putParameters(t, normalized, map);
+		} else {
+			for (int i = 0; i < whereFields.size(); i++) {
+				WhereField queryField = whereFields.get(i);
+				try {
+					Object o = queryField.getAccessor().get(t);
+					if (o != null && !Normalizer.skips(normalized, i)) {
+						map.put(queryField.getColumn(), queryField.transform(o));
+					}
+				} catch (IllegalArgumentException e) {
+					accessFailed("toParameterMap", t, e);
+				} catch (IllegalAccessException e) {
+					accessFailed("toParameterMap", t, e);
+				}
+			}
+		}
+		putSeekParameters(t, map);
+		logger.trace("toParameterMap({} t) output: {}", t.getClass().getSimpleName(), map);
+		return map;
+	}
+
+	/**
+	 * Converts objects of the target class to a full and complete where clause with positional <code>?</code> placeholders, 
+	 * for use with a plain JDBC {@link PreparedStatement}.<br/>
+	 * Collection values are expanded to one placeholder per element, so <code>IN (:ids)</code> with three ids becomes <code>IN (?, ?, ?)</code>. 
+	 * An empty collection is rendered as <code>(NULL)</code>, which matches no rows.<br/>
+	 * Bind the parameters with {@link #bindWhereParameters(Object, PreparedStatement)}, 
+	 * without modifying the instance in between.
+	 * @return a possibly empty String, never <code>null</code>.
+	 */
+	public String toPositionalWhereClause(T t) {
+		return toPositionalWhereClause(t, t == null ? 0L : normalize(t));
+	}
+
+	/**
+	 * @param normalized the normalization of the given instance, as returned by {@link #normalize(Object)}
+	 * @see #toPositionalWhereClause(Object)
+	 */
+	String toPositionalWhereClause(T t, long normalized) {
+		QueryMapperListener l = listener;
+		if (l == null) {
+			return renderPositionalWhereClause(t, normalized);
+		}
+		long start = System.nanoTime();
+		try {
+			return renderPositionalWhereClause(t, normalized);
+		} finally {
+			l.rendered(type, RenderMethod.POSITIONAL_WHERE_CLAUSE, System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * @see #toPositionalWhereClause(Object, long)
+	 */
+	private String renderPositionalWhereClause(T t, long normalized) {
+		if (t == null) {
+			return "";
+		}
+		String where;
+		if (positionalTemplates != null) {
+			long mask = presence(t, normalized);
+			positionalShape(mask);
+			where = positionalTemplates.get(mask);
+		} else {
+			where = appendBasePositionalWhereClause(t, new StringBuilder(), normalized).toString();
+		}
+		where = seek(t, where, true);
+		logger.trace("toPositionalWhereClause({} t) output: {}", t.getClass().getSimpleName(), where);
+		return where;
+	}
+
+	/**
+	 * Appends the positional where clause for the given instance, as returned by {@link #toPositionalWhereClause(Object)}, to the given StringBuilder.
+	 * @return the StringBuilder argument
+	 */
+	public StringBuilder appendPositionalWhereClause(T t, StringBuilder sb) {
+		return appendPositionalWhereClause(t, sb, t == null ? 0L : normalize(t));
+	}
+
+	/**
+	 * @param normalized the normalization of the given instance, as returned by {@link #normalize(Object)}
+	 * @see #appendPositionalWhereClause(Object, StringBuilder)
+	 */
+	StringBuilder appendPositionalWhereClause(T t, StringBuilder sb, long normalized) {
+		if (keyset != null) {
+			return sb.append(toPositionalWhereClause(t, normalized));
+		}
+		return appendBasePositionalWhereClause(t, sb, normalized);
+	}
+
+	/**
+	 * @param key the seek key to continue after, instead of the seek key of the given instance, or <code>null</code> to start at the first row
+	 * @param normalized the normalization of the given instance, as returned by {@link #normalize(Object)}
+	 * @return the positional where clause for the <code>@Where</code> fields of the given instance, restricted to rows after the given seek key
+	 */
+	String toPositionalWhereClause(T t, List<?> key, long normalized) {
+		String where = appendBasePositionalWhereClause(t, new StringBuilder(), normalized).toString();
+		return key == null ? where : keyset.append(where, true);
+	}
+
+	/**
+	 * Appends the positional where clause for the <code>@Where</code> fields of the given instance, without any seek predicate
+	 * @param normalized the normalization of the given instance, as returned by {@link #normalize(Object)}
+	 */
+	private StringBuilder appendBasePositionalWhereClause(T t, StringBuilder sb, long normalized) {
+		if (t == null) {
+			return sb;
+		}
+		if (positionalTemplates != null) {
+			long mask = presence(t, normalized);
+			positionalShape(mask);
+			return sb.append(positionalTemplates.get(mask));
+		}
+		boolean empty = true;
+		long shape = 1L;
+		for (int i = 0; i < whereFields.size(); i++) {
+			WhereField whereField = whereFields.get(i);
+			try {
+				Object o = whereField.getAccessor().get(t);
+				if (o != null && !Normalizer.skips(normalized, i)) {
+					sb.append(empty ? " WHERE " : " AND ");
+					whereField.appendPositionalFragment(o, sb);
+					empty = false;
+					shape = 31L * shape + i;
+					shape = 31L * shape + whereField.shape(o);
+				}
+			} catch (IllegalArgumentException e) {
+				accessFailed("appendPositionalWhereClause", t, e);
+			} catch (IllegalAccessException e) {
+				accessFailed("appendPositionalWhereClause", t, e);
+			}
+		}
+		if (!empty) {
+			sb.append(' ');
+		}
+		positionalShape(shape);
+		return sb;
+	}
+
+	/**
+	 * Binds the parameters of the positional where clause for the given instance, 
+	 * as returned by {@link #toPositionalWhereClause(Object)}, starting at parameter index 1.<br/>
+	 * Each value is bound with the setter that matches its type, without creating an intermediate Map.
+	 * @return the number of bound parameters
+	 * @throws SQLException if the PreparedStatement throws SQLException
+	 */
+	public int bindWhereParameters(T t, PreparedStatement ps) throws SQLException {
+		return bindWhereParameters(t, ps, 1) - 1;
+	}
+
+	/**
+	 * Binds the parameters of the positional where clause for the given instance, 
+	 * as returned by {@link #toPositionalWhereClause(Object)}, starting at the given parameter index.<br/>
+	 * Use this method if the where clause is preceded by other placeholders in the SQL statement.
+	 * @return the parameter index of the first placeholder after the where clause
+	 * @throws SQLException if the PreparedStatement throws SQLException
+	 */
+	public int bindWhereParameters(T t, PreparedStatement ps, int index) throws SQLException {
+		return bindWhereParameters(t, ps, index, t == null ? 0L : normalize(t));
+	}
+
+	/**
+	 * @param normalized the normalization of the given instance, as returned by {@link #normalize(Object)}
+	 * @see #bindWhereParameters(Object, PreparedStatement, int)
+	 */
+	int bindWhereParameters(T t, PreparedStatement ps, int index, long normalized) throws SQLException {
+		QueryMapperListener l = listener;
+		if (l == null) {
+			return bind(t, ps, index, seekKey(t), normalized);
+		}
+		long start = System.nanoTime();
+		try {
+			return bind(t, ps, index, seekKey(t), normalized);
+		} finally {
+			l.rendered(type, RenderMethod.BIND, System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * Binds the parameters of the positional where clause for the given instance, as returned by {@link #toPositionalWhereClause(Object, List, long)}.
+	 * @return the parameter index of the first placeholder after the where clause
+	 */
+	int bindWhereParameters(T t, PreparedStatement ps, int index, List<?> key, long normalized) throws SQLException {
+		return bind(t, ps, index, key, normalized);
+	}
+
+	/**
+	 * @param key the seek key to bind after the parameters of the <code>@Where</code> fields, or <code>null</code> if there is none
+	 * @param normalized the normalization of the given instance, as returned by {@link #normalize(Object)}
+	 */
+	private int bind(T t, PreparedStatement ps, int index, List<?> key, long normalized) throws SQLException {
+		if (t == null) {
+			return index;
+		}
+		for (int i = 0; i < whereFields.size(); i++) {
+			WhereField whereField = whereFields.get(i);
+			try {
+				Object o = whereField.getAccessor().get(t);
+				if (o != null && !Normalizer.skips(normalized, i)) {
+					index = whereField.bind(ps, index, o);
+				}
+			} catch (IllegalArgumentException e) {
+				accessFailed("bindWhereParameters", t, e);
+			} catch (IllegalAccessException e) {
+				accessFailed("bindWhereParameters", t, e);
+			}
+		}
+		if (key != null) {
+			index = keyset.bind(ps, index, key);
+		}
+		return index;
+	}
+
+	/**
+	 * Executes an update or delete statement once for each of the given instances, 
+	 * with the positional where clause of the instance appended to the statement.<br/>
+	 * Instances are grouped by the shape of their where clause: 
+	 * each distinct shape is prepared once, and all instances of that shape are bound and executed as a single JDBC batch.
+	 * @param connection the Connection to prepare statements on, not closed by this method
+	 * @param statement the SQL before the where clause, for example <code>DELETE FROM person</code>
+	 * @param beans the instances to execute the statement for, may not contain <code>null</code>
+	 * @return the update count for each instance, in the iteration order of beans, 
+	 * or {@link java.sql.Statement#SUCCESS_NO_INFO} if the driver does not report it
+	 * @throws SQLException if any statement fails
+	 */
+	public int[] executeUpdateBatch(Connection connection, String statement, Iterable<? extends T> beans) throws SQLException {
+		if (connection == null) {
+			throw new IllegalArgumentException("connection argument may not be null");
+		}
+		return Batch.group(this, statement, beans, false).executeUpdate(connection);
+	}
+
+	/**
+	 * Executes a query once for each of the given instances, 
+	 * with the positional where clause, the order clause and the limit clause of the instance appended to the select statement.<br/>
+	 * Instances are grouped by the shape of their SQL: each distinct shape is prepared once, 
+	 * and executed for every instance of that shape with new parameters.
+	 * @param connection the Connection to prepare statements on, not closed by this method
+	 * @param select the SQL before the where clause, for example <code>SELECT * FROM person</code>
+	 * @param beans the instances to execute the query for, may not contain <code>null</code>
+	 * @param handler converts the ResultSet of each query to a result
+	 * @return a new List with the result for each instance, in the iteration order of beans
+	 * @throws SQLException if any query fails
+	 */
+	public <R> List<R> executeQueryBatch(Connection connection, String select, Iterable<? extends T> beans, ResultSetHandler<? extends R> handler) throws SQLException {
+		if (connection == null) {
+			throw new IllegalArgumentException("connection argument may not be null");
+		}
+		return Batch.group(this, select, beans, true).executeQuery(connection, handler);
+	}
+
+	/**
+	 * Streams all rows matching the given instance, without holding more than one fetch or one page of rows in memory.<br/>
+	 * If the target class has a <code>@Seek</code> field, rows are read in pages, each continuing after the values of the <code>@Order</code> columns 
+	 * in the last row of the previous page, starting after the seek key of the given instance if there is one. 
+	 * The select must then include every <code>@Order</code> column under its own name. 
+	 * Pages hold the number of rows of the <code>LimitType.ROWS</code> field of the given instance, if set, or else fetchSize rows.<br/>
+	 * Otherwise, all rows are read through a single forward-only cursor with the given fetch size, 
+	 * and the <code>@Limit</code> fields of the given instance are ignored.<br/>
+	 * The given instance is read again for every page, and should not be modified while streaming.
+	 * @param dataSource provides the Connection for the cursor, or for each page
+	 * @param select the SQL before the where clause, for example <code>SELECT * FROM person</code>
+	 * @param t the instance to stream the matching rows for
+	 * @param rowMapper maps each row
+	 * @param fetchSize the number of rows fetched from the database at a time, a positive integer
+	 * @return a new ResultStream, to be closed if not read to the end, 
+	 * or an empty ResultStream without querying if the instance {@link #isUnsatisfiable(Object) can not match any row}
+	 * @throws SQLException if the query, or the query for the first page, fails
+	 * @see ResultStream
+	 */
+	public <R> ResultStream<R> stream(DataSource dataSource, String select, T t, RowMapper<R> rowMapper, int fetchSize) throws SQLException {
+		if (dataSource == null) {
+			throw new IllegalArgumentException("dataSource argument may not be null");
+		}
+		if (select == null) {
+			throw new IllegalArgumentException("select argument may not be null");
+		}
+		if (rowMapper == null) {
+			throw new IllegalArgumentException("rowMapper argument may not be null");
+		}
+		if (fetchSize < 1) {
+			throw new IllegalArgumentException("fetchSize argument must be a positive integer");
+		}
+		long normalized = t == null ? 0L : normalize(t);
+		if (isUnsatisfiable(t, normalized)) {
+			return ResultStream.empty();
+		}
+		if (keyset == null || t == null) {
+			return ResultStream.cursor(this, dataSource, select, t, normalized, rowMapper, fetchSize);
+		}
+		long pageSize = -1L;
+		if (limits != null) {
+			try {
+				pageSize = rows(t);
+			} catch (IllegalAccessException e) {
+				accessFailed("stream", t, e);
+			}
+		}
+		return ResultStream.seek(this, dataSource, select, t, normalized, rowMapper, pageSize < 1 ? fetchSize : (int) Math.min(pageSize, Integer.MAX_VALUE));
+	}
+
+	/**
+	 * Renders a query counting all rows that match the given instance: 
+	 * <code>SELECT COUNT(*)</code>, the given from clause and the where clause, without order clause, limit clause or seek predicate.<br/>
+	 * Bind the parameters returned by {@link #toParameterMap(Object)}; the seek key parameters, if any, are not referenced.<br/>
+	 * For selects with <code>DISTINCT</code> or <code>GROUP BY</code>, count the rows of the full select in a derived table instead.
+	 * @param from the SQL between the select list and the where clause, for example <code>FROM person p</code>
+	 * @return a new String, never <code>null</code>
+	 */
+	public String toCountQuery(String from, T t) {
+		if (from == null) {
+			throw new IllegalArgumentException("from argument may not be null");
+		}
+		StringBuilder sb = new StringBuilder(from.length() + 64).append("SELECT COUNT(*) ").append(from);
+		try {
+			appendBaseWhereClause(t, sb, t == null ? 0L : normalize(t));
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Renders a query returning a single row if any row matches the given instance, or no rows otherwise: 
+	 * <code>SELECT 1</code>, the given from clause, the where clause and a limit of one row, without order clause or seek predicate.<br/>
+	 * Bind the parameters returned by {@link #toParameterMap(Object)}; the seek key parameters, if any, are not referenced.
+	 * @param from the SQL between the select list and the where clause, for example <code>FROM person p</code>
+	 * @return a new String, never <code>null</code>
+	 */
+	public String toExistsQuery(String from, T t) {
+		if (from == null) {
+			throw new IllegalArgumentException("from argument may not be null");
+		}
+		StringBuilder sb = new StringBuilder(from.length() + 64).append("SELECT 1 ").append(from);
+		try {
+			appendBaseWhereClause(t, sb, t == null ? 0L : normalize(t));
+			dialect.appendLimitClause(-1L, 1L, sb);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Renders the page query for the given instance, with an additional column {@value #TOTAL_COLUMN} holding <code>COUNT(*) OVER()</code>: 
+	 * the number of rows matching the where clause, before the limit clause is applied. 
+	 * The page and the total are thus read in a single query, on databases that support window functions.<br/>
+	 * If the given instance has a seek key, the total counts the rows after the seek key. 
+	 * If the page is empty, for example because the offset is past the last row, the total can not be read.<br/>
+	 * Bind the parameters returned by {@link #toParameterMap(Object)}.
+	 * @param columns the select list, for example <code>p.*</code>
+	 * @param from the SQL between the select list and the where clause, for example <code>FROM person p</code>
+	 * @return a new String, never <code>null</code>
+	 * @throws IllegalArgumentException if a <code>@Limit</code> field has an invalid value
+	 */
+	public String toWindowCountQuery(String columns, String from, T t) {
+		if (columns == null) {
+			throw new IllegalArgumentException("columns argument may not be null");
+		}
+		if (from == null) {
+			throw new IllegalArgumentException("from argument may not be null");
+		}
+		return new StringBuilder(columns.length() + from.length() + 128)
+				.append("SELECT ").append(columns)
+				.append(", COUNT(*) OVER() AS ").append(dialect.quote(TOTAL_COLUMN)).append(' ')
+				.append(from)
+				.append(toWhereClause(t))
+				.append(orderClause)
+				.append(toLimitClause(t))
+				.toString();
+	}
+
+	/**
+	 * Counts all rows that match the given instance, with the positional form of the query returned by {@link #toCountQuery(String, Object)}.
+	 * @param connection the Connection to prepare the statement on, not closed by this method
+	 * @param from the SQL between the select list and the where clause, for example <code>FROM person p</code>
+	 * @return the number of matching rows, <code>0</code> without querying if the instance {@link #isUnsatisfiable(Object) can not match any row}
+	 * @throws SQLException if the query fails
+	 */
+	public long count(Connection connection, String from, T t) throws SQLException {
+		long normalized = t == null ? 0L : normalize(t);
+		if (isUnsatisfiable(t, normalized)) {
+			return 0L;
+		}
+		ResultSet rs = executeAggregate(connection, "SELECT COUNT(*) ", from, t, normalized, false);
+		try {
+			rs.next();
+			return rs.getLong(1);
+		} finally {
+			close(rs);
+		}
+	}
+
+	/**
+	 * Checks whether any row matches the given instance, with the positional form of the query returned by {@link #toExistsQuery(String, Object)}.
+	 * @param connection the Connection to prepare the statement on, not closed by this method
+	 * @param from the SQL between the select list and the where clause, for example <code>FROM person p</code>
+	 * @return <code>true</code> if at least one row matches, <code>false</code> without querying if the instance {@link #isUnsatisfiable(Object) can not match any row}
+	 * @throws SQLException if the query fails
+	 */
+	public boolean exists(Connection connection, String from, T t) throws SQLException {
+		long normalized = t == null ? 0L : normalize(t);
+		if (isUnsatisfiable(t, normalized)) {
+			return false;
+		}
+		ResultSet rs = executeAggregate(connection, "SELECT 1 ", from, t, normalized, true);
+		try {
+			return rs.next();
+		} finally {
+			close(rs);
+		}
+	}
+
+	/**
+	 * Executes the positional count or exists query for the given instance
+	 * @param normalized the normalization of the given instance, as returned by {@link #normalize(Object)}
+	 * @return the open ResultSet, to be closed with {@link #close(ResultSet)}
+	 */
+	private ResultSet executeAggregate(Connection connection, String select, String from, T t, long normalized, boolean exists) throws SQLException {
+		if (connection == null) {
+			throw new IllegalArgumentException("connection argument may not be null");
+		}
+		if (from == null) {
+			throw new IllegalArgumentException("from argument may not be null");
+		}
+		loadInTables(t, connection, normalized);
+		StringBuilder sb = new StringBuilder(select).append(from).append(toPositionalWhereClause(t, null, normalized));
+		if (exists) {
+			try {
+				dialect.appendLimitClause(-1L, 1L, sb);
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		PreparedStatement ps = connection.prepareStatement(sb.toString());
+		try {
+			bindWhereParameters(t, ps, 1, null, normalized);
+			return ps.executeQuery();
+		} catch (SQLException e) {
+			ps.close();
+			throw e;
+		}
+	}
+
+	/**
+	 * Closes the given ResultSet and its Statement
+	 */
+	private static void close(ResultSet rs) throws SQLException {
+		Statement statement = rs.getStatement();
+		try {
+			rs.close();
+		} finally {
+			statement.close();
+		}
+	}
+
+	/**
+	 * Converts objects of the target class to a full and complete order clause.<br>
+	 * This conversion process works on the basis of the mapping applied with annotation {@link be.ceau.querymapper.annotations.Order}.<br>
+	 * This method does not accept arguments, as the syntax of the order clause does not depend on the instance values of the mapped class.
+	 * @return a possibly zero-length String, rendered once at construction, never <code>null</code>.
+	 */
+	public String toOrderClause() {
+		QueryMapperListener l = listener;
+		if (l == null) {
+			return renderOrderClause();
+		}
+		long start = System.nanoTime();
+		try {
+			return renderOrderClause();
+		} finally {
+			l.rendered(type, RenderMethod.ORDER_CLAUSE, System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * @see #toOrderClause()
+	 */
+	private String renderOrderClause() {
+		logger.trace("toOrderClause() output: {}", orderClause);
+		return orderClause;
+	}
+
+	/**
+	 * Appends the order clause, as returned by {@link #toOrderClause()}, to the given StringBuilder.
+	 * @return the StringBuilder argument
+	 */
+	public StringBuilder appendOrderClause(StringBuilder sb) {
+		return sb.append(orderClause);
+	}
+
+	/**
+	 * Appends the order clause, as returned by {@link #toOrderClause()}, to the given Appendable.
+	 * @return the Appendable argument
+	 * @throws IOException if the Appendable throws IOException
+	 */
+	public Appendable appendOrderClause(Appendable appendable) throws IOException {
+		return appendable.append(orderClause);
+	}
+
+	private static String renderOrderClause(List<OrderField> orderFields) {
+		StringBuilder order = new StringBuilder();
+		for (OrderField orderField : orderFields) {
+			if (order.length() > 0) {
+				order.append(", ");
+			} else {
+				order.append(" ORDER BY ");
+			}
+			order.append(orderField.getFragment());
+		}
+		if (order.length() > 0) {
+			order.append(" ");
+		}
+		return order.toString();
+	}
+
+	/**
+	 * Converts objects of the target class to a full and complete limit clause.<br/>
+	 * This conversion process works on the basis of the mapping applied with annotation {@link be.ceau.querymapper.annotations.Limit}.<br>
+	 * @return the limit clause, or an empty String if the target class or the given object has no limit, never <code>null</code>
+	 */
+	public String toLimitClause(T t) {
+		QueryMapperListener l = listener;
+		if (l == null) {
+			return renderLimitClause(t);
+		}
+		long start = System.nanoTime();
+		try {
+			return renderLimitClause(t);
+		} finally {
+			l.rendered(type, RenderMethod.LIMIT_CLAUSE, System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * @see #toLimitClause(Object)
+	 */
+	private String renderLimitClause(T t) {
+		if (t == null) {
+			return "";
+		} else if (limits == null) {
+			return "";
+		} else {
+			try {
+				long numrows = rows(t);
+				return numrows < 0 ? "" : renderLimitClause(offset(t, numrows), numrows);
+			} catch (IllegalAccessException e) {
+				accessFailed("toLimitClause", t, e);
+				return "";
+			}
+		}
+	}
+
+	/**
+	 * Appends the limit clause for the given instance, as returned by {@link #toLimitClause(Object)}, to the given StringBuilder.<br/>
+	 * No objects are allocated for rendering, apart from any growth of the StringBuilder.
+	 * @return the StringBuilder argument
+	 */
+	public StringBuilder appendLimitClause(T t, StringBuilder sb) {
+		try {
+			appendLimitClause(t, (Appendable) sb);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return sb;
+	}
+
+	/**
+	 * Appends the limit clause for the given instance, as returned by {@link #toLimitClause(Object)}, to the given Appendable.
+	 * @return the Appendable argument
+	 * @throws IOException if the Appendable throws IOException
+	 */
+	public Appendable appendLimitClause(T t, Appendable appendable) throws IOException {
+		if (t == null || limits == null) {
+			return appendable;
+		}
+		try {
+			long numrows = rows(t);
+			if (numrows >= 0) {
+				dialect.appendLimitClause(offset(t, numrows), numrows, appendable);
+			}
+		} catch (IllegalAccessException e) {
+			accessFailed("appendLimitClause", t, e);
+		}
+		return appendable;
+	}
+
+	/**
+	 * Appends the limit clause for the given instance with <code>?</code> placeholders instead of values, 
+	 * in the syntax of the Dialect of this QueryMapper, to the given StringBuilder.<br/>
+	 * Instances with the same form of limit clause, as included in {@link #toPositionalFingerprint(Object)}, get the same clause. 
+	 * Bind the values with {@link #bindLimitParameters(Object, PreparedStatement, int)}.
+	 * @return the StringBuilder argument
+	 * @throws IllegalArgumentException if a <code>@Limit</code> field has an invalid value
+	 */
+	public StringBuilder appendPositionalLimitClause(T t, StringBuilder sb) {
+		int limitForm = limitForm(t);
+		if (limitForm > 0) {
+			try {
+				dialect.appendPositionalLimitClause(limitForm == 2, sb);
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+		return sb;
+	}
+
+	/**
+	 * Binds the values of the limit clause for the given instance, as rendered by {@link #appendPositionalLimitClause(Object, StringBuilder)}, 
+	 * starting at the given parameter index.
+	 * @return the parameter index of the first placeholder after the limit clause
+	 * @throws SQLException if the PreparedStatement throws SQLException
+	 * @throws IllegalArgumentException if a <code>@Limit</code> field has an invalid value
+	 */
+	public int bindLimitParameters(T t, PreparedStatement ps, int index) throws SQLException {
+		if (t == null || limits == null) {
+			return index;
+		}
+		try {
+			long numrows = rows(t);
+			return numrows < 0 ? index : dialect.bindLimitParameters(ps, index, offset(t, numrows), numrows);
+		} catch (IllegalAccessException e) {
+			accessFailed("bindLimitParameters", t, e);
+			return index;
+		}
+	}
+
+	/**
+	 * @param offset the offset of the first row, or <code>-1</code> if there is none
+	 * @param rows the maximum number of rows
+	 */
+	private String renderLimitClause(long offset, long rows) {
+		StringBuilder sb = new StringBuilder(32);
+		try {
+			dialect.appendLimitClause(offset, rows, sb);
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+		return sb.toString();
+	}
+
+	/**
+	 * Converts objects of the target class to a Query, holding the where, order and limit clauses, the parameter map and the limit values.<br/>
+	 * The value of every <code>@Where</code> field is read exactly once, 
+	 * whereas calling {@link #toWhereClause(Object)} and {@link #toParameterMap(Object)} separately reads every value twice. 
+	 * Check {@link Query#isUnsatisfiable()} before executing the query, as an empty collection is rendered as described for {@link #toWhereClause(Object)}.
+	 * @return a new, immutable Query on every invocation.
+	 * @throws IllegalArgumentException if a <code>@Limit</code> field has an invalid value
+	 */
+	public Query toQuery(T t) {
+		QueryMapperListener l = listener;
+		if (l == null) {
+			return renderQuery(t);
+		}
+		long start = System.nanoTime();
+		try {
+			return renderQuery(t);
+		} finally {
+			l.rendered(type, RenderMethod.QUERY, System.nanoTime() - start);
+		}
+	}
+
+	/**
+	 * @see #toQuery(Object)
+	 */
+	private Query renderQuery(T t) {
+		Map<String,Object> map = new HashMap<String,Object>();
+		if (t == null) {
+			return new Query("", orderClause, "", map, null, null, 0L, fingerprint(whereTemplates == null ? fingerprint : Fingerprint.hash(fingerprint, 0L), false, 0, false), false);
+		}
+		long mask = 0L;
+		long hash = fingerprint;
+		StringBuilder where = whereTemplates == null ? new StringBuilder() : null;
+		long normalized = normalize(t);
+		boolean unsatisfiable = (normalized & Normalizer.UNSATISFIABLE) != 0L;
+		for (int i = 0; i < whereFields.size(); i++) {
+			WhereField whereField = whereFields.get(i);
+			try {
+				Object o = whereField.getAccessor().get(t);
+				if (o != null && !Normalizer.skips(normalized, i)) {
+					if (where == null) {
+						mask |= 1L << i;
+					} else {
+						where.append(where.length() > 0 ? " AND " : " WHERE ").append(whereField.getFragment());
+						hash = Fingerprint.hash(hash, i);
+					}
+					map.put(whereField.getColumn(), whereField.transform(o));
+					if (normalizer != null && o instanceof Collection && Normalizer.isIn(whereField) && ((Collection<?>) o).isEmpty()) {
+						unsatisfiable = true;
+					}
+				}
+			} catch (IllegalArgumentException e) {
+				accessFailed("toQuery", t, e);
+			} catch (IllegalAccessException e) {
+				accessFailed("toQuery", t, e);
+			}
+		}
+		String whereClause;
+		if (where == null) {
+			namedShape(mask);
+			whereClause = whereTemplates.get(mask);
+			hash = Fingerprint.hash(hash, mask);
+		} else {
+			whereClause = where.length() > 0 ? where.append(" ").toString() : "";
+			mask = -1L;
+		}
+		boolean seeks = seekKey(t) != null;
+		whereClause = seek(t, whereClause, false);
+		putSeekParameters(t, map);
+		Long offset = null;
+		Long rows = null;
+		String limitClause = "";
+		if (limits != null) {
+			try {
+				long numrows = rows(t);
+				if (numrows > 0) {
+					long numoffset = offset(t, numrows);
+					rows = Long.valueOf(numrows);
+					offset = numoffset < 0 ? null : Long.valueOf(numoffset);
+					limitClause = renderLimitClause(numoffset, numrows);
+				}
+			} catch (IllegalAccessException e) {
+				accessFailed("toQuery", t, e);
+			}
+		}
+		int limitForm = rows == null ? 0 : offset == null ? 1 : 2;
+		Query query = new Query(whereClause, orderClause, limitClause, map, offset, rows, mask, fingerprint(hash, seeks, limitForm, false), unsatisfiable);
+		logger.trace("toQuery({} t) output: {}", t.getClass().getSimpleName(), query);
+		return query;
+	}
+
+	/**
+	 * Computes the fingerprint of the Query for the given instance, as returned by {@link Query#getFingerprint()}, without rendering the Query.
+	 * @throws IllegalArgumentException if a <code>@Limit</code> field has an invalid value
+	 */
+	public long toFingerprint(T t) {
+		long hash = fingerprint;
+		if (whereTemplates != null) {
+			hash = Fingerprint.hash(hash, t == null ? 0L : presence(t, normalize(t)));
+		} else if (t != null) {
+			long normalized = normalize(t);
+			for (int i = 0; i < whereFields.size(); i++) {
+				try {
+					if (whereFields.get(i).getAccessor().get(t) != null && !Normalizer.skips(normalized, i)) {
+						hash = Fingerprint.hash(hash, i);
+					}
+				} catch (IllegalArgumentException e) {
+					accessFailed("toFingerprint", t, e);
+				} catch (IllegalAccessException e) {
+					accessFailed("toFingerprint", t, e);
+				}
+			}
+		}
+		return fingerprint(hash, t != null && seekKey(t) != null, limitForm(t), false);
+	}
+
+	/**
+	 * Computes a fingerprint of the positional SQL for the given instance, being the positional where clause, 
+	 * as returned by {@link #toPositionalWhereClause(Object)}, followed by the order and limit clauses, without rendering the SQL.<br/>
+	 * Instances with the same positional fingerprint have the same positional where clause, including the number of placeholders of each collection, 
+	 * the same order clause, and the same form of limit clause: none, rows only, or offset and rows. 
+	 * The values of the limit clause are not part of the fingerprint.<br/>
+	 * Fingerprints are stable across JVM restarts, as long as the annotations of the class, and the options of this QueryMapper, are unchanged.
+	 * @throws IllegalArgumentException if a <code>@Limit</code> field has an invalid value
+	 */
+	public long toPositionalFingerprint(T t) {
+		long hash = fingerprint;
+		if (positionalTemplates != null) {
+			hash = Fingerprint.hash(hash, t == null ? 0L : presence(t, normalize(t)));
+		} else if (t != null) {
+			long normalized = normalize(t);
+			for (int i = 0; i < whereFields.size(); i++) {
+				WhereField whereField = whereFields.get(i);
+				try {
+					Object o = whereField.getAccessor().get(t);
+					if (o != null && !Normalizer.skips(normalized, i)) {
+						hash = Fingerprint.hash(Fingerprint.hash(hash, i), whereField.shape(o));
+					}
+				} catch (IllegalArgumentException e) {
+					accessFailed("toPositionalFingerprint", t, e);
+				} catch (IllegalAccessException e) {
+					accessFailed("toPositionalFingerprint", t, e);
+				}
+			}
+		}
+		return fingerprint(hash, t != null && seekKey(t) != null, limitForm(t), true);
+	}
+
+	/**
+	 * Returns the parts which, together with this QueryMapper, exactly determine the positional SQL rendered for the given instance: 
+	 * the form of the seek and limit clauses, followed by the presence bitmask of the <code>@Where</code> fields, 
+	 * or, if there are no positional templates, by the shape of each <code>@Where</code> field, <code>-1</code> for absent fields.<br/>
+	 * Unlike {@link #toPositionalFingerprint(Object)}, distinct shapes never compare equal.
+	 * @param normalized the normalization of the given instance, as returned by {@link #normalize(Object)}
+	 */
+	long[] toPositionalShapeKey(T t, long normalized) {
+		long form = limitForm(t) | (t != null && seekKey(t) != null ? 4 : 0);
+		if (positionalTemplates != null) {
+			return new long[] { form, t == null ? 0L : presence(t, normalized) };
+		}
+		long[] key = new long[whereFields.size() + 1];
+		key[0] = form;
+		Arrays.fill(key, 1, key.length, -1L);
+		if (t != null) {
+			for (int i = 0; i < whereFields.size(); i++) {
+				WhereField whereField = whereFields.get(i);
+				try {
+					Object o = whereField.getAccessor().get(t);
+					if (o != null && !Normalizer.skips(normalized, i)) {
+						key[i + 1] = whereField.shape(o);
+					}
+				} catch (IllegalArgumentException e) {
+					accessFailed("toPositionalShapeKey", t, e);
+				} catch (IllegalAccessException e) {
+					accessFailed("toPositionalShapeKey", t, e);
+				}
+			}
+		}
+		return key;
+	}
+
+	/**
+	 * @param hash the fingerprint of this QueryMapper, extended with the shape of the where clause
+	 * @param limitForm <code>0</code> without limit clause, <code>1</code> for rows only, <code>2</code> for offset and rows
+	 */
+	private static long fingerprint(long hash, boolean seeks, int limitForm, boolean positional) {
+		return Fingerprint.hash(hash, limitForm | (seeks ? 4 : 0) | (positional ? 8 : 0));
+	}
+
+	/**
+	 * @return the form of the limit clause for the given instance, as passed to {@link #fingerprint(long, boolean, int, boolean)}
+	 */
+	private int limitForm(T t) {
+		if (t == null || limits == null) {
+			return 0;
+		}
+		try {
+			long numrows = rows(t);
+			if (numrows < 0) {
+				return 0;
 			}
+			return offset(t, numrows) < 0 ? 1 : 2;
+		} catch (IllegalAccessException e) {
+			accessFailed("limitForm", t, e);
+			return 0;
 		}
 	}
 
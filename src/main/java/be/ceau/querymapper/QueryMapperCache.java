@@ -0,0 +1,98 @@
+/*
+	Copyright 2015 Marceau Dewilde <m@ceau.be>
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.querymapper;
+
+import be.ceau.querymapper.metrics.QueryMapperListener;
+
+/**
+ * Process-wide cache of QueryMapper instances, holding at most one mapper per class.<br/>
+ * Mappers are built lazily on first request and shared by all subsequent callers. 
+ * Concurrent requests for the same class wait for a single build, rather than each building their own mapper.
+ */
+final class QueryMapperCache {
+
+	private static final ClassValue<Entry<?>> ENTRIES = new ClassValue<Entry<?>>() {
+
+		@Override
+		protected Entry<?> computeValue(Class<?> type) {
+			return new Entry<Object>(type);
+		}
+
+	};
+
+	private QueryMapperCache() {
+	}
+
+	/**
+	 * @return the cached QueryMapper for the given class, building it first if necessary
+	 * @throws IllegalAnnotationException if the annotations for the given class are not applied in a valid manner.
+	 */
+	@SuppressWarnings("unchecked")
+	static <T> QueryMapper<T> get(Class<T> clazz) {
+		if (clazz == null) {
+			throw new IllegalArgumentException("Class argument may not be null");
+		}
+		return (QueryMapper<T>) ENTRIES.get(clazz).get();
+	}
+
+	/**
+	 * Removes the cached QueryMapper for the given class, if any.
+	 */
+	static void evict(Class<?> clazz) {
+		if (clazz == null) {
+			throw new IllegalArgumentException("Class argument may not be null");
+		}
+		ENTRIES.remove(clazz);
+		PropertyPath.evict(clazz);
+	}
+
+	/**
+	 * Holder for the QueryMapper of a single class.<br/>
+	 * As ClassValue may compute more than one Entry when racing threads request the same class, 
+	 * but publishes only one of them, the actual build is deferred to this holder.
+	 */
+	private static final class Entry<T> {
+
+		private final Class<T> type;
+		private volatile QueryMapper<T> mapper;
+
+		@SuppressWarnings("unchecked")
+		private Entry(Class<?> type) {
+			this.type = (Class<T>) type;
+		}
+
+		QueryMapper<T> get() {
+			QueryMapper<T> result = mapper;
+			if (result == null) {
+				synchronized (this) {
+					result = mapper;
+					if (result == null) {
+						QueryMapperListener listener = QueryMapper.getListener();
+						long start = listener == null ? 0L : System.nanoTime();
+						result = QueryMapper.build(type);
+						if (listener != null) {
+							listener.built(type, System.nanoTime() - start);
+						}
+						mapper = result;
+					}
+				}
+			}
+			return result;
+		}
+
+	}
+
+}
@@ -0,0 +1,181 @@
+/*
+	Copyright 2015 Marceau Dewilde <m@ceau.be>
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.querymapper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.ToLongFunction;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import be.ceau.querymapper.dialect.Dialects;
+import be.ceau.querymapper.enums.Comparison;
+import be.ceau.querymapper.enums.LimitType;
+import be.ceau.querymapper.enums.SortOrder;
+
+/**
+ * Reflection-free definition of the mapping of a class, as declared by its <code>@Where</code>, <code>@Order</code> and <code>@Limit</code> annotations.<br/>
+ * Subclasses are generated at compile time by the <code>querymapper-processor</code> annotation processor. 
+ * A generated subclass is public, has a public no-argument constructor, and is located in the package of the mapped class, 
+ * with the name of the mapped class followed by <code>_QueryMapping</code>. Nested class names are joined with an underscore.<br/>
+ * When such a subclass is present, {@link QueryMapper#forClass(Class)} builds the QueryMapper from it, 
+ * without scanning the mapped class through reflection.
+ * @author Marceau Dewilde
+ */
+public abstract class QueryMapping<T> {
+
+	private static final Logger logger = LoggerFactory.getLogger(QueryMapping.class);
+
+	/**
+	 * Suffix appended to the name of the mapped class to obtain the name of its generated QueryMapping
+	 */
+	public static final String SUFFIX = "_QueryMapping";
+
+	private final Class<T> type;
+	private final List<WhereField> whereFields = new ArrayList<WhereField>();
+	private final List<OrderField> orderFields = new ArrayList<OrderField>();
+	private final List<LimitType> limitTypes = new ArrayList<LimitType>();
+	private final List<Limits.Value> limitValues = new ArrayList<Limits.Value>();
+	private Accessor seek;
+
+	/**
+	 * @throws IllegalArgumentException if <code>type</code> argument is <code>null</code>
+	 */
+	protected QueryMapping(Class<T> type) {
+		if (type == null) {
+			throw new IllegalArgumentException("Class argument may not be null");
+		}
+		this.type = type;
+	}
+
+	/**
+	 * @return the mapped class
+	 */
+	public final Class<T> getType() {
+		return type;
+	}
+
+	/**
+	 * Adds the equivalent of a <code>@Where</code> annotated field.
+	 * @param column the resolved column name, never blank
+	 * @param table the table name, or an empty String
+	 * @param fieldType the declared type of the field
+	 * @param accessor Function returning the value of the field
+	 */
+	protected final void where(String column, String table, Comparison comparison, Class<?> fieldType, Function<? super T, ?> accessor) {
+		where(column, table, comparison, false, fieldType, accessor);
+	}
+
+	/**
+	 * Adds the equivalent of a <code>@Where</code> annotated field.
+	 * @param column the resolved column name, never blank
+	 * @param table the table name, or an empty String
+	 * @param bucketed the value of {@link be.ceau.querymapper.annotations.Where#bucketed()}
+	 * @param fieldType the declared type of the field
+	 * @param accessor Function returning the value of the field
+	 */
+	@SuppressWarnings("unchecked")
+	protected final void where(String column, String table, Comparison comparison, boolean bucketed, Class<?> fieldType, Function<? super T, ?> accessor) {
+		whereFields.add(new WhereField(Accessor.of(type.getName() + "." + column, fieldType, (Function<Object, ?>) accessor), column, table, comparison, bucketed));
+	}
+
+	/**
+	 * Adds the equivalent of an <code>@Order</code> annotated field.
+	 * @param column the resolved column name, never blank
+	 * @param table the table name, or an empty String
+	 */
+	protected final void order(String column, String table, SortOrder sortOrder, int index) {
+		orderFields.add(new OrderField(column, table, sortOrder, index));
+	}
+
+	/**
+	 * Adds the equivalent of a <code>@Limit</code> annotated field of a boxed type, or of a field nested in another field.
+	 * @param accessor Function returning the value of the field, or <code>null</code>
+	 */
+	@SuppressWarnings("unchecked")
+	protected final void limit(LimitType limitType, Function<? super T, ? extends Number> accessor) {
+		limitTypes.add(limitType);
+		limitValues.add(new Limits.FunctionValue((Function<Object, ? extends Number>) accessor));
+	}
+
+	/**
+	 * Adds the equivalent of a <code>@Limit</code> annotated field of a primitive type.
+	 * @param accessor ToLongFunction returning the value of the field
+	 */
+	@SuppressWarnings("unchecked")
+	protected final void primitiveLimit(LimitType limitType, ToLongFunction<? super T> accessor) {
+		limitTypes.add(limitType);
+		limitValues.add(new Limits.LongFunctionValue((ToLongFunction<Object>) accessor));
+	}
+
+	/**
+	 * Adds the equivalent of a <code>@Seek</code> annotated field.
+	 * @param fieldType the declared type of the field
+	 * @param accessor Function returning the value of the field
+	 */
+	@SuppressWarnings("unchecked")
+	protected final void seek(Class<?> fieldType, Function<? super T, ?> accessor) {
+		if (seek != null) {
+			throw new IllegalAnnotationException("Having more than 1 @Seek annotation in one class is not valid.");
+		}
+		seek = Accessor.of(type.getName() + ".seek", fieldType, (Function<Object, ?>) accessor);
+	}
+
+	/**
+	 * @throws IllegalAnnotationException if the definition contains an invalid combination of limits
+	 */
+	QueryMapper<T> toQueryMapper() {
+		List<OrderField> sorted = new ArrayList<OrderField>(orderFields);
+		Collections.sort(sorted);
+		return new QueryMapper<T>(type, new ArrayList<WhereField>(whereFields), sorted, Limits.from(limitTypes, limitValues), 
+				seek == null ? null : new Keyset(sorted, seek), -1L, Dialects.MYSQL);
+	}
+
+	/**
+	 * @return a new instance of the generated QueryMapping for the given class, or <code>null</code> if there is none
+	 */
+	@SuppressWarnings("unchecked")
+	static <T> QueryMapping<T> lookup(Class<T> clazz) {
+		String name = clazz.getName();
+		String packageName = name.substring(0, name.lastIndexOf('.') + 1);
+		String className = packageName + name.substring(packageName.length()).replace('$', '_') + SUFFIX;
+		Class<?> mappingClass;
+		try {
+			mappingClass = Class.forName(className, true, clazz.getClassLoader());
+		} catch (ClassNotFoundException e) {
+			return null;
+		} catch (LinkageError e) {
+			logger.warn("lookup({}): could not load {}", clazz.getName(), className, e);
+			return null;
+		}
+		try {
+			if (QueryMapping.class.isAssignableFrom(mappingClass)) {
+				QueryMapping<?> mapping = (QueryMapping<?>) mappingClass.getConstructor().newInstance();
+				if (mapping.getType() == clazz) {
+					return (QueryMapping<T>) mapping;
+				}
+			}
+			logger.warn("lookup({}): {} is not a QueryMapping for {}", clazz.getName(), className, clazz.getName());
+		} catch (ReflectiveOperationException e) {
+			logger.warn("lookup({}): could not instantiate {}", clazz.getName(), className, e);
+		}
+		return null;
+	}
+
+}
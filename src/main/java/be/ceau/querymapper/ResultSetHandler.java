@@ -0,0 +1,34 @@
+/*
+	Copyright 2015 Marceau Dewilde <m@ceau.be>
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.querymapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Converts the ResultSet of a single query to a result object.
+ * @param <R> the type of the result object
+ */
+public interface ResultSetHandler<R> {
+
+	/**
+	 * @param rs an open ResultSet, positioned before the first row, closed by the caller after this method returns
+	 * @return the result for the given ResultSet, may be <code>null</code>
+	 * @throws SQLException if the ResultSet throws SQLException
+	 */
+	R handle(ResultSet rs) throws SQLException;
+
+}
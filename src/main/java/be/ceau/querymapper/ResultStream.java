@@ -0,0 +1,412 @@
+/*
+	Copyright 2015 Marceau Dewilde <m@ceau.be>
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.querymapper;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import javax.sql.DataSource;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Lazy, forward-only iteration over all rows matching an instance of a mapped class, 
+ * holding at most one fetch or one page of rows in memory at any time.<br/>
+ * Rows are read in one of two ways, chosen by {@link QueryMapper#stream(DataSource, String, Object, RowMapper, int)}:
+ * <ul>
+ * <li><strong>cursor</strong>: a single query without limit clause, read through a forward-only, read-only ResultSet with the given fetch size. 
+ * The Connection is held, with auto-commit disabled, until the last row is read or this ResultStream is closed.</li>
+ * <li><strong>seek</strong>: for classes with a <code>@Seek</code> field, consecutive pages of rows, 
+ * each page continuing after the values of the <code>@Order</code> columns in the last row of the previous page. 
+ * A Connection is only held while a page is read, and every page costs the same, however far into the results.</li>
+ * </ul>
+ * Iteration closes all resources after the last row. Close a ResultStream that is not read to the end, 
+ * or the Stream returned by {@link #stream()}, to release its resources early.<br/>
+ * A ResultStream is not thread-safe. 
+ * {@link SQLException} thrown while reading is rethrown as {@link IllegalStateException}.
+ * @param <R> the type of the mapped rows
+ */
+public final class ResultStream<R> implements Iterator<R>, AutoCloseable {
+
+	private static final Logger logger = LoggerFactory.getLogger(ResultStream.class);
+
+	private final Source<R> source;
+	private R next;
+	private boolean closed;
+	private long rowCount;
+
+	private ResultStream(Source<R> source) {
+		this.source = source;
+	}
+
+	/**
+	 * @return a new ResultStream without rows, holding no resources
+	 */
+	static <R> ResultStream<R> empty() {
+		return new ResultStream<R>(new Empty<R>());
+	}
+
+	/**
+	 * @param normalized the normalization of the given instance, as returned by {@link QueryMapper#normalize(Object)}
+	 * @return a new ResultStream reading all rows through a single forward-only cursor
+	 * @throws SQLException if the query can not be executed
+	 */
+	static <T, R> ResultStream<R> cursor(QueryMapper<T> mapper, DataSource dataSource, String select, T t, long normalized, RowMapper<R> rowMapper, int fetchSize) throws SQLException {
+		return new ResultStream<R>(new Cursor<T, R>(mapper, dataSource, select, t, normalized, rowMapper, fetchSize));
+	}
+
+	/**
+	 * @param normalized the normalization of the given instance, as returned by {@link QueryMapper#normalize(Object)}
+	 * @param pageSize the number of rows per page
+	 * @return a new ResultStream reading all rows in pages, continuing after the seek key of the last row of each page
+	 * @throws SQLException if the first page can not be read
+	 */
+	static <T, R> ResultStream<R> seek(QueryMapper<T> mapper, DataSource dataSource, String select, T t, long normalized, RowMapper<R> rowMapper, int pageSize) throws SQLException {
+		Seek<T, R> seek = new Seek<T, R>(mapper, dataSource, select, t, normalized, rowMapper, pageSize);
+		seek.read();
+		return new ResultStream<R>(seek);
+	}
+
+	@Override
+	public boolean hasNext() {
+		if (next == null && !closed) {
+			try {
+				next = source.fetch();
+			} catch (SQLException e) {
+				close();
+				throw new IllegalStateException("Reading the next row failed", e);
+			}
+			if (next == null) {
+				close();
+			} else {
+				rowCount++;
+			}
+		}
+		return next != null;
+	}
+
+	@Override
+	public R next() {
+		if (!hasNext()) {
+			throw new NoSuchElementException();
+		}
+		R result = next;
+		next = null;
+		return result;
+	}
+
+	/**
+	 * @return a new sequential, ordered Stream of the remaining rows, closing this ResultStream when the Stream is closed
+	 */
+	public Stream<R> stream() {
+		return StreamSupport.stream(Spliterators.spliteratorUnknownSize(this, Spliterator.ORDERED | Spliterator.NONNULL), false)
+				.onClose(this::close);
+	}
+
+	/**
+	 * @return the number of rows read so far
+	 */
+	public long getRowCount() {
+		return rowCount;
+	}
+
+	/**
+	 * @return the number of queries executed so far: <code>1</code> for a cursor, or the number of pages read
+	 */
+	public int getQueryCount() {
+		return source.queries();
+	}
+
+	/**
+	 * Releases all resources held by this ResultStream. Calling this method more than once has no effect.
+	 * @throws IllegalStateException if a resource can not be closed
+	 */
+	@Override
+	public void close() {
+		if (closed) {
+			return;
+		}
+		closed = true;
+		next = null;
+		try {
+			source.close();
+		} catch (SQLException e) {
+			throw new IllegalStateException("Closing the ResultStream failed", e);
+		}
+	}
+
+	/**
+	 * Produces the rows of a ResultStream
+	 */
+	private interface Source<R> {
+
+		/**
+		 * @return the next row, or <code>null</code> if there are no more rows
+		 */
+		R fetch() throws SQLException;
+
+		int queries();
+
+		void close() throws SQLException;
+
+	}
+
+	/**
+	 * No rows, without querying
+	 */
+	private static final class Empty<R> implements Source<R> {
+
+		@Override
+		public R fetch() {
+			return null;
+		}
+
+		@Override
+		public int queries() {
+			return 0;
+		}
+
+		@Override
+		public void close() {
+		}
+
+	}
+
+	/**
+	 * All rows of a single query, read through an open ResultSet
+	 */
+	private static final class Cursor<T, R> implements Source<R> {
+
+		private final RowMapper<R> rowMapper;
+		private final Connection connection;
+		private boolean restoreAutoCommit;
+		private PreparedStatement ps;
+		private ResultSet rs;
+		private RowMapper.Plan plan;
+
+		private Cursor(QueryMapper<T> mapper, DataSource dataSource, String select, T t, long normalized, RowMapper<R> rowMapper, int fetchSize) throws SQLException {
+			this.rowMapper = rowMapper;
+			this.connection = dataSource.getConnection();
+			try {
+				// some drivers, such as PostgreSQL, only honour the fetch size outside auto-commit mode
+				if (connection.getAutoCommit()) {
+					connection.setAutoCommit(false);
+					restoreAutoCommit = true;
+				}
+				mapper.loadInTables(t, connection, normalized);
+				String sql = new StringBuilder(select)
+						.append(mapper.toPositionalWhereClause(t, normalized))
+						.append(mapper.toOrderClause())
+						.toString();
+				logger.debug("Cursor: {} with fetch size {}", sql, fetchSize);
+				ps = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+				ps.setFetchSize(fetchSize);
+				mapper.bindWhereParameters(t, ps, 1, normalized);
+				rs = ps.executeQuery();
+				plan = rowMapper.plan(rs.getMetaData());
+			} catch (SQLException e) {
+				try {
+					close();
+				} catch (SQLException suppressed) {
+					e.addSuppressed(suppressed);
+				}
+				throw e;
+			}
+		}
+
+		@Override
+		public R fetch() throws SQLException {
+			return rs.next() ? rowMapper.map(rs, plan) : null;
+		}
+
+		@Override
+		public int queries() {
+			return 1;
+		}
+
+		@Override
+		public void close() throws SQLException {
+			SQLException failure = null;
+			try {
+				if (rs != null) {
+					rs.close();
+				}
+				if (ps != null) {
+					ps.close();
+				}
+				if (restoreAutoCommit) {
+					connection.rollback();
+					connection.setAutoCommit(true);
+				}
+			} catch (SQLException e) {
+				failure = e;
+			} finally {
+				try {
+					connection.close();
+				} catch (SQLException e) {
+					if (failure == null) {
+						failure = e;
+					} else {
+						failure.addSuppressed(e);
+					}
+				}
+			}
+			if (failure != null) {
+				throw failure;
+			}
+		}
+
+	}
+
+	/**
+	 * Consecutive pages of a query, each on a Connection of its own, continuing after the seek key of the last row of the previous page
+	 */
+	private static final class Seek<T, R> implements Source<R> {
+
+		private final QueryMapper<T> mapper;
+		private final DataSource dataSource;
+		private final String select;
+		private final T t;
+		private final long normalized;
+		private final RowMapper<R> rowMapper;
+		private final int pageSize;
+		private final ArrayDeque<R> page;
+		private List<?> key;
+		private String continuation;
+		private boolean last;
+		private int queries;
+
+		private Seek(QueryMapper<T> mapper, DataSource dataSource, String select, T t, long normalized, RowMapper<R> rowMapper, int pageSize) {
+			this.mapper = mapper;
+			this.dataSource = dataSource;
+			this.select = select;
+			this.t = t;
+			this.normalized = normalized;
+			this.rowMapper = rowMapper;
+			this.pageSize = pageSize;
+			this.page = new ArrayDeque<R>(pageSize);
+			this.key = mapper.seekKey(t);
+		}
+
+		@Override
+		public R fetch() throws SQLException {
+			if (page.isEmpty() && !last) {
+				read();
+			}
+			return page.poll();
+		}
+
+		/**
+		 * Reads the next page, and the seek key of its last row
+		 */
+		void read() throws SQLException {
+			String sql;
+			if (key == null) {
+				sql = sql();
+			} else {
+				if (continuation == null) {
+					continuation = sql();
+				}
+				sql = continuation;
+			}
+			queries++;
+			Connection connection = dataSource.getConnection();
+			try {
+				mapper.loadInTables(t, connection, normalized);
+				PreparedStatement ps = connection.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+				try {
+					ps.setFetchSize(pageSize);
+					int index = mapper.bindWhereParameters(t, ps, 1, key, normalized);
+					mapper.getDialect().bindLimitParameters(ps, index, -1L, pageSize);
+					ResultSet rs = ps.executeQuery();
+					try {
+						RowMapper.Plan plan = rowMapper.plan(rs.getMetaData());
+						int count = 0;
+						while (rs.next()) {
+							page.add(rowMapper.map(rs, plan));
+							if (++count == pageSize) {
+								key = key(rs);
+							}
+						}
+						last = count < pageSize;
+					} finally {
+						rs.close();
+					}
+				} finally {
+					ps.close();
+				}
+			} finally {
+				connection.close();
+			}
+		}
+
+		/**
+		 * @return the SQL for a page after the current seek key
+		 */
+		private String sql() {
+			StringBuilder sb = new StringBuilder(select)
+					.append(mapper.toPositionalWhereClause(t, key, normalized))
+					.append(mapper.toOrderClause());
+			try {
+				mapper.getDialect().appendPositionalLimitClause(false, sb);
+			} catch (IOException e) {
+				throw new IllegalStateException(e);
+			}
+			String sql = sb.toString();
+			logger.debug("Seek: {} with page size {}", sql, pageSize);
+			return sql;
+		}
+
+		/**
+		 * @return the values of the <code>@Order</code> columns in the current row
+		 * @throws SQLException if the select does not include every <code>@Order</code> column
+		 */
+		private List<?> key(ResultSet rs) throws SQLException {
+			List<OrderField> orderFields = mapper.getOrderFields();
+			List<Object> values = new ArrayList<Object>(orderFields.size());
+			for (OrderField orderField : orderFields) {
+				values.add(rs.getObject(orderField.getColumn()));
+			}
+			return values;
+		}
+
+		@Override
+		public int queries() {
+			return queries;
+		}
+
+		@Override
+		public void close() {
+			page.clear();
+			last = true;
+		}
+
+	}
+
+}
@@ -0,0 +1,296 @@
+/*
+	Copyright 2015 Marceau Dewilde <m@ceau.be>
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.querymapper;
+
+import java.lang.invoke.CallSite;
+import java.lang.invoke.LambdaMetafactory;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import be.ceau.querymapper.annotations.Column;
+import be.ceau.querymapper.annotations.Where;
+
+/**
+ * Maps the rows of a ResultSet to new instances of a Java class.<br/>
+ * The columns filled for each field are declared with {@link Column}, or default to the <code>@Where</code> column or name of each field.<br/>
+ * Fields are written through compiled setters and read with the primitive getter of the ResultSet matching their type. 
+ * The column label to index plan is computed once per distinct set of column labels, and reused for all rows and all later ResultSets of the same shape.<br/>
+ * RowMapper instances are thread-safe and cached per class, see {@link #forClass(Class)}.
+ * @param <R> the type of the mapped rows
+ */
+public final class RowMapper<R> implements ResultSetHandler<List<R>> {
+
+	private static final Logger logger = LoggerFactory.getLogger(RowMapper.class);
+
+	private static final ClassValue<RowMapper<?>> MAPPERS = new ClassValue<RowMapper<?>>() {
+
+		@Override
+		protected RowMapper<?> computeValue(Class<?> type) {
+			return new RowMapper<Object>(type);
+		}
+
+	};
+
+	/**
+	 * Upper bound on the number of cached plans per class, guarding against unbounded growth for ad hoc queries
+	 */
+	private static final int MAXIMUM_PLANS = 64;
+
+	private final Class<R> type;
+	private final Supplier<R> constructor;
+	private final Map<String, ColumnWriter> writers;
+	private final ConcurrentMap<String, Plan> plans = new ConcurrentHashMap<String, Plan>();
+
+	@SuppressWarnings("unchecked")
+	private RowMapper(Class<?> type) {
+		this.type = (Class<R>) type;
+		this.constructor = constructor(this.type);
+		this.writers = writers(type);
+		logger.debug("RowMapper({}): {} columns {}", type, writers.size(), writers.keySet());
+	}
+
+	/**
+	 * @param clazz a concrete class with a no-argument constructor
+	 * @return the cached RowMapper for the given class, never <code>null</code>
+	 * @throws IllegalArgumentException if the class can not be instantiated, or has a field that can not be written
+	 * @throws IllegalAnnotationException if <code>@Column</code> is placed on a final field
+	 */
+	@SuppressWarnings("unchecked")
+	public static <R> RowMapper<R> forClass(Class<R> clazz) {
+		if (clazz == null) {
+			throw new IllegalArgumentException("Class argument may not be null");
+		}
+		return (RowMapper<R>) MAPPERS.get(clazz);
+	}
+
+	/**
+	 * @return the class of the mapped rows
+	 */
+	public Class<R> getType() {
+		return type;
+	}
+
+	/**
+	 * Maps all remaining rows of the given ResultSet.
+	 * @param rs an open ResultSet, positioned before the first row
+	 * @return a new List with one instance for each row, never <code>null</code>
+	 * @throws SQLException if the ResultSet throws SQLException
+	 */
+	@Override
+	public List<R> handle(ResultSet rs) throws SQLException {
+		Plan plan = plan(rs.getMetaData());
+		List<R> list = new ArrayList<R>();
+		while (rs.next()) {
+			list.add(map(rs, plan));
+		}
+		return list;
+	}
+
+	/**
+	 * Maps the current row of the given ResultSet, without moving the cursor.
+	 * @param rs an open ResultSet, positioned on a row
+	 * @return a new instance, never <code>null</code>
+	 * @throws SQLException if the ResultSet throws SQLException
+	 */
+	public R map(ResultSet rs) throws SQLException {
+		return map(rs, plan(rs.getMetaData()));
+	}
+
+	/**
+	 * @return a new instance filled from the current row of the given ResultSet, following the given Plan
+	 */
+	R map(ResultSet rs, Plan plan) throws SQLException {
+		R bean = constructor.get();
+		int[] indexes = plan.indexes;
+		ColumnWriter[] columns = plan.writers;
+		for (int i = 0; i < indexes.length; i++) {
+			columns[i].write(bean, rs, indexes[i]);
+		}
+		return bean;
+	}
+
+	/**
+	 * @return the cached Plan for the column labels of the given ResultSetMetaData, computing it first if necessary
+	 */
+	Plan plan(ResultSetMetaData metaData) throws SQLException {
+		int count = metaData.getColumnCount();
+		String[] labels = new String[count];
+		StringBuilder key = new StringBuilder();
+		for (int i = 0; i < count; i++) {
+			labels[i] = metaData.getColumnLabel(i + 1).toLowerCase(Locale.ROOT);
+			key.append(labels[i]).append('\u0000');
+		}
+		String shape = key.toString();
+		Plan plan = plans.get(shape);
+		if (plan == null) {
+			plan = new Plan(labels, writers);
+			if (plans.size() < MAXIMUM_PLANS) {
+				Plan existing = plans.putIfAbsent(shape, plan);
+				if (existing != null) {
+					plan = existing;
+				}
+			}
+		}
+		return plan;
+	}
+
+	/**
+	 * @return the number of cached plans, for testing
+	 */
+	int getPlanCount() {
+		return plans.size();
+	}
+
+	/**
+	 * @return a map of lowercase column label to ColumnWriter, in declaration order from subclass to superclass
+	 */
+	private static Map<String, ColumnWriter> writers(Class<?> type) {
+		List<Field> fields = new ArrayList<Field>();
+		boolean annotated = false;
+		for (Class<?> c = type; c != null && c != Object.class; c = c.getSuperclass()) {
+			for (Field field : c.getDeclaredFields()) {
+				if (Modifier.isStatic(field.getModifiers()) || field.isSynthetic()) {
+					continue;
+				}
+				if (field.isAnnotationPresent(Column.class)) {
+					if (Modifier.isFinal(field.getModifiers())) {
+						throw new IllegalAnnotationException("@Column can not be placed on final field " + field);
+					}
+					annotated = true;
+				}
+				fields.add(field);
+			}
+		}
+		Map<String, ColumnWriter> writers = new LinkedHashMap<String, ColumnWriter>();
+		for (Field field : fields) {
+			String label;
+			Column column = field.getAnnotation(Column.class);
+			if (column != null) {
+				label = column.value().isEmpty() ? field.getName() : column.value();
+			} else if (annotated || Modifier.isFinal(field.getModifiers()) || Modifier.isTransient(field.getModifiers())) {
+				continue;
+			} else {
+				Where where = field.getAnnotation(Where.class);
+				label = where != null && !where.column().isEmpty() ? where.column() : field.getName();
+			}
+			label = label.toLowerCase(Locale.ROOT);
+			if (!writers.containsKey(label)) {
+				writers.put(label, ColumnWriter.of(field));
+			}
+		}
+		return writers;
+	}
+
+	/**
+	 * @return a Supplier invoking the no-argument constructor of the given class
+	 */
+	@SuppressWarnings("unchecked")
+	private static <R> Supplier<R> constructor(Class<R> type) {
+		if (type.isInterface() || type.isPrimitive() || type.isArray() || Modifier.isAbstract(type.getModifiers())) {
+			throw new IllegalArgumentException("Class " + type.getName() + " can not be instantiated");
+		}
+		final Constructor<R> constructor;
+		try {
+			constructor = type.getDeclaredConstructor();
+		} catch (NoSuchMethodException e) {
+			throw new IllegalArgumentException("Class " + type.getName() + " has no no-argument constructor", e);
+		}
+		MethodHandles.Lookup lookup = MethodHandles.lookup();
+		if (Modifier.isPublic(type.getModifiers()) && Modifier.isPublic(constructor.getModifiers())) {
+			try {
+				MethodHandle handle = lookup.unreflectConstructor(constructor);
+				CallSite site = LambdaMetafactory.metafactory(lookup, "get", MethodType.methodType(Supplier.class), 
+						MethodType.methodType(Object.class), handle, MethodType.methodType(type));
+				return (Supplier<R>) site.getTarget().invoke();
+			} catch (Throwable e) {
+				logger.debug("constructor({}): no lambda constructor", type, e);
+			}
+		}
+		final MethodHandle handle;
+		try {
+			constructor.setAccessible(true);
+			handle = lookup.unreflectConstructor(constructor).asType(MethodType.methodType(Object.class));
+		} catch (IllegalAccessException e) {
+			throw new IllegalArgumentException("Class " + type.getName() + " can not be instantiated", e);
+		} catch (RuntimeException e) {
+			throw new IllegalArgumentException("Class " + type.getName() + " can not be instantiated", e);
+		}
+		return () -> {
+			try {
+				return (R) handle.invokeExact();
+			} catch (RuntimeException | Error e) {
+				throw e;
+			} catch (Throwable e) {
+				throw new IllegalStateException(e);
+			}
+		};
+	}
+
+	@Override
+	public String toString() {
+		return new StringBuilder()
+				.append("RowMapper [type=")
+				.append(type.getName())
+				.append(", columns=")
+				.append(writers.keySet())
+				.append("]")
+				.toString();
+	}
+
+	/**
+	 * The resolved column indexes and writers for a single shape of ResultSet
+	 */
+	static final class Plan {
+
+		private final int[] indexes;
+		private final ColumnWriter[] writers;
+
+		private Plan(String[] labels, Map<String, ColumnWriter> all) {
+			List<ColumnWriter> list = new ArrayList<ColumnWriter>();
+			int[] found = new int[labels.length];
+			for (int i = 0; i < labels.length; i++) {
+				ColumnWriter writer = all.get(labels[i]);
+				if (writer != null && !list.contains(writer)) {
+					found[list.size()] = i + 1;
+					list.add(writer);
+				}
+			}
+			this.indexes = Arrays.copyOf(found, list.size());
+			this.writers = list.toArray(new ColumnWriter[list.size()]);
+		}
+
+	}
+
+}
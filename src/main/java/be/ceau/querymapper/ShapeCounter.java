@@ -0,0 +1,73 @@
+/*
+	Copyright 2015 Marceau Dewilde <m@ceau.be>
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.querymapper;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Counts the distinct shapes of the SQL rendered by a QueryMapper.<br/>
+ * Each distinct shape is a distinct statement text for driver and server statement caches. 
+ * Shapes are identified by a 64-bit key, which is hashed to one of {@value #MAX_SHAPES} bucket bits. 
+ * Recording a shape sets its bit, and the count is the number of bits set, 
+ * so recording never allocates and is cheap enough to stay on while rendering. 
+ * Shapes hashing to the same bucket are counted once, so the count is exact for small numbers of shapes, 
+ * and never exceeds {@value #MAX_SHAPES}.
+ */
+final class ShapeCounter {
+
+	static final int MAX_SHAPES = 4096;
+
+	private final AtomicLongArray buckets = new AtomicLongArray(MAX_SHAPES / Long.SIZE);
+
+	/**
+	 * @return <code>true</code> if the bucket of the shape was not set before, and is now counted
+	 */
+	boolean record(long shape) {
+		int bucket = bucket(shape);
+		int index = bucket >>> 6;
+		long bit = 1L << bucket;
+		long word = buckets.get(index);
+		while ((word & bit) == 0L) {
+			if (buckets.compareAndSet(index, word, word | bit)) {
+				return true;
+			}
+			word = buckets.get(index);
+		}
+		return false;
+	}
+
+	int count() {
+		int count = 0;
+		for (int i = 0; i < buckets.length(); i++) {
+			count += Long.bitCount(buckets.get(i));
+		}
+		return count;
+	}
+
+	/**
+	 * @return the bucket of the given shape, mixing all bits of the shape, as presence bitmasks differ in single bits
+	 */
+	private static int bucket(long shape) {
+		long h = shape;
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return (int) h & (MAX_SHAPES - 1);
+	}
+
+}
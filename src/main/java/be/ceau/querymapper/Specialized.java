@@ -0,0 +1,390 @@
+/*
+	Copyright 2015 Marceau Dewilde <m@ceau.be>
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.querymapper;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import be.ceau.querymapper.enums.FieldType;
+
+/**
+ * Rendering of the <code>@Where</code> and <code>@Limit</code> fields of a single QueryMapper, by a class generated for it at runtime.<br/>
+ * The generated class holds the Accessor of each field in its own final field, and reads each value through its own call site,
+ * with the SQL fragments, column names and field indices as constants and the parameter transformation of each field resolved in advance,
+ * so that rendering does not loop over the fields or branch on their types.
+ * Each method of the generated class produces exactly the result of the interpreted code in QueryMapper that it replaces,
+ * including the reporting of fields that can not be read.<br/>
+ * Generated classes are defined as hidden classes, whose final fields the JIT compiler trusts as constants, and which are unloaded with their QueryMapper.
+ * Hidden classes require Java 15 or later: on earlier versions, {@link #of(QueryMapper)} returns <code>null</code>.
+ */
+abstract class Specialized {
+
+	private static final Logger logger = LoggerFactory.getLogger(Specialized.class);
+
+	/**
+	 * Maximum number of <code>@Where</code> fields of a generated class, keeping every generated method well within the size limits of the JVM
+	 */
+	static final int MAX_FIELDS = 256;
+
+	private static final MethodHandles.Lookup LOOKUP = MethodHandles.lookup();
+
+	/**
+	 * <code>MethodHandles.Lookup.defineHiddenClass</code>, or <code>null</code> before Java 15
+	 */
+	private static final Method DEFINE_HIDDEN_CLASS;
+
+	/**
+	 * An empty array of <code>MethodHandles.Lookup.ClassOption</code>, or <code>null</code> before Java 15
+	 */
+	private static final Object NO_OPTIONS;
+
+	static {
+		Method method = null;
+		Object options = null;
+		try {
+			options = Array.newInstance(Class.forName("java.lang.invoke.MethodHandles$Lookup$ClassOption"), 0);
+			method = MethodHandles.Lookup.class.getMethod("defineHiddenClass", byte[].class, boolean.class, options.getClass());
+		} catch (ClassNotFoundException e) {
+			logger.debug("hidden classes are not supported, QueryMapper will not be specialized");
+		} catch (NoSuchMethodException e) {
+			logger.debug("hidden classes are not supported, QueryMapper will not be specialized");
+		}
+		DEFINE_HIDDEN_CLASS = method;
+		NO_OPTIONS = method == null ? null : options;
+	}
+
+	private static final String SPECIALIZED = internalName(Specialized.class);
+	private static final String ACCESSOR = internalName(Accessor.class);
+	private static final String WHERE_FIELD = internalName(WhereField.class);
+	private static final String LIMITS = internalName(Limits.class);
+	private static final String VALUE = internalName(Limits.Value.class);
+	private static final String APPENDABLE = internalName(Appendable.class);
+	private static final String MAP = internalName(Map.class);
+
+	private static final String[] LIMIT_FIELDS = { "rows", "offset", "part" };
+
+	private static final MethodType CONSTRUCTOR = MethodType.methodType(void.class, QueryMapper.class, Accessor[].class, WhereField[].class, Limits.Value[].class);
+
+	private final QueryMapper<Object> mapper;
+
+	@SuppressWarnings("unchecked")
+	Specialized(QueryMapper<?> mapper) {
+		this.mapper = (QueryMapper<Object>) mapper;
+	}
+
+	/**
+	 * Generates and instantiates the class rendering for the given QueryMapper,
+	 * reading its <code>@Where</code> fields, <code>@Limit</code> fields and {@link QueryMapper#getType() type}, which must already be set.
+	 * @return a new Specialized instance,
+	 * or <code>null</code> if hidden classes are not supported, if the QueryMapper has more than {@value #MAX_FIELDS} <code>@Where</code> fields,
+	 * or if the class can not be generated
+	 */
+	static Specialized of(QueryMapper<?> mapper) {
+		if (DEFINE_HIDDEN_CLASS == null) {
+			return null;
+		}
+		List<WhereField> whereFields = mapper.getWhereFields();
+		if (whereFields.size() > MAX_FIELDS) {
+			logger.debug("of({}): not specialized, more than {} @Where fields", mapper.getType().getName(), MAX_FIELDS);
+			return null;
+		}
+		Accessor[] accessors = new Accessor[whereFields.size()];
+		for (int i = 0; i < accessors.length; i++) {
+			accessors[i] = whereFields.get(i).getAccessor();
+		}
+		Limits limits = mapper.getLimits();
+		Limits.Value[] values = limits == null ? new Limits.Value[LIMIT_FIELDS.length] : new Limits.Value[] { limits.getRows(), limits.getOffset(), limits.getPart() };
+		String name = SPECIALIZED + '_' + mapper.getType().getName().replace('.', '_');
+		try {
+			byte[] bytes = generate(name, whereFields, values);
+			MethodHandles.Lookup lookup = (MethodHandles.Lookup) DEFINE_HIDDEN_CLASS.invoke(LOOKUP, bytes, Boolean.TRUE, NO_OPTIONS);
+			MethodHandle constructor = lookup.findConstructor(lookup.lookupClass(), CONSTRUCTOR);
+			return (Specialized) constructor.invoke(mapper, accessors, whereFields.toArray(new WhereField[whereFields.size()]), values);
+		} catch (Throwable e) {
+			logger.warn("of({}): not specialized, the class could not be generated", mapper.getType().getName(), e);
+			return null;
+		}
+	}
+
+	/**
+	 * Computes the presence bitmask of the given instance, as {@link QueryMapper#presence(Object, long)} does
+	 */
+	abstract long presence(Object bean, long normalized);
+
+	/**
+	 * Appends the where clause for the <code>@Where</code> fields of the given non-null instance, without templates and without any seek predicate
+	 * @param normalized the normalization of the given instance, as returned by {@link QueryMapper#normalize(Object)}
+	 * @return <code>true</code> if anything was appended
+	 */
+	abstract boolean appendWhere(Object bean, long normalized, Appendable appendable) throws IOException;
+
+	/**
+	 * Puts the parameters for the <code>@Where</code> fields of the given non-null instance in the given Map, without any seek key
+	 * @param normalized the normalization of the given instance, as returned by {@link QueryMapper#normalize(Object)}
+	 */
+	abstract void putParameters(Object bean, long normalized, Map<String, Object> map);
+
+	/**
+	 * Only called if the QueryMapper has <code>@Limit</code> fields.
+	 * @see Limits#rows(Object)
+	 */
+	abstract long rows(Object bean) throws IllegalAccessException;
+
+	/**
+	 * Only called if the QueryMapper has <code>@Limit</code> fields.
+	 * @see Limits#offset(Object, long)
+	 */
+	abstract long offset(Object bean, long numrows) throws IllegalAccessException;
+
+	/**
+	 * Reports a field of the given instance that can not be read, which the generated code then skips
+	 */
+	final void failed(String method, Object bean, Exception e) {
+		mapper.accessFailed(method, bean, e);
+	}
+
+	/**
+	 * @param values the Values of the rows, offset and part fields, each <code>null</code> if there is no such field
+	 * @return the class file of a final subclass of Specialized with the given internal name
+	 */
+	private static byte[] generate(String name, List<WhereField> whereFields, Limits.Value[] values) {
+		Bytecode bytecode = new Bytecode(name, SPECIALIZED);
+		Bytecode.Code init = bytecode.method(0, "<init>", CONSTRUCTOR.toMethodDescriptorString(), 3, 5);
+		init.aload(0).aload(1).invokespecial(SPECIALIZED, "<init>", "(" + descriptor(QueryMapper.class) + ")V");
+		for (int i = 0; i < whereFields.size(); i++) {
+			bytecode.field(Bytecode.ACC_PRIVATE | Bytecode.ACC_FINAL, "a" + i, descriptor(Accessor.class));
+			init.aload(0).aload(2).push(i).op(Bytecode.AALOAD).putfield(name, "a" + i, descriptor(Accessor.class));
+			if (invokesTransform(whereFields.get(i))) {
+				bytecode.field(Bytecode.ACC_PRIVATE | Bytecode.ACC_FINAL, "f" + i, descriptor(WhereField.class));
+				init.aload(0).aload(3).push(i).op(Bytecode.AALOAD).putfield(name, "f" + i, descriptor(WhereField.class));
+			}
+		}
+		for (int i = 0; i < LIMIT_FIELDS.length; i++) {
+			if (values[i] != null) {
+				bytecode.field(Bytecode.ACC_PRIVATE | Bytecode.ACC_FINAL, LIMIT_FIELDS[i], descriptor(Limits.Value.class));
+				init.aload(0).aload(4).push(i).op(Bytecode.AALOAD).putfield(name, LIMIT_FIELDS[i], descriptor(Limits.Value.class));
+			}
+		}
+		init.op(Bytecode.RETURN).end();
+		generatePresence(bytecode, name, whereFields);
+		generateAppendWhere(bytecode, name, whereFields);
+		generatePutParameters(bytecode, name, whereFields);
+		generateRows(bytecode, name, values[0]);
+		generateOffset(bytecode, name, values[1] != null ? LIMIT_FIELDS[1] : values[2] != null ? LIMIT_FIELDS[2] : null);
+		return bytecode.toByteArray(Bytecode.ACC_FINAL | Bytecode.ACC_SUPER | Bytecode.ACC_SYNTHETIC);
+	}
+
+	/**
+	 * Locals: 0 this, 1 bean, 2 normalized, 4 mask, 6 exception
+	 */
+	private static void generatePresence(Bytecode bytecode, String name, List<WhereField> whereFields) {
+		Bytecode.Code code = bytecode.method(0, "presence", "(Ljava/lang/Object;J)J", 6, 7);
+		code.ldc(0L).lstore(4);
+		Bytecode.Label[] starts = new Bytecode.Label[whereFields.size()];
+		Bytecode.Label[] skips = new Bytecode.Label[whereFields.size()];
+		for (int i = 0; i < whereFields.size(); i++) {
+			starts[i] = new Bytecode.Label();
+			skips[i] = new Bytecode.Label();
+			code.mark(starts[i]);
+			read(code, name, i, -1, false, skips[i]);
+			code.lload(4).ldc(1L << i).op(Bytecode.LOR).lstore(4);
+			code.mark(skips[i]);
+		}
+		code.lload(4).lload(2).invokestatic(internalName(Normalizer.class), "redundant", "(J)J").ldc(-1L).op(Bytecode.LXOR).op(Bytecode.LAND).op(Bytecode.LRETURN);
+		handlers(code, "presence", starts, skips);
+		code.end();
+	}
+
+	/**
+	 * Locals: 0 this, 1 bean, 2 normalized, 4 appendable, 5 separator, 6 exception
+	 */
+	private static void generateAppendWhere(Bytecode bytecode, String name, List<WhereField> whereFields) {
+		Bytecode.Code code = bytecode.method(0, "appendWhere", "(Ljava/lang/Object;J" + descriptor(Appendable.class) + ")Z", 6, 7);
+		code.ldc(" WHERE ").astore(5);
+		Bytecode.Label[] starts = new Bytecode.Label[whereFields.size()];
+		Bytecode.Label[] skips = new Bytecode.Label[whereFields.size()];
+		String append = "(Ljava/lang/CharSequence;)" + descriptor(Appendable.class);
+		for (int i = 0; i < whereFields.size(); i++) {
+			starts[i] = new Bytecode.Label();
+			skips[i] = new Bytecode.Label();
+			code.mark(starts[i]);
+			read(code, name, i, -1, true, skips[i]);
+			code.aload(4).aload(5).invokeinterface(APPENDABLE, "append", append, 2)
+					.ldc(whereFields.get(i).getFragment()).invokeinterface(APPENDABLE, "append", append, 2).op(Bytecode.POP);
+			code.ldc(" AND ").astore(5);
+			code.mark(skips[i]);
+		}
+		Bytecode.Label end = new Bytecode.Label();
+		code.aload(5).ldc(" WHERE ").jump(Bytecode.IF_ACMPEQ, end);
+		code.aload(4).push(' ').invokeinterface(APPENDABLE, "append", "(C)" + descriptor(Appendable.class), 2).op(Bytecode.POP);
+		code.op(Bytecode.ICONST_1).op(Bytecode.IRETURN);
+		code.mark(end).op(Bytecode.ICONST_0).op(Bytecode.IRETURN);
+		handlers(code, "appendWhereClause", starts, skips);
+		code.end();
+	}
+
+	/**
+	 * Locals: 0 this, 1 bean, 2 normalized, 4 map, 5 value, 6 exception
+	 */
+	private static void generatePutParameters(Bytecode bytecode, String name, List<WhereField> whereFields) {
+		Bytecode.Code code = bytecode.method(0, "putParameters", "(Ljava/lang/Object;J" + descriptor(Map.class) + ")V", 6, 7);
+		Bytecode.Label[] starts = new Bytecode.Label[whereFields.size()];
+		Bytecode.Label[] skips = new Bytecode.Label[whereFields.size()];
+		for (int i = 0; i < whereFields.size(); i++) {
+			WhereField whereField = whereFields.get(i);
+			starts[i] = new Bytecode.Label();
+			skips[i] = new Bytecode.Label();
+			code.mark(starts[i]);
+			read(code, name, i, 5, true, skips[i]);
+			code.aload(4).ldc(whereField.getColumn());
+			transform(code, name, i, whereField);
+			code.invokeinterface(MAP, "put", "(Ljava/lang/Object;Ljava/lang/Object;)Ljava/lang/Object;", 3).op(Bytecode.POP);
+			code.mark(skips[i]);
+		}
+		code.op(Bytecode.RETURN);
+		handlers(code, "toParameterMap", starts, skips);
+		code.end();
+	}
+
+	/**
+	 * @return <code>true</code> if the generated code invokes {@link WhereField#transform(Object)} for the given field, 
+	 * <code>false</code> if its transformation is resolved in advance: 
+	 * all fields that do not compare with a <code>LIKE</code> pattern use the value as is, its name, or its String value
+	 */
+	private static boolean invokesTransform(WhereField whereField) {
+		if (Binder.isPattern(whereField.getComparison())) {
+			return true;
+		}
+		switch (whereField.getFieldType()) {
+			case COLLECTION:
+			case NUMBER:
+			case ENUM:
+			case OTHER:
+				return false;
+			default:
+				return true;
+		}
+	}
+
+	/**
+	 * Writes the code transforming the value of the <code>i</code>th field in local 5, as {@link WhereField#transform(Object)} does, 
+	 * leaving the result on the stack
+	 */
+	private static void transform(Bytecode.Code code, String name, int i, WhereField whereField) {
+		if (invokesTransform(whereField)) {
+			code.aload(0).getfield(name, "f" + i, descriptor(WhereField.class)).aload(5)
+					.invokevirtual(WHERE_FIELD, "transform", "(Ljava/lang/Object;)Ljava/lang/Object;");
+			return;
+		}
+		code.aload(5);
+		if (whereField.getFieldType() == FieldType.ENUM) {
+			code.checkcast("java/lang/Enum").invokevirtual("java/lang/Enum", "name", "()Ljava/lang/String;");
+		} else if (whereField.getFieldType() == FieldType.OTHER) {
+			code.invokestatic("java/lang/String", "valueOf", "(Ljava/lang/Object;)Ljava/lang/String;");
+		}
+	}
+
+	/**
+	 * Locals: 0 this, 1 bean
+	 * @param rows the Value of the rows field, or <code>null</code> if there is none
+	 */
+	private static void generateRows(Bytecode bytecode, String name, Limits.Value rows) {
+		Bytecode.Code code = bytecode.method(0, "rows", "(Ljava/lang/Object;)J", 4, 2);
+		if (rows == null) {
+			code.ldc(-1L).op(Bytecode.LRETURN).end();
+			return;
+		}
+		Bytecode.Label present = new Bytecode.Label();
+		code.aload(0).getfield(name, LIMIT_FIELDS[0], descriptor(Limits.Value.class)).aload(1).invokevirtual(VALUE, "isPresent", "(Ljava/lang/Object;)Z");
+		code.jump(Bytecode.IFNE, present).ldc(-1L).op(Bytecode.LRETURN);
+		code.mark(present);
+		code.aload(0).getfield(name, LIMIT_FIELDS[0], descriptor(Limits.Value.class)).aload(1).invokevirtual(VALUE, "getLong", "(Ljava/lang/Object;)J");
+		code.invokestatic(LIMITS, "validRows", "(J)J").op(Bytecode.LRETURN).end();
+	}
+
+	/**
+	 * Locals: 0 this, 1 bean, 2 numrows
+	 * @param field the name of the field holding the Value of the offset or part field, or <code>null</code> if there is none
+	 */
+	private static void generateOffset(Bytecode bytecode, String name, String field) {
+		Bytecode.Code code = bytecode.method(0, "offset", "(Ljava/lang/Object;J)J", 4, 4);
+		if (field == null) {
+			code.ldc(-1L).op(Bytecode.LRETURN).end();
+			return;
+		}
+		Bytecode.Label present = new Bytecode.Label();
+		code.aload(0).getfield(name, field, descriptor(Limits.Value.class)).aload(1).invokevirtual(VALUE, "isPresent", "(Ljava/lang/Object;)Z");
+		code.jump(Bytecode.IFNE, present).ldc(-1L).op(Bytecode.LRETURN);
+		code.mark(present);
+		code.aload(0).getfield(name, field, descriptor(Limits.Value.class)).aload(1).invokevirtual(VALUE, "getLong", "(Ljava/lang/Object;)J");
+		if (field.equals(LIMIT_FIELDS[1])) {
+			code.invokestatic(LIMITS, "validOffset", "(J)J");
+		} else {
+			code.invokestatic(LIMITS, "validPart", "(J)J").lload(2).op(Bytecode.LMUL);
+		}
+		code.op(Bytecode.LRETURN).end();
+	}
+
+	/**
+	 * Writes the code reading the value of the <code>i</code>th field from local 1, jumping to skip if it is <code>null</code>
+	 * @param local the local to store the value in, or <code>-1</code> to discard it
+	 * @param normalizes <code>true</code> to also jump to skip if the normalization in local 2 flags the field as redundant
+	 */
+	private static void read(Bytecode.Code code, String name, int i, int local, boolean normalizes, Bytecode.Label skip) {
+		code.aload(0).getfield(name, "a" + i, descriptor(Accessor.class)).aload(1).invokevirtual(ACCESSOR, "get", "(Ljava/lang/Object;)Ljava/lang/Object;");
+		if (local >= 0) {
+			code.astore(local).aload(local);
+		}
+		code.jump(Bytecode.IFNULL, skip);
+		if (normalizes && i < 63) {
+			code.lload(2).ldc(1L << i).op(Bytecode.LAND).ldc(0L).op(Bytecode.LCMP).jump(Bytecode.IFNE, skip);
+		}
+	}
+
+	/**
+	 * Writes a handler for each field, reporting an IllegalArgumentException or IllegalAccessException thrown between its start and skip labels,
+	 * and continuing at its skip label, as QueryMapper does
+	 * @param method the name of the QueryMapper method reported
+	 */
+	private static void handlers(Bytecode.Code code, String method, Bytecode.Label[] starts, Bytecode.Label[] skips) {
+		for (int i = 0; i < starts.length; i++) {
+			Bytecode.Label handler = new Bytecode.Label();
+			code.handler(starts[i], skips[i], handler, "java/lang/IllegalArgumentException");
+			code.handler(starts[i], skips[i], handler, "java/lang/IllegalAccessException");
+			code.mark(handler).astore(6).aload(0).ldc(method).aload(1).aload(6)
+					.invokevirtual(SPECIALIZED, "failed", "(Ljava/lang/String;Ljava/lang/Object;Ljava/lang/Exception;)V")
+					.jump(Bytecode.GOTO, skips[i]);
+		}
+	}
+
+	private static String internalName(Class<?> clazz) {
+		return clazz.getName().replace('.', '/');
+	}
+
+	private static String descriptor(Class<?> clazz) {
+		return "L" + internalName(clazz) + ";";
+	}
+
+}
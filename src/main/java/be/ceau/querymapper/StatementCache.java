@@ -0,0 +1,218 @@
+/*
+	Copyright 2015 Marceau Dewilde <m@ceau.be>
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.querymapper;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Size-bounded cache of PreparedStatements for a single Connection, keyed by the shape of the SQL rendered by a QueryMapper.<br/>
+ * {@link #prepare(QueryMapper, String, Object)} renders the positional where clause, the order clause and a limit clause with placeholders, 
+ * so that all instances with the same where clause shape and limit form share one PreparedStatement. 
+ * Statements are looked up by the QueryMapper instance, the select statement and that shape, without rendering the SQL, and only prepared on a miss. 
+ * Statements are not shared between QueryMapper instances, so create QueryMapper variants once rather than on every call.<br/>
+ * When the cache is full, the least recently used statement is evicted and closed. 
+ * Statements returned by this cache are owned by it: close their ResultSets, but not the statements themselves. 
+ * Closing the cache closes all cached statements, but not the Connection.<br/>
+ * Like the Connection it belongs to, a StatementCache must not be used by several threads at once.
+ * @author Marceau Dewilde
+ */
+public final class StatementCache implements AutoCloseable {
+
+	private static final Logger logger = LoggerFactory.getLogger(StatementCache.class);
+
+	private final Connection connection;
+	private final int maximumSize;
+	private final LinkedHashMap<Key, PreparedStatement> statements;
+	private long hits;
+	private long misses;
+	private long evictions;
+
+	/**
+	 * @param connection the Connection to prepare statements on, not closed by this cache
+	 * @param maximumSize the maximum number of cached statements, at least <code>1</code>
+	 * @throws IllegalArgumentException if connection is <code>null</code> or maximumSize is smaller than <code>1</code>
+	 */
+	public StatementCache(Connection connection, int maximumSize) {
+		if (connection == null) {
+			throw new IllegalArgumentException("connection argument may not be null");
+		}
+		if (maximumSize < 1) {
+			throw new IllegalArgumentException("maximumSize argument must be at least 1");
+		}
+		this.connection = connection;
+		this.maximumSize = maximumSize;
+		this.statements = new LinkedHashMap<Key, PreparedStatement>(16, 0.75f, true);
+	}
+
+	/**
+	 * Returns a PreparedStatement for the given select statement, followed by the positional where clause, 
+	 * the order clause and the positional limit clause of the given instance, with all parameters of the instance bound.<br/>
+	 * Temporary tables for large collections are filled before the statement is returned.
+	 * @param mapper the QueryMapper for the class of the instance
+	 * @param select the SQL before the where clause, for example <code>SELECT * FROM person</code>
+	 * @param bean the instance to bind, not <code>null</code>
+	 * @return a cached PreparedStatement, ready to execute, which must not be closed by the caller
+	 * @throws SQLException if preparing or binding the statement fails
+	 */
+	public <T> PreparedStatement prepare(QueryMapper<T> mapper, String select, T bean) throws SQLException {
+		if (mapper == null || select == null || bean == null) {
+			throw new IllegalArgumentException("arguments may not be null");
+		}
+		long normalized = mapper.normalize(bean);
+		mapper.loadInTables(bean, connection, normalized);
+		Key key = new Key(mapper, select, mapper.toPositionalShapeKey(bean, normalized));
+		PreparedStatement ps = statements.get(key);
+		if (ps != null && !ps.isClosed()) {
+			hits++;
+			ps.clearParameters();
+		} else {
+			misses++;
+			StringBuilder sb = new StringBuilder(select.length() + 128).append(select);
+			mapper.appendPositionalWhereClause(bean, sb, normalized);
+			mapper.appendOrderClause(sb);
+			mapper.appendPositionalLimitClause(bean, sb);
+			ps = connection.prepareStatement(sb.toString());
+			statements.put(key, ps);
+			evict();
+		}
+		int index = mapper.bindWhereParameters(bean, ps, 1, normalized);
+		mapper.bindLimitParameters(bean, ps, index);
+		return ps;
+	}
+
+	/**
+	 * Closes least recently used statements until the cache is within its maximum size
+	 */
+	private void evict() {
+		Iterator<PreparedStatement> iterator = statements.values().iterator();
+		while (statements.size() > maximumSize) {
+			PreparedStatement eldest = iterator.next();
+			iterator.remove();
+			evictions++;
+			close(eldest);
+		}
+	}
+
+	private static void close(PreparedStatement ps) {
+		try {
+			ps.close();
+		} catch (SQLException e) {
+			logger.warn("close(): could not close evicted statement", e);
+		}
+	}
+
+	/**
+	 * @return the number of statements currently cached
+	 */
+	public int size() {
+		return statements.size();
+	}
+
+	/**
+	 * @return the number of calls to {@link #prepare(QueryMapper, String, Object)} that reused a cached statement
+	 */
+	public long getHitCount() {
+		return hits;
+	}
+
+	/**
+	 * @return the number of calls to {@link #prepare(QueryMapper, String, Object)} that prepared a new statement
+	 */
+	public long getMissCount() {
+		return misses;
+	}
+
+	/**
+	 * @return the number of statements closed to keep the cache within its maximum size
+	 */
+	public long getEvictionCount() {
+		return evictions;
+	}
+
+	/**
+	 * Closes and removes all cached statements. The Connection is not closed, and the cache may be used again.
+	 * @throws SQLException the first exception thrown while closing a statement, after all statements are closed
+	 */
+	@Override
+	public void close() throws SQLException {
+		SQLException failure = null;
+		for (PreparedStatement ps : statements.values()) {
+			try {
+				ps.close();
+			} catch (SQLException e) {
+				if (failure == null) {
+					failure = e;
+				} else {
+					failure.addSuppressed(e);
+				}
+			}
+		}
+		statements.clear();
+		if (failure != null) {
+			throw failure;
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "StatementCache [size=" + statements.size() + ", hits=" + hits + ", misses=" + misses + ", evictions=" + evictions + "]";
+	}
+
+	/**
+	 * Identifies a statement by its QueryMapper, the SQL preceding the where clause and the exact shape of the rest
+	 */
+	private static final class Key {
+
+		private final QueryMapper<?> mapper;
+		private final String select;
+		private final long[] shape;
+		private final int hash;
+
+		private Key(QueryMapper<?> mapper, String select, long[] shape) {
+			this.mapper = mapper;
+			this.select = select;
+			this.shape = shape;
+			this.hash = 31 * (31 * System.identityHashCode(mapper) + select.hashCode()) + Arrays.hashCode(shape);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (this == obj) {
+				return true;
+			}
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return mapper == other.mapper && Arrays.equals(shape, other.shape) && select.equals(other.select);
+		}
+
+	}
+
+}
@@ -0,0 +1,287 @@
+/*
+	Copyright 2015 Marceau Dewilde <m@ceau.be>
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.querymapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.lang.reflect.Field;
+import java.net.JarURLConnection;
+import java.net.URL;
+import java.net.URLConnection;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import be.ceau.querymapper.annotations.Limit;
+import be.ceau.querymapper.annotations.Order;
+import be.ceau.querymapper.annotations.Where;
+
+/**
+ * Result of building and caching the QueryMapper of many classes in parallel, typically at startup.<br/>
+ * Unlike {@link QueryMapper#warm(Class...)}, which stops at the first invalid class, 
+ * a WarmUp builds every class on a ForkJoinPool and collects the exception thrown for each invalid class, 
+ * such as an {@link IllegalAnnotationException}, or an IllegalArgumentException for a nested path that can not be read, 
+ * so that all invalid classes are reported together by {@link #check()}.<br/>
+ * Classes are either supplied, or found by scanning packages for classes declaring <code>@Where</code>, <code>@Order</code> or <code>@Limit</code> annotated fields.
+ * @author Marceau Dewilde
+ */
+public final class WarmUp {
+
+	private static final Logger logger = LoggerFactory.getLogger(WarmUp.class);
+
+	private final List<Class<?>> classes;
+	private final Map<Class<?>, RuntimeException> failures;
+	private final long nanos;
+
+	private WarmUp(List<Class<?>> classes, Map<Class<?>, RuntimeException> failures, long nanos) {
+		this.classes = Collections.unmodifiableList(classes);
+		this.failures = Collections.unmodifiableMap(failures);
+		this.nanos = nanos;
+	}
+
+	/**
+	 * Builds and caches the QueryMapper for each of the given classes on the common ForkJoinPool.
+	 * @throws IllegalArgumentException if classes is <code>null</code> or contains <code>null</code>
+	 */
+	public static WarmUp classes(Collection<? extends Class<?>> classes) {
+		return classes(ForkJoinPool.commonPool(), classes);
+	}
+
+	/**
+	 * Builds and caches the QueryMapper for each of the given classes on the given ForkJoinPool.
+	 * @throws IllegalArgumentException if any argument is <code>null</code>, or if classes contains <code>null</code>
+	 */
+	public static WarmUp classes(ForkJoinPool pool, Collection<? extends Class<?>> classes) {
+		if (pool == null || classes == null) {
+			throw new IllegalArgumentException("arguments may not be null");
+		}
+		List<Class<?>> list = new ArrayList<Class<?>>(new LinkedHashSet<Class<?>>(classes));
+		if (list.contains(null)) {
+			throw new IllegalArgumentException("classes argument may not contain null");
+		}
+		long start = System.nanoTime();
+		final Map<Class<?>, RuntimeException> failures = new ConcurrentHashMap<Class<?>, RuntimeException>();
+		List<ForkJoinTask<?>> tasks = new ArrayList<ForkJoinTask<?>>(list.size());
+		for (final Class<?> clazz : list) {
+			tasks.add(pool.submit(() -> {
+				try {
+					QueryMapperCache.get(clazz);
+				} catch (RuntimeException e) {
+					failures.put(clazz, e);
+				}
+			}));
+		}
+		for (ForkJoinTask<?> task : tasks) {
+			task.join();
+		}
+		// report failures in the order of the classes
+		Map<Class<?>, RuntimeException> ordered = new LinkedHashMap<Class<?>, RuntimeException>();
+		for (Class<?> clazz : list) {
+			if (failures.containsKey(clazz)) {
+				ordered.put(clazz, failures.get(clazz));
+			}
+		}
+		WarmUp warmUp = new WarmUp(list, ordered, System.nanoTime() - start);
+		logger.info("classes(): built {} QueryMappers in {} ms, {} invalid", list.size(), warmUp.getMillis(), ordered.size());
+		return warmUp;
+	}
+
+	/**
+	 * Scans the given packages and their subpackages, in directories and jar files on the classpath of the context class loader, 
+	 * and builds and caches the QueryMapper for each class declaring <code>@Where</code>, <code>@Order</code> or <code>@Limit</code> annotated fields, 
+	 * on the common ForkJoinPool.
+	 * @param packageNames names of packages, such as <code>com.example.filter</code>
+	 * @throws IllegalArgumentException if packageNames is <code>null</code> or contains <code>null</code>
+	 * @throws IllegalStateException if the classpath can not be read
+	 */
+	public static WarmUp packages(String... packageNames) {
+		ClassLoader loader = Thread.currentThread().getContextClassLoader();
+		return classes(ForkJoinPool.commonPool(), scan(loader == null ? WarmUp.class.getClassLoader() : loader, packageNames));
+	}
+
+	/**
+	 * @return the annotated classes in the given packages and their subpackages, in classpath order
+	 * @throws IllegalStateException if the classpath can not be read
+	 */
+	static List<Class<?>> scan(ClassLoader loader, String... packageNames) {
+		if (packageNames == null || Arrays.asList(packageNames).contains(null)) {
+			throw new IllegalArgumentException("packageNames argument may not be or contain null");
+		}
+		Set<String> classNames = new LinkedHashSet<String>();
+		for (String packageName : packageNames) {
+			String path = packageName.replace('.', '/');
+			try {
+				Enumeration<URL> resources = loader.getResources(path);
+				while (resources.hasMoreElements()) {
+					URL url = resources.nextElement();
+					if ("file".equals(url.getProtocol())) {
+						scanDirectory(new File(decode(url.getPath())), packageName, classNames);
+					} else if ("jar".equals(url.getProtocol())) {
+						scanJar(url, path, classNames);
+					} else {
+						logger.debug("scan({}): skipping {}", packageName, url);
+					}
+				}
+			} catch (IOException e) {
+				throw new IllegalStateException("Could not scan package " + packageName, e);
+			}
+		}
+		List<Class<?>> classes = new ArrayList<Class<?>>();
+		for (String className : classNames) {
+			try {
+				Class<?> clazz = Class.forName(className, false, loader);
+				if (isAnnotated(clazz)) {
+					classes.add(clazz);
+				}
+			} catch (ClassNotFoundException e) {
+				logger.debug("scan(): could not load {}", className, e);
+			} catch (LinkageError e) {
+				logger.debug("scan(): could not load {}", className, e);
+			}
+		}
+		return classes;
+	}
+
+	private static void scanDirectory(File directory, String packageName, Set<String> classNames) {
+		File[] files = directory.listFiles();
+		if (files == null) {
+			return;
+		}
+		Arrays.sort(files);
+		for (File file : files) {
+			String name = file.getName();
+			if (file.isDirectory()) {
+				scanDirectory(file, packageName + "." + name, classNames);
+			} else if (name.endsWith(".class")) {
+				classNames.add(packageName + "." + name.substring(0, name.length() - ".class".length()));
+			}
+		}
+	}
+
+	private static void scanJar(URL url, String path, Set<String> classNames) throws IOException {
+		URLConnection connection = url.openConnection();
+		if (!(connection instanceof JarURLConnection)) {
+			return;
+		}
+		connection.setUseCaches(false);
+		JarFile jar = ((JarURLConnection) connection).getJarFile();
+		try {
+			Enumeration<JarEntry> entries = jar.entries();
+			while (entries.hasMoreElements()) {
+				String name = entries.nextElement().getName();
+				if (name.startsWith(path + "/") && name.endsWith(".class")) {
+					classNames.add(name.substring(0, name.length() - ".class".length()).replace('/', '.'));
+				}
+			}
+		} finally {
+			jar.close();
+		}
+	}
+
+	private static String decode(String path) {
+		try {
+			return URLDecoder.decode(path, "UTF-8");
+		} catch (UnsupportedEncodingException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if the given class declares a field annotated with <code>@Where</code>, <code>@Order</code> or <code>@Limit</code>
+	 */
+	private static boolean isAnnotated(Class<?> clazz) {
+		if (clazz.isAnnotation() || clazz.isInterface() || clazz.getName().endsWith(QueryMapping.SUFFIX)) {
+			return false;
+		}
+		for (Field field : clazz.getDeclaredFields()) {
+			if (field.isAnnotationPresent(Where.class) || field.isAnnotationPresent(Order.class) || field.isAnnotationPresent(Limit.class)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * @return the classes for which a QueryMapper was built, in the order they were supplied or found, including invalid classes
+	 */
+	public List<Class<?>> getClasses() {
+		return classes;
+	}
+
+	/**
+	 * @return the exception thrown for each invalid class, in the order of {@link #getClasses()}, empty if all classes are valid
+	 */
+	public Map<Class<?>, RuntimeException> getFailures() {
+		return failures;
+	}
+
+	/**
+	 * @return the wall clock duration of the warm-up, in nanoseconds
+	 */
+	public long getNanos() {
+		return nanos;
+	}
+
+	/**
+	 * @return the wall clock duration of the warm-up, in milliseconds
+	 */
+	public long getMillis() {
+		return TimeUnit.NANOSECONDS.toMillis(nanos);
+	}
+
+	/**
+	 * @return this WarmUp, if all classes are valid
+	 * @throws IllegalAnnotationException listing every invalid class, with the exception of each invalid class added as a suppressed exception
+	 */
+	public WarmUp check() {
+		if (failures.isEmpty()) {
+			return this;
+		}
+		StringBuilder sb = new StringBuilder().append(failures.size()).append(" of ").append(classes.size()).append(" classes have invalid annotations:");
+		for (Map.Entry<Class<?>, RuntimeException> failure : failures.entrySet()) {
+			sb.append("\n").append(failure.getKey().getName()).append(": ").append(failure.getValue().getMessage());
+		}
+		IllegalAnnotationException exception = new IllegalAnnotationException(sb.toString());
+		for (RuntimeException failure : failures.values()) {
+			exception.addSuppressed(failure);
+		}
+		throw exception;
+	}
+
+	@Override
+	public String toString() {
+		return "WarmUp [classes=" + classes.size() + ", failures=" + failures.size() + ", millis=" + getMillis() + "]";
+	}
+
+}
@@ -15,74 +15,135 @@
 */
 package be.ceau.querymapper;
 
-import static be.ceau.querymapper.QueryMapper.ESCAPE;
-
 import java.lang.reflect.Field;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
 
 import be.ceau.querymapper.annotations.Where;
+import be.ceau.querymapper.dialect.Dialect;
+import be.ceau.querymapper.dialect.Dialects;
 import be.ceau.querymapper.enums.Comparison;
 import be.ceau.querymapper.enums.FieldType;
+import be.ceau.querymapper.enums.InStrategy;
 
 public class WhereField {
 	
-	private final Field field;
+	private final Accessor accessor;
 	private final FieldType fieldType;
 	private final String column;
 	private final String table;
 	private final Comparison comparison;
-	private final List<WhereField> nestedQueryFields;
+	private final Dialect dialect;
+	private final String fragment;
+	private final boolean expanded;
+	private final boolean bucketed;
+	private final LargeIn largeIn;
+	private final String positionalFragment;
+	private final Binder binder;
 	
-	static WhereField extract(Field field) {
+	/**
+	 * Extracts the WhereFields for a field annotated with <code>@Where</code>.<br/>
+	 * If the type of the field declares <code>@Where</code> fields itself, those are extracted recursively instead, 
+	 * each reading its value through a single null-safe path from the root instance. 
+	 * A <code>null</code> value anywhere along the path reads as <code>null</code>, so the nested field is left out.
+	 * @return the WhereFields for the field, empty if the field is not annotated with <code>@Where</code>
+	 * @throws IllegalAnnotationException if nested <code>@Where</code> fields form a cycle
+	 */
+	static List<WhereField> extract(Field field) {
+		List<WhereField> whereFields = new ArrayList<WhereField>();
+		Deque<Class<?>> path = new ArrayDeque<Class<?>>();
+		path.push(field.getDeclaringClass());
+		extract(field.getDeclaringClass(), field, null, path, whereFields);
+		return whereFields;
+	}
+
+	/**
+	 * @param root the root class
+	 * @param parent the property path to the instance declaring the field, or <code>null</code> for the root class
+	 * @param path the classes declaring the fields from the root class up to and including the declaring class of the field
+	 */
+	private static void extract(Class<?> root, Field field, String parent, Deque<Class<?>> path, List<WhereField> whereFields) {
 		Where where = field.getAnnotation(Where.class);
-		if (where != null) {
-			field.setAccessible(true);
+		if (where == null) {
+			return;
+		}
+		String property = PropertyPath.append(parent, field.getName());
+		List<Field> nested = nestedFields(field.getType());
+		if (nested.isEmpty()) {
 			String column;
 			if (where.column() != null && !where.column().isEmpty()) {
 				column = where.column();
 			} else {
 				column = field.getName();
 			}
-			List<WhereField> nestedQueryFields = new ArrayList<WhereField>();
-			// TODO
-			// do not scan java.* classes for our annotation
-			//			if (!field.getType().getCanonicalName().startsWith("java.")) {
-			//				for (Field nestedfield : field.getType().getDeclaredFields()) {
-			//					WhereField nestedQueryField = extractQueryField(nestedfield);
-			//					if (nestedQueryField != null) {
-			//						nestedQueryFields.add(nestedQueryField);
-			//					}
-			//				}
-			//			}
-			return new WhereField(field, column, where.table(), where.comparison(), nestedQueryFields);
-		}
-		return null;
+			whereFields.add(new WhereField(PropertyPath.of(root, property), column, where.table(), where.comparison(), where.bucketed()));
+			return;
+		}
+		if (path.contains(field.getType())) {
+			throw new IllegalAnnotationException("The nested @Where fields of " + field + " form a cycle through " + field.getType().getName());
+		}
+		path.push(field.getType());
+		for (Field nestedField : nested) {
+			extract(root, nestedField, property, path, whereFields);
+		}
+		path.pop();
+	}
+
+	/**
+	 * @return the <code>@Where</code> annotated fields declared by the given type, empty if the type is read as a single value
+	 */
+	private static List<Field> nestedFields(Class<?> type) {
+		if (type.isPrimitive() || type.isArray() || type.isEnum()) {
+			return Collections.emptyList();
+		}
+		List<Field> fields = new ArrayList<Field>();
+		for (Field field : type.getDeclaredFields()) {
+			if (field.getAnnotation(Where.class) != null) {
+				fields.add(field);
+			}
+		}
+		return fields;
 	}
 	
-	private WhereField(Field field, String column, String table, Comparison comparison, Collection<WhereField> nestedQueryFields) {
-		if (field == null) {
-			throw new IllegalArgumentException("Field argument may not be null");
+	WhereField(Accessor accessor, String column, String table, Comparison comparison, boolean bucketed) {
+		this(accessor, column, table, comparison, bucketed, Dialects.MYSQL, null, 0);
+	}
+
+	private WhereField(Accessor accessor, String column, String table, Comparison comparison, boolean bucketed, 
+			Dialect dialect, InStrategy inStrategy, int threshold) {
+		if (accessor == null) {
+			throw new IllegalArgumentException("Accessor argument may not be null");
 		}
 		if (comparison == null) {
 			throw new IllegalArgumentException("Comparison argument may not be null");
 		}
-		this.field = field;
-		this.fieldType = FieldType.lookup(field.getType());
+		this.accessor = accessor;
+		this.fieldType = FieldType.lookup(accessor.getType());
 		this.column = column;
 		this.table = table;
 		this.comparison = comparison;
-		if (nestedQueryFields != null) {
-			this.nestedQueryFields = Collections.unmodifiableList(new ArrayList<WhereField>(nestedQueryFields));
+		this.dialect = dialect;
+		this.fragment = render();
+		this.expanded = Binder.isExpanded(comparison, fieldType);
+		this.bucketed = bucketed && expanded;
+		this.positionalFragment = renderPositional();
+		if (inStrategy != null && expanded && comparison == Comparison.IN) {
+			this.largeIn = new LargeIn(inStrategy, threshold, renderIdentifier().toString(), table, column, dialect);
 		} else {
-			this.nestedQueryFields = Collections.emptyList();
+			this.largeIn = null;
 		}
+		this.binder = Binder.of(comparison, fieldType, accessor.getType(), this.bucketed, dialect);
 	}
 
-	Field getField() {
-		return field;
+	Accessor getAccessor() {
+		return accessor;
 	}
 
 	FieldType getFieldType() {
@@ -101,32 +162,219 @@ public class WhereField {
 		return comparison;
 	}
 
-	List<WhereField> getNestedQueryFields() {
-		return nestedQueryFields;
+	Dialect getDialect() {
+		return dialect;
 	}
 
-	StringBuilder toStringBuilder() {
-		StringBuilder sb = new StringBuilder();
-		if (table != null && !table.isEmpty()) {
-			sb.append(ESCAPE);
-			sb.append(table);
-			sb.append(ESCAPE);
-			sb.append(".");
+	/**
+	 * @return the SQL fragment for this field, with all identifiers quoted, as rendered once at construction
+	 */
+	String getFragment() {
+		return fragment;
+	}
+
+	/**
+	 * @return <code>true</code> if each element of the value of this field is bound to its own <code>?</code> placeholder
+	 */
+	boolean isExpanded() {
+		return expanded;
+	}
+
+	/**
+	 * @return <code>true</code> if collection values are padded to {@link Binder#bucket(int) bucket sizes} in positional SQL
+	 */
+	boolean isBucketed() {
+		return bucketed;
+	}
+
+	/**
+	 * @return a WhereField identical to this one, but with {@link #isBucketed() bucketing} enabled if this WhereField is expanded
+	 */
+	WhereField bucket() {
+		if (bucketed || !expanded) {
+			return this;
+		}
+		return new WhereField(accessor, column, table, comparison, true, dialect, 
+				largeIn == null ? null : largeIn.getStrategy(), largeIn == null ? 0 : largeIn.getThreshold());
+	}
+
+	/**
+	 * @return a WhereField identical to this one, but rendering collections with more than threshold elements with the given InStrategy, 
+	 * if this WhereField compares an expanded collection with <code>IN</code>
+	 */
+	WhereField withInStrategy(InStrategy inStrategy, int threshold) {
+		if (!expanded || comparison != Comparison.IN) {
+			return this;
+		}
+		return new WhereField(accessor, column, table, comparison, bucketed, dialect, inStrategy, threshold);
+	}
+
+	/**
+	 * @return a WhereField identical to this one, but rendered and transformed with the given Dialect
+	 */
+	WhereField withDialect(Dialect dialect) {
+		if (this.dialect == dialect) {
+			return this;
 		}
-		sb.append(ESCAPE);
-		sb.append(column);
-		sb.append(ESCAPE);
+		return new WhereField(accessor, column, table, comparison, bucketed, dialect, 
+				largeIn == null ? null : largeIn.getStrategy(), largeIn == null ? 0 : largeIn.getThreshold());
+	}
+
+	/**
+	 * Transforms a non-null value of this field for use as a parameter, 
+	 * like {@link Comparison#transform(Object, FieldType)}, but escaping <code>LIKE</code> wildcards in the value as the Dialect requires
+	 */
+	Object transform(Object value) {
+		return transform(comparison, fieldType, dialect, value);
+	}
+
+	/**
+	 * @see #transform(Object)
+	 */
+	static Object transform(Comparison comparison, FieldType fieldType, Dialect dialect, Object value) {
+		if (Binder.isPattern(comparison)) {
+			String string = fieldType == FieldType.ENUM ? ((Enum<?>) value).name() : String.valueOf(value);
+			return comparison.transform(dialect.escapeLike(string), FieldType.OTHER);
+		}
+		return comparison.transform(value, fieldType);
+	}
+
+	/**
+	 * @return <code>true</code> if positional SQL for this field uses a temporary table for large collections
+	 */
+	boolean usesTempTable() {
+		return largeIn != null && largeIn.getStrategy() == InStrategy.TEMP_TABLE;
+	}
+
+	/**
+	 * @return the LargeIn applying to the given non-null value, or <code>null</code> if it is rendered as is
+	 */
+	private LargeIn largeIn(Object value) {
+		return largeIn != null && largeIn.applies(((Collection<?>) value).size()) ? largeIn : null;
+	}
+
+	/**
+	 * @return the SQL fragment for this field with a <code>?</code> placeholder, 
+	 * or up to and including the opening parenthesis if {@link #isExpanded()}
+	 */
+	String getPositionalFragment() {
+		return positionalFragment;
+	}
+
+	/**
+	 * Appends the positional SQL fragment for the given non-null value of this field
+	 */
+	void appendPositionalFragment(Object value, StringBuilder sb) {
+		LargeIn large = expanded ? largeIn(value) : null;
+		if (large != null) {
+			large.appendFragment(placeholders(value), (Collection<?>) value, sb);
+			return;
+		}
+		sb.append(positionalFragment);
+		if (expanded) {
+			int size = placeholders(value);
+			if (size == 0) {
+				// matches no rows, like an empty IN list would
+				sb.append("NULL");
+			}
+			for (int i = 0; i < size; i++) {
+				sb.append(i == 0 ? "?" : ", ?");
+			}
+			sb.append(")");
+		}
+	}
+
+	/**
+	 * @param value a non-null value of this field
+	 * @return the number of <code>?</code> placeholders for the value, after bucketing
+	 */
+	int placeholders(Object value) {
+		if (!expanded) {
+			return 1;
+		}
+		int size = ((Collection<?>) value).size();
+		LargeIn large = largeIn(value);
+		if (large != null && large.getStrategy() == InStrategy.ARRAY) {
+			return 1;
+		} else if (large != null && large.getStrategy() == InStrategy.TEMP_TABLE) {
+			return 0;
+		}
+		return bucketed ? Binder.bucket(size) : size;
+	}
+
+	/**
+	 * @param value a non-null value of this field
+	 * @return a number identifying the shape of the positional SQL fragment for the value, 
+	 * including the element type of a collection if the fragment depends on it
+	 */
+	int shape(Object value) {
+		LargeIn large = expanded ? largeIn(value) : null;
+		if (large == null) {
+			return 8 * placeholders(value);
+		}
+		return 8 * (LargeIn.SHAPES * placeholders(value) + large.shape((Collection<?>) value)) + 1 + large.getStrategy().ordinal();
+	}
+
+	/**
+	 * Binds the given non-null value of this field, as rendered by {@link #appendPositionalFragment(Object, StringBuilder)}
+	 * @return the parameter index of the first placeholder after the bound value
+	 */
+	int bind(PreparedStatement ps, int index, Object value) throws SQLException {
+		LargeIn large = expanded ? largeIn(value) : null;
+		if (large != null && large.getStrategy() == InStrategy.ARRAY) {
+			return LargeIn.bindArray(ps, index, (Collection<?>) value);
+		} else if (large != null && large.getStrategy() == InStrategy.TEMP_TABLE) {
+			return index;
+		}
+		return binder.bind(ps, index, value);
+	}
+
+	/**
+	 * Fills the temporary table for the given non-null value of this field, if it is rendered with {@link InStrategy#TEMP_TABLE}
+	 */
+	void load(Connection connection, Object value) throws SQLException {
+		LargeIn large = expanded ? largeIn(value) : null;
+		if (large != null && large.getStrategy() == InStrategy.TEMP_TABLE) {
+			large.load(connection, (Collection<?>) value);
+		}
+	}
+
+	private String render() {
+		return renderColumn().append(":").append(column).append(fieldType == FieldType.COLLECTION ? ")" : "").toString();
+	}
+
+	private String renderPositional() {
+		StringBuilder sb = renderColumn();
+		if (comparison == Comparison.IN && fieldType != FieldType.COLLECTION) {
+			return sb.append("(?)").toString();
+		}
+		return expanded ? sb.toString() : sb.append("?").append(fieldType == FieldType.COLLECTION ? ")" : "").toString();
+	}
+
+	/**
+	 * @return a new StringBuilder holding the quoted column, the comparison operator, and the opening parenthesis for collections
+	 */
+	private StringBuilder renderColumn() {
+		StringBuilder sb = renderIdentifier();
 		sb.append(" ");
 		sb.append(comparison.toString());
 		sb.append(" ");
 		if (fieldType == FieldType.COLLECTION) {
 			sb.append("(");
 		}
-		sb.append(":");
-		sb.append(column);
-		if (fieldType == FieldType.COLLECTION) {
-			sb.append(")");
+		return sb;
+	}
+
+	/**
+	 * @return a new StringBuilder holding the quoted column, preceded by the quoted table if any
+	 */
+	private StringBuilder renderIdentifier() {
+		StringBuilder sb = new StringBuilder();
+		if (table != null && !table.isEmpty()) {
+			sb.append(dialect.quote(table));
+			sb.append(".");
 		}
+		sb.append(dialect.quote(column));
 		return sb;
 	}
 
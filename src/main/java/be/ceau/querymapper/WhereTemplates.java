@@ -0,0 +1,126 @@
+/*
+	Copyright 2015 Marceau Dewilde <m@ceau.be>
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.querymapper;
+
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Cache of complete where clauses, keyed by the presence bitmask of the <code>@Where</code> fields of a class.<br/>
+ * Bit <code>i</code> of a presence bitmask is set if the <code>i</code>th WhereField has a non-null value. 
+ * As the text of a where clause only depends on which fields are present, each distinct bitmask maps to exactly one where clause.<br/>
+ * Memory use is bounded: for classes with up to {@value #MAX_INDEXED_FIELDS} fields, clauses are stored in an array with one slot per bitmask. 
+ * For larger classes, at most {@value #MAX_CACHED_SHAPES} clauses are cached, and clauses for other bitmasks are rendered on every request.
+ */
+final class WhereTemplates {
+
+	/**
+	 * Maximum number of WhereField objects for which presence bitmasks can be computed
+	 */
+	static final int MAX_FIELDS = Long.SIZE;
+
+	static final int MAX_INDEXED_FIELDS = 10;
+
+	static final int MAX_CACHED_SHAPES = 256;
+
+	private final String[] fragments;
+	private final AtomicReferenceArray<String> indexed;
+	private final ConcurrentMap<Long, String> cached;
+
+	WhereTemplates(List<WhereField> whereFields) {
+		this(whereFields, false);
+	}
+
+	/**
+	 * @param positional <code>true</code> to render <code>?</code> placeholders instead of named parameters, 
+	 * only valid if none of the WhereField objects {@link WhereField#isExpanded() is expanded}
+	 */
+	WhereTemplates(List<WhereField> whereFields, boolean positional) {
+		if (whereFields.size() > MAX_FIELDS) {
+			throw new IllegalArgumentException("at most " + MAX_FIELDS + " WhereField objects are supported");
+		}
+		this.fragments = new String[whereFields.size()];
+		for (int i = 0; i < fragments.length; i++) {
+			WhereField whereField = whereFields.get(i);
+			if (positional && whereField.isExpanded()) {
+				throw new IllegalArgumentException("expanded WhereField objects can not be rendered in a template");
+			}
+			fragments[i] = positional ? whereField.getPositionalFragment() : whereField.getFragment();
+		}
+		if (fragments.length <= MAX_INDEXED_FIELDS) {
+			this.indexed = new AtomicReferenceArray<String>(1 << fragments.length);
+			this.cached = null;
+		} else {
+			this.indexed = null;
+			this.cached = new ConcurrentHashMap<Long, String>();
+		}
+	}
+
+	/**
+	 * @return <code>true</code> if presence bitmasks can be computed for the given number of WhereField objects
+	 */
+	static boolean supports(int fields) {
+		return fields <= MAX_FIELDS;
+	}
+
+	/**
+	 * @return the where clause for the given presence bitmask, never <code>null</code>
+	 */
+	String get(long mask) {
+		if (mask == 0L) {
+			return "";
+		}
+		if (indexed != null) {
+			int index = (int) mask;
+			String clause = indexed.get(index);
+			if (clause == null) {
+				clause = render(mask);
+				indexed.set(index, clause);
+			}
+			return clause;
+		}
+		Long key = Long.valueOf(mask);
+		String clause = cached.get(key);
+		if (clause == null) {
+			clause = render(mask);
+			if (cached.size() < MAX_CACHED_SHAPES) {
+				cached.putIfAbsent(key, clause);
+			}
+		}
+		return clause;
+	}
+
+	private String render(long mask) {
+		StringBuilder where = new StringBuilder();
+		for (int i = 0; i < fragments.length; i++) {
+			if ((mask & (1L << i)) != 0L) {
+				if (where.length() > 0) {
+					where.append(" AND ");
+				} else {
+					where.append(" WHERE ");
+				}
+				where.append(fragments[i]);
+			}
+		}
+		if (where.length() > 0) {
+			where.append(" ");
+		}
+		return where.toString();
+	}
+
+}
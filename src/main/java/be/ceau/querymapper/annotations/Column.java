@@ -0,0 +1,44 @@
+/*
+	Copyright 2015 Marceau Dewilde <m@ceau.be>
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.querymapper.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Map an instance field of a Java object to a column of the rows read by a {@link be.ceau.querymapper.RowMapper}.<br/>
+ * If any field of a class is annotated with <code>@Column</code>, only the annotated fields are filled from a row. 
+ * Otherwise, every non-static, non-final and non-transient field is filled from the column with the name of its <code>@Where</code> column, 
+ * or else with the name of the field.<br/>
+ * Column labels are matched ignoring case. 
+ * <code>@Column</code> annotations placed on <strong>static fields</strong> are quietly <strong>ignored</strong>.
+ * @author Marceau Dewilde
+ */
+@Documented
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Column {
+
+	/**
+	 * <code>value</code> (<strong>optional</strong>): the label of the column that corresponds to the annotated Java field.<br/>
+	 * If not set, the name of the Java field will be used as column label.
+	 */
+	public String value() default "";
+
+}
@@ -0,0 +1,39 @@
+/*
+	Copyright 2015 Marceau Dewilde <m@ceau.be>
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.querymapper.annotations;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Map an instance field of a Java object holding the seek key for keyset pagination.<br/>
+ * The annotated field must be a <code>java.util.List</code> or an <code>Object[]</code>, holding the values of the <code>@Order</code> columns 
+ * of the last row of the previous page, in the order of the order clause.<br/>
+ * If the field is not <code>null</code>, the where clause selects only rows after the seek key, and the limit clause has no offset.
+ * The order clause should end on a unique column, so that no two rows have the same seek key.<br/>
+ * At most one field per class may be annotated with <code>@Seek</code>, and the class must have at least one <code>@Order</code> field.
+ * <code>@Seek</code> annotations placed on <strong>static fields</strong> are quietly <strong>ignored</strong>.
+ * @author Marceau Dewilde
+ */
+@Documented
+@Target(ElementType.FIELD)
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Seek {
+
+}
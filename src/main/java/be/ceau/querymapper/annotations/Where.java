@@ -51,4 +51,12 @@ public @interface Where {
 	 */
 	public Comparison comparison() default Comparison.EQUALS;
 
+	/**
+	 * <code>bucketed</code> (<strong>optional</strong>): for collection fields only, whether positional SQL pads the collection 
+	 * to the next power of two (1, 2, 4, 8, ...) by repeating its last element.<br/>
+	 * Padding limits the number of distinct statements for collections of varying size, without changing the result of an <code>IN</code> comparison.<br/>
+	 * Default value is <code>false</code>.
+	 */
+	public boolean bucketed() default false;
+
 }
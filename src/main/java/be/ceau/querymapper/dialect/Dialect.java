@@ -0,0 +1,139 @@
+/*
+	Copyright 2015 Marceau Dewilde <m@ceau.be>
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.querymapper.dialect;
+
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import be.ceau.querymapper.enums.InStrategy;
+
+/**
+ * SQL syntax of a database, used by a {@link be.ceau.querymapper.QueryMapper} to render its clauses.<br/>
+ * A Dialect controls identifier quoting, the syntax of the limit clause, 
+ * the strategy for large <code>IN</code> collections, and the escaping of <code>LIKE</code> patterns. 
+ * QueryMapper renders every constant SQL fragment with its Dialect once, when the QueryMapper is created.<br/>
+ * Implementations must be immutable and threadsafe. Extend this class to support other databases, 
+ * the built-in Dialects are constants of {@link Dialects}.
+ * @author Marceau Dewilde
+ */
+public abstract class Dialect {
+
+	private final String quote;
+	private final String escapedQuote;
+
+	/**
+	 * @param quote the character quoting identifiers
+	 */
+	protected Dialect(char quote) {
+		this.quote = String.valueOf(quote);
+		this.escapedQuote = this.quote + this.quote;
+	}
+
+	/**
+	 * @return the given identifier in quotes, with quote characters in the identifier doubled
+	 */
+	public String quote(String identifier) {
+		return quote + identifier.replace(quote, escapedQuote) + quote;
+	}
+
+	/**
+	 * Appends a complete limit clause, starting and ending with a space.
+	 * @param offset the offset of the first row, or <code>-1</code> if there is none
+	 * @param rows the maximum number of rows, a positive number
+	 */
+	public abstract void appendLimitClause(long offset, long rows, Appendable appendable) throws IOException;
+
+	/**
+	 * Appends a complete limit clause with <code>?</code> placeholders instead of values, starting and ending with a space, 
+	 * so that a single PreparedStatement serves all values.
+	 * @param offset <code>true</code> to include a placeholder for the offset of the first row
+	 */
+	public abstract void appendPositionalLimitClause(boolean offset, Appendable appendable) throws IOException;
+
+	/**
+	 * Binds the values of a limit clause as rendered by {@link #appendPositionalLimitClause(boolean, Appendable)}.
+	 * @param index the parameter index of the first placeholder of the limit clause
+	 * @param offset the offset of the first row, or <code>-1</code> if there is none
+	 * @param rows the maximum number of rows, a positive number
+	 * @return the parameter index of the first placeholder after the limit clause
+	 */
+	public abstract int bindLimitParameters(PreparedStatement ps, int index, long offset, long rows) throws SQLException;
+
+	/**
+	 * @return the preferred strategy for <code>IN</code> collections with more elements than a threshold
+	 * @see be.ceau.querymapper.QueryMapper#withInStrategy(InStrategy, int)
+	 */
+	public abstract InStrategy getInStrategy();
+
+	/**
+	 * Escapes the wildcards of <code>LIKE</code> patterns in a value, so that the value only matches itself.
+	 * @param value a value to embed in a <code>LIKE</code> pattern
+	 * @return the escaped value
+	 */
+	public abstract String escapeLike(String value);
+
+	/**
+	 * @param table the name of the temporary table
+	 * @param columns the column definitions
+	 * @return a statement creating a session-private temporary table if it does not exist
+	 */
+	public abstract String createTemporaryTable(String table, String columns);
+
+	/**
+	 * @return the column type for strings of any length, used for the column of a temporary table
+	 */
+	public abstract String getUnboundedStringType();
+
+	/**
+	 * Escapes backslashes, <code>%</code> and <code>_</code> with a backslash, 
+	 * the default <code>LIKE</code> escape character of MySQL, PostgreSQL and H2.
+	 */
+	protected static String escapeLikeWithBackslash(String value) {
+		StringBuilder sb = null;
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			if (c == '\\' || c == '%' || c == '_') {
+				if (sb == null) {
+					sb = new StringBuilder(value.length() + 8).append(value, 0, i);
+				}
+				sb.append('\\');
+			}
+			if (sb != null) {
+				sb.append(c);
+			}
+		}
+		return sb == null ? value : sb.toString();
+	}
+
+	/**
+	 * Appends the decimal digits of a non-negative long value, without converting it to a String first.
+	 */
+	protected static void appendLong(long value, Appendable appendable) throws IOException {
+		if (appendable instanceof StringBuilder) {
+			((StringBuilder) appendable).append(value);
+			return;
+		}
+		long divisor = 1L;
+		while (value / divisor >= 10L) {
+			divisor *= 10L;
+		}
+		for (; divisor > 0L; divisor /= 10L) {
+			appendable.append((char) ('0' + (value / divisor) % 10L));
+		}
+	}
+
+}
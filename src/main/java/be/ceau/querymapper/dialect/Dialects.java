@@ -0,0 +1,56 @@
+/*
+	Copyright 2015 Marceau Dewilde <m@ceau.be>
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.querymapper.dialect;
+
+/**
+ * The built-in {@link Dialect} instances.<br/>
+ * The constants live apart from {@link Dialect}, so that initializing the abstract class never initializes its subclasses.
+ * @author Marceau Dewilde
+ */
+public final class Dialects {
+
+	/**
+	 * The default Dialect, rendering the same SQL as QueryMapper always has
+	 */
+	public static final Dialect MYSQL = new MySQLDialect();
+
+	public static final Dialect POSTGRESQL = new PostgreSQLDialect();
+
+	public static final Dialect H2 = new H2Dialect();
+
+	private Dialects() {
+	}
+
+	/**
+	 * @param productName the database product name, as returned by {@link java.sql.DatabaseMetaData#getDatabaseProductName()}
+	 * @return the built-in Dialect for the given database, or <code>null</code> if there is none
+	 */
+	public static Dialect forDatabase(String productName) {
+		if (productName == null) {
+			return null;
+		}
+		String name = productName.toLowerCase();
+		if (name.contains("postgres")) {
+			return POSTGRESQL;
+		} else if (name.equals("h2")) {
+			return H2;
+		} else if (name.contains("mysql") || name.contains("mariadb")) {
+			return MYSQL;
+		}
+		return null;
+	}
+
+}
@@ -0,0 +1,80 @@
+/*
+	Copyright 2015 Marceau Dewilde <m@ceau.be>
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.querymapper.dialect;
+
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import be.ceau.querymapper.enums.InStrategy;
+
+/**
+ * H2: double quote quoting, the standard <code>OFFSET offset ROWS FETCH FIRST rows ROWS ONLY</code>, 
+ * and array parameters for large <code>IN</code> collections.
+ */
+public class H2Dialect extends Dialect {
+
+	public H2Dialect() {
+		super('"');
+	}
+
+	@Override
+	public void appendLimitClause(long offset, long rows, Appendable appendable) throws IOException {
+		if (offset >= 0) {
+			appendable.append(" OFFSET ");
+			appendLong(offset, appendable);
+			appendable.append(" ROWS");
+		}
+		appendable.append(" FETCH FIRST ");
+		appendLong(rows, appendable);
+		appendable.append(" ROWS ONLY ");
+	}
+
+	@Override
+	public void appendPositionalLimitClause(boolean offset, Appendable appendable) throws IOException {
+		appendable.append(offset ? " OFFSET ? ROWS FETCH FIRST ? ROWS ONLY " : " FETCH FIRST ? ROWS ONLY ");
+	}
+
+	@Override
+	public int bindLimitParameters(PreparedStatement ps, int index, long offset, long rows) throws SQLException {
+		if (offset >= 0) {
+			ps.setLong(index++, offset);
+		}
+		ps.setLong(index++, rows);
+		return index;
+	}
+
+	@Override
+	public InStrategy getInStrategy() {
+		return InStrategy.ARRAY;
+	}
+
+	@Override
+	public String escapeLike(String value) {
+		return escapeLikeWithBackslash(value);
+	}
+
+	@Override
+	public String createTemporaryTable(String table, String columns) {
+		return "CREATE LOCAL TEMPORARY TABLE IF NOT EXISTS " + table + " (" + columns + ")";
+	}
+
+	@Override
+	public String getUnboundedStringType() {
+		return "VARCHAR";
+	}
+
+}
@@ -0,0 +1,79 @@
+/*
+	Copyright 2015 Marceau Dewilde <m@ceau.be>
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.querymapper.dialect;
+
+import java.io.IOException;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+import be.ceau.querymapper.enums.InStrategy;
+
+/**
+ * MySQL and MariaDB: backtick quoting and <code>LIMIT offset, rows</code>.<br/>
+ * For compatibility with earlier output, <code>LIKE</code> values are not escaped.
+ */
+public class MySQLDialect extends Dialect {
+
+	public MySQLDialect() {
+		super('`');
+	}
+
+	@Override
+	public void appendLimitClause(long offset, long rows, Appendable appendable) throws IOException {
+		appendable.append(" LIMIT ");
+		if (offset >= 0) {
+			appendLong(offset, appendable);
+			appendable.append(", ");
+		}
+		appendLong(rows, appendable);
+		appendable.append(' ');
+	}
+
+	@Override
+	public void appendPositionalLimitClause(boolean offset, Appendable appendable) throws IOException {
+		appendable.append(offset ? " LIMIT ?, ? " : " LIMIT ? ");
+	}
+
+	@Override
+	public int bindLimitParameters(PreparedStatement ps, int index, long offset, long rows) throws SQLException {
+		if (offset >= 0) {
+			ps.setLong(index++, offset);
+		}
+		ps.setLong(index++, rows);
+		return index;
+	}
+
+	@Override
+	public InStrategy getInStrategy() {
+		return InStrategy.TEMP_TABLE;
+	}
+
+	@Override
+	public String escapeLike(String value) {
+		return value;
+	}
+
+	@Override
+	public String createTemporaryTable(String table, String columns) {
+		return "CREATE TEMPORARY TABLE IF NOT EXISTS " + table + " (" + columns + ")";
+	}
+
+	@Override
+	public String getUnboundedStringType() {
+		return "TEXT";
+	}
+
+}
@@ -25,11 +25,14 @@ public enum FieldType {
 	OTHER;
 	
 	/**
-	 * @return the appropriate FieldType enumtype for the class argument, never <code>null</code>
+	 * @return the appropriate FieldType enumtype for the class argument, never <code>null</code>, 
+	 * the same for a primitive type as for its wrapper
 	 * @throws NullPointerException if <code>clazz</code> argument <code>null</code>
 	 */
 	public static FieldType lookup(Class<?> clazz) {
-		if (Number.class.isAssignableFrom(clazz)) {
+		if (clazz == int.class || clazz == long.class || clazz == short.class || clazz == byte.class || clazz == double.class || clazz == float.class) {
+			return NUMBER;
+		} else if (Number.class.isAssignableFrom(clazz)) {
 			return NUMBER;
 		} else if (Collection.class.isAssignableFrom(clazz)) {
 			return COLLECTION;
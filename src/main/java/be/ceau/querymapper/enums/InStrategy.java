@@ -0,0 +1,61 @@
+/*
+	Copyright 2015 Marceau Dewilde <m@ceau.be>
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.querymapper.enums;
+
+import be.ceau.querymapper.dialect.Dialect;
+import be.ceau.querymapper.dialect.Dialects;
+
+/**
+ * Rendering strategy for collections compared with {@link Comparison#IN} in positional SQL.<br/>
+ * Every strategy selects exactly the same rows as the plain <code>IN (?, ?, ...)</code> form.
+ */
+public enum InStrategy {
+
+	/**
+	 * One <code>?</code> placeholder per element: <code>`id` IN (?, ?, ?)</code>
+	 */
+	EXPAND,
+
+	/**
+	 * A single SQL array parameter: <code>`id` = ANY(?)</code>.<br/>
+	 * Supported by PostgreSQL and H2.
+	 */
+	ARRAY,
+
+	/**
+	 * A derived table with one row per element: <code>`id` IN (SELECT v FROM (VALUES (CAST(? AS BIGINT)), (?)) AS qm_values(v))</code>.<br/>
+	 * Supported by PostgreSQL and H2.
+	 */
+	VALUES,
+
+	/**
+	 * A temporary table, filled before the statement is prepared: <code>`id` IN (SELECT v FROM qm_in_id)</code>.<br/>
+	 * Supported by MySQL, PostgreSQL and H2. 
+	 * Requires a call to {@link be.ceau.querymapper.QueryMapper#loadInTables(Object, java.sql.Connection)} before preparing the statement.
+	 */
+	TEMP_TABLE;
+
+	/**
+	 * @param productName the database product name, as returned by {@link java.sql.DatabaseMetaData#getDatabaseProductName()}
+	 * @return the preferred strategy for large collections on the given database, never <code>null</code>
+	 * @see Dialect#getInStrategy()
+	 */
+	public static InStrategy forDatabase(String productName) {
+		Dialect dialect = Dialects.forDatabase(productName);
+		return dialect == null ? EXPAND : dialect.getInStrategy();
+	}
+
+}
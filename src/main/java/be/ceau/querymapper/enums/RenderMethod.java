@@ -0,0 +1,58 @@
+/*
+	Copyright 2015 Marceau Dewilde <m@ceau.be>
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.querymapper.enums;
+
+/**
+ * The QueryMapper methods reported to a {@link be.ceau.querymapper.metrics.QueryMapperListener}.
+ */
+public enum RenderMethod {
+
+	/**
+	 * {@link be.ceau.querymapper.QueryMapper#toWhereClause(Object)}
+	 */
+	WHERE_CLAUSE,
+
+	/**
+	 * {@link be.ceau.querymapper.QueryMapper#toPositionalWhereClause(Object)}
+	 */
+	POSITIONAL_WHERE_CLAUSE,
+
+	/**
+	 * {@link be.ceau.querymapper.QueryMapper#toParameterMap(Object)}
+	 */
+	PARAMETER_MAP,
+
+	/**
+	 * {@link be.ceau.querymapper.QueryMapper#bindWhereParameters(Object, java.sql.PreparedStatement, int)}
+	 */
+	BIND,
+
+	/**
+	 * {@link be.ceau.querymapper.QueryMapper#toOrderClause()}
+	 */
+	ORDER_CLAUSE,
+
+	/**
+	 * {@link be.ceau.querymapper.QueryMapper#toLimitClause(Object)}
+	 */
+	LIMIT_CLAUSE,
+
+	/**
+	 * {@link be.ceau.querymapper.QueryMapper#toQuery(Object)}
+	 */
+	QUERY;
+
+}
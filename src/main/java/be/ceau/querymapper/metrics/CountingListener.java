@@ -0,0 +1,155 @@
+/*
+	Copyright 2015 Marceau Dewilde <m@ceau.be>
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.querymapper.metrics;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import be.ceau.querymapper.enums.RenderMethod;
+
+/**
+ * QueryMapperListener keeping in-memory counters per mapped class, for export to a metrics system.<br/>
+ * Counters only grow, until {@link #reset()}. All methods are threadsafe.
+ */
+public class CountingListener implements QueryMapperListener {
+
+	private final ConcurrentMap<Class<?>, Counters> counters = new ConcurrentHashMap<Class<?>, Counters>();
+
+	@Override
+	public void built(Class<?> type, long nanos) {
+		Counters c = counters(type);
+		c.builds.increment();
+		c.buildNanos.add(nanos);
+	}
+
+	@Override
+	public void rendered(Class<?> type, RenderMethod method, long nanos) {
+		Counters c = counters(type);
+		c.renders[method.ordinal()].increment();
+		c.renderNanos[method.ordinal()].add(nanos);
+	}
+
+	@Override
+	public void shapeSeen(Class<?> type, long shape, boolean positional) {
+		Counters c = counters(type);
+		(positional ? c.positionalShapes : c.shapes).increment();
+	}
+
+	@Override
+	public void accessFailed(Class<?> type, String method, Exception e) {
+		counters(type).accessErrors.increment();
+	}
+
+	/**
+	 * @return the classes with at least one event, as an unmodifiable view
+	 */
+	public Set<Class<?>> getTypes() {
+		return Collections.unmodifiableSet(counters.keySet());
+	}
+
+	/**
+	 * @return the number of QueryMapper builds for the given class
+	 */
+	public long getBuildCount(Class<?> type) {
+		Counters c = counters.get(type);
+		return c == null ? 0L : c.builds.sum();
+	}
+
+	/**
+	 * @return the total duration of all QueryMapper builds for the given class, in nanoseconds
+	 */
+	public long getBuildNanos(Class<?> type) {
+		Counters c = counters.get(type);
+		return c == null ? 0L : c.buildNanos.sum();
+	}
+
+	/**
+	 * @return the number of calls to the given method for the given class
+	 */
+	public long getRenderCount(Class<?> type, RenderMethod method) {
+		Counters c = counters.get(type);
+		return c == null ? 0L : c.renders[method.ordinal()].sum();
+	}
+
+	/**
+	 * @return the total duration of all calls to the given method for the given class, in nanoseconds
+	 */
+	public long getRenderNanos(Class<?> type, RenderMethod method) {
+		Counters c = counters.get(type);
+		return c == null ? 0L : c.renderNanos[method.ordinal()].sum();
+	}
+
+	/**
+	 * @param positional <code>true</code> for positional where clauses, <code>false</code> for named ones
+	 * @return the number of distinct where clause shapes rendered for the given class, 
+	 * summed over all QueryMapper instances for the class
+	 */
+	public long getShapeCount(Class<?> type, boolean positional) {
+		Counters c = counters.get(type);
+		return c == null ? 0L : (positional ? c.positionalShapes : c.shapes).sum();
+	}
+
+	/**
+	 * @return the number of failures reading a field of the given class
+	 */
+	public long getAccessErrorCount(Class<?> type) {
+		Counters c = counters.get(type);
+		return c == null ? 0L : c.accessErrors.sum();
+	}
+
+	/**
+	 * Discards all counters.
+	 */
+	public void reset() {
+		counters.clear();
+	}
+
+	private Counters counters(Class<?> type) {
+		Counters c = counters.get(type);
+		if (c == null) {
+			Counters created = new Counters();
+			c = counters.putIfAbsent(type, created);
+			if (c == null) {
+				c = created;
+			}
+		}
+		return c;
+	}
+
+	private static final class Counters {
+
+		private final LongAdder builds = new LongAdder();
+		private final LongAdder buildNanos = new LongAdder();
+		private final LongAdder[] renders = adders();
+		private final LongAdder[] renderNanos = adders();
+		private final LongAdder shapes = new LongAdder();
+		private final LongAdder positionalShapes = new LongAdder();
+		private final LongAdder accessErrors = new LongAdder();
+
+		private static LongAdder[] adders() {
+			LongAdder[] adders = new LongAdder[RenderMethod.values().length];
+			for (int i = 0; i < adders.length; i++) {
+				adders[i] = new LongAdder();
+			}
+			return adders;
+		}
+
+	}
+
+}
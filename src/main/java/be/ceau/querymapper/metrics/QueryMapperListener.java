@@ -0,0 +1,61 @@
+/*
+	Copyright 2015 Marceau Dewilde <m@ceau.be>
+
+	Licensed under the Apache License, Version 2.0 (the "License");
+	you may not use this file except in compliance with the License.
+	You may obtain a copy of the License at
+
+		http://www.apache.org/licenses/LICENSE-2.0
+
+	Unless required by applicable law or agreed to in writing, software
+	distributed under the License is distributed on an "AS IS" BASIS,
+	WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+	See the License for the specific language governing permissions and
+	limitations under the License.
+*/
+package be.ceau.querymapper.metrics;
+
+import be.ceau.querymapper.enums.RenderMethod;
+
+/**
+ * Receives build, render and error events from every QueryMapper, once installed with 
+ * {@link be.ceau.querymapper.QueryMapper#setListener(QueryMapperListener)}.<br/>
+ * Events are reported on the thread that calls the QueryMapper, so implementations must be threadsafe and fast. 
+ * Every method does nothing by default: override only the events of interest.<br/>
+ * When no listener is installed, QueryMapper does not read the clock and does not track where clause shapes.
+ * @see CountingListener
+ */
+public interface QueryMapperListener {
+
+	/**
+	 * A QueryMapper was built for the given class by {@link be.ceau.querymapper.QueryMapper#forClass(Class)}.
+	 * @param nanos the duration of the build
+	 */
+	default void built(Class<?> type, long nanos) {
+	}
+
+	/**
+	 * A render method of the QueryMapper for the given class returned.
+	 * @param nanos the duration of the call
+	 */
+	default void rendered(Class<?> type, RenderMethod method, long nanos) {
+	}
+
+	/**
+	 * The QueryMapper for the given class rendered a where clause of a shape it had not rendered before.<br/>
+	 * Each distinct shape is a distinct SQL text. At most 4096 shapes are reported per QueryMapper, 
+	 * and shapes that hash to the same bucket as an earlier shape are not reported, as in {@link be.ceau.querymapper.QueryMapper#getPositionalShapeCount()}.
+	 * @param shape a number identifying the shape, for named where clauses the presence bitmask of the <code>@Where</code> fields
+	 * @param positional <code>true</code> for a positional where clause, <code>false</code> for a named one
+	 */
+	default void shapeSeen(Class<?> type, long shape, boolean positional) {
+	}
+
+	/**
+	 * Reading a field of an instance of the given class failed. The QueryMapper logged the exception and skipped the field.
+	 * @param method the name of the QueryMapper method that read the field
+	 */
+	default void accessFailed(Class<?> type, String method, Exception e) {
+	}
+
+}
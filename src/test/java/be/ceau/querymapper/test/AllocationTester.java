@@ -0,0 +1,157 @@
+package be.ceau.querymapper.test;
+
+import java.io.StringWriter;
+import java.lang.management.ManagementFactory;
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import be.ceau.querymapper.QueryMapper;
+import be.ceau.querymapper.enums.SortOrder;
+import be.ceau.querymapper.test.model.KeysetTestModel1;
+import be.ceau.querymapper.test.model.RangeTestModel;
+import be.ceau.querymapper.test.model.WhereTestModel1;
+
+public class AllocationTester {
+
+	private static final int WARMUP = 20000;
+	private static final int ITERATIONS = 100000;
+
+	/**
+	 * Upper bound on the average number of bytes allocated per rendering, leaving room for measurement noise
+	 */
+	private static final long MAX_BYTES_PER_CALL = 8L;
+
+	@Test
+	public void appendToStringBuilderEqualsToMethods() {
+		QueryMapper<WhereTestModel1> mapper = QueryMapper.forClass(WhereTestModel1.class);
+		WhereTestModel1 model = model();
+		StringBuilder sb = new StringBuilder();
+		mapper.appendWhereClause(model, sb);
+		mapper.appendOrderClause(sb);
+		mapper.appendLimitClause(model, sb);
+		Assert.assertEquals(mapper.toWhereClause(model) + mapper.toOrderClause() + mapper.toLimitClause(model), sb.toString());
+	}
+
+	@Test
+	public void appendToAppendableEqualsToMethods() throws Exception {
+		QueryMapper<WhereTestModel1> mapper = QueryMapper.forClass(WhereTestModel1.class);
+		WhereTestModel1 model = model();
+		StringWriter writer = new StringWriter();
+		mapper.appendWhereClause(model, writer);
+		mapper.appendOrderClause(writer);
+		mapper.appendLimitClause(model, writer);
+		Assert.assertEquals(mapper.toWhereClause(model) + mapper.toOrderClause() + mapper.toLimitClause(model), writer.toString());
+	}
+
+	@Test
+	public void appendNullAppendsNothing() throws Exception {
+		QueryMapper<WhereTestModel1> mapper = QueryMapper.forClass(WhereTestModel1.class);
+		Assert.assertEquals("", mapper.appendWhereClause(null, new StringBuilder()).toString());
+		Assert.assertEquals("", mapper.appendLimitClause(null, new StringWriter()).toString());
+	}
+
+	@Test
+	public void appendDoesNotAllocate() {
+		Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+		threads.setThreadAllocatedMemoryEnabled(true);
+
+		QueryMapper<WhereTestModel1> mapper = QueryMapper.forClass(WhereTestModel1.class);
+		WhereTestModel1 model = model();
+		StringBuilder sb = new StringBuilder(256);
+		long id = Thread.currentThread().getId();
+
+		render(mapper, model, sb, WARMUP);
+		long before = threads.getThreadAllocatedBytes(id);
+		render(mapper, model, sb, ITERATIONS);
+		long allocated = threads.getThreadAllocatedBytes(id) - before;
+
+		Assert.assertTrue("allocated " + allocated + " bytes for " + ITERATIONS + " renderings", allocated / ITERATIONS <= MAX_BYTES_PER_CALL);
+	}
+
+	@Test
+	public void appendWithSeekKeyDoesNotAllocate() {
+		Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+		threads.setThreadAllocatedMemoryEnabled(true);
+
+		QueryMapper<KeysetTestModel1> mapper = QueryMapper.forClass(KeysetTestModel1.class);
+		KeysetTestModel1 model = new KeysetTestModel1();
+		model.setMinimumAge(20);
+		model.setAfter(Arrays.<Object> asList("name 5", 5L));
+		StringBuilder sb = new StringBuilder(256);
+		long id = Thread.currentThread().getId();
+
+		for (int i = 0; i < WARMUP; i++) {
+			sb.setLength(0);
+			mapper.appendWhereClause(model, sb);
+		}
+		long before = threads.getThreadAllocatedBytes(id);
+		for (int i = 0; i < ITERATIONS; i++) {
+			sb.setLength(0);
+			mapper.appendWhereClause(model, sb);
+		}
+		long allocated = threads.getThreadAllocatedBytes(id) - before;
+
+		Assert.assertEquals(mapper.toWhereClause(model), sb.toString());
+		Assert.assertTrue("allocated " + allocated + " bytes for " + ITERATIONS + " renderings", allocated / ITERATIONS <= MAX_BYTES_PER_CALL);
+	}
+
+	@Test
+	public void normalizingDoesNotAllocate() {
+		Assume.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean);
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+		Assume.assumeTrue(threads.isThreadAllocatedMemorySupported());
+		threads.setThreadAllocatedMemoryEnabled(true);
+
+		QueryMapper<RangeTestModel> mapper = QueryMapper.forClass(RangeTestModel.class);
+		RangeTestModel model = new RangeTestModel();
+		model.setMinimumAge(18);
+		model.setOlderThan(30L);
+		model.setYoungerThan(65);
+		model.setNotAge(40);
+		StringBuilder sb = new StringBuilder(256);
+		long id = Thread.currentThread().getId();
+
+		for (int i = 0; i < WARMUP; i++) {
+			sb.setLength(0);
+			mapper.appendPositionalWhereClause(model, sb);
+		}
+		long before = threads.getThreadAllocatedBytes(id);
+		for (int i = 0; i < ITERATIONS; i++) {
+			sb.setLength(0);
+			mapper.appendPositionalWhereClause(model, sb);
+		}
+		long allocated = threads.getThreadAllocatedBytes(id) - before;
+
+		// the positional form, since the named form would bind these three values to a single :age parameter
+		Assert.assertEquals(" WHERE `age` > ? AND `age` < ? AND `age` <> ? ", sb.toString());
+		Assert.assertTrue("allocated " + allocated + " bytes for " + ITERATIONS + " renderings", allocated / ITERATIONS <= MAX_BYTES_PER_CALL);
+	}
+
+	private static void render(QueryMapper<WhereTestModel1> mapper, WhereTestModel1 model, StringBuilder sb, int iterations) {
+		for (int i = 0; i < iterations; i++) {
+			sb.setLength(0);
+			mapper.appendWhereClause(model, sb);
+			mapper.appendOrderClause(sb);
+			mapper.appendLimitClause(model, sb);
+		}
+	}
+
+	private static WhereTestModel1 model() {
+		WhereTestModel1 model = new WhereTestModel1();
+		model.setName("ceau");
+		model.setMinimumAge(18);
+		model.setSortOrder(SortOrder.ASCENDING);
+		model.setIds(Arrays.asList(1L, 2L, 3L));
+		model.setPage(3);
+		model.setRows(25);
+		return model;
+	}
+
+}
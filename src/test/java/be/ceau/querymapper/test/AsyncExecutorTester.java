@@ -0,0 +1,197 @@
+package be.ceau.querymapper.test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import be.ceau.querymapper.AsyncExecutor;
+import be.ceau.querymapper.QueryMapper;
+import be.ceau.querymapper.ResultSetHandler;
+import be.ceau.querymapper.RowMapper;
+import be.ceau.querymapper.test.model.PersonRow;
+import be.ceau.querymapper.test.model.WhereFilter;
+import be.ceau.querymapper.test.model.WhereTestModel1;
+
+public class AsyncExecutorTester {
+
+	/**
+	 * Sums a range large enough to run for minutes, unless cancelled
+	 */
+	private static final String SLOW = "SELECT SUM(RAND()) FROM SYSTEM_RANGE(1, 100000000000)";
+
+	private Connection connection;
+	private JdbcDataSource dataSource;
+	private AsyncExecutor executor;
+
+	@Before
+	public void setUp() throws SQLException {
+		// held open to keep the in-memory database alive
+		connection = BatchTester.Database.open("async");
+		BatchTester.Database.createPersons(connection, 10);
+		dataSource = new JdbcDataSource();
+		dataSource.setURL("jdbc:h2:mem:async;MODE=MySQL;DATABASE_TO_LOWER=TRUE");
+		executor = new AsyncExecutor(dataSource, 2);
+	}
+
+	@After
+	public void tearDown() throws SQLException {
+		executor.close();
+		connection.close();
+	}
+
+	private void awaitPermits() throws InterruptedException {
+		long deadline = System.currentTimeMillis() + 10000L;
+		while (executor.getAvailablePermits() < executor.getMaxConcurrency() && System.currentTimeMillis() < deadline) {
+			Thread.sleep(10L);
+		}
+		Assert.assertEquals(executor.getMaxConcurrency(), executor.getAvailablePermits());
+	}
+
+	@Test
+	public void queryCompletesWithResult() throws Exception {
+		WhereTestModel1 model = new WhereTestModel1();
+		model.setMinimumAge(50);
+		model.setPage(1);
+		model.setRows(2);
+		CompletableFuture<List<PersonRow>> future = executor.query(QueryMapper.forClass(WhereTestModel1.class), 
+				"SELECT * FROM person p", model, RowMapper.forClass(PersonRow.class));
+		List<Long> ids = new ArrayList<Long>();
+		for (PersonRow row : future.get(10L, TimeUnit.SECONDS)) {
+			ids.add(row.getId());
+		}
+		Assert.assertEquals(Arrays.asList(8L, 7L), ids);
+		awaitPermits();
+	}
+
+	@Test
+	public void concurrencyIsBounded() throws Exception {
+		final AtomicInteger running = new AtomicInteger();
+		final AtomicInteger maximum = new AtomicInteger();
+		ResultSetHandler<Integer> handler = new ResultSetHandler<Integer>() {
+			@Override
+			public Integer handle(ResultSet rs) throws SQLException {
+				int now = running.incrementAndGet();
+				maximum.accumulateAndGet(now, Math::max);
+				try {
+					Thread.sleep(30L);
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				} finally {
+					running.decrementAndGet();
+				}
+				int count = 0;
+				while (rs.next()) {
+					count++;
+				}
+				return count;
+			}
+		};
+		List<CompletableFuture<Integer>> futures = new ArrayList<CompletableFuture<Integer>>();
+		for (int i = 0; i < 8; i++) {
+			futures.add(executor.query(QueryMapper.forClass(WhereFilter.class), "SELECT * FROM person", new WhereFilter(), handler));
+		}
+		for (CompletableFuture<Integer> future : futures) {
+			Assert.assertEquals(Integer.valueOf(10), future.get(10L, TimeUnit.SECONDS));
+		}
+		Assert.assertTrue(maximum.get() <= 2);
+		awaitPermits();
+	}
+
+	@Test
+	public void waitingQueriesAreNotHandedToExecutor() throws Exception {
+		final List<Runnable> handedOff = new ArrayList<Runnable>();
+		AsyncExecutor bounded = new AsyncExecutor(dataSource, 2, handedOff::add);
+		List<CompletableFuture<Integer>> futures = new ArrayList<CompletableFuture<Integer>>();
+		for (int i = 0; i < 8; i++) {
+			futures.add(bounded.query(QueryMapper.forClass(WhereFilter.class), "SELECT * FROM person", new WhereFilter(), rs -> {
+				int count = 0;
+				while (rs.next()) {
+					count++;
+				}
+				return count;
+			}));
+		}
+		Assert.assertEquals(2, handedOff.size());
+		// each completed query hands the next waiting query to the Executor
+		for (int i = 0; i < handedOff.size(); i++) {
+			handedOff.get(i).run();
+		}
+		Assert.assertEquals(8, handedOff.size());
+		for (CompletableFuture<Integer> future : futures) {
+			Assert.assertEquals(Integer.valueOf(10), future.getNow(null));
+		}
+		Assert.assertEquals(2, bounded.getAvailablePermits());
+	}
+
+	@Test
+	public void closeExecutesWaitingQueries() throws Exception {
+		List<CompletableFuture<Integer>> futures = new ArrayList<CompletableFuture<Integer>>();
+		for (int i = 0; i < 6; i++) {
+			futures.add(executor.query(QueryMapper.forClass(WhereFilter.class), "SELECT * FROM person", new WhereFilter(), rs -> {
+				int count = 0;
+				while (rs.next()) {
+					count++;
+				}
+				return count;
+			}));
+		}
+		executor.close();
+		for (CompletableFuture<Integer> future : futures) {
+			Assert.assertEquals(Integer.valueOf(10), future.get(10L, TimeUnit.SECONDS));
+		}
+		try {
+			executor.query(QueryMapper.forClass(WhereFilter.class), "SELECT * FROM person", new WhereFilter(), rs -> null);
+			Assert.fail();
+		} catch (RejectedExecutionException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void timeoutCancelsStatement() throws Exception {
+		long start = System.nanoTime();
+		CompletableFuture<Double> future = executor.query(QueryMapper.forClass(WhereFilter.class), SLOW, new WhereFilter(), 
+				rs -> rs.next() ? rs.getDouble(1) : null, 200L, TimeUnit.MILLISECONDS);
+		try {
+			future.get(10L, TimeUnit.SECONDS);
+			Assert.fail();
+		} catch (ExecutionException e) {
+			Assert.assertTrue(String.valueOf(e.getCause()), e.getCause() instanceof TimeoutException);
+		}
+		// the permit is only released once the cancelled statement returns
+		awaitPermits();
+		Assert.assertTrue(TimeUnit.NANOSECONDS.toSeconds(System.nanoTime() - start) < 10L);
+	}
+
+	@Test
+	public void cancelCancelsStatement() throws Exception {
+		CompletableFuture<Double> future = executor.query(QueryMapper.forClass(WhereFilter.class), SLOW, new WhereFilter(), 
+				rs -> rs.next() ? rs.getDouble(1) : null);
+		Thread.sleep(200L);
+		Assert.assertTrue(future.cancel(true));
+		try {
+			future.get();
+			Assert.fail();
+		} catch (CancellationException e) {
+			// expected
+		}
+		awaitPermits();
+	}
+
+}
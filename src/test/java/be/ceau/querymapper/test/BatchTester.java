@@ -0,0 +1,171 @@
+package be.ceau.querymapper.test;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import be.ceau.querymapper.QueryMapper;
+import be.ceau.querymapper.ResultSetHandler;
+import be.ceau.querymapper.enums.SortOrder;
+import be.ceau.querymapper.test.model.WhereTestModel1;
+
+public class BatchTester {
+
+	private static final ResultSetHandler<List<Long>> IDS = new ResultSetHandler<List<Long>>() {
+		@Override
+		public List<Long> handle(ResultSet rs) throws SQLException {
+			List<Long> ids = new ArrayList<Long>();
+			while (rs.next()) {
+				ids.add(rs.getLong(1));
+			}
+			return ids;
+		}
+	};
+
+	private Connection connection;
+	private final AtomicInteger prepared = new AtomicInteger();
+
+	@Before
+	public void setUp() throws SQLException {
+		connection = Database.open("batch");
+		Database.createPersons(connection, 10);
+	}
+
+	@After
+	public void tearDown() throws SQLException {
+		connection.close();
+	}
+
+	@Test
+	public void queryResultsInInputOrder() throws SQLException {
+		List<WhereTestModel1> beans = Arrays.asList(
+				model(null, 50, null),
+				model(SortOrder.ASCENDING, null, null),
+				model(null, 80, null),
+				model(SortOrder.DESCENDING, 30, Arrays.asList(1L, 3L, 5L, 7L)),
+				model(null, 90, null),
+				model(null, null, Arrays.asList(2L, 4L)));
+		// ordered by sort descending
+		List<List<Long>> results = QueryMapper.forClass(WhereTestModel1.class).executeQueryBatch(counting(), "SELECT `id` FROM person p", beans, IDS);
+		Assert.assertEquals(Arrays.asList(
+				Arrays.asList(10L, 9L, 8L, 7L, 6L, 5L),
+				Arrays.asList(10L, 8L, 6L, 4L, 2L),
+				Arrays.asList(10L, 9L, 8L),
+				Arrays.asList(7L, 5L, 3L),
+				Arrays.asList(10L, 9L),
+				Arrays.asList(4L, 2L)), results);
+		Assert.assertEquals(4, prepared.get());
+	}
+
+	@Test
+	public void queryAppliesLimitClause() throws SQLException {
+		WhereTestModel1 bean = model(null, 20, null);
+		bean.setPage(2);
+		bean.setRows(3);
+		List<List<Long>> results = QueryMapper.forClass(WhereTestModel1.class).executeQueryBatch(connection, "SELECT `id` FROM person p", Arrays.asList(bean), IDS);
+		// ids 10 to 2 ordered by sort descending, third page of three rows
+		Assert.assertEquals(Arrays.asList(Arrays.asList(4L, 3L, 2L)), results);
+	}
+
+	@Test
+	public void updateCountsInInputOrder() throws SQLException {
+		List<WhereTestModel1> beans = Arrays.asList(
+				model(null, 90, null),
+				model(SortOrder.ASCENDING, null, null),
+				model(null, 60, null),
+				model(null, null, Arrays.asList(1L, 2L, 3L)));
+		int[] counts = QueryMapper.forClass(WhereTestModel1.class).executeUpdateBatch(counting(), "UPDATE person p SET `sort` = `sort` + 1", beans);
+		Assert.assertArrayEquals(new int[] { 2, 5, 5, 3 }, counts);
+		Assert.assertEquals(3, prepared.get());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void nullBeanRejected() throws SQLException {
+		QueryMapper.forClass(WhereTestModel1.class).executeUpdateBatch(connection, "DELETE FROM person p", Arrays.asList(model(null, 10, null), null));
+	}
+
+	private static WhereTestModel1 model(SortOrder sortOrder, Integer minimumAge, List<Long> ids) {
+		WhereTestModel1 model = new WhereTestModel1();
+		model.setSortOrder(sortOrder);
+		model.setMinimumAge(minimumAge);
+		model.setIds(ids);
+		return model;
+	}
+
+	/**
+	 * @return a Connection proxy counting the calls to prepareStatement
+	 */
+	private Connection counting() {
+		return (Connection) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { Connection.class }, new InvocationHandler() {
+			@Override
+			public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+				if (method.getName().equals("prepareStatement")) {
+					prepared.incrementAndGet();
+				}
+				try {
+					return method.invoke(connection, args);
+				} catch (InvocationTargetException e) {
+					throw e.getCause();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Embedded H2 database in MySQL mode, for testing the rendered SQL
+	 */
+	static final class Database {
+
+		static Connection open(String name) throws SQLException {
+			return DriverManager.getConnection("jdbc:h2:mem:" + name + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE");
+		}
+
+		/**
+		 * Creates table person with the given number of rows, 
+		 * where row i has id i, name <code>name i</code>, age 10 * i, code <code>c i</code>, sort i, 
+		 * and sortOrder ASCENDING if i is even or DESCENDING if i is odd.
+		 */
+		static void createPersons(Connection connection, int count) throws SQLException {
+			Statement statement = connection.createStatement();
+			try {
+				statement.execute("DROP TABLE IF EXISTS person");
+				statement.execute("CREATE TABLE person (`id` BIGINT PRIMARY KEY, `name` VARCHAR(50), `age` INT, `code` VARCHAR(50), `sortOrder` VARCHAR(20), `sort` INT)");
+			} finally {
+				statement.close();
+			}
+			PreparedStatement insert = connection.prepareStatement("INSERT INTO person VALUES (?, ?, ?, ?, ?, ?)");
+			try {
+				for (int i = 1; i <= count; i++) {
+					insert.setLong(1, i);
+					insert.setString(2, "name " + i);
+					insert.setInt(3, 10 * i);
+					insert.setString(4, "c " + i);
+					insert.setString(5, i % 2 == 0 ? SortOrder.ASCENDING.name() : SortOrder.DESCENDING.name());
+					insert.setInt(6, i);
+					insert.addBatch();
+				}
+				insert.executeBatch();
+			} finally {
+				insert.close();
+			}
+		}
+
+	}
+
+}
@@ -0,0 +1,92 @@
+package be.ceau.querymapper.test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import be.ceau.querymapper.IllegalAnnotationException;
+import be.ceau.querymapper.QueryMapper;
+import be.ceau.querymapper.metrics.CountingListener;
+import be.ceau.querymapper.test.model.LimitTestModel1;
+import be.ceau.querymapper.test.model.LimitTestModel5;
+import be.ceau.querymapper.test.model.OrderTestModel2;
+import be.ceau.querymapper.test.model.WhereFilter;
+
+public class CacheTester {
+
+	private static final int THREADS = 32;
+
+	@Test
+	public void forClassReturnsSameInstance() {
+		Assert.assertSame(QueryMapper.forClass(WhereFilter.class), QueryMapper.forClass(WhereFilter.class));
+	}
+
+	@Test
+	public void evictCausesNewInstance() {
+		QueryMapper<OrderTestModel2> first = QueryMapper.forClass(OrderTestModel2.class);
+		QueryMapper.evict(OrderTestModel2.class);
+		QueryMapper<OrderTestModel2> second = QueryMapper.forClass(OrderTestModel2.class);
+		Assert.assertNotSame(first, second);
+		Assert.assertEquals(first.toOrderClause(), second.toOrderClause());
+	}
+
+	@Test
+	public void warmBuildsInstanceReturnedByForClass() {
+		QueryMapper.evict(LimitTestModel5.class);
+		QueryMapper.warm(LimitTestModel5.class);
+		QueryMapper<LimitTestModel5> mapper = QueryMapper.forClass(LimitTestModel5.class);
+		Assert.assertSame(mapper, QueryMapper.forClass(LimitTestModel5.class));
+	}
+
+	@Test(expected = IllegalAnnotationException.class)
+	public void warmFailsOnIllegalAnnotation() {
+		QueryMapper.warm(WhereFilter.class, LimitTestModel1.class);
+	}
+
+	@Test
+	public void concurrentForClassBuildsOneInstance() throws Exception {
+		CountingListener listener = new CountingListener();
+		QueryMapper.setListener(listener);
+		try {
+			concurrentForClass();
+		} finally {
+			QueryMapper.setListener(null);
+		}
+		Assert.assertEquals(20L, listener.getBuildCount(WhereFilter.class));
+	}
+
+	private void concurrentForClass() throws Exception {
+		for (int round = 0; round < 20; round++) {
+			QueryMapper.evict(WhereFilter.class);
+			final CountDownLatch start = new CountDownLatch(1);
+			ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+			try {
+				List<Future<QueryMapper<WhereFilter>>> futures = new ArrayList<Future<QueryMapper<WhereFilter>>>();
+				for (int i = 0; i < THREADS; i++) {
+					futures.add(executor.submit(new Callable<QueryMapper<WhereFilter>>() {
+						@Override
+						public QueryMapper<WhereFilter> call() throws Exception {
+							start.await();
+							return QueryMapper.forClass(WhereFilter.class);
+						}
+					}));
+				}
+				start.countDown();
+				QueryMapper<WhereFilter> expected = futures.get(0).get();
+				for (Future<QueryMapper<WhereFilter>> future : futures) {
+					Assert.assertSame(expected, future.get());
+				}
+			} finally {
+				executor.shutdown();
+			}
+		}
+	}
+
+}
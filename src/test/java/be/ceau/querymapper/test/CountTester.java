@@ -0,0 +1,92 @@
+package be.ceau.querymapper.test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import be.ceau.querymapper.QueryMapper;
+import be.ceau.querymapper.dialect.Dialects;
+import be.ceau.querymapper.test.model.KeysetTestModel1;
+import be.ceau.querymapper.test.model.WhereTestModel1;
+
+public class CountTester {
+
+	private Connection connection;
+
+	@Before
+	public void setUp() throws SQLException {
+		connection = BatchTester.Database.open("count");
+		BatchTester.Database.createPersons(connection, 10);
+	}
+
+	@After
+	public void tearDown() throws SQLException {
+		connection.close();
+	}
+
+	private static WhereTestModel1 model(Integer minimumAge) {
+		WhereTestModel1 model = new WhereTestModel1();
+		model.setMinimumAge(minimumAge);
+		model.setPage(1);
+		model.setRows(2);
+		return model;
+	}
+
+	@Test
+	public void countAndExistsDropOrderAndLimit() {
+		QueryMapper<WhereTestModel1> mapper = QueryMapper.forClass(WhereTestModel1.class);
+		WhereTestModel1 model = model(50);
+		Assert.assertEquals("SELECT COUNT(*) FROM person p WHERE `p`.`age` >= :age ", mapper.toCountQuery("FROM person p", model));
+		Assert.assertEquals("SELECT 1 FROM person p WHERE `p`.`age` >= :age  LIMIT 1 ", mapper.toExistsQuery("FROM person p", model));
+		Assert.assertEquals("SELECT 1 FROM person p FETCH FIRST 1 ROWS ONLY ", mapper.withDialect(Dialects.H2).toExistsQuery("FROM person p", model(null)));
+	}
+
+	@Test
+	public void countIgnoresSeekKey() throws SQLException {
+		QueryMapper<KeysetTestModel1> mapper = QueryMapper.forClass(KeysetTestModel1.class);
+		KeysetTestModel1 model = new KeysetTestModel1();
+		model.setMinimumAge(30);
+		model.setAfter(Arrays.<Object> asList("name 5", 5L));
+		Assert.assertEquals("SELECT COUNT(*) FROM person WHERE `age` >= :age ", mapper.toCountQuery("FROM person", model));
+		Assert.assertEquals(8L, mapper.count(connection, "FROM person", model));
+	}
+
+	@Test
+	public void executesCountAndExists() throws SQLException {
+		QueryMapper<WhereTestModel1> mapper = QueryMapper.forClass(WhereTestModel1.class).withDialect(Dialects.H2);
+		Assert.assertEquals(6L, mapper.count(connection, "FROM person p", model(50)));
+		Assert.assertEquals(10L, mapper.count(connection, "FROM person p", null));
+		Assert.assertTrue(mapper.exists(connection, "FROM person p", model(100)));
+		Assert.assertFalse(mapper.exists(connection, "FROM person p", model(101)));
+	}
+
+	@Test
+	public void windowCountReturnsPageAndTotal() throws SQLException {
+		QueryMapper<WhereTestModel1> mapper = QueryMapper.forClass(WhereTestModel1.class).withDialect(Dialects.H2);
+		String sql = mapper.toWindowCountQuery("p.id", "FROM person p", model(null));
+		Assert.assertEquals("SELECT p.id, COUNT(*) OVER() AS \"qm_total\" FROM person p ORDER BY \"p\".\"sort\" DESC, \"name\" ASC  OFFSET 2 ROWS FETCH FIRST 2 ROWS ONLY ", sql);
+		List<Long> ids = new ArrayList<Long>();
+		Statement statement = connection.createStatement();
+		try {
+			ResultSet rs = statement.executeQuery(sql);
+			while (rs.next()) {
+				ids.add(rs.getLong(1));
+				Assert.assertEquals(10L, rs.getLong(QueryMapper.TOTAL_COLUMN));
+			}
+			rs.close();
+		} finally {
+			statement.close();
+		}
+		Assert.assertEquals(Arrays.asList(8L, 7L), ids);
+	}
+
+}
@@ -0,0 +1,128 @@
+package be.ceau.querymapper.test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import be.ceau.querymapper.QueryMapper;
+import be.ceau.querymapper.ResultSetHandler;
+import be.ceau.querymapper.dialect.Dialects;
+import be.ceau.querymapper.enums.InStrategy;
+import be.ceau.querymapper.test.model.KeysetTestModel1;
+import be.ceau.querymapper.test.model.WhereTestModel1;
+
+public class DialectTester {
+
+	private static final ResultSetHandler<List<Long>> IDS = new ResultSetHandler<List<Long>>() {
+		@Override
+		public List<Long> handle(ResultSet rs) throws SQLException {
+			List<Long> ids = new ArrayList<Long>();
+			while (rs.next()) {
+				ids.add(rs.getLong(1));
+			}
+			return ids;
+		}
+	};
+
+	private static WhereTestModel1 model() {
+		WhereTestModel1 model = new WhereTestModel1();
+		model.setMinimumAge(18);
+		model.setCode("c_1");
+		model.setPage(3);
+		model.setRows(10);
+		return model;
+	}
+
+	@Test
+	public void defaultIsMySQL() {
+		QueryMapper<WhereTestModel1> mapper = QueryMapper.forClass(WhereTestModel1.class);
+		QueryMapper<WhereTestModel1> mysql = mapper.withDialect(Dialects.MYSQL);
+		WhereTestModel1 model = model();
+		Assert.assertEquals(mapper.toQuery(model).toString(), mysql.toQuery(model).toString());
+		Assert.assertEquals(" WHERE `p`.`age` >= :age AND `code` LIKE :code ", mysql.toWhereClause(model));
+		Assert.assertEquals(" LIMIT 30, 10 ", mysql.toLimitClause(model));
+		Assert.assertEquals("c_1%", mysql.toParameterMap(model).get("code"));
+	}
+
+	@Test
+	public void quoting() {
+		QueryMapper<WhereTestModel1> mapper = QueryMapper.forClass(WhereTestModel1.class).withDialect(Dialects.POSTGRESQL);
+		WhereTestModel1 model = model();
+		Assert.assertEquals(" WHERE \"p\".\"age\" >= :age AND \"code\" LIKE :code ", mapper.toWhereClause(model));
+		Assert.assertEquals(" ORDER BY \"p\".\"sort\" DESC, \"name\" ASC ", mapper.toOrderClause());
+		Assert.assertEquals("\"a\"\"b\"", Dialects.H2.quote("a\"b"));
+		Assert.assertEquals("`a``b`", Dialects.MYSQL.quote("a`b"));
+	}
+
+	@Test
+	public void limitClauses() {
+		WhereTestModel1 model = model();
+		QueryMapper<WhereTestModel1> mapper = QueryMapper.forClass(WhereTestModel1.class);
+		Assert.assertEquals(" LIMIT 10 OFFSET 30 ", mapper.withDialect(Dialects.POSTGRESQL).toLimitClause(model));
+		Assert.assertEquals(" OFFSET 30 ROWS FETCH FIRST 10 ROWS ONLY ", mapper.withDialect(Dialects.H2).toLimitClause(model));
+		Assert.assertEquals(" OFFSET 30 ROWS FETCH FIRST 10 ROWS ONLY ", mapper.withDialect(Dialects.H2).toQuery(model).getLimitClause());
+		model.setPage(null);
+		Assert.assertEquals(" LIMIT 10 ", mapper.withDialect(Dialects.POSTGRESQL).toLimitClause(model));
+		Assert.assertEquals(" FETCH FIRST 10 ROWS ONLY ", mapper.withDialect(Dialects.H2).appendLimitClause(model, new StringBuilder()).toString());
+	}
+
+	@Test
+	public void likeEscaping() {
+		WhereTestModel1 model = model();
+		QueryMapper<WhereTestModel1> mapper = QueryMapper.forClass(WhereTestModel1.class).withDialect(Dialects.H2);
+		Assert.assertEquals("c\\_1%", mapper.toParameterMap(model).get("code"));
+		Assert.assertEquals("c\\_1%", mapper.toQuery(model).getParameters().get("code"));
+		Assert.assertEquals("100\\%", Dialects.POSTGRESQL.escapeLike("100%"));
+		Assert.assertEquals("a\\\\b", Dialects.POSTGRESQL.escapeLike("a\\b"));
+	}
+
+	@Test
+	public void keysetIsRenderedWithDialect() {
+		KeysetTestModel1 model = new KeysetTestModel1();
+		model.setAfter(Arrays.<Object> asList("name 5", 5L));
+		Assert.assertEquals(" WHERE (\"name\", \"id\") > (:qm_seek0, :qm_seek1) ",
+				QueryMapper.forClass(KeysetTestModel1.class).withDialect(Dialects.H2).toWhereClause(model));
+	}
+
+	@Test
+	public void executesOnH2() throws SQLException {
+		Connection connection = BatchTester.Database.open("dialect");
+		try {
+			BatchTester.Database.createPersons(connection, 20);
+			Statement statement = connection.createStatement();
+			try {
+				statement.execute("INSERT INTO person VALUES (100, 'name 100', 1000, 'c_1', 'ASCENDING', 100)");
+			} finally {
+				statement.close();
+			}
+			WhereTestModel1 model = new WhereTestModel1();
+			model.setCode("c_1");
+			model.setRows(5);
+			String sql = "SELECT `id` FROM person p";
+			QueryMapper<WhereTestModel1> mysql = QueryMapper.forClass(WhereTestModel1.class);
+			QueryMapper<WhereTestModel1> h2 = mysql.withDialect(Dialects.H2);
+			// unescaped, the underscore matches any character
+			Assert.assertEquals(5, mysql.executeQueryBatch(connection, sql, Arrays.asList(model), IDS).get(0).size());
+			Assert.assertEquals(Arrays.asList(100L), h2.executeQueryBatch(connection, sql, Arrays.asList(model), IDS).get(0));
+		} finally {
+			connection.close();
+		}
+	}
+
+	@Test
+	public void forDatabase() {
+		Assert.assertSame(Dialects.POSTGRESQL, Dialects.forDatabase("PostgreSQL"));
+		Assert.assertSame(Dialects.H2, Dialects.forDatabase("H2"));
+		Assert.assertSame(Dialects.MYSQL, Dialects.forDatabase("MariaDB"));
+		Assert.assertNull(Dialects.forDatabase("Oracle"));
+		Assert.assertEquals(InStrategy.ARRAY, Dialects.H2.getInStrategy());
+	}
+
+}
@@ -0,0 +1,86 @@
+package be.ceau.querymapper.test;
+
+import java.util.Arrays;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import be.ceau.querymapper.QueryMapper;
+import be.ceau.querymapper.dialect.Dialects;
+import be.ceau.querymapper.test.model.KeysetTestModel1;
+import be.ceau.querymapper.test.model.WhereTestModel1;
+
+public class FingerprintTester {
+
+	private static WhereTestModel1 model() {
+		WhereTestModel1 model = new WhereTestModel1();
+		model.setMinimumAge(18);
+		model.setCode("c");
+		model.setRows(10);
+		return model;
+	}
+
+	@Test
+	public void sameShapeHasSameFingerprint() {
+		QueryMapper<WhereTestModel1> mapper = QueryMapper.forClass(WhereTestModel1.class);
+		WhereTestModel1 first = model();
+		WhereTestModel1 second = model();
+		second.setMinimumAge(65);
+		second.setCode("other");
+		second.setRows(50);
+		Assert.assertEquals(mapper.toQuery(first).getFingerprint(), mapper.toQuery(second).getFingerprint());
+		Assert.assertEquals(mapper.toQuery(first).getFingerprint(), mapper.toFingerprint(first));
+		Assert.assertEquals(mapper.toFingerprint(first), mapper.toQuery(first).getFingerprint());
+		Assert.assertEquals(mapper.toPositionalFingerprint(first), mapper.toPositionalFingerprint(second));
+	}
+
+	@Test
+	public void differentShapeHasDifferentFingerprint() {
+		QueryMapper<WhereTestModel1> mapper = QueryMapper.forClass(WhereTestModel1.class);
+		WhereTestModel1 model = model();
+		long fingerprint = mapper.toFingerprint(model);
+		model.setName("x");
+		Assert.assertNotEquals(fingerprint, mapper.toFingerprint(model));
+		model.setName(null);
+		model.setPage(2);
+		Assert.assertNotEquals(fingerprint, mapper.toFingerprint(model));
+		model.setPage(null);
+		Assert.assertNotEquals(fingerprint, mapper.toPositionalFingerprint(model));
+		Assert.assertNotEquals(fingerprint, mapper.withDialect(Dialects.H2).toFingerprint(model));
+		Assert.assertEquals(fingerprint, mapper.toFingerprint(model));
+	}
+
+	@Test
+	public void positionalFingerprintIncludesCollectionSize() {
+		QueryMapper<WhereTestModel1> mapper = QueryMapper.forClass(WhereTestModel1.class);
+		WhereTestModel1 first = model();
+		first.setIds(Arrays.asList(1L, 2L, 3L));
+		WhereTestModel1 second = model();
+		second.setIds(Arrays.asList(4L, 5L, 6L));
+		WhereTestModel1 third = model();
+		third.setIds(Arrays.asList(1L, 2L, 3L, 4L));
+		Assert.assertEquals(mapper.toPositionalFingerprint(first), mapper.toPositionalFingerprint(second));
+		Assert.assertNotEquals(mapper.toPositionalFingerprint(first), mapper.toPositionalFingerprint(third));
+		Assert.assertEquals(mapper.toFingerprint(first), mapper.toFingerprint(third));
+		Assert.assertEquals(mapper.bucketed().toPositionalFingerprint(first), mapper.bucketed().toPositionalFingerprint(third));
+	}
+
+	@Test
+	public void seekKeyChangesFingerprint() {
+		QueryMapper<KeysetTestModel1> mapper = QueryMapper.forClass(KeysetTestModel1.class);
+		KeysetTestModel1 model = new KeysetTestModel1();
+		long fingerprint = mapper.toFingerprint(model);
+		model.setAfter(Arrays.<Object> asList("name 5", 5L));
+		Assert.assertNotEquals(fingerprint, mapper.toFingerprint(model));
+		Assert.assertEquals(mapper.toQuery(model).getFingerprint(), mapper.toFingerprint(model));
+	}
+
+	@Test
+	public void fingerprintIsStable() {
+		QueryMapper<WhereTestModel1> mapper = QueryMapper.forClass(WhereTestModel1.class);
+		// fingerprints are used as keys outside the JVM, so they may only change with the mapping of the class
+		Assert.assertEquals("2bb740676e79be17", Long.toHexString(mapper.toFingerprint(model())));
+		Assert.assertEquals("32c7f6adf10be270", Long.toHexString(mapper.toFingerprint(null)));
+	}
+
+}
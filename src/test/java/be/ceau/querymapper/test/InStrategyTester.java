@@ -0,0 +1,146 @@
+package be.ceau.querymapper.test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import be.ceau.querymapper.QueryMapper;
+import be.ceau.querymapper.ResultSetHandler;
+import be.ceau.querymapper.annotations.Where;
+import be.ceau.querymapper.dialect.Dialect;
+import be.ceau.querymapper.dialect.Dialects;
+import be.ceau.querymapper.enums.Comparison;
+import be.ceau.querymapper.enums.InStrategy;
+import be.ceau.querymapper.test.model.WhereTestModel1;
+import be.ceau.querymapper.test.model.WhereTestModel3;
+
+public class InStrategyTester {
+
+	private static final String SELECT = "SELECT `id` FROM person p";
+
+	private static final ResultSetHandler<List<Long>> IDS = new ResultSetHandler<List<Long>>() {
+		@Override
+		public List<Long> handle(ResultSet rs) throws SQLException {
+			List<Long> ids = new ArrayList<Long>();
+			while (rs.next()) {
+				ids.add(rs.getLong(1));
+			}
+			return ids;
+		}
+	};
+
+	private Connection connection;
+
+	@Before
+	public void setUp() throws SQLException {
+		connection = BatchTester.Database.open("instrategy");
+		BatchTester.Database.createPersons(connection, 100);
+	}
+
+	@After
+	public void tearDown() throws SQLException {
+		connection.close();
+	}
+
+	@Test
+	public void rendering() {
+		QueryMapper<WhereTestModel1> mapper = QueryMapper.forClass(WhereTestModel1.class);
+		WhereTestModel1 model = new WhereTestModel1();
+		model.setIds(Arrays.asList(1L, 2L, 3L));
+		Assert.assertEquals(" WHERE `id` IN (?, ?, ?) ", mapper.withInStrategy(InStrategy.ARRAY, 3).toPositionalWhereClause(model));
+		Assert.assertEquals(" WHERE `id` = ANY(?) ", mapper.withInStrategy(InStrategy.ARRAY, 2).toPositionalWhereClause(model));
+		Assert.assertEquals(" WHERE `id` IN (SELECT v FROM (VALUES (CAST(? AS BIGINT)), (?), (?)) AS qm_values(v)) ", mapper.withInStrategy(InStrategy.VALUES, 2).toPositionalWhereClause(model));
+		Assert.assertEquals(" WHERE `id` IN (SELECT v FROM qm_in_id) ", mapper.withInStrategy(InStrategy.TEMP_TABLE, 2).toPositionalWhereClause(model));
+		Assert.assertEquals(" WHERE `id` IN (?, ?, ?) ", mapper.withInStrategy(InStrategy.EXPAND, 0).toPositionalWhereClause(model));
+	}
+
+	@Test
+	public void valuesAreBucketed() {
+		WhereTestModel3 model = new WhereTestModel3();
+		model.setIds(Arrays.asList(1L, 2L, 3L));
+		Assert.assertEquals(" WHERE `id` IN (SELECT v FROM (VALUES (CAST(? AS BIGINT)), (?), (?), (?)) AS qm_values(v)) ", 
+				QueryMapper.forClass(WhereTestModel3.class).withInStrategy(InStrategy.VALUES, 2).toPositionalWhereClause(model));
+	}
+
+	@Test
+	public void sameResultsAsExpanded() throws SQLException {
+		Random random = new Random(11L);
+		List<WhereTestModel1> beans = new ArrayList<WhereTestModel1>();
+		for (int i = 0; i < 30; i++) {
+			WhereTestModel1 model = new WhereTestModel1();
+			List<Long> ids = new ArrayList<Long>();
+			for (int j = random.nextInt(60); j > 0; j--) {
+				ids.add((long) random.nextInt(150));
+			}
+			model.setIds(ids);
+			if (random.nextBoolean()) {
+				model.setMinimumAge(random.nextInt(1000));
+			}
+			beans.add(model);
+		}
+		QueryMapper<WhereTestModel1> mapper = QueryMapper.forClass(WhereTestModel1.class);
+		List<List<Long>> expected = mapper.executeQueryBatch(connection, SELECT, beans, IDS);
+		for (InStrategy strategy : InStrategy.values()) {
+			Assert.assertEquals(strategy.name(), expected, mapper.withDialect(Dialects.H2).withInStrategy(strategy, 4).executeQueryBatch(connection, SELECT, beans, IDS));
+			Assert.assertEquals(strategy.name(), expected, mapper.withInStrategy(strategy, 4).executeQueryBatch(connection, SELECT, beans, IDS));
+		}
+	}
+
+	@Test
+	public void tempTablesAreDistinctPerTable() throws SQLException {
+		String select = "SELECT p.`id` FROM person p JOIN person q ON q.`id` = p.`id` + 1";
+		TwoTables model = new TwoTables();
+		model.ids = Arrays.asList(1L, 2L, 3L, 4L, 5L);
+		model.others = Arrays.asList(4L, 5L, 6L, 7L, 8L);
+		QueryMapper<TwoTables> mapper = QueryMapper.forClass(TwoTables.class);
+		List<TwoTables> beans = Arrays.asList(model);
+		Assert.assertEquals(Arrays.asList(Arrays.asList(3L, 4L, 5L)), mapper.executeQueryBatch(connection, select, beans, IDS));
+		Assert.assertEquals(Arrays.asList(Arrays.asList(3L, 4L, 5L)), mapper.withInStrategy(InStrategy.TEMP_TABLE, 2).executeQueryBatch(connection, select, beans, IDS));
+	}
+
+	@Test
+	public void tempTablesHoldLongStrings() throws SQLException {
+		StringBuilder longName = new StringBuilder();
+		while (longName.length() <= 5000) {
+			longName.append("name ");
+		}
+		TwoTables model = new TwoTables();
+		model.names = Arrays.asList("name 1", "name 2", longName.toString(), "name 4");
+		List<TwoTables> beans = Arrays.asList(model);
+		for (Dialect dialect : new Dialect[] { Dialects.MYSQL, Dialects.H2 }) {
+			Assert.assertEquals(Arrays.asList(Arrays.asList(1L, 2L, 4L)), 
+					QueryMapper.forClass(TwoTables.class).withDialect(dialect).withInStrategy(InStrategy.TEMP_TABLE, 2).executeQueryBatch(connection, SELECT, beans, IDS));
+		}
+	}
+
+	@Test
+	public void forDatabase() {
+		Assert.assertEquals(InStrategy.ARRAY, InStrategy.forDatabase("PostgreSQL"));
+		Assert.assertEquals(InStrategy.ARRAY, InStrategy.forDatabase("H2"));
+		Assert.assertEquals(InStrategy.TEMP_TABLE, InStrategy.forDatabase("MySQL"));
+		Assert.assertEquals(InStrategy.EXPAND, InStrategy.forDatabase("Oracle"));
+	}
+
+	public static class TwoTables {
+
+		@Where(column = "id", table = "p", comparison = Comparison.IN)
+		private List<Long> ids;
+
+		@Where(column = "id", table = "q", comparison = Comparison.IN)
+		private List<Long> others;
+
+		@Where(column = "name", table = "p", comparison = Comparison.IN)
+		private List<String> names;
+
+	}
+
+}
@@ -0,0 +1,171 @@
+package be.ceau.querymapper.test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import be.ceau.querymapper.Query;
+import be.ceau.querymapper.QueryMapper;
+import be.ceau.querymapper.ResultSetHandler;
+import be.ceau.querymapper.test.model.KeysetTestModel1;
+import be.ceau.querymapper.test.model.KeysetTestModel2;
+
+public class KeysetTester {
+
+	private static final ResultSetHandler<List<List<Object>>> ROWS = new ResultSetHandler<List<List<Object>>>() {
+		@Override
+		public List<List<Object>> handle(ResultSet rs) throws SQLException {
+			List<List<Object>> rows = new ArrayList<List<Object>>();
+			while (rs.next()) {
+				rows.add(Arrays.asList(rs.getObject(1), rs.getObject(2)));
+			}
+			return rows;
+		}
+	};
+
+	private Connection connection;
+
+	@Before
+	public void setUp() throws SQLException {
+		connection = BatchTester.Database.open("keyset");
+		BatchTester.Database.createPersons(connection, 25);
+	}
+
+	@After
+	public void tearDown() throws SQLException {
+		connection.close();
+	}
+
+	@Test
+	public void rowValuePredicate() throws Exception {
+		QueryMapper<KeysetTestModel1> mapper = QueryMapper.forClass(KeysetTestModel1.class);
+		KeysetTestModel1 model = new KeysetTestModel1();
+		model.setMinimumAge(20);
+		model.setAfter(Arrays.<Object> asList("name 5", 5L));
+		Assert.assertEquals(" WHERE `age` >= :age AND (`name`, `id`) > (:qm_seek0, :qm_seek1) ", mapper.toWhereClause(model));
+		Assert.assertEquals(" WHERE `age` >= ? AND (`name`, `id`) > (?, ?) ", mapper.toPositionalWhereClause(model));
+		Map<String, Object> expected = new HashMap<String, Object>();
+		expected.put("age", 20);
+		expected.put("qm_seek0", "name 5");
+		expected.put("qm_seek1", 5L);
+		Assert.assertEquals(expected, mapper.toParameterMap(model));
+		Assert.assertEquals(expected, mapper.toQuery(model).getParameters());
+		Assert.assertEquals(mapper.toWhereClause(model), mapper.toQuery(model).getWhereClause());
+		PositionalTester.Recorder recorder = new PositionalTester.Recorder();
+		Assert.assertEquals(3, mapper.bindWhereParameters(model, recorder.statement()));
+		Assert.assertEquals(Arrays.<Object> asList(20, "name 5", 5L), recorder.values());
+
+		model.setMinimumAge(null);
+		Assert.assertEquals(" WHERE (`name`, `id`) > (:qm_seek0, :qm_seek1) ", mapper.toWhereClause(model));
+		Assert.assertEquals(" WHERE (`name`, `id`) > (:qm_seek0, :qm_seek1) ", mapper.appendWhereClause(model, new StringBuilder()).toString());
+		model.setMinimumAge(20);
+		Assert.assertEquals(mapper.toWhereClause(model), mapper.appendWhereClause(model, new StringBuilder()).toString());
+		model.setAfter(null);
+		Assert.assertEquals(mapper.toWhereClause(model), mapper.appendWhereClause(model, new StringBuilder()).toString());
+	}
+
+	@Test
+	public void mixedOrderPredicate() throws Exception {
+		QueryMapper<KeysetTestModel2> mapper = QueryMapper.forClass(KeysetTestModel2.class);
+		KeysetTestModel2 model = new KeysetTestModel2();
+		model.setAfter(Arrays.<Object> asList(70, 7L));
+		Assert.assertEquals(" WHERE ((`age` < :qm_seek0) OR (`age` = :qm_seek0 AND `id` > :qm_seek1)) ", mapper.toWhereClause(model));
+		Assert.assertEquals(" WHERE ((`age` < ?) OR (`age` = ? AND `id` > ?)) ", mapper.toPositionalWhereClause(model));
+		PositionalTester.Recorder recorder = new PositionalTester.Recorder();
+		Assert.assertEquals(3, mapper.bindWhereParameters(model, recorder.statement()));
+		Assert.assertEquals(Arrays.<Object> asList(70, 70, 7L), recorder.values());
+	}
+
+	@Test
+	public void seekReplacesOffset() {
+		QueryMapper<KeysetTestModel1> mapper = QueryMapper.forClass(KeysetTestModel1.class);
+		KeysetTestModel1 model = new KeysetTestModel1();
+		model.setPage(3);
+		model.setRows(10);
+		Assert.assertEquals(" LIMIT 30, 10 ", mapper.toLimitClause(model));
+		model.setAfter(Arrays.<Object> asList("name 5", 5L));
+		Assert.assertEquals(" LIMIT 10 ", mapper.toLimitClause(model));
+		Query query = mapper.toQuery(model);
+		Assert.assertEquals(" LIMIT 10 ", query.getLimitClause());
+		Assert.assertNull(query.getOffset());
+		Assert.assertEquals(mapper.toWhereClause(model), query.getWhereClause());
+		Assert.assertEquals(mapper.toParameterMap(model), query.getParameters());
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void seekKeyMustMatchOrderFields() {
+		KeysetTestModel1 model = new KeysetTestModel1();
+		model.setAfter(Collections.<Object> singletonList("name 5"));
+		QueryMapper.forClass(KeysetTestModel1.class).toWhereClause(model);
+	}
+
+	@Test
+	public void maxOffsetRejectsDeepOffsets() {
+		QueryMapper<KeysetTestModel2> mapper = QueryMapper.forClass(KeysetTestModel2.class).withMaxOffset(100);
+		KeysetTestModel2 model = new KeysetTestModel2();
+		model.setRows(10);
+		model.setOffset(100L);
+		Assert.assertEquals(" LIMIT 100, 10 ", mapper.toLimitClause(model));
+		model.setOffset(101L);
+		try {
+			mapper.toLimitClause(model);
+			Assert.fail("offset above maximum should be rejected");
+		} catch (IllegalArgumentException expected) {
+			// deep offset without seek key
+		}
+		try {
+			mapper.toQuery(model);
+			Assert.fail("offset above maximum should be rejected");
+		} catch (IllegalArgumentException expected) {
+			// deep offset without seek key
+		}
+		model.setAfter(Arrays.<Object> asList(70, 7L));
+		Assert.assertEquals(" LIMIT 10 ", mapper.toLimitClause(model));
+	}
+
+	@Test
+	public void keysetPagesEqualOffsetPages() throws SQLException {
+		QueryMapper<KeysetTestModel1> uniform = QueryMapper.forClass(KeysetTestModel1.class);
+		KeysetTestModel1 first = new KeysetTestModel1();
+		first.setMinimumAge(30);
+		List<List<Object>> all = execute(uniform, "SELECT `name`, `id` FROM person", first);
+		Assert.assertEquals(23, all.size());
+		List<List<Object>> paged = new ArrayList<List<Object>>();
+		KeysetTestModel1 model = new KeysetTestModel1();
+		model.setMinimumAge(30);
+		model.setRows(4);
+		for (List<List<Object>> page = execute(uniform, "SELECT `name`, `id` FROM person", model); !page.isEmpty(); page = execute(uniform, "SELECT `name`, `id` FROM person", model)) {
+			paged.addAll(page);
+			model.setAfter(page.get(page.size() - 1));
+		}
+		Assert.assertEquals(all, paged);
+
+		QueryMapper<KeysetTestModel2> mixed = QueryMapper.forClass(KeysetTestModel2.class);
+		all = execute(mixed, "SELECT `age`, `id` FROM person", new KeysetTestModel2());
+		paged.clear();
+		KeysetTestModel2 other = new KeysetTestModel2();
+		other.setRows(6);
+		for (List<List<Object>> page = execute(mixed, "SELECT `age`, `id` FROM person", other); !page.isEmpty(); page = execute(mixed, "SELECT `age`, `id` FROM person", other)) {
+			paged.addAll(page);
+			other.setAfter(page.get(page.size() - 1));
+		}
+		Assert.assertEquals(25, paged.size());
+		Assert.assertEquals(all, paged);
+	}
+
+	private <T> List<List<Object>> execute(QueryMapper<T> mapper, String select, T bean) throws SQLException {
+		return mapper.executeQueryBatch(connection, select, Collections.singletonList(bean), ROWS).get(0);
+	}
+
+}
@@ -11,6 +11,9 @@ import be.ceau.querymapper.test.model.LimitTestModel2;
 import be.ceau.querymapper.test.model.LimitTestModel3;
 import be.ceau.querymapper.test.model.LimitTestModel4;
 import be.ceau.querymapper.test.model.LimitTestModel5;
+import be.ceau.querymapper.test.model.LimitTestModel6;
+import be.ceau.querymapper.test.model.LimitTestModel7;
+import be.ceau.querymapper.test.model.LimitTestModel8;
 
 public class LimitTester {
 
@@ -48,4 +51,55 @@ public class LimitTester {
 		Assert.assertEquals(" LIMIT 60, 20 ", clause);
 	}
 
+	@Test
+	public void primitiveRowsAndOffsetFieldsCreateLimitClause() {
+		LimitTestModel6 model = new LimitTestModel6();
+		model.setOffset(40L);
+		model.setRows(20);
+		String clause = QueryMapper.forClass(LimitTestModel6.class).toLimitClause(model);
+		Assert.assertEquals(" LIMIT 40, 20 ", clause);
+	}
+
+	@Test
+	public void nestedLimitFieldsCreateLimitClause() {
+		LimitTestModel7.Page page = new LimitTestModel7.Page();
+		page.setOffset(10);
+		page.setRows(5);
+		LimitTestModel7 model = new LimitTestModel7();
+		model.setPage(page);
+		String clause = QueryMapper.forClass(LimitTestModel7.class).toLimitClause(model);
+		Assert.assertEquals(" LIMIT 10, 5 ", clause);
+	}
+
+	@Test
+	public void nullNestedLimitFieldCreatesEmptyLimitClause() {
+		String clause = QueryMapper.forClass(LimitTestModel7.class).toLimitClause(new LimitTestModel7());
+		Assert.assertEquals("", clause);
+	}
+
+	@Test
+	public void deepNestedLimitFieldsCreateLimitClause() {
+		LimitTestModel8.Window window = new LimitTestModel8.Window();
+		window.setPart(3);
+		window.setRows(20);
+		LimitTestModel8.Paging paging = new LimitTestModel8.Paging();
+		paging.setWindow(window);
+		LimitTestModel8 model = new LimitTestModel8();
+		model.setPaging(paging);
+		QueryMapper<LimitTestModel8> mapper = QueryMapper.forClass(LimitTestModel8.class);
+		Assert.assertEquals(" LIMIT 60, 20 ", mapper.toLimitClause(model));
+		Assert.assertEquals(" LIMIT 60, 20 ", mapper.toQuery(model).getLimitClause());
+		window.setPart(null);
+		Assert.assertEquals(" LIMIT 20 ", mapper.toLimitClause(model));
+	}
+
+	@Test
+	public void nullAlongDeepNestedLimitPathCreatesEmptyLimitClause() {
+		QueryMapper<LimitTestModel8> mapper = QueryMapper.forClass(LimitTestModel8.class);
+		LimitTestModel8 model = new LimitTestModel8();
+		Assert.assertEquals("", mapper.toLimitClause(model));
+		model.setPaging(new LimitTestModel8.Paging());
+		Assert.assertEquals("", mapper.toLimitClause(model));
+	}
+
 }
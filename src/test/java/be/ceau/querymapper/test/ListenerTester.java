@@ -0,0 +1,93 @@
+package be.ceau.querymapper.test;
+
+import java.util.Arrays;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import be.ceau.querymapper.QueryMapper;
+import be.ceau.querymapper.enums.RenderMethod;
+import be.ceau.querymapper.metrics.CountingListener;
+import be.ceau.querymapper.test.model.WhereFilter;
+import be.ceau.querymapper.test.model.WhereTestModel1;
+
+public class ListenerTester {
+
+	private final CountingListener listener = new CountingListener();
+
+	@Before
+	public void setUp() {
+		QueryMapper.setListener(listener);
+	}
+
+	@After
+	public void tearDown() {
+		QueryMapper.setListener(null);
+	}
+
+	@Test
+	public void reportsBuild() {
+		QueryMapper.evict(WhereTestModel1.class);
+		QueryMapper.forClass(WhereTestModel1.class);
+		QueryMapper.forClass(WhereTestModel1.class);
+		Assert.assertEquals(1L, listener.getBuildCount(WhereTestModel1.class));
+		Assert.assertTrue(listener.getBuildNanos(WhereTestModel1.class) > 0L);
+	}
+
+	@Test
+	public void reportsRenders() {
+		QueryMapper<WhereTestModel1> mapper = QueryMapper.forClass(WhereTestModel1.class);
+		WhereTestModel1 model = new WhereTestModel1();
+		model.setName("name");
+		model.setRows(10);
+		mapper.toWhereClause(model);
+		mapper.toWhereClause(model);
+		mapper.toWhereClause(model);
+		mapper.toParameterMap(model);
+		mapper.toOrderClause();
+		mapper.toLimitClause(model);
+		mapper.toQuery(model);
+		Assert.assertEquals(3L, listener.getRenderCount(WhereTestModel1.class, RenderMethod.WHERE_CLAUSE));
+		Assert.assertEquals(1L, listener.getRenderCount(WhereTestModel1.class, RenderMethod.PARAMETER_MAP));
+		Assert.assertEquals(1L, listener.getRenderCount(WhereTestModel1.class, RenderMethod.ORDER_CLAUSE));
+		Assert.assertEquals(1L, listener.getRenderCount(WhereTestModel1.class, RenderMethod.LIMIT_CLAUSE));
+		Assert.assertEquals(1L, listener.getRenderCount(WhereTestModel1.class, RenderMethod.QUERY));
+		Assert.assertEquals(0L, listener.getRenderCount(WhereTestModel1.class, RenderMethod.BIND));
+	}
+
+	@Test
+	public void reportsDistinctShapes() {
+		QueryMapper<WhereTestModel1> mapper = QueryMapper.forClass(WhereTestModel1.class).withMaxOffset(1000L);
+		WhereTestModel1 model = new WhereTestModel1();
+		model.setName("name");
+		mapper.toWhereClause(model);
+		mapper.toWhereClause(model);
+		mapper.toPositionalWhereClause(model);
+		model.setIds(Arrays.asList(1L, 2L));
+		mapper.toWhereClause(model);
+		mapper.toPositionalWhereClause(model);
+		model.setIds(Arrays.asList(1L, 2L, 3L));
+		mapper.toWhereClause(model);
+		mapper.toPositionalWhereClause(model);
+		Assert.assertEquals(2L, listener.getShapeCount(WhereTestModel1.class, false));
+		Assert.assertEquals(3L, listener.getShapeCount(WhereTestModel1.class, true));
+	}
+
+	@Test
+	@SuppressWarnings({ "rawtypes", "unchecked" })
+	public void reportsAccessErrors() {
+		QueryMapper mapper = QueryMapper.forClass(WhereFilter.class);
+		Assert.assertTrue(mapper.toParameterMap(new Object()).isEmpty());
+		Assert.assertEquals(1L, listener.getAccessErrorCount(WhereFilter.class));
+	}
+
+	@Test
+	public void removedListenerReceivesNothing() {
+		QueryMapper.setListener(null);
+		QueryMapper.forClass(WhereTestModel1.class).toOrderClause();
+		Assert.assertTrue(listener.getTypes().isEmpty());
+	}
+
+}
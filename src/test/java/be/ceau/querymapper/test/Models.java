@@ -0,0 +1,90 @@
+package be.ceau.querymapper.test;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import be.ceau.querymapper.annotations.Order;
+import be.ceau.querymapper.annotations.Seek;
+import be.ceau.querymapper.enums.SortOrder;
+import be.ceau.querymapper.test.model.WhereFilter;
+
+/**
+ * Discovery and random population of the classes in the test model package, for differential tests over every model.
+ */
+final class Models {
+
+	private Models() {
+	}
+
+	/**
+	 * @return all top level classes in the test model package
+	 */
+	static List<Class<?>> modelClasses() throws Exception {
+		String packageName = WhereFilter.class.getPackage().getName();
+		URL url = WhereFilter.class.getClassLoader().getResource(packageName.replace('.', '/'));
+		List<Class<?>> classes = new ArrayList<Class<?>>();
+		String[] files = new File(url.toURI()).list();
+		Arrays.sort(files);
+		for (String file : files) {
+			if (file.endsWith(".class") && !file.contains("$")) {
+				classes.add(Class.forName(packageName + "." + file.substring(0, file.length() - ".class".length())));
+			}
+		}
+		return classes;
+	}
+
+	/**
+	 * Sets each instance field of the given bean to a random value, or to <code>null</code>.
+	 */
+	static <T> T populate(T bean, Random random) throws Exception {
+		for (Field field : bean.getClass().getDeclaredFields()) {
+			if (Modifier.isStatic(field.getModifiers())) {
+				continue;
+			}
+			field.setAccessible(true);
+			Class<?> type = field.getType();
+			boolean present = random.nextInt(3) > 0;
+			if (type == int.class) {
+				field.setInt(bean, 1 + random.nextInt(100));
+			} else if (type == long.class) {
+				field.setLong(bean, 1 + random.nextInt(100));
+			} else if (type == double.class) {
+				field.setDouble(bean, random.nextInt(100) / 4d);
+			} else if (present && field.getAnnotation(Seek.class) != null) {
+				List<Object> key = new ArrayList<Object>();
+				for (Field other : bean.getClass().getDeclaredFields()) {
+					if (other.getAnnotation(Order.class) != null) {
+						key.add((long) random.nextInt(100));
+					}
+				}
+				field.set(bean, key);
+			} else if (!present) {
+				field.set(bean, null);
+			} else if (type == String.class) {
+				field.set(bean, random.nextBoolean() ? "" : "value" + random.nextInt(100));
+			} else if (type == Integer.class) {
+				field.set(bean, random.nextInt(100));
+			} else if (type == Long.class) {
+				field.set(bean, (long) random.nextInt(100));
+			} else if (type == SortOrder.class) {
+				field.set(bean, SortOrder.values()[random.nextInt(SortOrder.values().length)]);
+			} else if (type == List.class) {
+				List<Long> list = new ArrayList<Long>();
+				for (int i = random.nextInt(4); i >= 0; i--) {
+					list.add((long) random.nextInt(1000));
+				}
+				field.set(bean, list);
+			} else if (!type.getName().startsWith("java.")) {
+				field.set(bean, populate(type.getDeclaredConstructor().newInstance(), random));
+			}
+		}
+		return bean;
+	}
+
+}
@@ -0,0 +1,57 @@
+package be.ceau.querymapper.test;
+
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import be.ceau.querymapper.IllegalAnnotationException;
+import be.ceau.querymapper.QueryMapper;
+import be.ceau.querymapper.test.model.CyclicWhereTestModel;
+import be.ceau.querymapper.test.model.NestedWhereTestModel;
+
+public class NestedWhereTester {
+
+	private static NestedWhereTestModel model() {
+		NestedWhereTestModel.Geo geo = new NestedWhereTestModel.Geo();
+		geo.setPostalCode("9000");
+		geo.setFloor(2);
+		NestedWhereTestModel.Address address = new NestedWhereTestModel.Address();
+		address.setCity("Gh");
+		address.setGeo(geo);
+		NestedWhereTestModel model = new NestedWhereTestModel();
+		model.setName("name");
+		model.setAddress(address);
+		return model;
+	}
+
+	@Test
+	public void nestedFieldsAreFlattened() {
+		QueryMapper<NestedWhereTestModel> mapper = QueryMapper.forClass(NestedWhereTestModel.class);
+		NestedWhereTestModel model = model();
+		Assert.assertEquals(" WHERE `name` = :name AND `city` LIKE :city AND `a`.`zip` = :zip AND `floor` >= :floor ", mapper.toWhereClause(model));
+		Map<String, Object> map = mapper.toParameterMap(model);
+		Assert.assertEquals(4, map.size());
+		Assert.assertEquals("Gh%", map.get("city"));
+		Assert.assertEquals("9000", map.get("zip"));
+		Assert.assertEquals(Integer.valueOf(2), map.get("floor"));
+		Assert.assertEquals(" WHERE `name` = ? AND `city` LIKE ? AND `a`.`zip` = ? AND `floor` >= ? ", mapper.toPositionalWhereClause(model));
+	}
+
+	@Test
+	public void nullAlongThePathSkipsNestedFields() {
+		QueryMapper<NestedWhereTestModel> mapper = QueryMapper.forClass(NestedWhereTestModel.class);
+		NestedWhereTestModel model = model();
+		model.getAddress().setGeo(null);
+		Assert.assertEquals(" WHERE `name` = :name AND `city` LIKE :city ", mapper.toWhereClause(model));
+		model.setAddress(null);
+		Assert.assertEquals(" WHERE `name` = :name ", mapper.toWhereClause(model));
+		Assert.assertEquals(1, mapper.toParameterMap(model).size());
+	}
+
+	@Test(expected = IllegalAnnotationException.class)
+	public void cycleIsRejected() {
+		QueryMapper.forClass(CyclicWhereTestModel.class);
+	}
+
+}
@@ -0,0 +1,135 @@
+package be.ceau.querymapper.test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.Assert;
+import org.junit.Test;
+
+import be.ceau.querymapper.QueryMapper;
+import be.ceau.querymapper.ResultStream;
+import be.ceau.querymapper.RowMapper;
+import be.ceau.querymapper.annotations.Where;
+import be.ceau.querymapper.test.model.PersonRow;
+import be.ceau.querymapper.test.model.RangeTestModel;
+
+public class NormalizerTester {
+
+	private static final QueryMapper<RangeTestModel> MAPPER = QueryMapper.forClass(RangeTestModel.class);
+
+	public static class EqualsCollectionTestModel {
+
+		@Where(column = "id")
+		private List<Long> ids;
+
+	}
+
+	@Test
+	public void nestedRangesCollapse() {
+		RangeTestModel model = new RangeTestModel();
+		model.setMinimumAge(18);
+		model.setOlderThan(30L);
+		Assert.assertEquals(" WHERE `age` > ? ", MAPPER.toPositionalWhereClause(model));
+		Assert.assertFalse(MAPPER.isUnsatisfiable(model));
+		model.setOlderThan(18L);
+		// the strict bound is the tighter one
+		Assert.assertEquals(" WHERE `age` > ? ", MAPPER.toPositionalWhereClause(model));
+		model.setOlderThan(10L);
+		Assert.assertEquals(" WHERE `age` >= ? ", MAPPER.toPositionalWhereClause(model));
+		Assert.assertEquals(" WHERE `age` >= :age ", MAPPER.toWhereClause(model));
+		Assert.assertEquals(" WHERE `age` >= :age ", MAPPER.toQuery(model).getWhereClause());
+		Assert.assertEquals(18, MAPPER.toParameterMap(model).get("age"));
+		RangeTestModel single = new RangeTestModel();
+		single.setMinimumAge(18);
+		Assert.assertEquals(MAPPER.toPositionalFingerprint(single), MAPPER.toPositionalFingerprint(model));
+		Assert.assertEquals(MAPPER.toFingerprint(single), MAPPER.toFingerprint(model));
+		Assert.assertEquals(MAPPER.toQuery(single).getShape(), MAPPER.toQuery(model).getShape());
+	}
+
+	@Test
+	public void contradictingRanges() {
+		RangeTestModel model = new RangeTestModel();
+		model.setMinimumAge(20);
+		model.setYoungerThan(30);
+		Assert.assertFalse(MAPPER.isUnsatisfiable(model));
+		Assert.assertEquals(" WHERE `age` >= ? AND `age` < ? ", MAPPER.toPositionalWhereClause(model));
+		model.setMinimumAge(30);
+		Assert.assertTrue(MAPPER.isUnsatisfiable(model));
+		model.setMinimumAge(60);
+		Assert.assertTrue(MAPPER.isUnsatisfiable(model));
+		Assert.assertTrue(MAPPER.toQuery(model).isUnsatisfiable());
+	}
+
+	@Test
+	public void equalityChecks() {
+		RangeTestModel model = new RangeTestModel();
+		model.setAge(40);
+		model.setExactAge(40L);
+		model.setMinimumAge(18);
+		model.setYoungerThan(60);
+		Assert.assertEquals(" WHERE `age` = ? ", MAPPER.toPositionalWhereClause(model));
+		Assert.assertFalse(MAPPER.isUnsatisfiable(model));
+		model.setExactAge(41L);
+		Assert.assertTrue(MAPPER.isUnsatisfiable(model));
+		model.setExactAge(null);
+		model.setYoungerThan(40);
+		Assert.assertTrue(MAPPER.isUnsatisfiable(model));
+		model.setYoungerThan(null);
+		model.setNotAge(40);
+		Assert.assertTrue(MAPPER.isUnsatisfiable(model));
+		model.setNotAge(39);
+		Assert.assertEquals(" WHERE `age` = ? ", MAPPER.toPositionalWhereClause(model));
+	}
+
+	@Test
+	public void stringsAreOnlyDeduplicated() {
+		RangeTestModel model = new RangeTestModel();
+		model.setName("a");
+		model.setOtherName("a");
+		Assert.assertEquals(" WHERE `name` = ? ", MAPPER.toPositionalWhereClause(model));
+		// may be equal in a case-insensitive collation
+		model.setOtherName("A");
+		Assert.assertEquals(" WHERE `name` = ? AND `name` = ? ", MAPPER.toPositionalWhereClause(model));
+		Assert.assertFalse(MAPPER.isUnsatisfiable(model));
+	}
+
+	@Test
+	public void onlyEmptyInIsUnsatisfiable() throws Exception {
+		QueryMapper<EqualsCollectionTestModel> mapper = QueryMapper.forClass(EqualsCollectionTestModel.class);
+		EqualsCollectionTestModel model = new EqualsCollectionTestModel();
+		model.ids = Collections.<Long> emptyList();
+		Assert.assertFalse(mapper.isUnsatisfiable(model));
+		Assert.assertFalse(mapper.toQuery(model).isUnsatisfiable());
+	}
+
+	@Test
+	public void emptyInSkipsDatabase() throws SQLException {
+		RangeTestModel model = new RangeTestModel();
+		model.setIds(Collections.<Long> emptyList());
+		Assert.assertTrue(MAPPER.isUnsatisfiable(model));
+		Assert.assertTrue(MAPPER.toQuery(model).isUnsatisfiable());
+		Connection connection = BatchTester.Database.open("normalizer");
+		try {
+			BatchTester.Database.createPersons(connection, 10);
+			Assert.assertEquals(0L, MAPPER.count(connection, "FROM person", model));
+			Assert.assertFalse(MAPPER.exists(connection, "FROM person", model));
+			JdbcDataSource dataSource = new JdbcDataSource();
+			dataSource.setURL("jdbc:h2:mem:normalizer;MODE=MySQL;DATABASE_TO_LOWER=TRUE");
+			ResultStream<PersonRow> rows = MAPPER.stream(dataSource, "SELECT * FROM person", model, RowMapper.forClass(PersonRow.class), 10);
+			Assert.assertFalse(rows.hasNext());
+			Assert.assertEquals(0, rows.getQueryCount());
+			model.setIds(Arrays.asList(1L, 2L, 3L));
+			model.setMinimumAge(18);
+			model.setOlderThan(10L);
+			Assert.assertFalse(MAPPER.isUnsatisfiable(model));
+			Assert.assertEquals(2L, MAPPER.count(connection, "FROM person", model));
+		} finally {
+			connection.close();
+		}
+	}
+
+}
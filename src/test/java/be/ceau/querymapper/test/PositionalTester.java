@@ -0,0 +1,290 @@
+package be.ceau.querymapper.test;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import be.ceau.querymapper.IllegalAnnotationException;
+import be.ceau.querymapper.QueryMapper;
+import be.ceau.querymapper.annotations.Seek;
+import be.ceau.querymapper.annotations.Where;
+import be.ceau.querymapper.enums.SortOrder;
+import be.ceau.querymapper.metrics.CountingListener;
+import be.ceau.querymapper.test.model.PrimitiveTestModel;
+import be.ceau.querymapper.test.model.WhereTestModel1;
+import be.ceau.querymapper.test.model.WhereTestModel3;
+
+public class PositionalTester {
+
+	private static final Pattern NAMED = Pattern.compile(":(\\w+)");
+
+	@Test
+	public void positionalWhereClause() throws Exception {
+		QueryMapper<WhereTestModel1> mapper = QueryMapper.forClass(WhereTestModel1.class);
+		WhereTestModel1 model = new WhereTestModel1();
+		model.setName("ceau");
+		model.setMinimumAge(18);
+		model.setSortOrder(SortOrder.ASCENDING);
+		model.setIds(Arrays.asList(1L, 2L, 3L));
+		Assert.assertEquals(" WHERE `name` LIKE ? AND `p`.`age` >= ? AND `sortOrder` = ? AND `id` IN (?, ?, ?) ", mapper.toPositionalWhereClause(model));
+
+		Recorder recorder = new Recorder();
+		Assert.assertEquals(6, mapper.bindWhereParameters(model, recorder.statement()));
+		Assert.assertEquals(Arrays.<Object> asList("%ceau%", 18, "ASCENDING", 1L, 2L, 3L), recorder.values());
+		Assert.assertEquals(Arrays.asList("setString", "setInt", "setString", "setLong", "setLong", "setLong"), recorder.setters());
+	}
+
+	@Test
+	public void primitivesBindAsNumbers() throws Exception {
+		QueryMapper<PrimitiveTestModel> mapper = QueryMapper.forClass(PrimitiveTestModel.class);
+		PrimitiveTestModel model = new PrimitiveTestModel();
+		model.setAge(40);
+		model.setMinimumScore(7L);
+		model.setWeight(72.5d);
+		Assert.assertEquals(" WHERE `age` = ? AND `score` > ? AND `weight` < ? ", mapper.toPositionalWhereClause(model));
+
+		Recorder recorder = new Recorder();
+		Assert.assertEquals(3, mapper.bindWhereParameters(model, recorder.statement()));
+		Assert.assertEquals(Arrays.<Object> asList(40, 7L, 72.5d), recorder.values());
+		Assert.assertEquals(Arrays.asList("setInt", "setLong", "setDouble"), recorder.setters());
+		Assert.assertEquals(40, mapper.toParameterMap(model).get("age"));
+	}
+
+	@Test
+	public void emptyCollectionMatchesNothing() throws Exception {
+		QueryMapper<WhereTestModel1> mapper = QueryMapper.forClass(WhereTestModel1.class);
+		WhereTestModel1 model = new WhereTestModel1();
+		model.setIds(Collections.<Long> emptyList());
+		Assert.assertEquals(" WHERE `id` IN (NULL) ", mapper.toPositionalWhereClause(model));
+		Assert.assertEquals(0, mapper.bindWhereParameters(model, new Recorder().statement()));
+	}
+
+	@Test
+	public void bindFromIndex() throws Exception {
+		QueryMapper<WhereTestModel1> mapper = QueryMapper.forClass(WhereTestModel1.class);
+		WhereTestModel1 model = new WhereTestModel1();
+		model.setMinimumAge(21);
+		Recorder recorder = new Recorder();
+		Assert.assertEquals(4, mapper.bindWhereParameters(model, recorder.statement(), 3));
+		Assert.assertEquals(Collections.singletonMap(3, (Object) 21), recorder.bound);
+	}
+
+	@Test
+	public void bucketedCollectionRepeatsLastElement() throws Exception {
+		QueryMapper<WhereTestModel3> mapper = QueryMapper.forClass(WhereTestModel3.class);
+		WhereTestModel3 model = new WhereTestModel3();
+		model.setIds(Arrays.asList(5L, 6L, 7L));
+		Assert.assertEquals(" WHERE `id` IN (?, ?, ?, ?) ", mapper.toPositionalWhereClause(model));
+		Recorder recorder = new Recorder();
+		Assert.assertEquals(4, mapper.bindWhereParameters(model, recorder.statement()));
+		Assert.assertEquals(Arrays.<Object> asList(5L, 6L, 7L, 7L), recorder.values());
+		model.setIds(Collections.singletonList(5L));
+		Assert.assertEquals(" WHERE `id` IN (?) ", mapper.toPositionalWhereClause(model));
+	}
+
+	@Test
+	public void bucketingLimitsShapes() throws Exception {
+		QueryMapper.evict(WhereTestModel1.class);
+		QueryMapper<WhereTestModel1> plain = QueryMapper.forClass(WhereTestModel1.class);
+		QueryMapper<WhereTestModel1> bucketed = plain.bucketed();
+		Assert.assertSame(bucketed, plain.bucketed());
+		WhereTestModel1 model = new WhereTestModel1();
+		List<Long> ids = new ArrayList<Long>();
+		QueryMapper.setListener(new CountingListener());
+		try {
+			for (long i = 1; i <= 16; i++) {
+				ids.add(i);
+				model.setIds(ids);
+				String clause = bucketed.toPositionalWhereClause(model);
+				Recorder recorder = new Recorder();
+				Assert.assertEquals(clause.length() - clause.replace("?", "").length(), bucketed.bindWhereParameters(model, recorder.statement()));
+				Assert.assertEquals(Long.valueOf(i), recorder.values().get(recorder.values().size() - 1));
+				plain.toPositionalWhereClause(model);
+			}
+		} finally {
+			QueryMapper.setListener(null);
+		}
+		Assert.assertEquals(16, plain.getPositionalShapeCount());
+		Assert.assertEquals(5, bucketed.getPositionalShapeCount());
+	}
+
+	@Test
+	public void shapesAreCountedWithoutListener() {
+		QueryMapper.evict(WhereTestModel1.class);
+		QueryMapper<WhereTestModel1> mapper = QueryMapper.forClass(WhereTestModel1.class);
+		WhereTestModel1 model = new WhereTestModel1();
+		model.setIds(Arrays.asList(1L, 2L));
+		mapper.toPositionalWhereClause(model);
+		mapper.toPositionalWhereClause(model);
+		Assert.assertEquals(1, mapper.getPositionalShapeCount());
+		model.setIds(Arrays.asList(1L, 2L, 3L));
+		mapper.toPositionalWhereClause(model);
+		Assert.assertEquals(2, mapper.getPositionalShapeCount());
+	}
+
+	@Test
+	public void positionalMatchesNamed() throws Exception {
+		Random random = new Random(8L);
+		Connection connection = BatchTester.Database.open("positional");
+		try {
+			BatchTester.Database.createPersons(connection, 10);
+			positionalMatchesNamed(random, connection);
+		} finally {
+			connection.close();
+		}
+	}
+
+	private static void positionalMatchesNamed(Random random, Connection connection) throws Exception {
+		for (Class<?> clazz : Models.modelClasses()) {
+			QueryMapper<Object> mapper;
+			try {
+				mapper = mapper(clazz);
+			} catch (IllegalAnnotationException e) {
+				continue;
+			}
+			for (int i = 0; i < 50; i++) {
+				Object bean = Models.populate(clazz.getDeclaredConstructor().newInstance(), random);
+				Map<String, Object> parameters = mapper.toParameterMap(bean);
+				List<Object> expected = new ArrayList<Object>();
+				Matcher matcher = NAMED.matcher(mapper.toWhereClause(bean));
+				Set<String> names = new HashSet<String>();
+				boolean unique = true;
+				while (matcher.find()) {
+					unique &= names.add(matcher.group(1));
+					Object value = parameters.get(matcher.group(1));
+					if (value instanceof Collection) {
+						List<?> list = new ArrayList<Object>((Collection<?>) value);
+						expected.addAll(list);
+						if (clazz == WhereTestModel3.class) {
+							// bucketed, padded to the next power of two with the last element
+							for (int j = list.size(); j > 1 && Integer.bitCount(j) != 1; j++) {
+								expected.add(list.get(list.size() - 1));
+							}
+						}
+					} else {
+						expected.add(value);
+					}
+				}
+				String positional = mapper.toPositionalWhereClause(bean);
+				Recorder recorder = new Recorder();
+				int bound = mapper.bindWhereParameters(bean, recorder.statement());
+				if (unique) {
+					Assert.assertEquals(clazz.getName(), expected, recorder.values());
+				} else {
+					// named parameters of fields on the same column share a single value, 
+					// and normalization may leave some of those fields out, so compare the matching rows instead
+					assertSameRows(connection, mapper, bean);
+				}
+				Assert.assertEquals(clazz.getName(), bound, positional.length() - positional.replace("?", "").length());
+			}
+		}
+	}
+
+	/**
+	 * Asserts that the positional where clause of the given bean matches the same rows of table person 
+	 * as the conjunction of the where clauses of each of its <code>@Where</code> and <code>@Seek</code> fields on its own, which are never normalized
+	 */
+	private static void assertSameRows(Connection connection, QueryMapper<Object> mapper, Object bean) throws Exception {
+		List<Object> singles = new ArrayList<Object>();
+		for (Field field : bean.getClass().getDeclaredFields()) {
+			field.setAccessible(true);
+			if ((field.getAnnotation(Where.class) != null || field.getAnnotation(Seek.class) != null) && field.get(bean) != null) {
+				Object single = bean.getClass().getDeclaredConstructor().newInstance();
+				field.set(single, field.get(bean));
+				singles.add(single);
+			}
+		}
+		StringBuilder where = new StringBuilder();
+		for (Object single : singles) {
+			where.append(where.length() == 0 ? " WHERE " : " AND ").append(mapper.toPositionalWhereClause(single).substring(" WHERE ".length()));
+		}
+		PreparedStatement unnormalized = connection.prepareStatement("SELECT `id` FROM person" + where + " ORDER BY `id`");
+		PreparedStatement normalized = connection.prepareStatement("SELECT `id` FROM person" + mapper.toPositionalWhereClause(bean) + " ORDER BY `id`");
+		try {
+			int index = 1;
+			for (Object single : singles) {
+				index = mapper.bindWhereParameters(single, unnormalized, index);
+			}
+			mapper.bindWhereParameters(bean, normalized);
+			List<Long> expected = ids(unnormalized);
+			Assert.assertEquals(bean.getClass().getName() + mapper.toPositionalWhereClause(bean), expected, ids(normalized));
+			if (mapper.isUnsatisfiable(bean)) {
+				Assert.assertTrue(expected.isEmpty());
+			}
+		} finally {
+			unnormalized.close();
+			normalized.close();
+		}
+	}
+
+	private static List<Long> ids(PreparedStatement ps) throws SQLException {
+		List<Long> ids = new ArrayList<Long>();
+		ResultSet rs = ps.executeQuery();
+		try {
+			while (rs.next()) {
+				ids.add(rs.getLong(1));
+			}
+		} finally {
+			rs.close();
+		}
+		return ids;
+	}
+
+	@SuppressWarnings("unchecked")
+	private static QueryMapper<Object> mapper(Class<?> clazz) {
+		return (QueryMapper<Object>) QueryMapper.forClass(clazz);
+	}
+
+	/**
+	 * Records the values set on a PreparedStatement proxy, by parameter index
+	 */
+	static final class Recorder implements InvocationHandler {
+
+		private final Map<Integer, Object> bound = new TreeMap<Integer, Object>();
+		private final Map<Integer, String> setters = new TreeMap<Integer, String>();
+
+		PreparedStatement statement() {
+			return (PreparedStatement) Proxy.newProxyInstance(getClass().getClassLoader(), new Class<?>[] { PreparedStatement.class }, this);
+		}
+
+		@Override
+		public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+			if (method.getName().startsWith("set") && args != null && args.length == 2 && args[0] instanceof Integer) {
+				bound.put((Integer) args[0], args[1]);
+				setters.put((Integer) args[0], method.getName());
+				return null;
+			}
+			throw new UnsupportedOperationException(method.getName());
+		}
+
+		List<Object> values() {
+			return new ArrayList<Object>(bound.values());
+		}
+
+		List<String> setters() {
+			return new ArrayList<String>(setters.values());
+		}
+
+	}
+
+}
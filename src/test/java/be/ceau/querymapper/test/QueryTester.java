@@ -0,0 +1,92 @@
+package be.ceau.querymapper.test;
+
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import be.ceau.querymapper.IllegalAnnotationException;
+import be.ceau.querymapper.Query;
+import be.ceau.querymapper.QueryMapper;
+import be.ceau.querymapper.test.model.LimitTestModel5;
+import be.ceau.querymapper.test.model.WhereTestModel1;
+
+public class QueryTester {
+
+	@Test
+	public void queryEqualsSeparateClauses() throws Exception {
+		Random random = new Random(6L);
+		for (Class<?> clazz : Models.modelClasses()) {
+			QueryMapper<Object> mapper;
+			try {
+				mapper = mapper(clazz);
+			} catch (IllegalAnnotationException e) {
+				continue;
+			}
+			for (int i = 0; i < 50; i++) {
+				Object bean = Models.populate(clazz.getDeclaredConstructor().newInstance(), random);
+				String limitClause;
+				try {
+					limitClause = mapper.toLimitClause(bean);
+				} catch (IllegalArgumentException e) {
+					try {
+						mapper.toQuery(bean);
+						Assert.fail("toQuery should fail for " + clazz.getName() + " like toLimitClause does");
+					} catch (IllegalArgumentException expected) {
+						// same validation as toLimitClause
+					}
+					continue;
+				}
+				Query query = mapper.toQuery(bean);
+				Assert.assertEquals(mapper.toWhereClause(bean), query.getWhereClause());
+				Assert.assertEquals(mapper.toOrderClause(), query.getOrderClause());
+				Assert.assertEquals(limitClause, query.getLimitClause());
+				Assert.assertEquals(mapper.toWhereClause(bean) + mapper.toOrderClause() + limitClause, query.getClause());
+				Assert.assertEquals(mapper.toParameterMap(bean), query.getParameters());
+			}
+		}
+	}
+
+	@Test
+	public void queryHoldsLimitValues() {
+		LimitTestModel5 model = new LimitTestModel5();
+		model.setPart(3L);
+		model.setRows(20L);
+		Query query = QueryMapper.forClass(LimitTestModel5.class).toQuery(model);
+		Assert.assertEquals(Long.valueOf(60L), query.getOffset());
+		Assert.assertEquals(Long.valueOf(20L), query.getRows());
+		model.setPart(null);
+		query = QueryMapper.forClass(LimitTestModel5.class).toQuery(model);
+		Assert.assertNull(query.getOffset());
+		Assert.assertEquals(Long.valueOf(20L), query.getRows());
+		model.setRows(null);
+		query = QueryMapper.forClass(LimitTestModel5.class).toQuery(model);
+		Assert.assertNull(query.getRows());
+	}
+
+	@Test
+	public void shapeDependsOnPresentFieldsOnly() {
+		QueryMapper<WhereTestModel1> mapper = QueryMapper.forClass(WhereTestModel1.class);
+		WhereTestModel1 first = new WhereTestModel1();
+		first.setName("first");
+		WhereTestModel1 second = new WhereTestModel1();
+		second.setName("second");
+		Assert.assertEquals(mapper.toQuery(first).getShape(), mapper.toQuery(second).getShape());
+		second.setMinimumAge(18);
+		Assert.assertNotEquals(mapper.toQuery(first).getShape(), mapper.toQuery(second).getShape());
+		Assert.assertEquals(0L, mapper.toQuery(new WhereTestModel1()).getShape());
+	}
+
+	@Test(expected = UnsupportedOperationException.class)
+	public void queryParametersAreUnmodifiable() {
+		WhereTestModel1 model = new WhereTestModel1();
+		model.setName("name");
+		QueryMapper.forClass(WhereTestModel1.class).toQuery(model).getParameters().clear();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static QueryMapper<Object> mapper(Class<?> clazz) {
+		return (QueryMapper<Object>) QueryMapper.forClass(clazz);
+	}
+
+}
@@ -0,0 +1,99 @@
+package be.ceau.querymapper.test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import be.ceau.querymapper.QueryMapper;
+import be.ceau.querymapper.ResultStream;
+import be.ceau.querymapper.RowMapper;
+import be.ceau.querymapper.test.model.KeysetTestModel1;
+import be.ceau.querymapper.test.model.PersonRow;
+import be.ceau.querymapper.test.model.WhereTestModel1;
+
+public class ResultStreamTester {
+
+	private Connection connection;
+	private JdbcDataSource dataSource;
+
+	@Before
+	public void setUp() throws SQLException {
+		// held open to keep the in-memory database alive
+		connection = BatchTester.Database.open("stream");
+		BatchTester.Database.createPersons(connection, 20);
+		dataSource = new JdbcDataSource();
+		dataSource.setURL("jdbc:h2:mem:stream;MODE=MySQL;DATABASE_TO_LOWER=TRUE");
+	}
+
+	@After
+	public void tearDown() throws SQLException {
+		connection.close();
+	}
+
+	private static List<Long> ids(ResultStream<PersonRow> rows) {
+		List<Long> ids = new ArrayList<Long>();
+		while (rows.hasNext()) {
+			ids.add(rows.next().getId());
+		}
+		return ids;
+	}
+
+	@Test
+	public void cursorReadsAllRows() throws SQLException {
+		WhereTestModel1 model = new WhereTestModel1();
+		model.setMinimumAge(150);
+		// ignored by a cursor
+		model.setRows(2);
+		ResultStream<PersonRow> rows = QueryMapper.forClass(WhereTestModel1.class)
+				.stream(dataSource, "SELECT * FROM person p", model, RowMapper.forClass(PersonRow.class), 4);
+		Assert.assertEquals(Arrays.asList(20L, 19L, 18L, 17L, 16L, 15L), ids(rows));
+		Assert.assertEquals(6L, rows.getRowCount());
+		Assert.assertEquals(1, rows.getQueryCount());
+		Assert.assertFalse(rows.hasNext());
+	}
+
+	@Test
+	public void seekReadsPages() throws SQLException {
+		KeysetTestModel1 model = new KeysetTestModel1();
+		model.setMinimumAge(30);
+		model.setRows(3);
+		ResultStream<PersonRow> rows = QueryMapper.forClass(KeysetTestModel1.class)
+				.stream(dataSource, "SELECT * FROM person", model, RowMapper.forClass(PersonRow.class), 100);
+		List<Long> ids = ids(rows);
+		Assert.assertEquals(Arrays.asList(10L, 11L, 12L, 13L, 14L, 15L, 16L, 17L, 18L, 19L, 20L, 3L, 4L, 5L, 6L, 7L, 8L, 9L), ids);
+		// six full pages, and an empty one
+		Assert.assertEquals(7, rows.getQueryCount());
+	}
+
+	@Test
+	public void seekStartsAfterKey() throws SQLException {
+		KeysetTestModel1 model = new KeysetTestModel1();
+		model.setAfter(Arrays.<Object> asList("name 5", 5L));
+		ResultStream<PersonRow> rows = QueryMapper.forClass(KeysetTestModel1.class)
+				.stream(dataSource, "SELECT id, name FROM person", model, RowMapper.forClass(PersonRow.class), 2);
+		Assert.assertEquals(Arrays.asList(6L, 7L, 8L, 9L), ids(rows));
+		Assert.assertEquals(3, rows.getQueryCount());
+	}
+
+	@Test
+	public void closingStreamReleasesRows() throws SQLException {
+		ResultStream<PersonRow> rows = QueryMapper.forClass(WhereTestModel1.class)
+				.stream(dataSource, "SELECT * FROM person p", new WhereTestModel1(), RowMapper.forClass(PersonRow.class), 5);
+		try (Stream<PersonRow> stream = rows.stream()) {
+			Assert.assertEquals(Arrays.asList("name 20", "name 19"), stream.limit(2).map(PersonRow::getLabel).collect(Collectors.toList()));
+		}
+		Assert.assertFalse(rows.hasNext());
+		Assert.assertEquals(2L, rows.getRowCount());
+	}
+
+}
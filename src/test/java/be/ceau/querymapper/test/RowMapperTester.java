@@ -0,0 +1,137 @@
+package be.ceau.querymapper.test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import be.ceau.querymapper.IllegalAnnotationException;
+import be.ceau.querymapper.QueryMapper;
+import be.ceau.querymapper.RowMapper;
+import be.ceau.querymapper.annotations.Column;
+import be.ceau.querymapper.enums.SortOrder;
+import be.ceau.querymapper.test.model.PersonRow;
+import be.ceau.querymapper.test.model.WhereTestModel1;
+
+public class RowMapperTester {
+
+	private Connection connection;
+
+	@Before
+	public void setUp() throws SQLException {
+		connection = BatchTester.Database.open("rowmapper");
+		BatchTester.Database.createPersons(connection, 10);
+	}
+
+	@After
+	public void tearDown() throws SQLException {
+		connection.close();
+	}
+
+	private <R> List<R> query(String sql, RowMapper<R> mapper) throws SQLException {
+		Statement statement = connection.createStatement();
+		try {
+			ResultSet rs = statement.executeQuery(sql);
+			try {
+				return mapper.handle(rs);
+			} finally {
+				rs.close();
+			}
+		} finally {
+			statement.close();
+		}
+	}
+
+	@Test
+	public void mapsAnnotatedColumns() throws SQLException {
+		List<PersonRow> rows = query("SELECT * FROM person ORDER BY id", RowMapper.forClass(PersonRow.class));
+		Assert.assertEquals(10, rows.size());
+		PersonRow row = rows.get(2);
+		Assert.assertEquals(3L, row.getId());
+		Assert.assertEquals("name 3", row.getLabel());
+		Assert.assertEquals(Integer.valueOf(30), row.getAge());
+		Assert.assertEquals(SortOrder.DESCENDING, row.getSortOrder());
+		Assert.assertEquals(3, row.getPosition());
+		// not annotated while other fields are
+		Assert.assertNull(row.getCode());
+	}
+
+	@Test
+	public void mapsSubsetAndNulls() throws SQLException {
+		List<PersonRow> rows = query("SELECT NULL AS AGE, id FROM person WHERE id = 4", RowMapper.forClass(PersonRow.class));
+		Assert.assertEquals(1, rows.size());
+		Assert.assertEquals(4L, rows.get(0).getId());
+		Assert.assertNull(rows.get(0).getAge());
+		Assert.assertNull(rows.get(0).getLabel());
+	}
+
+	@Test
+	public void defaultsToWhereColumns() throws SQLException {
+		List<WhereTestModel1> rows = query("SELECT `age`, `code`, `sortOrder` FROM person ORDER BY id", RowMapper.forClass(WhereTestModel1.class));
+		Assert.assertEquals(10, rows.size());
+		Assert.assertEquals(Integer.valueOf(50), rows.get(4).getMinimumAge());
+		// the mapped bean works as a filter
+		QueryMapper<WhereTestModel1> mapper = QueryMapper.forClass(WhereTestModel1.class);
+		Assert.assertEquals(" WHERE `p`.`age` >= :age AND `code` LIKE :code AND `sortOrder` = :sortOrder ", mapper.toWhereClause(rows.get(4)));
+		Assert.assertEquals("c 5%", mapper.toParameterMap(rows.get(4)).get("code"));
+		Assert.assertEquals("ASCENDING", mapper.toParameterMap(rows.get(5)).get("sortOrder"));
+	}
+
+	@Test
+	public void planIsReusedPerShape() throws SQLException {
+		RowMapper<PersonRow> mapper = RowMapper.forClass(PersonRow.class);
+		Assert.assertSame(mapper, RowMapper.forClass(PersonRow.class));
+		Statement statement = connection.createStatement();
+		try {
+			for (String sql : Arrays.asList("SELECT id, name FROM person", "SELECT name, id FROM person")) {
+				ResultSet rs = statement.executeQuery(sql);
+				try {
+					while (rs.next()) {
+						PersonRow row = mapper.map(rs);
+						Assert.assertEquals("name " + row.getId(), row.getLabel());
+					}
+				} finally {
+					rs.close();
+				}
+			}
+		} finally {
+			statement.close();
+		}
+	}
+
+	@Test(expected = IllegalAnnotationException.class)
+	public void columnOnFinalField() {
+		RowMapper.forClass(FinalColumn.class);
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void noDefaultConstructor() {
+		RowMapper.forClass(NoConstructor.class);
+	}
+
+	public static class FinalColumn {
+
+		@Column
+		private final long id = 0L;
+
+	}
+
+	public static class NoConstructor {
+
+		@Column
+		private long id;
+
+		public NoConstructor(long id) {
+			this.id = id;
+		}
+
+	}
+
+}
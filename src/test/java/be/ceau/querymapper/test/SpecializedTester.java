@@ -0,0 +1,334 @@
+package be.ceau.querymapper.test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import be.ceau.querymapper.IllegalAnnotationException;
+import be.ceau.querymapper.Query;
+import be.ceau.querymapper.QueryMapper;
+import be.ceau.querymapper.annotations.Limit;
+import be.ceau.querymapper.annotations.Where;
+import be.ceau.querymapper.enums.Comparison;
+import be.ceau.querymapper.enums.LimitType;
+import be.ceau.querymapper.enums.SortOrder;
+
+public class SpecializedTester {
+
+	private static final int ITERATIONS = 200;
+
+	/**
+	 * More <code>@Where</code> fields than fit the precomputed where clause templates, so the generated class appends the where clause
+	 */
+	public static class WideTestModel {
+
+		@Where
+		private Integer i0;
+
+		@Where(comparison = Comparison.EQUALS)
+		private String s1;
+
+		@Where
+		private SortOrder e2;
+
+		@Where(comparison = Comparison.IN)
+		private List<Long> l3;
+
+		@Where
+		private Integer i4;
+
+		@Where(comparison = Comparison.STARTS_WITH)
+		private String s5;
+
+		@Where
+		private SortOrder e6;
+
+		@Where(comparison = Comparison.IN)
+		private List<Long> l7;
+
+		@Where
+		private Integer i8;
+
+		@Where(comparison = Comparison.LIKE)
+		private String s9;
+
+		@Where
+		private SortOrder e10;
+
+		@Where(comparison = Comparison.IN)
+		private List<Long> l11;
+
+		@Where
+		private Integer i12;
+
+		@Where(comparison = Comparison.EQUALS)
+		private String s13;
+
+		@Where
+		private SortOrder e14;
+
+		@Where(comparison = Comparison.IN)
+		private List<Long> l15;
+
+		@Where
+		private Integer i16;
+
+		@Where(comparison = Comparison.STARTS_WITH)
+		private String s17;
+
+		@Where
+		private SortOrder e18;
+
+		@Where(comparison = Comparison.IN)
+		private List<Long> l19;
+
+		@Where
+		private Integer i20;
+
+		@Where(comparison = Comparison.LIKE)
+		private String s21;
+
+		@Where
+		private SortOrder e22;
+
+		@Where(comparison = Comparison.IN)
+		private List<Long> l23;
+
+		@Where
+		private Integer i24;
+
+		@Where(comparison = Comparison.EQUALS)
+		private String s25;
+
+		@Where
+		private SortOrder e26;
+
+		@Where(comparison = Comparison.IN)
+		private List<Long> l27;
+
+		@Where
+		private Integer i28;
+
+		@Where(comparison = Comparison.STARTS_WITH)
+		private String s29;
+
+		@Where
+		private SortOrder e30;
+
+		@Where(comparison = Comparison.IN)
+		private List<Long> l31;
+
+		@Where
+		private Integer i32;
+
+		@Where(comparison = Comparison.LIKE)
+		private String s33;
+
+		@Where
+		private SortOrder e34;
+
+		@Where(comparison = Comparison.IN)
+		private List<Long> l35;
+
+		@Where
+		private Integer i36;
+
+		@Where(comparison = Comparison.EQUALS)
+		private String s37;
+
+		@Where
+		private SortOrder e38;
+
+		@Where(comparison = Comparison.IN)
+		private List<Long> l39;
+
+		@Where
+		private Integer i40;
+
+		@Where(comparison = Comparison.STARTS_WITH)
+		private String s41;
+
+		@Where
+		private SortOrder e42;
+
+		@Where(comparison = Comparison.IN)
+		private List<Long> l43;
+
+		@Where
+		private Integer i44;
+
+		@Where(comparison = Comparison.LIKE)
+		private String s45;
+
+		@Where
+		private SortOrder e46;
+
+		@Where(comparison = Comparison.IN)
+		private List<Long> l47;
+
+		@Where
+		private Integer i48;
+
+		@Where(comparison = Comparison.EQUALS)
+		private String s49;
+
+		@Where
+		private SortOrder e50;
+
+		@Where(comparison = Comparison.IN)
+		private List<Long> l51;
+
+		@Where
+		private Integer i52;
+
+		@Where(comparison = Comparison.STARTS_WITH)
+		private String s53;
+
+		@Where
+		private SortOrder e54;
+
+		@Where(comparison = Comparison.IN)
+		private List<Long> l55;
+
+		@Where
+		private Integer i56;
+
+		@Where(comparison = Comparison.LIKE)
+		private String s57;
+
+		@Where
+		private SortOrder e58;
+
+		@Where(comparison = Comparison.IN)
+		private List<Long> l59;
+
+		@Where
+		private Integer i60;
+
+		@Where(comparison = Comparison.EQUALS)
+		private String s61;
+
+		@Where
+		private SortOrder e62;
+
+		@Where(comparison = Comparison.IN)
+		private List<Long> l63;
+
+		@Where
+		private Integer i64;
+
+		@Where(comparison = Comparison.STARTS_WITH)
+		private String s65;
+
+		@Where
+		private SortOrder e66;
+
+		@Where(comparison = Comparison.IN)
+		private List<Long> l67;
+
+		@Where
+		private Integer i68;
+
+		@Where(comparison = Comparison.LIKE)
+		private String s69;
+
+		@Limit(LimitType.OFFSET)
+		private Integer offset;
+
+		@Limit
+		private Integer rows;
+
+	}
+
+	private static boolean hiddenClasses() {
+		try {
+			Class.forName("java.lang.invoke.MethodHandles$Lookup$ClassOption");
+			return true;
+		} catch (ClassNotFoundException e) {
+			return false;
+		}
+	}
+
+	@Test
+	public void specializeIsCached() {
+		QueryMapper<WideTestModel> mapper = QueryMapper.forClass(WideTestModel.class);
+		QueryMapper<WideTestModel> specialized = mapper.specialize();
+		Assert.assertSame(specialized, mapper.specialize());
+		Assert.assertSame(specialized, specialized.specialize());
+		Assert.assertEquals(hiddenClasses(), specialized != mapper);
+	}
+
+	@Test
+	public void wideModelRendersTheSame() throws Exception {
+		differential(QueryMapper.forClass(WideTestModel.class), WideTestModel.class);
+	}
+
+	@Test
+	public void everyModelRendersTheSame() throws Exception {
+		for (Class<?> clazz : Models.modelClasses()) {
+			QueryMapper<?> mapper;
+			try {
+				mapper = QueryMapper.forClass(clazz);
+			} catch (IllegalAnnotationException e) {
+				continue;
+			}
+			differential(mapper, clazz);
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	private static <T> void differential(QueryMapper<?> wildcard, Class<T> clazz) throws Exception {
+		QueryMapper<T> mapper = (QueryMapper<T>) wildcard;
+		QueryMapper<T> specialized = mapper.specialize();
+		Assert.assertEquals(clazz.getSimpleName(), hiddenClasses(), specialized != mapper);
+		Random random = new Random(clazz.getName().hashCode());
+		for (int i = 0; i < ITERATIONS; i++) {
+			T bean = Models.populate(clazz.getDeclaredConstructor().newInstance(), random);
+			String message = clazz.getSimpleName() + " iteration " + i;
+			Assert.assertEquals(message, mapper.toWhereClause(bean), specialized.toWhereClause(bean));
+			Assert.assertEquals(message, mapper.appendWhereClause(bean, new StringBuilder()).toString(), specialized.appendWhereClause(bean, new StringBuilder()).toString());
+			Assert.assertEquals(message, appendWhereClause(mapper, bean), appendWhereClause(specialized, bean));
+			Assert.assertEquals(message, mapper.toPositionalWhereClause(bean), specialized.toPositionalWhereClause(bean));
+			Assert.assertEquals(message, mapper.toParameterMap(bean), specialized.toParameterMap(bean));
+			String limit = limitClause(mapper, bean);
+			Assert.assertEquals(message, limit, limitClause(specialized, bean));
+			if (limit.startsWith("!")) {
+				continue;
+			}
+			Assert.assertEquals(message, mapper.appendLimitClause(bean, new StringBuilder()).toString(), specialized.appendLimitClause(bean, new StringBuilder()).toString());
+			Assert.assertEquals(message, mapper.toFingerprint(bean), specialized.toFingerprint(bean));
+			Query expected = mapper.toQuery(bean);
+			Query actual = specialized.toQuery(bean);
+			Assert.assertEquals(message, expected.getClause(), actual.getClause());
+			Assert.assertEquals(message, expected.getParameters(), actual.getParameters());
+			Assert.assertEquals(message, expected.getOffset(), actual.getOffset());
+			Assert.assertEquals(message, expected.getRows(), actual.getRows());
+			Assert.assertEquals(message, expected.getShape(), actual.getShape());
+			Assert.assertEquals(message, expected.getFingerprint(), actual.getFingerprint());
+		}
+	}
+
+	/**
+	 * Renders through the {@link Appendable} overload
+	 */
+	private static <T> String appendWhereClause(QueryMapper<T> mapper, T bean) throws IOException {
+		StringBuilder sb = new StringBuilder();
+		mapper.appendWhereClause(bean, (Appendable) sb);
+		return sb.toString();
+	}
+
+	/**
+	 * @return the limit clause, or the message of the IllegalArgumentException thrown for an invalid limit, prefixed with <code>!</code>
+	 */
+	private static <T> String limitClause(QueryMapper<T> mapper, T bean) {
+		try {
+			return mapper.toLimitClause(bean);
+		} catch (IllegalArgumentException e) {
+			return "!" + e.getMessage();
+		}
+	}
+
+}
@@ -0,0 +1,208 @@
+package be.ceau.querymapper.test;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import be.ceau.querymapper.QueryMapper;
+import be.ceau.querymapper.StatementCache;
+import be.ceau.querymapper.annotations.Where;
+import be.ceau.querymapper.dialect.Dialects;
+import be.ceau.querymapper.enums.Comparison;
+import be.ceau.querymapper.enums.InStrategy;
+import be.ceau.querymapper.test.model.WhereTestModel1;
+
+public class StatementCacheTester {
+
+	private static final String SELECT = "SELECT `id` FROM person p";
+
+	public static class ObjectIdsTestModel {
+
+		@Where(column = "id", comparison = Comparison.IN)
+		private List<Object> ids;
+
+	}
+
+	private Connection connection;
+
+	@Before
+	public void setUp() throws SQLException {
+		connection = BatchTester.Database.open("statements");
+		BatchTester.Database.createPersons(connection, 10);
+	}
+
+	@After
+	public void tearDown() throws SQLException {
+		connection.close();
+	}
+
+	@Test
+	public void sameShapeReusesStatement() throws SQLException {
+		QueryMapper<WhereTestModel1> mapper = QueryMapper.forClass(WhereTestModel1.class);
+		StatementCache cache = new StatementCache(connection, 4);
+		try {
+			PreparedStatement first = cache.prepare(mapper, SELECT, model(50, null, 2));
+			Assert.assertEquals(Arrays.asList(10L, 9L), ids(first));
+			PreparedStatement second = cache.prepare(mapper, SELECT, model(80, null, 5));
+			Assert.assertSame(first, second);
+			Assert.assertEquals(Arrays.asList(10L, 9L, 8L), ids(second));
+			Assert.assertEquals(1L, cache.getMissCount());
+			Assert.assertEquals(1L, cache.getHitCount());
+			Assert.assertEquals(1, cache.size());
+		} finally {
+			cache.close();
+		}
+	}
+
+	@Test
+	public void limitFormIsPartOfKey() throws SQLException {
+		QueryMapper<WhereTestModel1> mapper = QueryMapper.forClass(WhereTestModel1.class);
+		StatementCache cache = new StatementCache(connection, 4);
+		try {
+			Assert.assertEquals(Arrays.asList(10L, 9L, 8L, 7L, 6L, 5L), ids(cache.prepare(mapper, SELECT, model(50, null, null))));
+			Assert.assertEquals(Arrays.asList(8L, 7L), ids(cache.prepare(mapper, SELECT, model(50, 1, 2))));
+			Assert.assertEquals(Arrays.asList(6L, 5L), ids(cache.prepare(mapper, SELECT, model(50, 2, 2))));
+			Assert.assertEquals(Arrays.asList(10L), ids(cache.prepare(mapper, SELECT, model(50, null, 1))));
+			Assert.assertEquals(3L, cache.getMissCount());
+			Assert.assertEquals(1L, cache.getHitCount());
+		} finally {
+			cache.close();
+		}
+	}
+
+	@Test
+	public void collectionSizeIsPartOfKey() throws SQLException {
+		QueryMapper<WhereTestModel1> mapper = QueryMapper.forClass(WhereTestModel1.class);
+		StatementCache cache = new StatementCache(connection, 4);
+		try {
+			WhereTestModel1 model = model(null, null, null);
+			model.setIds(Arrays.asList(1L, 2L));
+			PreparedStatement two = cache.prepare(mapper, SELECT, model);
+			Assert.assertEquals(Arrays.asList(2L, 1L), ids(two));
+			model.setIds(Arrays.asList(3L, 4L, 5L));
+			PreparedStatement three = cache.prepare(mapper, SELECT, model);
+			Assert.assertNotSame(two, three);
+			Assert.assertEquals(Arrays.asList(5L, 4L, 3L), ids(three));
+			model.setIds(Arrays.asList(6L, 7L));
+			Assert.assertSame(two, cache.prepare(mapper, SELECT, model));
+			Assert.assertEquals(Arrays.asList(7L, 6L), ids(two));
+		} finally {
+			cache.close();
+		}
+	}
+
+	@Test
+	public void elementTypeIsPartOfKey() throws SQLException {
+		QueryMapper<ObjectIdsTestModel> mapper = QueryMapper.forClass(ObjectIdsTestModel.class).withInStrategy(InStrategy.VALUES, 2);
+		StatementCache cache = new StatementCache(connection, 4);
+		try {
+			ObjectIdsTestModel model = new ObjectIdsTestModel();
+			model.ids = Arrays.<Object> asList(1L, 2L, 3L);
+			PreparedStatement longs = cache.prepare(mapper, SELECT, model);
+			long fingerprint = mapper.toPositionalFingerprint(model);
+			Assert.assertEquals(new HashSet<Long>(Arrays.asList(1L, 2L, 3L)), new HashSet<Long>(ids(longs)));
+			model.ids = Arrays.<Object> asList(4, 5, 6);
+			Assert.assertEquals(" WHERE `id` IN (SELECT v FROM (VALUES (CAST(? AS INTEGER)), (?), (?)) AS qm_values(v)) ", mapper.toPositionalWhereClause(model));
+			PreparedStatement ints = cache.prepare(mapper, SELECT, model);
+			Assert.assertNotSame(longs, ints);
+			Assert.assertNotEquals(fingerprint, mapper.toPositionalFingerprint(model));
+			Assert.assertEquals(new HashSet<Long>(Arrays.asList(4L, 5L, 6L)), new HashSet<Long>(ids(ints)));
+			model.ids = Arrays.<Object> asList(7L, 8L, 9L);
+			Assert.assertSame(longs, cache.prepare(mapper, SELECT, model));
+		} finally {
+			cache.close();
+		}
+	}
+
+	@Test
+	public void mapperIsPartOfKey() throws SQLException {
+		QueryMapper<WhereTestModel1> mapper = QueryMapper.forClass(WhereTestModel1.class);
+		QueryMapper<WhereTestModel1> h2 = mapper.withDialect(Dialects.H2);
+		StatementCache cache = new StatementCache(connection, 4);
+		try {
+			PreparedStatement first = cache.prepare(mapper, SELECT, model(null, 1, 2));
+			PreparedStatement second = cache.prepare(h2, SELECT, model(null, 1, 2));
+			Assert.assertNotSame(first, second);
+			Assert.assertEquals(ids(first), ids(second));
+			Assert.assertEquals(2L, cache.getMissCount());
+		} finally {
+			cache.close();
+		}
+	}
+
+	@Test
+	public void leastRecentlyUsedStatementIsEvictedAndClosed() throws SQLException {
+		QueryMapper<WhereTestModel1> mapper = QueryMapper.forClass(WhereTestModel1.class);
+		StatementCache cache = new StatementCache(connection, 2);
+		try {
+			PreparedStatement first = cache.prepare(mapper, SELECT, model(50, null, null));
+			PreparedStatement second = cache.prepare(mapper, SELECT, model(null, null, null));
+			Assert.assertSame(first, cache.prepare(mapper, SELECT, model(60, null, null)));
+			PreparedStatement third = cache.prepare(mapper, SELECT, model(null, null, 3));
+			Assert.assertTrue(second.isClosed());
+			Assert.assertFalse(first.isClosed());
+			Assert.assertEquals(1L, cache.getEvictionCount());
+			Assert.assertEquals(2, cache.size());
+			Assert.assertEquals(Arrays.asList(10L, 9L, 8L), ids(third));
+		} finally {
+			cache.close();
+		}
+	}
+
+	@Test
+	public void closeClosesStatements() throws SQLException {
+		StatementCache cache = new StatementCache(connection, 4);
+		PreparedStatement ps = cache.prepare(QueryMapper.forClass(WhereTestModel1.class), SELECT, model(50, null, null));
+		cache.close();
+		Assert.assertTrue(ps.isClosed());
+		Assert.assertEquals(0, cache.size());
+		Assert.assertFalse(connection.isClosed());
+	}
+
+	@Test
+	public void limitPlaceholdersFollowDialect() throws SQLException {
+		QueryMapper<WhereTestModel1> mapper = QueryMapper.forClass(WhereTestModel1.class).withDialect(Dialects.H2);
+		Assert.assertEquals(" OFFSET ? ROWS FETCH FIRST ? ROWS ONLY ", mapper.appendPositionalLimitClause(model(null, 1, 2), new StringBuilder()).toString());
+		Assert.assertEquals(" LIMIT ? OFFSET ? ", QueryMapper.forClass(WhereTestModel1.class).withDialect(Dialects.POSTGRESQL)
+				.appendPositionalLimitClause(model(null, 1, 2), new StringBuilder()).toString());
+		Assert.assertEquals("", mapper.appendPositionalLimitClause(model(null, 1, null), new StringBuilder()).toString());
+		StatementCache cache = new StatementCache(connection, 4);
+		try {
+			Assert.assertEquals(Arrays.asList(8L, 7L), ids(cache.prepare(mapper, "SELECT \"id\" FROM person p", model(30, 1, 2))));
+		} finally {
+			cache.close();
+		}
+	}
+
+	private static WhereTestModel1 model(Integer minimumAge, Integer page, Integer rows) {
+		WhereTestModel1 model = new WhereTestModel1();
+		model.setMinimumAge(minimumAge);
+		model.setPage(page);
+		model.setRows(rows);
+		return model;
+	}
+
+	private static List<Long> ids(PreparedStatement ps) throws SQLException {
+		List<Long> ids = new ArrayList<Long>();
+		ResultSet rs = ps.executeQuery();
+		try {
+			while (rs.next()) {
+				ids.add(rs.getLong(1));
+			}
+		} finally {
+			rs.close();
+		}
+		return ids;
+	}
+
+}
@@ -0,0 +1,102 @@
+package be.ceau.querymapper.test;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import be.ceau.querymapper.IllegalAnnotationException;
+import be.ceau.querymapper.QueryMapper;
+import be.ceau.querymapper.WarmUp;
+import be.ceau.querymapper.annotations.Where;
+import be.ceau.querymapper.test.model.CyclicWhereTestModel;
+import be.ceau.querymapper.test.model.LimitTestModel1;
+import be.ceau.querymapper.test.model.LimitTestModel2;
+import be.ceau.querymapper.test.model.OrderTestModel3;
+import be.ceau.querymapper.test.model.WhereFilter;
+import be.ceau.querymapper.test.model.WhereTestModel1;
+
+public class WarmUpTester {
+
+	/**
+	 * Reads a static nested <code>@Where</code> field, which can not be reached through an instance path
+	 */
+	public static class UnreachableWhereTestModel {
+
+		@Where
+		private String name;
+
+		@Where
+		private Address address;
+
+		public static class Address {
+
+			@Where
+			private static String city;
+
+		}
+
+	}
+
+	@Test
+	public void validClassesAreCached() {
+		QueryMapper.evict(WhereTestModel1.class);
+		WarmUp warmUp = WarmUp.classes(Arrays.<Class<?>> asList(WhereFilter.class, WhereTestModel1.class)).check();
+		Assert.assertEquals(Arrays.<Class<?>> asList(WhereFilter.class, WhereTestModel1.class), warmUp.getClasses());
+		Assert.assertTrue(warmUp.getFailures().isEmpty());
+		Assert.assertTrue(warmUp.getNanos() > 0L);
+		Assert.assertSame(QueryMapper.forClass(WhereTestModel1.class), QueryMapper.forClass(WhereTestModel1.class));
+	}
+
+	@Test
+	public void allFailuresAreCollected() {
+		ForkJoinPool pool = new ForkJoinPool(4);
+		try {
+			WarmUp warmUp = WarmUp.classes(pool, Arrays.<Class<?>> asList(LimitTestModel1.class, WhereFilter.class, LimitTestModel2.class, CyclicWhereTestModel.class));
+			Assert.assertEquals(Arrays.<Class<?>> asList(LimitTestModel1.class, LimitTestModel2.class, CyclicWhereTestModel.class), 
+					Arrays.asList(warmUp.getFailures().keySet().toArray()));
+			try {
+				warmUp.check();
+				Assert.fail("check() should throw");
+			} catch (IllegalAnnotationException e) {
+				Assert.assertEquals(3, e.getSuppressed().length);
+				Assert.assertTrue(e.getMessage().startsWith("3 of 4 classes have invalid annotations:"));
+				Assert.assertTrue(e.getMessage().contains(CyclicWhereTestModel.class.getName() + ": The nested @Where fields"));
+			}
+		} finally {
+			pool.shutdown();
+		}
+	}
+
+	@Test
+	public void unreadablePathIsCollected() {
+		WarmUp warmUp = WarmUp.classes(Arrays.<Class<?>> asList(UnreachableWhereTestModel.class, WhereFilter.class, LimitTestModel1.class));
+		Assert.assertEquals(Arrays.<Class<?>> asList(UnreachableWhereTestModel.class, LimitTestModel1.class), 
+				Arrays.asList(warmUp.getFailures().keySet().toArray()));
+		Assert.assertTrue(warmUp.getFailures().get(UnreachableWhereTestModel.class) instanceof IllegalArgumentException);
+		Assert.assertTrue(warmUp.getFailures().get(LimitTestModel1.class) instanceof IllegalAnnotationException);
+		Assert.assertSame(QueryMapper.forClass(WhereFilter.class), QueryMapper.forClass(WhereFilter.class));
+		try {
+			warmUp.check();
+			Assert.fail("check() should throw");
+		} catch (IllegalAnnotationException e) {
+			Assert.assertEquals(2, e.getSuppressed().length);
+			Assert.assertTrue(e.getMessage().contains(UnreachableWhereTestModel.class.getName() + ": The path address.city"));
+		}
+	}
+
+	@Test
+	public void packagesAreScanned() {
+		WarmUp warmUp = WarmUp.packages("be.ceau.querymapper.test");
+		Assert.assertTrue(warmUp.getClasses().contains(WhereTestModel1.class));
+		Assert.assertTrue(warmUp.getClasses().contains(WhereFilter.class));
+		Assert.assertFalse(warmUp.getClasses().contains(WarmUpTester.class));
+		Assert.assertTrue(warmUp.getFailures().containsKey(LimitTestModel1.class));
+		Assert.assertTrue(warmUp.getFailures().containsKey(OrderTestModel3.class));
+		Assert.assertFalse(warmUp.getFailures().containsKey(WhereTestModel1.class));
+		Assert.assertTrue(warmUp.getFailures().containsKey(UnreachableWhereTestModel.class));		// classes in jar files are scanned too, but none of them is annotated
+		Assert.assertTrue(WarmUp.packages("org.junit").check().getClasses().isEmpty());
+	}
+
+}
@@ -1,11 +1,18 @@
 package be.ceau.querymapper.test;
 
+import java.lang.reflect.Field;
+import java.util.Arrays;
+import java.util.Random;
+
 import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
 import be.ceau.querymapper.QueryMapper;
+import be.ceau.querymapper.annotations.Where;
 import be.ceau.querymapper.test.model.WhereFilter;
+import be.ceau.querymapper.test.model.WhereTestModel1;
+import be.ceau.querymapper.test.model.WhereTestModel2;
 
 public class WhereTester {
 
@@ -54,4 +61,60 @@ public class WhereTester {
 		Assert.assertTrue(whereFilterMapper.toParameterMap(filter).size() == 1 && whereFilterMapper.toParameterMap(filter).get("field1Name").equals("test"));
 	}
 
+	@Test
+	public void presentFieldsAreJoinedWithAnd() {
+		WhereTestModel1 model = new WhereTestModel1();
+		model.setName("name");
+		model.setIds(Arrays.asList(1L, 2L));
+		QueryMapper<WhereTestModel1> mapper = QueryMapper.forClass(WhereTestModel1.class);
+		Assert.assertEquals(" WHERE `name` LIKE :name AND `id` IN (:id) ", mapper.toWhereClause(model));
+		model.setName(null);
+		model.setMinimumAge(18);
+		Assert.assertEquals(" WHERE `p`.`age` >= :age AND `id` IN (:id) ", mapper.toWhereClause(model));
+		model.setMinimumAge(null);
+		model.setIds(null);
+		Assert.assertEquals("", mapper.toWhereClause(model));
+	}
+
+	@Test
+	public void everyShapeOfManyFieldsRendersPresentFields() throws Exception {
+		QueryMapper<WhereTestModel2> mapper = QueryMapper.forClass(WhereTestModel2.class);
+		Field[] fields = WhereTestModel2.class.getDeclaredFields();
+		Random random = new Random(12L);
+		for (int i = 0; i < 1000; i++) {
+			WhereTestModel2 model = new WhereTestModel2();
+			StringBuilder expected = new StringBuilder();
+			for (Field field : fields) {
+				if (random.nextBoolean()) {
+					field.setAccessible(true);
+					field.set(model, random.nextInt());
+					expected.append(expected.length() == 0 ? " WHERE " : " AND ");
+					expected.append("`").append(field.getName()).append("` = :").append(field.getName());
+				}
+			}
+			if (expected.length() > 0) {
+				expected.append(" ");
+			}
+			Assert.assertEquals(expected.toString(), mapper.toWhereClause(model));
+		}
+	}
+
+	@Test
+	public void valuesAreReadFromFieldsNotGetters() {
+		TrimmingGetter model = new TrimmingGetter();
+		model.code = " c1 ";
+		Assert.assertEquals(" c1 ", QueryMapper.forClass(TrimmingGetter.class).toParameterMap(model).get("code"));
+	}
+
+	public static class TrimmingGetter {
+
+		@Where
+		private String code;
+
+		public String getCode() {
+			return code == null ? null : code.trim();
+		}
+
+	}
+
 }
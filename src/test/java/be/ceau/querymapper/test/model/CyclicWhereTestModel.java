@@ -0,0 +1,21 @@
+package be.ceau.querymapper.test.model;
+
+import be.ceau.querymapper.annotations.Where;
+
+public class CyclicWhereTestModel {
+
+	@Where
+	private String name;
+
+	@Where
+	private CyclicWhereTestModel parent;
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public void setParent(CyclicWhereTestModel parent) {
+		this.parent = parent;
+	}
+
+}
@@ -0,0 +1,64 @@
+package be.ceau.querymapper.test.model;
+
+import java.util.List;
+
+import be.ceau.querymapper.annotations.Limit;
+import be.ceau.querymapper.annotations.Order;
+import be.ceau.querymapper.annotations.Seek;
+import be.ceau.querymapper.annotations.Where;
+import be.ceau.querymapper.enums.Comparison;
+import be.ceau.querymapper.enums.LimitType;
+
+public class KeysetTestModel1 {
+
+	@Where(column = "age", comparison = Comparison.GREATER_OR_EQUAL)
+	private Integer minimumAge;
+
+	@Order
+	private String name;
+
+	@Order(index = 1)
+	private Long id;
+
+	@Seek
+	private List<Object> after;
+
+	@Limit(LimitType.PART)
+	private Integer page;
+
+	@Limit
+	private Integer rows;
+
+	public Integer getMinimumAge() {
+		return minimumAge;
+	}
+
+	public void setMinimumAge(Integer minimumAge) {
+		this.minimumAge = minimumAge;
+	}
+
+	public List<Object> getAfter() {
+		return after;
+	}
+
+	public void setAfter(List<Object> after) {
+		this.after = after;
+	}
+
+	public Integer getPage() {
+		return page;
+	}
+
+	public void setPage(Integer page) {
+		this.page = page;
+	}
+
+	public Integer getRows() {
+		return rows;
+	}
+
+	public void setRows(Integer rows) {
+		this.rows = rows;
+	}
+
+}
@@ -0,0 +1,52 @@
+package be.ceau.querymapper.test.model;
+
+import java.util.List;
+
+import be.ceau.querymapper.annotations.Limit;
+import be.ceau.querymapper.annotations.Order;
+import be.ceau.querymapper.annotations.Seek;
+import be.ceau.querymapper.enums.LimitType;
+import be.ceau.querymapper.enums.SortOrder;
+
+public class KeysetTestModel2 {
+
+	@Order(order = SortOrder.DESCENDING)
+	private Integer age;
+
+	@Order(index = 1)
+	private Long id;
+
+	@Seek
+	private List<Object> after;
+
+	@Limit(LimitType.OFFSET)
+	private Long offset;
+
+	@Limit
+	private Integer rows;
+
+	public List<Object> getAfter() {
+		return after;
+	}
+
+	public void setAfter(List<Object> after) {
+		this.after = after;
+	}
+
+	public Long getOffset() {
+		return offset;
+	}
+
+	public void setOffset(Long offset) {
+		this.offset = offset;
+	}
+
+	public Integer getRows() {
+		return rows;
+	}
+
+	public void setRows(Integer rows) {
+		this.rows = rows;
+	}
+
+}
@@ -0,0 +1,23 @@
+package be.ceau.querymapper.test.model;
+
+import be.ceau.querymapper.annotations.Limit;
+import be.ceau.querymapper.enums.LimitType;
+
+
+public class LimitTestModel6 {
+
+	@Limit(LimitType.OFFSET)
+	private long offset;
+
+	@Limit(LimitType.ROWS)
+	private int rows;
+
+	public void setOffset(long offset) {
+		this.offset = offset;
+	}
+
+	public void setRows(int rows) {
+		this.rows = rows;
+	}
+	
+}
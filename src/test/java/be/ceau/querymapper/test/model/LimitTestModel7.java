@@ -0,0 +1,38 @@
+package be.ceau.querymapper.test.model;
+
+import be.ceau.querymapper.annotations.Limit;
+import be.ceau.querymapper.enums.LimitType;
+
+
+public class LimitTestModel7 {
+
+	@Limit
+	private Page page;
+
+	public Page getPage() {
+		return page;
+	}
+
+	public void setPage(Page page) {
+		this.page = page;
+	}
+
+	public static class Page {
+
+		@Limit(LimitType.OFFSET)
+		private Integer offset;
+
+		@Limit(LimitType.ROWS)
+		private int rows;
+
+		public void setOffset(Integer offset) {
+			this.offset = offset;
+		}
+
+		public void setRows(int rows) {
+			this.rows = rows;
+		}
+
+	}
+
+}
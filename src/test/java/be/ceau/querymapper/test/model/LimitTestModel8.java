@@ -0,0 +1,61 @@
+package be.ceau.querymapper.test.model;
+
+import be.ceau.querymapper.annotations.Limit;
+import be.ceau.querymapper.enums.LimitType;
+
+
+public class LimitTestModel8 {
+
+	@Limit
+	private Paging paging;
+
+	public Paging getPaging() {
+		return paging;
+	}
+
+	public void setPaging(Paging paging) {
+		this.paging = paging;
+	}
+
+	public static class Paging {
+
+		@Limit
+		private Window window;
+
+		public Window getWindow() {
+			return window;
+		}
+
+		public void setWindow(Window window) {
+			this.window = window;
+		}
+
+	}
+
+	public static class Window {
+
+		@Limit(LimitType.PART)
+		private Integer part;
+
+		@Limit(LimitType.ROWS)
+		private int rows;
+
+		public Integer getPart() {
+			return part;
+		}
+
+		public void setPart(Integer part) {
+			this.part = part;
+		}
+
+		public int getRows() {
+			return rows;
+		}
+
+		public void setRows(int rows) {
+			this.rows = rows;
+		}
+
+	}
+
+}
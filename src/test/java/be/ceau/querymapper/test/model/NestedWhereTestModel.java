@@ -0,0 +1,84 @@
+package be.ceau.querymapper.test.model;
+
+import be.ceau.querymapper.annotations.Order;
+import be.ceau.querymapper.annotations.Where;
+import be.ceau.querymapper.enums.Comparison;
+
+public class NestedWhereTestModel {
+
+	@Where
+	@Order
+	private String name;
+
+	@Where
+	private Address address;
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public Address getAddress() {
+		return address;
+	}
+
+	public void setAddress(Address address) {
+		this.address = address;
+	}
+
+	public static class Address {
+
+		@Where(comparison = Comparison.STARTS_WITH)
+		private String city;
+
+		@Where
+		private Geo geo;
+
+		public String getCity() {
+			return city;
+		}
+
+		public void setCity(String city) {
+			this.city = city;
+		}
+
+		public Geo getGeo() {
+			return geo;
+		}
+
+		public void setGeo(Geo geo) {
+			this.geo = geo;
+		}
+
+	}
+
+	public static class Geo {
+
+		@Where(column = "zip", table = "a")
+		private String postalCode;
+
+		@Where(comparison = Comparison.GREATER_OR_EQUAL)
+		private Integer floor;
+
+		public String getPostalCode() {
+			return postalCode;
+		}
+
+		public void setPostalCode(String postalCode) {
+			this.postalCode = postalCode;
+		}
+
+		public Integer getFloor() {
+			return floor;
+		}
+
+		public void setFloor(Integer floor) {
+			this.floor = floor;
+		}
+
+	}
+
+}
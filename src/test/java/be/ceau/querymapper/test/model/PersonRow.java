@@ -0,0 +1,65 @@
+package be.ceau.querymapper.test.model;
+
+import be.ceau.querymapper.annotations.Column;
+import be.ceau.querymapper.enums.SortOrder;
+
+public class PersonRow {
+
+	@Column
+	private long id;
+
+	@Column("name")
+	private String label;
+
+	@Column
+	private Integer age;
+
+	@Column
+	private SortOrder sortOrder;
+
+	@Column("sort")
+	private int position;
+
+	private String code;
+
+	public long getId() {
+		return id;
+	}
+
+	public void setId(long id) {
+		this.id = id;
+	}
+
+	public String getLabel() {
+		return label;
+	}
+
+	public void setLabel(String label) {
+		this.label = label;
+	}
+
+	public Integer getAge() {
+		return age;
+	}
+
+	public void setAge(Integer age) {
+		this.age = age;
+	}
+
+	public SortOrder getSortOrder() {
+		return sortOrder;
+	}
+
+	public void setSortOrder(SortOrder sortOrder) {
+		this.sortOrder = sortOrder;
+	}
+
+	public int getPosition() {
+		return position;
+	}
+
+	public String getCode() {
+		return code;
+	}
+
+}
@@ -0,0 +1,41 @@
+package be.ceau.querymapper.test.model;
+
+import be.ceau.querymapper.annotations.Where;
+import be.ceau.querymapper.enums.Comparison;
+
+public class PrimitiveTestModel {
+
+	@Where
+	private int age;
+
+	@Where(column = "score", comparison = Comparison.GREATER)
+	private long minimumScore;
+
+	@Where(comparison = Comparison.LESS)
+	private double weight;
+
+	public int getAge() {
+		return age;
+	}
+
+	public void setAge(int age) {
+		this.age = age;
+	}
+
+	public long getMinimumScore() {
+		return minimumScore;
+	}
+
+	public void setMinimumScore(long minimumScore) {
+		this.minimumScore = minimumScore;
+	}
+
+	public double getWeight() {
+		return weight;
+	}
+
+	public void setWeight(double weight) {
+		this.weight = weight;
+	}
+
+}
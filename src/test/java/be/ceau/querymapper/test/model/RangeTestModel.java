@@ -0,0 +1,73 @@
+package be.ceau.querymapper.test.model;
+
+import java.util.List;
+
+import be.ceau.querymapper.annotations.Where;
+import be.ceau.querymapper.enums.Comparison;
+
+public class RangeTestModel {
+
+	@Where(column = "age", comparison = Comparison.GREATER_OR_EQUAL)
+	private Integer minimumAge;
+
+	@Where(column = "age", comparison = Comparison.GREATER)
+	private Long olderThan;
+
+	@Where(column = "age", comparison = Comparison.LESS)
+	private Integer youngerThan;
+
+	@Where(column = "age")
+	private Integer age;
+
+	@Where(column = "age")
+	private Long exactAge;
+
+	@Where(column = "age", comparison = Comparison.DOES_NOT_EQUAL)
+	private Integer notAge;
+
+	@Where(column = "id", comparison = Comparison.IN)
+	private List<Long> ids;
+
+	@Where
+	private String name;
+
+	@Where(column = "name")
+	private String otherName;
+
+	public void setMinimumAge(Integer minimumAge) {
+		this.minimumAge = minimumAge;
+	}
+
+	public void setOlderThan(Long olderThan) {
+		this.olderThan = olderThan;
+	}
+
+	public void setYoungerThan(Integer youngerThan) {
+		this.youngerThan = youngerThan;
+	}
+
+	public void setAge(Integer age) {
+		this.age = age;
+	}
+
+	public void setExactAge(Long exactAge) {
+		this.exactAge = exactAge;
+	}
+
+	public void setNotAge(Integer notAge) {
+		this.notAge = notAge;
+	}
+
+	public void setIds(List<Long> ids) {
+		this.ids = ids;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public void setOtherName(String otherName) {
+		this.otherName = otherName;
+	}
+
+}
@@ -0,0 +1,77 @@
+package be.ceau.querymapper.test.model;
+
+import java.util.List;
+
+import be.ceau.querymapper.annotations.Limit;
+import be.ceau.querymapper.annotations.Order;
+import be.ceau.querymapper.annotations.Where;
+import be.ceau.querymapper.enums.Comparison;
+import be.ceau.querymapper.enums.LimitType;
+import be.ceau.querymapper.enums.SortOrder;
+
+public class WhereTestModel1 {
+
+	@Where(comparison = Comparison.LIKE)
+	@Order(index = 1)
+	private String name;
+
+	@Where(column = "age", table = "p", comparison = Comparison.GREATER_OR_EQUAL)
+	private Integer minimumAge;
+
+	@Where(comparison = Comparison.STARTS_WITH)
+	private String code;
+
+	@Where
+	@Order(column = "sort", table = "p", order = SortOrder.DESCENDING)
+	private SortOrder sortOrder;
+
+	@Where(column = "id", comparison = Comparison.IN)
+	private List<Long> ids;
+
+	@Limit(LimitType.PART)
+	private Integer page;
+
+	@Limit
+	private Integer rows;
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+	public Integer getMinimumAge() {
+		return minimumAge;
+	}
+
+	public void setMinimumAge(Integer minimumAge) {
+		this.minimumAge = minimumAge;
+	}
+
+	public void setCode(String code) {
+		this.code = code;
+	}
+
+	public void setSortOrder(SortOrder sortOrder) {
+		this.sortOrder = sortOrder;
+	}
+
+	public List<Long> getIds() {
+		return ids;
+	}
+
+	public void setIds(List<Long> ids) {
+		this.ids = ids;
+	}
+
+	public void setPage(Integer page) {
+		this.page = page;
+	}
+
+	public void setRows(Integer rows) {
+		this.rows = rows;
+	}
+
+}
@@ -0,0 +1,43 @@
+package be.ceau.querymapper.test.model;
+
+import be.ceau.querymapper.annotations.Where;
+
+public class WhereTestModel2 {
+
+	@Where
+	private Integer a;
+
+	@Where
+	private Integer b;
+
+	@Where
+	private Integer c;
+
+	@Where
+	private Integer d;
+
+	@Where
+	private Integer e;
+
+	@Where
+	private Integer f;
+
+	@Where
+	private Integer g;
+
+	@Where
+	private Integer h;
+
+	@Where
+	private Integer i;
+
+	@Where
+	private Integer j;
+
+	@Where
+	private Integer k;
+
+	@Where
+	private Integer l;
+
+}
@@ -0,0 +1,32 @@
+package be.ceau.querymapper.test.model;
+
+import java.util.List;
+
+import be.ceau.querymapper.annotations.Where;
+import be.ceau.querymapper.enums.Comparison;
+
+public class WhereTestModel3 {
+
+	@Where(column = "id", comparison = Comparison.IN, bucketed = true)
+	private List<Long> ids;
+
+	@Where
+	private String name;
+
+	public List<Long> getIds() {
+		return ids;
+	}
+
+	public void setIds(List<Long> ids) {
+		this.ids = ids;
+	}
+
+	public String getName() {
+		return name;
+	}
+
+	public void setName(String name) {
+		this.name = name;
+	}
+
+}